@@ -0,0 +1,70 @@
+package omok;
+
+import omok.engine.SearchLimits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PlayerComputer#makeMove()} on a mid-game position under a
+ * fixed node budget, so that the time per call tracks the speed of the search
+ * rather than a clock. The move is taken back after each call and the
+ * transposition table is cleared, so that no call is answered from the
+ * results of the previous one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AiBenchmark {
+
+    @Param({"15", "19", "50"})
+    public int size;
+
+    @Param({"2000", "20000"})
+    public long nodes;
+
+    private Board board;
+    private PlayerComputer ai;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Game game = new Game(this.size, "AI");
+        this.board = game.getBoard();
+        this.ai = (PlayerComputer) game.getBlackPlayer();
+        this.ai.setSearchLimits(SearchLimits.nodes(this.nodes));
+        // White moves first, so after an odd number of stones the AI is to play.
+        MidGame.play(game, game.getWhitePlayer(), this.ai, MidGame.STONES + 1, 42);
+    }
+
+    /** A search lasts milliseconds, far longer than the cost of a per-invocation fixture. */
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        this.ai.getTranspositionTable().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.ai.getEngine().shutdown();
+    }
+
+    @Benchmark
+    public void makeMove() {
+        this.ai.makeMove();
+        this.board.undo();
+    }
+}
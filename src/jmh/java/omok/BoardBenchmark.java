@@ -0,0 +1,109 @@
+package omok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Board} operations the game and the AI call on every
+ * move, on a mid-game position. Benchmarks that place a stone take it back
+ * again so that every invocation sees the same position. Run with the GC
+ * profiler (the default of the jmh task) to see the allocations per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** Number of precomputed intersections the benchmarks cycle through. */
+    private static final int PROBES = 1024;
+
+    @Param({"15", "19", "50"})
+    public int size;
+
+    private Game game;
+    private Board board;
+    private Player player;
+    private final int[] xs = new int[PROBES];
+    private final int[] ys = new int[PROBES];
+    private final int[] emptyXs = new int[PROBES];
+    private final int[] emptyYs = new int[PROBES];
+    private int next;
+
+    /**
+     * Play the mid-game position and pick the intersections to probe: any
+     * intersection for the queries, and empty ones next to the stones for
+     * placing a stone.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.game = MidGame.create(this.size, 42);
+        this.board = this.game.getBoard();
+        this.player = this.game.getWhitePlayer();
+        Position bits = this.board.position();
+        Random random = new Random(7);
+        for (int i = 0; i < PROBES; i++) {
+            this.xs[i] = random.nextInt(this.size);
+            this.ys[i] = random.nextInt(this.size);
+            int index = bits.candidateAt(random.nextInt(bits.candidateCount()));
+            this.emptyXs[i] = bits.x(index);
+            this.emptyYs[i] = bits.y(index);
+        }
+    }
+
+    private int nextProbe() {
+        int i = this.next;
+        this.next = (i + 1) & (PROBES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public void placeStone() {
+        int i = nextProbe();
+        this.board.placeStone(this.emptyXs[i], this.emptyYs[i], this.player);
+        this.board.undo();
+    }
+
+    @Benchmark
+    public void placeRandomStone() {
+        this.board.placeRandomStone(this.player);
+        this.board.undo();
+    }
+
+    @Benchmark
+    public boolean isEmpty() {
+        int i = nextProbe();
+        return this.board.isEmpty(this.xs[i], this.ys[i]);
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        return this.board.isFull();
+    }
+
+    @Benchmark
+    public boolean isWonBy() {
+        return this.board.isWonBy(this.player);
+    }
+
+    @Benchmark
+    public boolean checkForWinningRow() {
+        int i = nextProbe();
+        return this.board.checkForWinningRow(this.game.stonesToWin, this.player, this.xs[i], this.ys[i]);
+    }
+}
@@ -0,0 +1,55 @@
+package omok;
+
+import java.util.Random;
+
+/**
+ * Builds reproducible mid-game positions for the benchmarks: stones are played
+ * alternately from the centre outwards, each next to the stones already on the
+ * board as in a real game, and never completing a line.
+ */
+final class MidGame {
+
+    /** Number of stones on the board in a mid-game position. */
+    static final int STONES = 40;
+
+    private MidGame() {
+    }
+
+    /**
+     * Create a two-player game of the given size and play the mid-game stones.
+     *
+     * @param size board size
+     * @param seed seed of the random placement
+     * @return the game, white having moved first
+     */
+    static Game create(int size, long seed) {
+        Game game = new Game(size, "Player");
+        play(game, game.getWhitePlayer(), game.getBlackPlayer(), STONES, seed);
+        return game;
+    }
+
+    /**
+     * Play the mid-game stones on the board of an existing game.
+     *
+     * @param game   game whose board is filled
+     * @param first  player who places the first stone
+     * @param second the other player
+     * @param stones number of stones to play
+     * @param seed   seed of the random placement
+     */
+    static void play(Game game, Player first, Player second, int stones, long seed) {
+        Board board = game.getBoard();
+        Position bits = board.position();
+        Random random = new Random(seed);
+        int centre = board.size() / 2;
+        board.placeStone(centre, centre, first);
+        for (int placed = 1; placed < stones; placed++) {
+            Player player = placed % 2 == 0 ? first : second;
+            int index;
+            do {
+                index = bits.candidateAt(random.nextInt(bits.candidateCount()));
+            } while (bits.completesLine(index, Position.BLACK) || bits.completesLine(index, Position.WHITE));
+            board.placeStone(bits.x(index), bits.y(index), player);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package omok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original full-board win scan over a matrix of stone owners
+ * with the same scan over the bitboard and with the incremental check that
+ * only looks at the lines through the last placed stone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinDetectionBenchmark {
+
+    /** Column and row steps of the four line directions of the owner matrix. */
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    @Param({"15", "20", "50", "100"})
+    public int size;
+
+    private Game game;
+    private Board board;
+
+    /** The owner of every intersection, or null, as the original board kept them. */
+    private Player[][] owners;
+    private Player lastPlayer;
+    private int lastIndex;
+    private int lastColor;
+
+    /**
+     * Fill a quarter of the board with alternating stones at random
+     * intersections, skipping any that would complete a line, so that
+     * neither scan can stop early.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.game = new Game(this.size, "Player");
+        this.board = this.game.getBoard();
+        this.owners = new Player[this.size][this.size];
+        Position bits = this.board.position();
+        Random random = new Random(42);
+        Player[] players = {this.game.getWhitePlayer(), this.game.getBlackPlayer()};
+        int target = this.size * this.size / 4;
+        int placed = 0;
+        while (placed < target) {
+            int x = random.nextInt(this.size);
+            int y = random.nextInt(this.size);
+            Player player = players[placed % 2];
+            int index = bits.index(x, y);
+            int color = this.board.colorOf(player);
+            if (bits.isEmpty(index) && !bits.completesLine(index, color)) {
+                this.board.placeStone(x, y, player);
+                this.owners[x][y] = player;
+                this.lastPlayer = player;
+                this.lastIndex = index;
+                this.lastColor = color;
+                placed++;
+            }
+        }
+    }
+
+    /**
+     * The original algorithm on the original representation: try every stone
+     * of the player in the owner matrix, walking each direction stone by stone.
+     */
+    @Benchmark
+    public boolean matrixScan() {
+        for (int x = 0; x < this.size; x++) {
+            for (int y = 0; y < this.size; y++) {
+                if (this.owners[x][y] == this.lastPlayer && matrixWinningRow(x, y)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** The same full scan over the bitboard behind {@link Board}. */
+    @Benchmark
+    public boolean bitboardScan() {
+        for (int x = 0; x < this.size; x++) {
+            for (int y = 0; y < this.size; y++) {
+                if (this.board.isOccupiedBy(x, y, this.lastPlayer)
+                        && this.board.checkForWinningRow(this.game.stonesToWin, this.lastPlayer, x, y)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return whether a line of exactly the win length runs through (x, y). */
+    private boolean matrixWinningRow(int x, int y) {
+        for (int[] d : DIRECTIONS) {
+            int count = 1 + matrixRun(x, y, d[0], d[1]) + matrixRun(x, y, -d[0], -d[1]);
+            if (count == this.game.stonesToWin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Count the last player's stones from (x, y), exclusive, in one direction. */
+    private int matrixRun(int x, int y, int dx, int dy) {
+        int count = 0;
+        for (x += dx, y += dy; x >= 0 && x < this.size && y >= 0 && y < this.size
+                && this.owners[x][y] == this.lastPlayer; x += dx, y += dy) {
+            count++;
+        }
+        return count;
+    }
+
+    /** The check performed by {@link Position#place(int, int)}. */
+    @Benchmark
+    public boolean lastMove() {
+        return this.board.position().completesLine(this.lastIndex, this.lastColor);
+    }
+}
@@ -0,0 +1,555 @@
+package omok;
+
+import omok.util.IndexedIntSet;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compact bitboard representation of an Omok board. The stones of each
+ * colour are kept in their own bitset packed into a `long[]`, so occupancy
+ * tests are a single shift and mask and the stones take a few dozen bytes
+ * instead of one object per intersection.
+ *
+ * <p>Intersections are addressed by a single index {@code x * stride + y}
+ * where {@code stride = size + 1}. The extra column at {@code y == size} is a
+ * guard that never holds a stone, so walking along any of the four line
+ * directions runs into the guard (or off the ends of the array) instead of
+ * wrapping around to the next column.
+ *
+ * <p>Besides the stones, a board of size n keeps six int arrays of about n * n
+ * entries for the move history and the incremental free and candidate sets.
+ * These dominate the size of a board: on 15x15 the stones take 64 bytes and
+ * the int arrays about 5.7 KB, so a {@link #copy()} allocates nine arrays and
+ * copies about 6 KB. The search engines copy a board once per search and
+ * thread, never per node; they place and undo stones on their copy. For very
+ * large or unbounded boards use a {@link SparseBoard} instead.
+ */
+public class BitBoard implements Position {
+
+    /** Guard column masks, computed once per board size and shared like the Zobrist keys. */
+    private static final ConcurrentMap<Integer, long[]> EDGES = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int stride;
+    private final int cells;
+    private final int[] directions;
+
+    /** One bitset per colour, indexed by {@link #BLACK} and {@link #WHITE}. */
+    private final long[][] stones;
+
+    /** Guard column bits, treated as off-board by the line extraction; must not be modified. */
+    private final long[] edge;
+
+    /** The empty intersections, for O(1) fullness tests and random sampling. */
+    private final IndexedIntSet free;
+
+    /** Number of stones within {@link #candidateRadius} of each intersection. */
+    private final int[] nearby;
+
+    /** Empty intersections with at least one stone within the candidate radius. */
+    private final IndexedIntSet candidates;
+
+    private int candidateRadius = 2;
+
+    /** Zobrist keys for this board size, indexed by colour and index. */
+    private final long[][] keys;
+
+    /** Indices of the placed stones in the order they were placed. */
+    private final int[] history;
+
+    private int stoneCount;
+    private long hash;
+    private int winLength = 5;
+    private int rules = FREESTYLE;
+    private int winner = EMPTY;
+
+    /** Number of stones on the board when the winning line was completed. */
+    private int winnerPly;
+
+    /** Create a new empty board of the given size. */
+    public BitBoard(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Board size must be positive: " + size);
+        }
+        this.size = size;
+        this.stride = size + 1;
+        this.cells = size * this.stride;
+        this.directions = new int[]{1, this.stride, this.stride + 1, this.stride - 1};
+        int words = (this.cells + 63) >>> 6;
+        this.stones = new long[2][words];
+        this.edge = EDGES.computeIfAbsent(size, BitBoard::edge);
+        this.free = new IndexedIntSet(this.cells);
+        this.history = new int[size * size];
+        this.nearby = new int[this.cells];
+        this.candidates = new IndexedIntSet(this.cells);
+        this.keys = Zobrist.keys(size);
+        fillFree();
+    }
+
+    /** Create a copy of the given board. */
+    private BitBoard(BitBoard other) {
+        this.size = other.size;
+        this.stride = other.stride;
+        this.cells = other.cells;
+        this.directions = other.directions;
+        this.stones = new long[][]{other.stones[BLACK].clone(), other.stones[WHITE].clone()};
+        this.edge = other.edge;
+        this.free = other.free.copy();
+        this.history = other.history.clone();
+        this.nearby = other.nearby.clone();
+        this.candidates = other.candidates.copy();
+        this.candidateRadius = other.candidateRadius;
+        this.keys = other.keys;
+        this.stoneCount = other.stoneCount;
+        this.hash = other.hash;
+        this.winLength = other.winLength;
+        this.rules = other.rules;
+        this.winner = other.winner;
+        this.winnerPly = other.winnerPly;
+    }
+
+    /** Return the guard column bits of a board of the given size. */
+    private static long[] edge(int size) {
+        int stride = size + 1;
+        long[] edge = new long[(size * stride + 63) >>> 6];
+        for (int x = 0; x < size; x++) {
+            set(edge, x * stride + size);
+        }
+        return edge;
+    }
+
+    /**
+     * Return an independent copy of this board. The copy clones the stones and
+     * all the derived sets, about 6 KB on a 15x15 board; see the class comment.
+     */
+    public BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    /** Return the size of this board. */
+    public int size() {
+        return this.size;
+    }
+
+    /** Return the distance between two columns in index space. */
+    public int stride() {
+        return this.stride;
+    }
+
+    /** Return the number of indices, including the guard column. */
+    public int cells() {
+        return this.cells;
+    }
+
+    /**
+     * Return the index deltas of the four line directions: along a column,
+     * along a row and the two diagonals.
+     */
+    public int[] directions() {
+        return this.directions;
+    }
+
+    /**
+     * Return the index of the intersection (x, y).
+     *
+     * @param x 0-based column (vertical) index
+     * @param y 0-based row (horizontal) index
+     */
+    public int index(int x, int y) {
+        return x * this.stride + y;
+    }
+
+    /** Return the column of the given index. */
+    public int x(int index) {
+        return index / this.stride;
+    }
+
+    /** Return the row of the given index. */
+    public int y(int index) {
+        return index % this.stride;
+    }
+
+    /** Return whether (x, y) lies on the board. */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < this.size && y >= 0 && y < this.size;
+    }
+
+    /** Return the number of stones in a row needed to win. */
+    public int winLength() {
+        return this.winLength;
+    }
+
+    /** Set the number of stones in a row needed to win. */
+    public void setWinLength(int winLength) {
+        if (winLength < 1) {
+            throw new IllegalArgumentException("Win length must be positive: " + winLength);
+        }
+        this.winLength = winLength;
+    }
+
+    /** Return the rules, {@link #FREESTYLE} or {@link #RENJU}. */
+    public int rules() {
+        return this.rules;
+    }
+
+    /** Set the rules, {@link #FREESTYLE} or {@link #RENJU}. */
+    public void setRules(int rules) {
+        if (rules != FREESTYLE && rules != RENJU) {
+            throw new IllegalArgumentException("Unknown rules: " + rules);
+        }
+        this.rules = rules;
+    }
+
+    /**
+     * Return the colour that completed a winning line, or {@link #EMPTY}
+     * if nobody has won yet.
+     */
+    public int winner() {
+        return this.winner;
+    }
+
+    /** Return the index of the last placed stone, or -1 if the board is empty. */
+    public int lastMove() {
+        return this.stoneCount == 0 ? -1 : this.history[this.stoneCount - 1];
+    }
+
+    /** Return the index of the stone placed at the given 0-based ply. */
+    public int moveAt(int ply) {
+        return this.history[ply];
+    }
+
+    /**
+     * Return the radius of the square around each stone whose empty
+     * intersections are candidate moves.
+     */
+    public int candidateRadius() {
+        return this.candidateRadius;
+    }
+
+    /**
+     * Change the candidate radius, rebuilding the candidate set from the
+     * stones on the board.
+     */
+    public void setCandidateRadius(int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Candidate radius must be positive: " + radius);
+        }
+        if (radius == this.candidateRadius) {
+            return;
+        }
+        for (int ply = 0; ply < this.stoneCount; ply++) {
+            updateNearby(this.history[ply], -1);
+        }
+        this.candidateRadius = radius;
+        for (int ply = 0; ply < this.stoneCount; ply++) {
+            updateNearby(this.history[ply], 1);
+        }
+    }
+
+    /**
+     * Return the number of candidate moves: empty intersections within
+     * {@link #candidateRadius()} of a stone. The set is kept up to date by
+     * {@link #place(int, int)} and {@link #undo()}, so reading it costs
+     * nothing in proportion to the board area.
+     */
+    public int candidateCount() {
+        return this.candidates.size();
+    }
+
+    /**
+     * Return the candidate move stored at the given position, for
+     * iterating from 0 to {@code candidateCount() - 1}.
+     */
+    public int candidateAt(int position) {
+        return this.candidates.get(position);
+    }
+
+    /**
+     * Return the Zobrist hash of the stones on the board. It is updated
+     * incrementally by {@link #place(int, int)} and {@link #undo()}.
+     */
+    public long hash() {
+        return this.hash;
+    }
+
+    /** Return the number of stones on the board. */
+    public int stoneCount() {
+        return this.stoneCount;
+    }
+
+    /** Return whether every intersection holds a stone. */
+    public boolean isFull() {
+        return this.free.isEmpty();
+    }
+
+    /** Return the number of empty intersections. */
+    public int emptyCount() {
+        return this.free.size();
+    }
+
+    /**
+     * Return the empty intersection stored at the given position, for
+     * iterating over the empty intersections from 0 to
+     * {@code emptyCount() - 1}. The order changes as stones are placed.
+     */
+    public int emptyAt(int position) {
+        return this.free.get(position);
+    }
+
+    /**
+     * Return the index of an empty intersection chosen uniformly at random.
+     *
+     * @throws IllegalStateException if the board is full
+     */
+    public int randomEmpty(Random random) {
+        return this.free.random(random);
+    }
+
+    /** Return whether the intersection at the given index is empty. */
+    public boolean isEmpty(int index) {
+        return !get(this.stones[BLACK], index) && !get(this.stones[WHITE], index);
+    }
+
+    /** Return whether the given colour has a stone at the given index. */
+    public boolean has(int color, int index) {
+        return get(this.stones[color], index);
+    }
+
+    /**
+     * Return the colour of the stone at the given index, or {@link #EMPTY}.
+     */
+    public int colorAt(int index) {
+        if (get(this.stones[BLACK], index)) {
+            return BLACK;
+        }
+        if (get(this.stones[WHITE], index)) {
+            return WHITE;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Place a stone of the given colour on an empty intersection.
+     *
+     * @param index index of the intersection
+     * @param color {@link #BLACK} or {@link #WHITE}
+     */
+    public void place(int index, int color) {
+        set(this.stones[color], index);
+        this.free.remove(index);
+        this.history[this.stoneCount++] = index;
+        this.hash ^= this.keys[color][index];
+        this.candidates.remove(index);
+        updateNearby(index, 1);
+        if (this.winner == EMPTY && completesLine(index, color)) {
+            this.winner = color;
+            this.winnerPly = this.stoneCount;
+        }
+    }
+
+    /**
+     * Take back the last placed stone, restoring the board to the state
+     * before the matching {@link #place(int, int)}.
+     *
+     * @return the index of the removed stone
+     * @throws IllegalStateException if the board is empty
+     */
+    public int undo() {
+        if (this.stoneCount == 0) {
+            throw new IllegalStateException("No stone to take back");
+        }
+        if (this.winnerPly == this.stoneCount) {
+            this.winner = EMPTY;
+            this.winnerPly = 0;
+        }
+        int index = this.history[--this.stoneCount];
+        int color = colorAt(index);
+        clear(this.stones[color], index);
+        this.free.add(index);
+        this.hash ^= this.keys[color][index];
+        updateNearby(index, -1);
+        if (this.nearby[index] > 0) {
+            this.candidates.add(index);
+        }
+        return index;
+    }
+
+    /**
+     * Return whether a stone of the given colour at the given index is part
+     * of a line of at least {@link #winLength()} stones, or of exactly that
+     * many for the first player under {@link #RENJU} rules. Only the four
+     * lines through the index are walked, and each walk stops after
+     * {@code winLength - 1} stones, so the cost does not depend on the size
+     * of the board.
+     */
+    public boolean completesLine(int index, int color) {
+        if (this.rules == RENJU && color == Renju.RESTRICTED) {
+            return completesExactLine(index, color);
+        }
+        int reach = this.winLength - 1;
+        for (int delta : this.directions) {
+            int length = 1 + run(color, index, delta, reach);
+            if (length < this.winLength) {
+                length += run(color, index, -delta, reach);
+            }
+            if (length >= this.winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return whether the stone is part of a line of exactly {@link #winLength()} stones. */
+    private boolean completesExactLine(int index, int color) {
+        for (int delta : this.directions) {
+            int length = 1 + run(color, index, delta, this.winLength) + run(color, index, -delta, this.winLength);
+            if (length == this.winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Remove all the stones from the board. */
+    public void clear() {
+        Arrays.fill(this.stones[BLACK], 0L);
+        Arrays.fill(this.stones[WHITE], 0L);
+        this.stoneCount = 0;
+        this.hash = 0;
+        this.winner = EMPTY;
+        this.winnerPly = 0;
+        Arrays.fill(this.nearby, 0);
+        this.candidates.clear();
+        fillFree();
+    }
+
+    /**
+     * Add {@code change} to the nearby count of every intersection in the
+     * square around the given stone, keeping the candidate set in step.
+     */
+    private void updateNearby(int index, int change) {
+        int cx = x(index);
+        int cy = y(index);
+        int r = this.candidateRadius;
+        for (int x = Math.max(0, cx - r); x <= Math.min(this.size - 1, cx + r); x++) {
+            for (int y = Math.max(0, cy - r); y <= Math.min(this.size - 1, cy + r); y++) {
+                int i = x * this.stride + y;
+                int count = this.nearby[i] + change;
+                this.nearby[i] = count;
+                if (count == 0) {
+                    this.candidates.remove(i);
+                } else if (count == change && change > 0 && isEmpty(i)) {
+                    this.candidates.add(i);
+                }
+            }
+        }
+    }
+
+    private void fillFree() {
+        this.free.clear();
+        for (int x = 0; x < this.size; x++) {
+            for (int y = 0; y < this.size; y++) {
+                this.free.add(index(x, y));
+            }
+        }
+    }
+
+    /**
+     * Count the consecutive stones of the given colour starting next to the
+     * given index and walking along {@code delta}. The start index itself is
+     * not counted.
+     */
+    public int run(int color, int index, int delta) {
+        return run(color, index, delta, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #run(int, int, int)} but stops counting after
+     * {@code limit} stones.
+     */
+    public int run(int color, int index, int delta, int limit) {
+        long[] bits = this.stones[color];
+        int count = 0;
+        int i = index + delta;
+        while (count < limit && i >= 0 && i < this.cells && get(bits, i)) {
+            count++;
+            i += delta;
+        }
+        return count;
+    }
+
+    /**
+     * Return the length of the line of the given colour through the given
+     * index along {@code delta}, counting the index itself as one stone.
+     */
+    public int lineLength(int color, int index, int delta) {
+        return 1 + run(color, index, delta) + run(color, index, -delta);
+    }
+
+    /**
+     * Extract the stones of the given colour on the segment of
+     * {@code 2 * radius + 1} intersections centred on the given index along
+     * {@code delta}. Bit {@code i} of the result is the intersection
+     * {@code index + (i - radius) * delta}, so bit {@code radius} is the
+     * centre. Bits beyond the first off-board intersection (see
+     * {@link #edgeLine(int, int, int)}) belong to a neighbouring column and
+     * must be ignored by the caller. The radius may be at most 15.
+     */
+    public int line(int color, int index, int delta, int radius) {
+        return extract(this.stones[color], index, delta, radius, false);
+    }
+
+    /**
+     * Extract the off-board intersections on the segment described in
+     * {@link #line(int, int, int, int)}.
+     */
+    public int edgeLine(int index, int delta, int radius) {
+        return extract(this.edge, index, delta, radius, true);
+    }
+
+    private int extract(long[] bits, int index, int delta, int radius, boolean outside) {
+        int length = 2 * radius + 1;
+        int start = index - radius * delta;
+        if (delta == 1 && start >= 0 && start + length <= this.cells) {
+            int word = start >>> 6;
+            int offset = start & 63;
+            long value = bits[word] >>> offset;
+            if (offset + length > 64) {
+                value |= bits[word + 1] << (64 - offset);
+            }
+            return (int) (value & ((1L << length) - 1));
+        }
+        int mask = 0;
+        for (int k = 0, i = start; k < length; k++, i += delta) {
+            boolean bit = (i < 0 || i >= this.cells) ? outside : get(bits, i);
+            if (bit) {
+                mask |= 1 << k;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Return the raw bitset of the given colour, for walking the stones
+     * with {@link Long#numberOfTrailingZeros(long)}. Callers must not
+     * modify it.
+     */
+    public long[] bits(int color) {
+        return this.stones[color];
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return ((bits[index >>> 6] >>> index) & 1L) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
@@ -1,32 +1,57 @@
 package omok;
 
-import java.util.Objects;
+import java.util.Arrays;
 import java.util.Random;
 
 public class Board {
 
-    private int numberOfEmptyFields;
+    /** Column and row steps of the four lines through an intersection. */
+    private static final int[][] LINES = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    /** Random draws before {@link #placeRandomStone} looks for an allowed intersection in turn. */
+    private static final int RANDOM_TRIES = 64;
+
+    /** Random number generator shared by all boards unless replaced. */
+    private static final Random SHARED_RANDOM = new Random();
 
     private final int size;
-    private final Stone[][] stones;
+    private final Position position;
     private final Game game;
 
-    /** Create a new board of the default size. */
+    /** Players owning the black and white stones, indexed by colour. */
+    private final Player[] owners = new Player[2];
+
+    /** Owner reported for empty intersections by {@link #boardMatrix()}. */
+    private final Player nobody;
+
+    private Random random = SHARED_RANDOM;
+
+    /** Create a new board of the default size, {@link Game#DEFAULT_SIZE}. */
     public Board(Game game) {
-        this.game = game;
-        this.size = 10;
-        this.stones = new Stone[size][size];
-        this.numberOfEmptyFields = size * size;
-        arrayFill();
+        this(game, Game.DEFAULT_SIZE);
     }
 
     /** Create a new board of the specified size. */
     public Board(Game game, int size) {
+        this(game, new BitBoard(size));
+    }
+
+    /**
+     * Create a new board backed by the given position, for example a
+     * {@link SparseBoard} for a very large or unbounded board. An unbounded
+     * board has size 0.
+     */
+    public Board(Game game, Position position) {
         this.game = game;
-        this.size = size;
-        this.stones = new Stone[size][size];
-        this.numberOfEmptyFields = size * size;
-        arrayFill();
+        this.size = position.size();
+        this.position = position;
+        this.nobody = new Player(game, "N/A");
+        if (game != null) {
+            this.owners[Position.BLACK] = game.getBlackPlayer();
+            this.owners[Position.WHITE] = game.getWhitePlayer();
+            this.position.setWinLength(game.stonesToWin);
+            this.position.setRules(game.getRules());
+        }
     }
 
     /** Return the size of this board. */
@@ -34,28 +59,39 @@ public class Board {
         return this.size;
     }
 
-    /** Return the board. */
-    public Stone[][] boardMatrix(){return this.stones;}
+    /** Return the position backing this board, as used by the AI. */
+    public Position position() {
+        return this.position;
+    }
+
+    /**
+     * Return a snapshot of the board as a matrix of stones. Empty
+     * intersections are owned by a player named "N/A". Changes to the
+     * returned matrix are not reflected on the board.
+     */
+    public Stone[][] boardMatrix() {
+        Stone[][] stones = new Stone[this.size][this.size];
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                Player owner = playerAt(i, j);
+                stones[i][j] = new Stone(i, j, owner == null ? this.nobody : owner);
+            }
+        }
+        return stones;
+    }
 
     /** Removes all the stones placed on the board, effectively
      * resetting the board to its original state.
      */
     public void clear() {
-        arrayFill();
+        this.position.clear();
     }
 
     /** Return a boolean value indicating whether all the places
      * on the board are occupied or not.
      */
     public boolean isFull() {
-        for(int i = 0; i < this.size; i++) {
-            for(int j = 0; j < this.size; j++) {
-                if (this.stones[i][j].stoneOwner.name() == "N/A"){
-                    return false;
-                }
-            }
-        }
-        return true;
+        return this.position.isFull();
     }
 
 
@@ -68,25 +104,160 @@ public class Board {
      * @param player Player whose stone is to be placed
      */
     public void placeStone(int x, int y, Player player) {
-        if (this.stones[x][y].stoneOwner.name() == "N/A"){
-            this.numberOfEmptyFields -= 1;
+        int index = this.position.index(x, y);
+        if (!this.position.isEmpty(index)) {
+            throw new IllegalStateException("Intersection " + x + "x" + y + " is already occupied");
+        }
+        int color = colorOf(player);
+        if (this.position.isForbidden(index, color)) {
+            throw new IllegalStateException("Intersection " + x + "x" + y + " is forbidden to " + player.name());
         }
-        this.stones[x][y].stoneOwner = player;
+        this.position.place(index, color);
     }
 
     /**
-     * Place a stone at a random empty location on the board.
-     * @param player
+     * Return the player the rules restrict, the only one who can ever be
+     * forbidden a move, or null under freestyle rules.
+     */
+    public Player restrictedPlayer() {
+        return this.position.rules() == Position.RENJU ? this.owners[Renju.RESTRICTED] : null;
+    }
+
+    /**
+     * Return a boolean value indicating whether the rules forbid the given
+     * player to play at the specified intersection (x, y); see
+     * {@link Position#isForbidden(int, int)}. An occupied intersection is
+     * never forbidden. Under Renju the check uses the board as scratch
+     * space, so call it from the thread that places the stones.
+     *
+     * @param x 0-based column (vertical) index
+     * @param y 0-based row (horizontal) index
+     * @param player Player about to move
+     */
+    public boolean isForbidden(int x, int y, Player player) {
+        int color = lookupColor(player);
+        int index = this.position.index(x, y);
+        return color != Position.EMPTY && this.position.isEmpty(index) && this.position.isForbidden(index, color);
+    }
+
+    /**
+     * Return the empty intersections the rules forbid the given player, as
+     * indices of {@link #position()}, in no particular order. Only the
+     * intersections up to two away from one of the player's stones along
+     * the four lines are checked: every forbidden shape, be it an overline,
+     * a four or a three, joins the move to a stone of the player at most
+     * two away, so no other intersection can be forbidden. Under Renju the
+     * check uses the board as scratch space, so call it from the thread
+     * that places the stones.
+     *
+     * @param player Player about to move
+     */
+    public int[] forbiddenIntersections(Player player) {
+        int color = lookupColor(player);
+        if (color == Position.EMPTY || this.position.rules() == Position.FREESTYLE) {
+            return new int[0];
+        }
+        int stones = this.position.stoneCount();
+        int[] near = new int[4 * 4 * stones];
+        int count = 0;
+        for (int s = 0; s < stones; s++) {
+            int stone = this.position.moveAt(s);
+            if (this.position.colorAt(stone) != color) {
+                continue;
+            }
+            int x = this.position.x(stone);
+            int y = this.position.y(stone);
+            for (int[] direction : LINES) {
+                for (int distance = -2; distance <= 2; distance++) {
+                    int i = x + distance * direction[0];
+                    int j = y + distance * direction[1];
+                    if (distance != 0 && this.position.contains(i, j)) {
+                        int index = this.position.index(i, j);
+                        if (this.position.isEmpty(index)) {
+                            near[count++] = index;
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(near, 0, count);
+        int forbidden = 0;
+        int previous = 0;
+        for (int n = 0; n < count; n++) {
+            int index = near[n];
+            if ((n == 0 || index != previous) && this.position.isForbidden(index, color)) {
+                near[forbidden++] = index;
+            }
+            previous = index;
+        }
+        return Arrays.copyOf(near, forbidden);
+    }
+
+    /**
+     * Take back the most recently placed stone. Together with
+     * {@link #placeStone(int, int, Player)} this lets a search make and
+     * unmake moves without copying the board.
+     *
+     * @throws IllegalStateException if the board is empty
+     */
+    public void undo() {
+        this.position.undo();
+    }
+
+    /**
+     * Place a stone at a random empty location on the board that the
+     * rules allow the player. Every allowed intersection is equally likely
+     * (see {@link Position#randomEmpty}) unless nearly all are forbidden.
+     *
+     * @param player Player whose stone is to be placed
+     * @throws IllegalStateException if the board is full or every empty
+     *         intersection is forbidden to the player
      */
     public void placeRandomStone(Player player){
-        Random rand = new Random();
-        int x = rand.nextInt(this.size);
-        int y = rand.nextInt(this.size);
-        if (isEmpty(x, y)) {
-            placeStone(x, y, player);
-        } else {
-            placeRandomStone(player);
+        int color = colorOf(player);
+        int index = this.position.randomEmpty(this.random);
+        for (int tries = 1; this.position.isForbidden(index, color); tries++) {
+            index = tries < RANDOM_TRIES ? this.position.randomEmpty(this.random) : firstAllowed(player, color);
+        }
+        this.position.place(index, color);
+    }
+
+    /**
+     * Return an empty intersection the rules allow the given player, looking
+     * from a random starting point through the whole board or, on an
+     * unbounded board, through the candidate moves.
+     *
+     * @param player Player about to move
+     * @param color  colour of the player
+     * @throws IllegalStateException if there is none
+     */
+    private int firstAllowed(Player player, int color) {
+        int count = this.size == 0 ? this.position.candidateCount() : this.size * this.size;
+        int start = count == 0 ? 0 : this.random.nextInt(count);
+        for (int i = 0; i < count; i++) {
+            int k = (start + i) % count;
+            int index = this.size == 0 ? this.position.candidateAt(k) : this.position.index(k / this.size, k % this.size);
+            if (this.position.isEmpty(index) && !this.position.isForbidden(index, color)) {
+                return index;
+            }
         }
+        throw new IllegalStateException("Every empty intersection is forbidden to " + player.name());
+    }
+
+    /**
+     * Return the random number generator shared by all boards. Seed it to
+     * make random placement reproducible.
+     */
+    public static Random sharedRandom() {
+        return SHARED_RANDOM;
+    }
+
+    /**
+     * Use the given random number generator for this board instead of the
+     * shared one, for example one per thread or a seeded one per game.
+     */
+    public void setRandom(Random random) {
+        this.random = random;
     }
 
     /**
@@ -97,10 +268,7 @@ public class Board {
      * @param y 0-based row (horizontal) index
      */
     public boolean isEmpty(int x, int y) {
-        if (this.stones[x][y].stoneOwner.name() == "N/A"){
-            return true;
-        }
-        return false;
+        return this.position.isEmpty(this.position.index(x, y));
     }
 
     /**
@@ -110,10 +278,7 @@ public class Board {
      * @param y 0-based row (horizontal) index
      */
     public boolean isOccupied(int x, int y) {
-        if (this.stones[x][y].stoneOwner.name() == "N/A"){
-            return false;
-        }
-        return true;
+        return !isEmpty(x, y);
     }
 
     /**
@@ -125,10 +290,8 @@ public class Board {
      * @param y 0-based row (horizontal) index
      */
     public boolean isOccupiedBy(int x, int y, Player player) {
-        if (this.stones[x][y].stoneOwner == player){
-            return true;
-        }
-        return false;
+        int color = lookupColor(player);
+        return color != Position.EMPTY && this.position.has(color, this.position.index(x, y));
     }
 
     /**
@@ -139,7 +302,8 @@ public class Board {
      * @param y 0-based row (horizontal) index
      */
     public Player playerAt(int x, int y) {
-        return this.stones[x][y].stoneOwner;
+        int color = this.position.colorAt(this.position.index(x, y));
+        return color == Position.EMPTY ? null : this.owners[color];
     }
 
     /**
@@ -147,133 +311,70 @@ public class Board {
      * equal to the amount variable
      */
     public boolean checkForWinningRow(int amount, Player player, int x, int y){
-        int[] inARow =
-                {
-                        inaRow_UpDown(player, x, y),
-                        inaRow_LeftRight(player, x, y),
-                        inaRow_DiagLeft(player, x, y),
-                        inaRow_DiagRight(player, x, y)
-                };
-        boolean contains = false;
-        for (int b : inARow) {
-            if (b==amount) {
-                contains = true;
-                break;
+        int color = lookupColor(player);
+        int index = this.position.index(x, y);
+        for (int delta : this.position.directions()) {
+            int length = color == Position.EMPTY ? 1 : this.position.lineLength(color, index, delta);
+            if (length == amount) {
+                return true;
             }
         }
-        return contains;
+        return false;
     }
     /**
      * Return a boolean value indicating whether the given player
      * has a winning row on the board. A winning row is a consecutive
-     * sequence of five or more stones placed by the same player in
-     * a horizontal, vertical, or diagonal direction.
+     * sequence of {@link Game#stonesToWin} or more stones placed by the
+     * same player in a horizontal, vertical, or diagonal direction.
+     *
+     * <p>Wins are detected when a stone is placed, by looking only at the
+     * lines through that stone, so this method runs in constant time.
      */
     public boolean isWonBy(Player player) {
-        for(int x = 0; x < this.size; x++) {
-            for(int y = 0; y < this.size; y++) {
-                if (isOccupiedBy(x, y, player)){
-                    if(checkForWinningRow(5, player, x, y)){
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        int color = lookupColor(player);
+        return color != Position.EMPTY && this.position.winner() == color;
     }
 
     /**
-     * Iterate through this.boardMatrix and set every value to a "N/A"
-     * valye to represent an empty intersection (x, y).
+     * Remove every stone from the board. Kept for callers of the
+     * original matrix based board; equivalent to {@link #clear()}.
      */
     public void arrayFill(){
-        for(int i = 0; i < this.size; i++) {
-            for(int j = 0; j < this.size; j++) {
-                this.stones[i][j] = new Stone(i, j, new Player(this.game, "N/A"));
-            }
-        }
+        clear();
     }
 
     /**
-     * Recursively checks for stones placed in a row and returns the number of
-     * stones in a row in all directions/
-     *
-     * @param current Player to check for stones in a row.
-     * @param orientation The direction to check for stones in a row.
-     * @param x 0-based column (vertical) index
-     * @param y 0-based row (horizontal) index
+     * Return the colour used for the stones of the given player,
+     * claiming a free colour the first time a new player places a stone.
      */
-    int inARow_Recursive(Player current, String orientation, int x, int y){
-        if(Objects.equals(orientation, "down")){x--;}
-        else if (Objects.equals(orientation, "up")){x++;}
-        else if (Objects.equals(orientation, "left")){y--;}
-        else if (Objects.equals(orientation, "right")){y++;}
-        else if(Objects.equals(orientation, "upleft")){x--;y--;}
-        else if (Objects.equals(orientation, "upright")){x--;y++;}
-        else if (Objects.equals(orientation, "downleft")){x++;y--;}
-        else if (Objects.equals(orientation, "downright")){x++;y++;}
-        if (x < 0 || x >= this.size){
-            return 0;
-        }
-        if(y < 0 || y >= this.size){
-            return 0;
+    int colorOf(Player player) {
+        int color = lookupColor(player);
+        if (color != Position.EMPTY) {
+            return color;
         }
-        if (this.stones[x][y].stoneOwner != current){
-            return 0;
+        for (int c = Position.BLACK; c <= Position.WHITE; c++) {
+            if (this.owners[c] == null) {
+                this.owners[c] = player;
+                return c;
+            }
         }
-        return 1 + inARow_Recursive(current, orientation, x, y);
-    }
-
-    /**
-     * Used in the inARow_Recursive() method to check for a winning
-     * vertical row of stones.
-     *
-     * @param current Player to check for stones in a row.
-     * @param x 0-based column (vertical) index
-     * @param y 0-based row (horizontal) index
-     */
-    int inaRow_UpDown(Player current, int x, int y){
-        int check = 1 + inARow_Recursive(current, "down", x, y) + inARow_Recursive(current, "up", x, y);
-        return check;
-    }
-
-    /**
-     * Used in the inARow_Recursive() method to check for a winning
-     * vertical row of stones.
-     *
-     * @param current Player to check for stones in a row.
-     * @param x 0-based column (vertical) index
-     * @param y 0-based row (horizontal) index
-     */
-    int inaRow_LeftRight(Player current, int x, int y){
-        int check = 1 + inARow_Recursive(current, "left", x, y) + inARow_Recursive(current, "right", x, y);
-        return check;
-    }
-
-    /**
-     * Used in the inARow_Recursive() method to check for a winning
-     * vertical row of stones.
-     *
-     * @param current Player to check for stones in a row.
-     * @param x 0-based column (vertical) index
-     * @param y 0-based row (horizontal) index
-     */
-    int inaRow_DiagLeft(Player current, int x, int y){
-        int check = 1 + inARow_Recursive(current, "upleft", x, y) + inARow_Recursive(current, "downright", x, y);
-        return check;
+        throw new IllegalArgumentException("Player " + player.name() + " does not play on this board");
     }
 
     /**
-     * Used in the inARow_Recursive() method to check for a winning
-     * vertical row of stones.
-     *
-     * @param current Player to check for stones in a row.
-     * @param x 0-based column (vertical) index
-     * @param y 0-based row (horizontal) index
+     * Return the colour of the given player, or
+     * {@link Position#EMPTY} if the player has no stones on this board.
      */
-    int inaRow_DiagRight(Player current, int x, int y){
-        int check = 1 + inARow_Recursive(current, "downleft", x, y) + inARow_Recursive(current, "upright", x, y);
-        return check;
+    int lookupColor(Player player) {
+        if (player != null) {
+            if (this.owners[Position.BLACK] == player) {
+                return Position.BLACK;
+            }
+            if (this.owners[Position.WHITE] == player) {
+                return Position.WHITE;
+            }
+        }
+        return Position.EMPTY;
     }
 
     /**
@@ -1,11 +1,23 @@
 package omok;
 
+import omok.book.OpeningBook;
+import omok.engine.Engine;
+import omok.engine.MctsEngine;
+import omok.engine.PatternTable;
+
 /**
  * The `Game` class represents an Omok (Gomoku) game with specified settings, including game mode and board size.
  */
 public class Game {
 
+    /** The board size the interactive game starts with. */
+    public static final int DEFAULT_SIZE = 15;
+
+    /** The number of stones in a row needed to win unless a game says otherwise. */
+    public static final int DEFAULT_WIN_LENGTH = 5;
+
     public int stonesToWin;
+    private final int rules;
     private final Player whitePlayer;
     private Player blackPlayer;
     private Player winner;
@@ -13,25 +25,97 @@ public class Game {
     private final String gamemode;
 
     /**
-     * Creates a new instance of the `Game` class with the specified board size and game mode.
+     * Creates a new instance of the `Game` class with the specified board size and game mode,
+     * won by {@value #DEFAULT_WIN_LENGTH} stones in a row.
      *
      * @param size     The size of the game board.
-     * @param gamemode The game mode, which can be "Player" or "AI."
+     * @param gamemode The game mode, which can be "Player", "AI" or "MCTS."
      */
     public Game(int size, String gamemode) {
-        this.stonesToWin = 5;
+        this(size, DEFAULT_WIN_LENGTH, gamemode);
+    }
+
+    /**
+     * Creates a new instance of the `Game` class with the specified board size, win length and
+     * game mode.
+     *
+     * @param size      The size of the game board.
+     * @param winLength The number of stones in a row needed to win, from 2 to
+     *                  {@value PatternTable#MAX_WIN_LENGTH} and at most the size.
+     * @param gamemode  The game mode, which can be "Player", "AI" or "MCTS." The AI player uses
+     *                  the opening book named by the {@value OpeningBook#PROPERTY} system property.
+     */
+    public Game(int size, int winLength, String gamemode) {
+        this(size, winLength, Position.FREESTYLE, gamemode);
+    }
+
+    /**
+     * Creates a new instance of the `Game` class with the specified board size, win length, rules
+     * and game mode.
+     *
+     * @param size      The size of the game board.
+     * @param winLength The number of stones in a row needed to win, from 2 to
+     *                  {@value PatternTable#MAX_WIN_LENGTH} and at most the size; 5 under
+     *                  {@link Position#RENJU} rules.
+     * @param rules     The rules, {@link Position#FREESTYLE} or {@link Position#RENJU}, under which
+     *                  white, who moves first, may not make the moves {@link Renju} forbids.
+     * @param gamemode  The game mode, which can be "Player", "AI" or "MCTS." The AI player uses
+     *                  the opening book named by the {@value OpeningBook#PROPERTY} system property.
+     */
+    public Game(int size, int winLength, int rules, String gamemode) {
+        checkWinLength(size, winLength);
+        checkRules(rules, winLength);
+        this.stonesToWin = winLength;
+        this.rules = rules;
         this.whitePlayer = new Player(this, "White");
         this.blackPlayer = new Player(this, "Black");
 
         // If the game mode is "AI," set the black player to be an AI player.
         if ("AI".equals(gamemode)) {
             this.blackPlayer = new PlayerComputer(this, "Black");
+        } else if ("MCTS".equals(gamemode)) {
+            this.blackPlayer = new PlayerComputer(this, "Black", new MctsEngine());
+        }
+        if (this.blackPlayer instanceof PlayerComputer) {
+            ((PlayerComputer) this.blackPlayer).setOpeningBook(OpeningBook.getDefault());
         }
 
         this.board = new Board(this, size);
         this.gamemode = gamemode;
     }
 
+    /**
+     * Creates a new instance of the `Game` class in which two AI players play each other,
+     * without a user interface. The game mode is "Arena."
+     *
+     * @param size        The size of the game board.
+     * @param whiteEngine The engine of the white player, who moves first.
+     * @param blackEngine The engine of the black player.
+     */
+    public Game(int size, Engine whiteEngine, Engine blackEngine) {
+        this(new BitBoard(size), whiteEngine, blackEngine);
+    }
+
+    /**
+     * Creates a new instance of the `Game` class in which two AI players play each other on the
+     * given position, for example a {@link SparseBoard} for a very large or unbounded board. The
+     * game is won by the position's {@link Position#winLength() win length}.
+     *
+     * @param position    The empty position the game is played on.
+     * @param whiteEngine The engine of the white player, who moves first.
+     * @param blackEngine The engine of the black player.
+     */
+    public Game(Position position, Engine whiteEngine, Engine blackEngine) {
+        checkWinLength(position.size(), position.winLength());
+        checkRules(position.rules(), position.winLength());
+        this.stonesToWin = position.winLength();
+        this.rules = position.rules();
+        this.whitePlayer = new PlayerComputer(this, "White", whiteEngine);
+        this.blackPlayer = new PlayerComputer(this, "Black", blackEngine);
+        this.board = new Board(this, position);
+        this.gamemode = "Arena";
+    }
+
     /**
      * Retrieves the game board associated with this game.
      *
@@ -41,6 +125,24 @@ public class Game {
         return this.board;
     }
 
+    /**
+     * Retrieves the number of stones in a row needed to win.
+     *
+     * @return The win length.
+     */
+    public int getWinLength() {
+        return this.stonesToWin;
+    }
+
+    /**
+     * Retrieves the rules the game is played under.
+     *
+     * @return The rules, {@link Position#FREESTYLE} or {@link Position#RENJU}.
+     */
+    public int getRules() {
+        return this.rules;
+    }
+
     /**
      * Retrieves the white player in the game.
      *
@@ -60,7 +162,7 @@ public class Game {
     }
 
     /**
-     * Retrieves the game mode for this game, which can be "Player" or "AI."
+     * Retrieves the game mode for this game, which can be "Player", "AI" or "MCTS."
      *
      * @return The game mode of this game.
      */
@@ -85,4 +187,30 @@ public class Game {
     public Player getWinner() {
         return this.winner;
     }
+
+    /**
+     * Checks that a line of the given length fits on the board and that the engines can
+     * classify it. An unbounded board has size 0.
+     */
+    private static void checkWinLength(int size, int winLength) {
+        if (winLength < 2 || winLength > PatternTable.MAX_WIN_LENGTH) {
+            throw new IllegalArgumentException("Win length must be between 2 and " + PatternTable.MAX_WIN_LENGTH
+                    + ": " + winLength);
+        }
+        if (size != 0 && winLength > size) {
+            throw new IllegalArgumentException("No line of " + winLength + " fits on a board of size " + size);
+        }
+    }
+
+    /**
+     * Checks that the rules are known and, for Renju, that the game is five in a row.
+     */
+    private static void checkRules(int rules, int winLength) {
+        if (rules != Position.FREESTYLE && rules != Position.RENJU) {
+            throw new IllegalArgumentException("Unknown rules: " + rules);
+        }
+        if (rules == Position.RENJU && winLength != 5) {
+            throw new IllegalArgumentException("Renju is played with five in a row, not " + winLength);
+        }
+    }
 }
@@ -1,11 +1,52 @@
 package omok;
 
+import omok.book.OpeningBook;
+import omok.engine.Engine;
+import omok.engine.ParallelSearch;
+import omok.engine.SearchLimits;
+import omok.engine.SearchResult;
+import omok.engine.TranspositionTable;
+import omok.metrics.EngineMetrics;
+import omok.metrics.SearchEvent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * The `PlayerComputer` class represents an AI player in the Omok (Gomoku) game.
- * This AI player can make smart moves based on calculated move scores.
+ * This AI player picks its moves with a search {@link Engine}, by default an alpha-beta search,
+ * that runs within a configurable time or node budget, optionally on several threads. With an
+ * {@link OpeningBook} the AI player looks its move up in the book first and only searches once the
+ * game has left the book.
+ *
+ * <p>The AI player can also ponder: while the opponent thinks, it guesses the reply and searches
+ * the position after it on a background thread. If the guess was right, the move is taken from
+ * that search, which has then had the opponent's thinking time on top of its own; otherwise the
+ * search is stopped and a new one starts, helped by what the first one left in the engine's
+ * transposition table.
+ *
+ * <p>Every move is counted in the AI player's {@link EngineMetrics}, which can be watched over JMX,
+ * and reported as a {@link SearchEvent} to the JDK Flight Recorder.
  */
 public class PlayerComputer extends Player {
 
+    /** Default thinking time per move in milliseconds. */
+    public static final long DEFAULT_TIME_MILLIS = 500;
+
+    private final Engine engine;
+    private SearchLimits limits;
+    private volatile SearchResult lastResult;
+    private OpeningBook book;
+    private final AtomicReference<Ponder> ponder = new AtomicReference<>();
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final ThreadPoolExecutor ponderer = createPonderer();
+
     /**
      * Creates a new AI player for the Omok game.
      *
@@ -13,62 +54,377 @@ public class PlayerComputer extends Player {
      * @param name The name of the AI player.
      */
     public PlayerComputer(Game game, String name) {
+        this(game, name, new ParallelSearch());
+    }
+
+    /**
+     * Creates a new AI player for the Omok game that uses the given engine.
+     *
+     * @param game   The game in which the AI player participates.
+     * @param name   The name of the AI player.
+     * @param engine The engine that picks the moves.
+     */
+    public PlayerComputer(Game game, String name, Engine engine) {
         super(game, name);
+        this.engine = engine;
+        this.limits = SearchLimits.time(DEFAULT_TIME_MILLIS);
+        engine.setMetrics(this.metrics);
+    }
+
+    /**
+     * Retrieves the engine that picks the moves of the AI player.
+     *
+     * @return The search engine.
+     */
+    public Engine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Retrieves the metrics of the AI player's moves and searches, for example to register them
+     * on the platform MBean server with {@link EngineMetrics#register(String)}.
+     *
+     * @return The metrics.
+     */
+    public EngineMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the budget the AI player may use for each move.
+     *
+     * @param limits The time, node and depth limits of each search.
+     */
+    public void setSearchLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Retrieves the budget the AI player uses for each move.
+     *
+     * @return The search limits.
+     */
+    public SearchLimits getSearchLimits() {
+        return this.limits;
+    }
+
+    /**
+     * Sets the opening book the AI player consults before searching.
+     *
+     * @param book The book, or null to always search.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Retrieves the opening book the AI player consults before searching.
+     *
+     * @return The book, or null if the AI player has none.
+     */
+    public OpeningBook getOpeningBook() {
+        return this.book;
     }
 
     /**
-     * Makes a move for the AI player, selecting the best move based on calculated move scores.
+     * Sets the number of threads the AI player searches with. With one thread, the default, a
+     * search under a node budget always picks the same move.
+     *
+     * @param threads The number of search threads, at least 1.
+     */
+    public void setThreads(int threads) {
+        this.engine.setThreads(threads);
+    }
+
+    /**
+     * Sets how far from the existing stones the AI player looks for moves. Only the alpha-beta
+     * engine supports this setting.
+     *
+     * @param radius The half-width of the square around each stone, at least 1.
+     */
+    public void setCandidateRadius(int radius) {
+        alphaBeta().setCandidateRadius(radius);
+    }
+
+    /**
+     * Sets the size of the transposition table used by the search. The previous table and its
+     * contents are discarded. Only the alpha-beta engine supports this setting.
+     *
+     * @param megabytes The table size in megabytes.
+     */
+    public void setHashMegabytes(int megabytes) {
+        alphaBeta().setTranspositionTable(new TranspositionTable(megabytes));
+    }
+
+    /**
+     * Retrieves the transposition table used by the search, for example to clear it between
+     * games.
+     *
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return alphaBeta().getTranspositionTable();
+    }
+
+    /**
+     * Retrieves the result of the most recent search.
+     *
+     * @return The last search result, or null if the AI player has not moved yet.
+     */
+    public SearchResult getLastResult() {
+        return this.lastResult;
+    }
+
+    /**
+     * Makes a move for the AI player, placing a stone on the best intersection the search finds
+     * within the configured limits.
      */
     public void makeMove() {
-        int bestMoveX = -1;
-        int bestMoveY = -1;
-        int maxScore = 0;
-
-        for (int x = 0; x < this.game.getBoard().size(); x++) {
-            for (int y = 0; y < this.game.getBoard().size(); y++) {
-                if (this.game.getBoard().isEmpty(x, y)) {
-                    int score = calculateMoveScore(x, y, this);
-                    if (score > maxScore) {
-                        maxScore = score;
-                        bestMoveX = x;
-                        bestMoveY = y;
-                    }
-                }
+        SearchResult result = computeMove();
+        if (result != null) {
+            applyMove(result);
+        }
+    }
+
+    /**
+     * Searches for the AI player's next move without placing it, on a copy of the board taken by
+     * the calling thread. A move found in the opening book is returned at once, as a result of
+     * depth 0 and no nodes.
+     *
+     * @return The search result, or null if the board is full.
+     */
+    public SearchResult computeMove() {
+        return computeMove(this.game.getBoard().position().copy());
+    }
+
+    /**
+     * Searches for the AI player's next move in the given copy of the board, without placing it.
+     * The copy must be taken on the thread that places the stones, before the search is handed to
+     * a background thread: the search then never reads the board itself, which that thread may
+     * keep using meanwhile, for example to check forbidden points under Renju rules.
+     *
+     * @param position A copy of the board's position that only this search uses.
+     * @return The search result, or null if the board is full.
+     */
+    public SearchResult computeMove(Position position) {
+        return computeMove(position, new AtomicBoolean());
+    }
+
+    /**
+     * Searches for the AI player's next move in the given copy of the board until the given flag
+     * is set. The flag is created with the copy, before the search is handed to a background
+     * thread, so that setting it stops the search even if it has not started yet.
+     *
+     * @param position A copy of the board's position that only this search uses.
+     * @param stop     The flag any thread sets to make the search return its best move so far.
+     * @return The search result, or null if the board is full.
+     */
+    public SearchResult computeMove(Position position, AtomicBoolean stop) {
+        if (position.isFull()) {
+            return null;
+        }
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        SearchResult result = null;
+        String source = EngineMetrics.BOOK;
+        if (this.book != null) {
+            int move = this.book.probe(position);
+            if (move != -1) {
+                result = new SearchResult(move, 0, 0, 0, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        if (result == null) {
+            source = EngineMetrics.PONDER;
+            result = ponderResult(position);
+        }
+        if (result == null) {
+            source = EngineMetrics.SEARCH;
+            result = this.engine.search(position, this.game.getBoard().colorOf(this), this.limits, stop);
+        }
+        this.lastResult = result;
+        this.metrics.recordMove(source, result.getNodes(), result.getDepth(), result.getTimeMillis(),
+                System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = name();
+            event.source = source;
+            event.move = result.getMove();
+            event.score = result.getScore();
+            event.depth = result.getDepth();
+            event.nodes = result.getNodes();
+            event.nodesPerSecond = result.getNodes() * 1000 / Math.max(1, result.getTimeMillis());
+            if (!EngineMetrics.BOOK.equals(source)) {
+                event.hashHitRate = this.metrics.getLastHashHitRate();
+                event.evaluationTime = this.metrics.getLastEvaluationNanos();
+                event.generationTime = this.metrics.getLastGenerationNanos();
             }
+            event.commit();
         }
-        if (bestMoveX != -1) {
-            this.game.getBoard().placeStone(bestMoveX, bestMoveY, this);
+        return result;
+    }
+
+    /**
+     * Places the stone of a move found by {@link #computeMove()}, or a random stone if the
+     * search found no move.
+     *
+     * @param result The search result.
+     */
+    public void applyMove(SearchResult result) {
+        Board board = this.game.getBoard();
+        int move = result.getMove();
+        if (move != -1) {
+            Position position = board.position();
+            board.placeStone(position.x(move), position.y(move), this);
         } else {
-            this.game.getBoard().placeRandomStone(this);
+            board.placeRandomStone(this);
         }
     }
 
     /**
-     * Calculates a score for a potential move based on the current board state.
+     * Starts searching on the opponent's time, after the AI player has moved: the opponent's
+     * most likely reply is played on a copy of the board, and the AI player's answer to it is
+     * searched on the AI player's pondering thread until the next {@link #computeMove()} or
+     * {@link #stopPondering()}. Does nothing if the game is over or there is nothing to predict.
+     */
+    public void startPondering() {
+        stopPondering();
+        Board board = this.game.getBoard();
+        Position position = board.position().copy();
+        if (position.winner() != Position.EMPTY || position.isFull()) {
+            return;
+        }
+        int side = board.colorOf(this);
+        int predicted = this.engine.predict(position, 1 - side);
+        if (predicted == -1) {
+            return;
+        }
+        position.place(predicted, 1 - side);
+        if (position.winner() != Position.EMPTY || position.isFull()) {
+            return;
+        }
+        // Searched with the node and depth limits of a move but no time limit, so that a search
+        // under a node budget gives the same move whether it pondered or not.
+        SearchLimits limits = this.limits.pondering();
+        AtomicBoolean stop = new AtomicBoolean();
+        Ponder started = new Ponder(position.hash(), position.stoneCount(), stop,
+                new FutureTask<>(() -> this.engine.search(position, side, limits, stop)));
+        this.ponder.set(started);
+        this.ponderer.execute(started.task);
+    }
+
+    /**
+     * Stops pondering, if the AI player is, and waits until the engine is free. Safe to call from
+     * any thread.
+     */
+    public void stopPondering() {
+        Ponder stopped = this.ponder.getAndSet(null);
+        if (stopped != null) {
+            stopped.finish(0);
+        }
+    }
+
+    /**
+     * Checks whether the AI player is searching on the opponent's time.
      *
-     * @param x      The column index of the potential move.
-     * @param y      The row index of the potential move.
-     * @param player The player for whom the score is calculated.
-     * @return The calculated score for the potential move.
+     * @return `true` between {@link #startPondering()} and the next move or {@link #stopPondering()}.
      */
-    private int calculateMoveScore(int x, int y, Player player) {
-        int score = 0;
-        if (this.game.getBoard().checkForWinningRow(5, player, x, y)) {
-            score += 1000;
+    public boolean isPondering() {
+        return this.ponder.get() != null;
+    }
+
+    /**
+     * Ends pondering and returns its result if the opponent played the predicted move. On a hit
+     * the pondering search goes on for up to the normal thinking time, or until its node or depth
+     * limit if the AI player has no time limit.
+     */
+    private SearchResult ponderResult(Position position) {
+        Ponder pondered = this.ponder.getAndSet(null);
+        if (pondered == null) {
+            return null;
+        }
+        boolean hit = position.hash() == pondered.hash && position.stoneCount() == pondered.stones;
+        this.metrics.recordPonder(hit);
+        if (!hit) {
+            pondered.finish(0);
+            return null;
         }
-        if (this.game.getBoard().checkForWinningRow(5, this.game.getWhitePlayer(), x, y)) {
-            score += 800;
+        long millis = this.limits.getTimeMillis();
+        SearchResult result = pondered.finish(millis > 0 ? millis : Long.MAX_VALUE);
+        if (result == null || result.getMove() == -1 || !position.isEmpty(result.getMove())) {
+            return null;
         }
-        if (this.game.getBoard().checkForWinningRow(4, this.game.getWhitePlayer(), x, y)) {
-            score += 500;
+        return result;
+    }
+
+    /**
+     * Creates the executor of the pondering searches: a single daemon thread, which ends once the
+     * AI player has not pondered for a few seconds, so that a finished game leaves no thread behind.
+     */
+    private static ThreadPoolExecutor createPonderer() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "omok-ponder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** A search of the position after the predicted reply, running on the pondering thread. */
+    private static final class Ponder {
+
+        /** Hash and stone count of the position after the predicted reply. */
+        final long hash;
+        final int stones;
+        /** The stop flag of the search, created before the search was handed to the thread. */
+        final AtomicBoolean stop;
+        final FutureTask<SearchResult> task;
+
+        Ponder(long hash, int stones, AtomicBoolean stop, FutureTask<SearchResult> task) {
+            this.hash = hash;
+            this.stones = stones;
+            this.stop = stop;
+            this.task = task;
         }
-        if (this.game.getBoard().checkForWinningRow(4, player, x, y)) {
-            score += 500;
-        } else if (this.game.getBoard().checkForWinningRow(3, player, x, y)) {
-            score += 250;
-        } else if (this.game.getBoard().checkForWinningRow(2, player, x, y)) {
-            score += 100;
+
+        /**
+         * Lets the search run for up to the given time, then stops it and waits for its result.
+         *
+         * @param millis The time to let it run, or 0 to stop it at once.
+         * @return The result, or null if the search failed or the thread was interrupted.
+         */
+        SearchResult finish(long millis) {
+            try {
+                if (millis > 0) {
+                    return this.task.get(millis, TimeUnit.MILLISECONDS);
+                }
+            } catch (TimeoutException e) {
+                // Out of time: stop the search below.
+            } catch (ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            this.stop.set(true);
+            try {
+                return this.task.get();
+            } catch (ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /** Returns the engine as an alpha-beta search, for the settings only that engine has. */
+    private ParallelSearch alphaBeta() {
+        if (!(this.engine instanceof ParallelSearch)) {
+            throw new IllegalStateException("The AI player does not use the alpha-beta search");
         }
-        return score;
+        return (ParallelSearch) this.engine;
     }
 }
@@ -0,0 +1,223 @@
+package omok;
+
+import java.util.Random;
+
+/**
+ * The stones on an Omok board as seen by the rules and the AI. Intersections
+ * are addressed by a single int index; moving along one of the four line
+ * directions adds the matching entry of {@link #directions()} to the index.
+ * Indices are not necessarily dense: use {@link #contains(int, int)} on the
+ * coordinates of a computed index before reading it.
+ *
+ * <p>{@link BitBoard} stores a bounded board densely and is the fastest for
+ * the usual sizes. {@link SparseBoard} stores only the occupied
+ * intersections and can be unbounded, for very large or infinite boards.
+ */
+public interface Position {
+
+    /** Colour index of the black stones. */
+    int BLACK = 0;
+
+    /** Colour index of the white stones. */
+    int WHITE = 1;
+
+    /** Value returned by {@link #colorAt(int)} for an empty intersection. */
+    int EMPTY = -1;
+
+    /** Rules under which a line of at least {@link #winLength()} stones wins, for either colour. */
+    int FREESTYLE = 0;
+
+    /**
+     * Renju rules: the first player, {@link Renju#RESTRICTED}, needs exactly
+     * five in a row and may not play the moves {@link Renju} forbids.
+     */
+    int RENJU = 1;
+
+    /** Return an independent copy of this position. */
+    Position copy();
+
+    /**
+     * Return the number of intersections on each side, or 0 if the board is
+     * unbounded. An unbounded board is centred on (0, 0).
+     */
+    int size();
+
+    /**
+     * Return the index deltas of the four line directions: along a column,
+     * along a row and the two diagonals.
+     */
+    int[] directions();
+
+    /**
+     * Return the index of the intersection (x, y).
+     *
+     * @param x column (vertical) index
+     * @param y row (horizontal) index
+     */
+    int index(int x, int y);
+
+    /** Return the column of the given index. */
+    int x(int index);
+
+    /** Return the row of the given index. */
+    int y(int index);
+
+    /** Return whether (x, y) lies on the board. */
+    boolean contains(int x, int y);
+
+    /** Return the number of stones in a row needed to win. */
+    int winLength();
+
+    /** Set the number of stones in a row needed to win. */
+    void setWinLength(int winLength);
+
+    /** Return the rules, {@link #FREESTYLE} or {@link #RENJU}. */
+    int rules();
+
+    /**
+     * Set the rules, {@link #FREESTYLE} or {@link #RENJU}. Renju rules are
+     * only defined for five in a row.
+     */
+    void setRules(int rules);
+
+    /**
+     * Return whether the rules forbid the given colour to play at the given
+     * empty index. Only {@link #RENJU} forbids moves, and only to the first
+     * player; see {@link Renju#isForbidden(Position, int)}.
+     */
+    default boolean isForbidden(int index, int color) {
+        return color == Renju.RESTRICTED && rules() == RENJU && Renju.isForbidden(this, index);
+    }
+
+    /**
+     * Return the colour that completed a winning line, or {@link #EMPTY}
+     * if nobody has won yet.
+     */
+    int winner();
+
+    /** Return the index of the last placed stone, or -1 if the board is empty. */
+    int lastMove();
+
+    /** Return the index of the stone placed at the given 0-based ply. */
+    int moveAt(int ply);
+
+    /**
+     * Return the radius of the square around each stone whose empty
+     * intersections are candidate moves.
+     */
+    int candidateRadius();
+
+    /**
+     * Change the candidate radius, rebuilding the candidate set from the
+     * stones on the board.
+     */
+    void setCandidateRadius(int radius);
+
+    /**
+     * Return the number of candidate moves: empty intersections within
+     * {@link #candidateRadius()} of a stone, kept up to date as stones are
+     * placed and taken back.
+     */
+    int candidateCount();
+
+    /**
+     * Return the candidate move stored at the given position, for
+     * iterating from 0 to {@code candidateCount() - 1}.
+     */
+    int candidateAt(int position);
+
+    /**
+     * Return the Zobrist hash of the stones on the board, updated
+     * incrementally as stones are placed and taken back.
+     */
+    long hash();
+
+    /** Return the number of stones on the board. */
+    int stoneCount();
+
+    /** Return whether every intersection holds a stone; never for an unbounded board. */
+    boolean isFull();
+
+    /**
+     * Return the number of empty intersections, or
+     * {@link Integer#MAX_VALUE} for an unbounded board.
+     */
+    int emptyCount();
+
+    /**
+     * Return the index of an empty intersection chosen uniformly at random.
+     * An unbounded board picks one near the stones.
+     *
+     * @throws IllegalStateException if the board is full
+     */
+    int randomEmpty(Random random);
+
+    /** Return whether the intersection at the given index is empty. */
+    boolean isEmpty(int index);
+
+    /** Return whether the given colour has a stone at the given index. */
+    boolean has(int color, int index);
+
+    /** Return the colour of the stone at the given index, or {@link #EMPTY}. */
+    int colorAt(int index);
+
+    /**
+     * Place a stone of the given colour on an empty intersection.
+     *
+     * @param index index of the intersection
+     * @param color {@link #BLACK} or {@link #WHITE}
+     */
+    void place(int index, int color);
+
+    /**
+     * Take back the last placed stone, restoring the position to the state
+     * before the matching {@link #place(int, int)}.
+     *
+     * @return the index of the removed stone
+     * @throws IllegalStateException if the board is empty
+     */
+    int undo();
+
+    /**
+     * Return whether a stone of the given colour at the given index is part
+     * of a line of at least {@link #winLength()} stones, or of exactly that
+     * many for the first player under {@link #RENJU} rules. Only the four
+     * lines through the index are walked.
+     */
+    boolean completesLine(int index, int color);
+
+    /** Remove all the stones from the board. */
+    void clear();
+
+    /**
+     * Count the consecutive stones of the given colour starting next to the
+     * given index and walking along {@code delta}, stopping after
+     * {@code limit} stones. The start index itself is not counted.
+     */
+    int run(int color, int index, int delta, int limit);
+
+    /**
+     * Return the length of the line of the given colour through the given
+     * index along {@code delta}, counting the index itself as one stone.
+     */
+    default int lineLength(int color, int index, int delta) {
+        return 1 + run(color, index, delta, Integer.MAX_VALUE) + run(color, index, -delta, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Extract the stones of the given colour on the segment of
+     * {@code 2 * radius + 1} intersections centred on the given index along
+     * {@code delta}. Bit {@code i} of the result is the intersection
+     * {@code index + (i - radius) * delta}, so bit {@code radius} is the
+     * centre. Bits beyond the first off-board intersection (see
+     * {@link #edgeLine(int, int, int)}) must be ignored by the caller. The
+     * radius may be at most 15.
+     */
+    int line(int color, int index, int delta, int radius);
+
+    /**
+     * Extract the off-board intersections on the segment described in
+     * {@link #line(int, int, int, int)}.
+     */
+    int edgeLine(int index, int delta, int radius);
+}
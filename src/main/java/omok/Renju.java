@@ -0,0 +1,220 @@
+package omok;
+
+/**
+ * Forbidden-move detection for {@link Position#RENJU} rules. Under Renju the
+ * first player, who is black in Renju and white in this game, wins only with
+ * exactly five in a row and may not play a move that makes an overline (six
+ * or more in a row), two fours or two threes at once, unless the same move
+ * makes five. The second player is not restricted, and wins with five or more.
+ *
+ * <p>Whether a move is forbidden depends only on the four lines through it.
+ * Each line is read as two bit masks of {@value #RADIUS} intersections on
+ * either side, exactly as the engine's pattern tables read them, and looked
+ * up in a table computed once that tells whether the move makes a five, an
+ * overline, how many fours, and which intersections would turn a three into
+ * a straight four. A move is therefore checked with at most four lookups, and
+ * the board is never scanned. Only when two lines hold a three does the
+ * check go further: a three counts only if one of its straight-four points is
+ * itself allowed, which is checked recursively with the move played.
+ */
+public final class Renju {
+
+    /** The colour the rules restrict: the first player. */
+    public static final int RESTRICTED = Position.WHITE;
+
+    /** Number of intersections read on each side of a move. */
+    static final int RADIUS = 5;
+
+    private static final int WIN_LENGTH = 5;
+    private static final int LENGTH = 2 * RADIUS + 1;
+    private static final int CENTRE = 1 << RADIUS;
+
+    private static final int FIVE = 1;
+    private static final int OVERLINE = 2;
+    private static final int FOUR_SHIFT = 2;
+    private static final int THREE_SHIFT = 4;
+
+    /** The lowest segment bit that can complete a straight four with the centre. */
+    private static final int FIRST_THREE_POINT = RADIUS - 3;
+
+    /**
+     * One entry per segment, indexed by the player's stones and the blockers
+     * without the centre bit: bit 0 for a five, bit 1 for an overline, bits
+     * 2 and 3 for the number of fours and, from bit 4, the intersections
+     * that would make a straight four, starting at {@link #FIRST_THREE_POINT}.
+     */
+    private static final char[] TABLE = buildTable();
+
+    private Renju() {
+    }
+
+    /**
+     * Return whether the rules forbid the restricted player to play at the
+     * given empty intersection. The position must be a five-in-a-row board
+     * and is used as scratch space when two threes have to be confirmed, so
+     * pass a copy if other threads may read it meanwhile; it is restored
+     * before this method returns.
+     *
+     * @param position the position
+     * @param index    the index of an empty intersection
+     */
+    public static boolean isForbidden(Position position, int index) {
+        int[] directions = position.directions();
+        // Most moves are ruled out by the player's own stones alone: two threes or fours need
+        // two lines with two stones besides the move, and an overline or two fours on one line
+        // need four on that line. Opponent stones only ever remove patterns.
+        int busy = 0;
+        boolean crowded = false;
+        for (int delta : directions) {
+            int stones = Integer.bitCount(position.line(RESTRICTED, index, delta, RADIUS) & ~CENTRE);
+            if (stones >= 2) {
+                busy++;
+                crowded |= stones >= 4;
+            }
+        }
+        if (busy < 2 && !crowded) {
+            return false;
+        }
+        boolean overline = false;
+        int fours = 0;
+        int threes = 0;
+        int threePoints = 0;
+        for (int d = 0; d < directions.length; d++) {
+            int entry = entry(position, index, directions[d]);
+            if ((entry & FIVE) != 0) {
+                // Five wins, whatever else the move makes.
+                return false;
+            }
+            overline |= (entry & OVERLINE) != 0;
+            fours += (entry >>> FOUR_SHIFT) & 3;
+            int points = entry >>> THREE_SHIFT;
+            if (points != 0) {
+                threes++;
+                threePoints |= points << (8 * d);
+            }
+        }
+        if (overline || fours >= 2) {
+            return true;
+        }
+        return threes >= 2 && realThrees(position, index, threePoints) >= 2;
+    }
+
+    /**
+     * Count the threes of a move that can really become a straight four:
+     * those with at least one straight-four point the restricted player may
+     * play once the move is on the board.
+     */
+    private static int realThrees(Position position, int index, int threePoints) {
+        int[] directions = position.directions();
+        int real = 0;
+        position.place(index, RESTRICTED);
+        try {
+            for (int d = 0; d < directions.length; d++) {
+                int points = (threePoints >>> (8 * d)) & 0xFF;
+                while (points != 0) {
+                    int bit = Integer.numberOfTrailingZeros(points);
+                    points &= points - 1;
+                    int point = index + (bit + FIRST_THREE_POINT - RADIUS) * directions[d];
+                    if (!isForbidden(position, point)) {
+                        real++;
+                        break;
+                    }
+                }
+            }
+        } finally {
+            position.undo();
+        }
+        return real;
+    }
+
+    /** Look up the table entry of the line through an intersection. */
+    private static int entry(Position position, int index, int delta) {
+        int stones = position.line(RESTRICTED, index, delta, RADIUS);
+        int blockers = position.line(1 - RESTRICTED, index, delta, RADIUS)
+                | position.edgeLine(index, delta, RADIUS);
+        return TABLE[compress(stones & ~blockers) << (LENGTH - 1) | compress(blockers)];
+    }
+
+    /** Drop the centre bit, packing the segment into LENGTH - 1 bits. */
+    private static int compress(int mask) {
+        return mask & (CENTRE - 1) | (mask >>> (RADIUS + 1) & (CENTRE - 1)) << RADIUS;
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[1 << (2 * (LENGTH - 1))];
+        int half = (1 << (LENGTH - 1)) - 1;
+        for (int index = 0; index < table.length; index++) {
+            int stones = expand(index >>> (LENGTH - 1)) | CENTRE;
+            int blockers = expand(index & half);
+            table[index] = (char) classify(stones & ~blockers, blockers);
+        }
+        return table;
+    }
+
+    /** Re-insert an empty centre bit into a compressed mask. */
+    private static int expand(int compressed) {
+        return compressed & (CENTRE - 1) | (compressed >>> RADIUS) << (RADIUS + 1);
+    }
+
+    /** Classify a segment whose centre holds a stone of the player. */
+    private static int classify(int stones, int blockers) {
+        int run = run(stones);
+        if (run == WIN_LENGTH) {
+            return FIVE;
+        }
+        if (run > WIN_LENGTH) {
+            return OVERLINE;
+        }
+        int fours = fours(completions(stones, blockers));
+        if (fours > 0) {
+            return fours << FOUR_SHIFT;
+        }
+        int points = 0;
+        for (int bit = FIRST_THREE_POINT; bit <= LENGTH - 1 - FIRST_THREE_POINT; bit++) {
+            int point = 1 << bit;
+            if (((stones | blockers) & point) == 0 && isStraightFour(completions(stones | point, blockers))) {
+                points |= 1 << (bit - FIRST_THREE_POINT);
+            }
+        }
+        return points << THREE_SHIFT;
+    }
+
+    /** Return the empty intersections that would make exactly five through the centre. */
+    private static int completions(int stones, int blockers) {
+        int completions = 0;
+        for (int bit = 0; bit < LENGTH; bit++) {
+            int point = 1 << bit;
+            if (((stones | blockers) & point) == 0 && run(stones | point) == WIN_LENGTH) {
+                completions |= point;
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Count the fours made by the given completion points: an open four has
+     * two points five apart and counts once, any other point is a four of its
+     * own, such as the two fours of a split pattern on one line.
+     */
+    private static int fours(int completions) {
+        return isStraightFour(completions) ? 1 : Integer.bitCount(completions);
+    }
+
+    /** Return whether the completion points are the two ends of one open four. */
+    private static boolean isStraightFour(int completions) {
+        return Integer.bitCount(completions) == 2
+                && 31 - Integer.numberOfLeadingZeros(completions) - Integer.numberOfTrailingZeros(completions) == WIN_LENGTH;
+    }
+
+    /** Return the length of the run of stones through the centre. */
+    private static int run(int stones) {
+        int length = 1;
+        for (int bit = RADIUS + 1; bit < LENGTH && (stones & (1 << bit)) != 0; bit++) {
+            length++;
+        }
+        for (int bit = RADIUS - 1; bit >= 0 && (stones & (1 << bit)) != 0; bit--) {
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,504 @@
+package omok;
+
+import omok.util.LongIntMap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A sparse representation of an Omok board that stores only the occupied
+ * intersections, in a primitive hash map, together with their bounding
+ * box. Its memory use grows with the number of stones and not with the
+ * area of the board, so it suits very large boards and the unbounded board
+ * of freestyle infinite play.
+ *
+ * <p>Intersections are addressed by {@code (x + BIAS) * STRIDE + (y + BIAS)},
+ * so the four line directions are constant index deltas as on a
+ * {@link BitBoard}. An unbounded board accepts coordinates from
+ * {@code -LIMIT} to {@code LIMIT}, which keeps every index positive and
+ * leaves a margin wider than any line segment before the next column.
+ */
+public class SparseBoard implements Position {
+
+    /** Distance between two columns in index space. */
+    public static final int STRIDE = 1 << 15;
+
+    /** Offset added to both coordinates. */
+    private static final int BIAS = 1 << 14;
+
+    /** Largest coordinate on an unbounded board, in either direction. */
+    public static final int LIMIT = BIAS - 16;
+
+    private static final int[] DIRECTIONS = {1, STRIDE, STRIDE + 1, STRIDE - 1};
+
+    /** Number of intersections on each side, or 0 if unbounded. */
+    private final int size;
+
+    /** Colour of each occupied intersection, keyed by index. */
+    private final LongIntMap stones;
+
+    /** Number of stones within the candidate radius of each intersection that has any. */
+    private final LongIntMap nearby;
+
+    /** Candidate moves, stored densely, and the position of each in that array. */
+    private int[] candidates;
+    private int candidateCount;
+    private final LongIntMap candidateSlots;
+
+    private int candidateRadius = 2;
+
+    /** Indices of the placed stones in the order they were placed. */
+    private int[] history;
+
+    /** Bounding box of the stones, after each ply: min x, max x, min y, max y. */
+    private int[] bounds;
+
+    private int stoneCount;
+    private long hash;
+    private int winLength = 5;
+    private int rules = FREESTYLE;
+    private int winner = EMPTY;
+    private int winnerPly;
+
+    /**
+     * Create a new empty board.
+     *
+     * @param size number of intersections on each side, or 0 for an
+     *             unbounded board centred on (0, 0)
+     */
+    public SparseBoard(int size) {
+        if (size < 0 || size > LIMIT) {
+            throw new IllegalArgumentException("Board size must be between 0 and " + LIMIT + ": " + size);
+        }
+        this.size = size;
+        this.stones = new LongIntMap(64);
+        this.nearby = new LongIntMap(256);
+        this.candidates = new int[64];
+        this.candidateSlots = new LongIntMap(64);
+        this.history = new int[64];
+        this.bounds = new int[64 * 4];
+    }
+
+    /** Create a copy of the given board. */
+    private SparseBoard(SparseBoard other) {
+        this.size = other.size;
+        this.stones = other.stones.copy();
+        this.nearby = other.nearby.copy();
+        this.candidates = other.candidates.clone();
+        this.candidateCount = other.candidateCount;
+        this.candidateSlots = other.candidateSlots.copy();
+        this.candidateRadius = other.candidateRadius;
+        this.history = other.history.clone();
+        this.bounds = other.bounds.clone();
+        this.stoneCount = other.stoneCount;
+        this.hash = other.hash;
+        this.winLength = other.winLength;
+        this.rules = other.rules;
+        this.winner = other.winner;
+        this.winnerPly = other.winnerPly;
+    }
+
+    @Override
+    public SparseBoard copy() {
+        return new SparseBoard(this);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int[] directions() {
+        return DIRECTIONS;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return (x + BIAS) * STRIDE + (y + BIAS);
+    }
+
+    @Override
+    public int x(int index) {
+        return (index >> 15) - BIAS;
+    }
+
+    @Override
+    public int y(int index) {
+        return (index & (STRIDE - 1)) - BIAS;
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        if (this.size == 0) {
+            return x >= -LIMIT && x <= LIMIT && y >= -LIMIT && y <= LIMIT;
+        }
+        return x >= 0 && x < this.size && y >= 0 && y < this.size;
+    }
+
+    @Override
+    public int winLength() {
+        return this.winLength;
+    }
+
+    @Override
+    public void setWinLength(int winLength) {
+        if (winLength < 1) {
+            throw new IllegalArgumentException("Win length must be positive: " + winLength);
+        }
+        this.winLength = winLength;
+    }
+
+    @Override
+    public int rules() {
+        return this.rules;
+    }
+
+    @Override
+    public void setRules(int rules) {
+        if (rules != FREESTYLE && rules != RENJU) {
+            throw new IllegalArgumentException("Unknown rules: " + rules);
+        }
+        this.rules = rules;
+    }
+
+    @Override
+    public int winner() {
+        return this.winner;
+    }
+
+    @Override
+    public int lastMove() {
+        return this.stoneCount == 0 ? -1 : this.history[this.stoneCount - 1];
+    }
+
+    @Override
+    public int moveAt(int ply) {
+        return this.history[ply];
+    }
+
+    /** Return the smallest column holding a stone; undefined on an empty board. */
+    public int minX() {
+        return this.bounds[(this.stoneCount - 1) * 4];
+    }
+
+    /** Return the largest column holding a stone; undefined on an empty board. */
+    public int maxX() {
+        return this.bounds[(this.stoneCount - 1) * 4 + 1];
+    }
+
+    /** Return the smallest row holding a stone; undefined on an empty board. */
+    public int minY() {
+        return this.bounds[(this.stoneCount - 1) * 4 + 2];
+    }
+
+    /** Return the largest row holding a stone; undefined on an empty board. */
+    public int maxY() {
+        return this.bounds[(this.stoneCount - 1) * 4 + 3];
+    }
+
+    @Override
+    public int candidateRadius() {
+        return this.candidateRadius;
+    }
+
+    @Override
+    public void setCandidateRadius(int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Candidate radius must be positive: " + radius);
+        }
+        if (radius == this.candidateRadius) {
+            return;
+        }
+        for (int ply = 0; ply < this.stoneCount; ply++) {
+            updateNearby(this.history[ply], -1);
+        }
+        this.candidateRadius = radius;
+        for (int ply = 0; ply < this.stoneCount; ply++) {
+            updateNearby(this.history[ply], 1);
+        }
+    }
+
+    @Override
+    public int candidateCount() {
+        return this.candidateCount;
+    }
+
+    @Override
+    public int candidateAt(int position) {
+        return this.candidates[position];
+    }
+
+    @Override
+    public long hash() {
+        return this.hash;
+    }
+
+    @Override
+    public int stoneCount() {
+        return this.stoneCount;
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.size != 0 && this.stoneCount == this.size * this.size;
+    }
+
+    @Override
+    public int emptyCount() {
+        return this.size == 0 ? Integer.MAX_VALUE : this.size * this.size - this.stoneCount;
+    }
+
+    /**
+     * Return the index of an empty intersection chosen uniformly at random:
+     * on the whole board if it is bounded, otherwise in the bounding box of
+     * the stones widened by the candidate radius. Sampling is by rejection
+     * while most intersections are empty, which is the case this class is
+     * meant for.
+     *
+     * @throws IllegalStateException if the board is full
+     */
+    @Override
+    public int randomEmpty(Random random) {
+        if (isFull()) {
+            throw new IllegalStateException("The board is full");
+        }
+        int minX, maxX, minY, maxY;
+        if (this.size != 0) {
+            minX = minY = 0;
+            maxX = maxY = this.size - 1;
+        } else if (this.stoneCount == 0) {
+            return index(0, 0);
+        } else {
+            int r = this.candidateRadius;
+            minX = Math.max(-LIMIT, minX() - r);
+            maxX = Math.min(LIMIT, maxX() + r);
+            minY = Math.max(-LIMIT, minY() - r);
+            maxY = Math.min(LIMIT, maxY() + r);
+        }
+        long area = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        if (this.stoneCount * 2L < area) {
+            while (true) {
+                int index = index(minX + random.nextInt(maxX - minX + 1), minY + random.nextInt(maxY - minY + 1));
+                if (isEmpty(index)) {
+                    return index;
+                }
+            }
+        }
+        // Crowded: count the empty intersections and pick one of them.
+        int pick = random.nextInt((int) (area - countStones(minX, maxX, minY, maxY)));
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int index = index(x, y);
+                if (isEmpty(index) && pick-- == 0) {
+                    return index;
+                }
+            }
+        }
+        throw new IllegalStateException("No empty intersection found");
+    }
+
+    private int countStones(int minX, int maxX, int minY, int maxY) {
+        int count = 0;
+        for (int ply = 0; ply < this.stoneCount; ply++) {
+            int x = x(this.history[ply]);
+            int y = y(this.history[ply]);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty(int index) {
+        return !this.stones.containsKey(index);
+    }
+
+    @Override
+    public boolean has(int color, int index) {
+        return this.stones.get(index, EMPTY) == color;
+    }
+
+    @Override
+    public int colorAt(int index) {
+        return this.stones.get(index, EMPTY);
+    }
+
+    @Override
+    public void place(int index, int color) {
+        int x = x(index);
+        int y = y(index);
+        if (!contains(x, y)) {
+            throw new IllegalArgumentException("Intersection " + x + "x" + y + " is off the board");
+        }
+        this.stones.put(index, color);
+        if (this.stoneCount == this.history.length) {
+            this.history = Arrays.copyOf(this.history, this.history.length * 2);
+            this.bounds = Arrays.copyOf(this.bounds, this.bounds.length * 2);
+        }
+        int b = this.stoneCount * 4;
+        if (this.stoneCount == 0) {
+            this.bounds[b] = this.bounds[b + 1] = x;
+            this.bounds[b + 2] = this.bounds[b + 3] = y;
+        } else {
+            this.bounds[b] = Math.min(this.bounds[b - 4], x);
+            this.bounds[b + 1] = Math.max(this.bounds[b - 3], x);
+            this.bounds[b + 2] = Math.min(this.bounds[b - 2], y);
+            this.bounds[b + 3] = Math.max(this.bounds[b - 1], y);
+        }
+        this.history[this.stoneCount++] = index;
+        this.hash ^= Zobrist.key(index, color);
+        removeCandidate(index);
+        updateNearby(index, 1);
+        if (this.winner == EMPTY && completesLine(index, color)) {
+            this.winner = color;
+            this.winnerPly = this.stoneCount;
+        }
+    }
+
+    @Override
+    public int undo() {
+        if (this.stoneCount == 0) {
+            throw new IllegalStateException("No stone to take back");
+        }
+        if (this.winnerPly == this.stoneCount) {
+            this.winner = EMPTY;
+            this.winnerPly = 0;
+        }
+        int index = this.history[--this.stoneCount];
+        int color = this.stones.remove(index, EMPTY);
+        this.hash ^= Zobrist.key(index, color);
+        updateNearby(index, -1);
+        if (this.nearby.get(index, 0) > 0) {
+            addCandidate(index);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean completesLine(int index, int color) {
+        if (this.rules == RENJU && color == Renju.RESTRICTED) {
+            return completesExactLine(index, color);
+        }
+        int reach = this.winLength - 1;
+        for (int delta : DIRECTIONS) {
+            int length = 1 + run(color, index, delta, reach);
+            if (length < this.winLength) {
+                length += run(color, index, -delta, reach);
+            }
+            if (length >= this.winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return whether the stone is part of a line of exactly {@link #winLength()} stones. */
+    private boolean completesExactLine(int index, int color) {
+        for (int delta : DIRECTIONS) {
+            int length = 1 + run(color, index, delta, this.winLength) + run(color, index, -delta, this.winLength);
+            if (length == this.winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        this.stones.clear();
+        this.nearby.clear();
+        this.candidateSlots.clear();
+        this.candidateCount = 0;
+        this.stoneCount = 0;
+        this.hash = 0;
+        this.winner = EMPTY;
+        this.winnerPly = 0;
+    }
+
+    @Override
+    public int run(int color, int index, int delta, int limit) {
+        int count = 0;
+        int i = index + delta;
+        // Stones only ever lie on the board, so the walk needs no bounds check.
+        while (count < limit && this.stones.get(i, EMPTY) == color) {
+            count++;
+            i += delta;
+        }
+        return count;
+    }
+
+    @Override
+    public int line(int color, int index, int delta, int radius) {
+        int mask = 0;
+        for (int k = 0, i = index - radius * delta; k <= 2 * radius; k++, i += delta) {
+            if (this.stones.get(i, EMPTY) == color) {
+                mask |= 1 << k;
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public int edgeLine(int index, int delta, int radius) {
+        int mask = 0;
+        for (int k = 0, i = index - radius * delta; k <= 2 * radius; k++, i += delta) {
+            if (!contains(x(i), y(i))) {
+                mask |= 1 << k;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Add {@code change} to the nearby count of every intersection in the
+     * square around the given stone, keeping the candidate set in step.
+     */
+    private void updateNearby(int index, int change) {
+        int cx = x(index);
+        int cy = y(index);
+        int r = this.candidateRadius;
+        for (int x = cx - r; x <= cx + r; x++) {
+            for (int y = cy - r; y <= cy + r; y++) {
+                if (!contains(x, y)) {
+                    continue;
+                }
+                int i = index(x, y);
+                int count = this.nearby.get(i, 0) + change;
+                if (count == 0) {
+                    this.nearby.remove(i, 0);
+                    removeCandidate(i);
+                } else {
+                    this.nearby.put(i, count);
+                    if (count == change && change > 0 && isEmpty(i)) {
+                        addCandidate(i);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addCandidate(int index) {
+        if (this.candidateSlots.containsKey(index)) {
+            return;
+        }
+        if (this.candidateCount == this.candidates.length) {
+            this.candidates = Arrays.copyOf(this.candidates, this.candidates.length * 2);
+        }
+        this.candidateSlots.put(index, this.candidateCount);
+        this.candidates[this.candidateCount++] = index;
+    }
+
+    private void removeCandidate(int index) {
+        int slot = this.candidateSlots.remove(index, -1);
+        if (slot < 0) {
+            return;
+        }
+        int last = this.candidates[--this.candidateCount];
+        if (last != index) {
+            this.candidates[slot] = last;
+            this.candidateSlots.put(last, slot);
+        }
+    }
+}
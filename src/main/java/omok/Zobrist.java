@@ -0,0 +1,70 @@
+package omok;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Random keys for Zobrist hashing of board positions. The hash of a
+ * position is the exclusive or of the keys of all its stones, so placing
+ * or removing a stone updates it with a single xor.
+ *
+ * <p>Keys are generated from a fixed seed and cached per board size, so
+ * the same position always has the same hash, across boards and across
+ * runs.
+ */
+public final class Zobrist {
+
+    /** Key mixed into a hash when white is to move. */
+    public static final long SIDE = mix(0x5DEECE66DL);
+
+    private static final ConcurrentMap<Integer, long[][]> KEYS = new ConcurrentHashMap<>();
+
+    private Zobrist() {
+    }
+
+    /**
+     * Return the keys for a board of the given size, indexed by colour and
+     * then by {@link BitBoard} index. The returned arrays must not be
+     * modified.
+     */
+    public static long[][] keys(int size) {
+        return KEYS.computeIfAbsent(size, Zobrist::generate);
+    }
+
+    /**
+     * Return the key of a stone of the given colour at the given index,
+     * computed on demand for boards too large for a table, such as a
+     * {@link SparseBoard}.
+     */
+    public static long key(int index, int color) {
+        return mix(0x9E3779B97F4A7C15L * (2L * index + color + 1) + 0x632BE59BD9B4E019L);
+    }
+
+    /**
+     * Return a key that tells apart the hashes of the same stones under other
+     * rules or another win length, for tables that outlive a game.
+     */
+    public static long variant(int rules, int winLength) {
+        return mix(0xD1B54A32D192ED03L * (2L * winLength + rules + 1));
+    }
+
+    private static long[][] generate(int size) {
+        int cells = size * (size + 1);
+        long[][] keys = new long[2][cells];
+        long state = 0x9E3779B97F4A7C15L * (size + 1);
+        for (int color = 0; color < 2; color++) {
+            for (int i = 0; i < cells; i++) {
+                state += 0x9E3779B97F4A7C15L;
+                keys[color][i] = mix(state);
+            }
+        }
+        return keys;
+    }
+
+    /** The SplitMix64 finaliser. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
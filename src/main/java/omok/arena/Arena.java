@@ -0,0 +1,451 @@
+package omok.arena;
+
+import omok.BitBoard;
+import omok.Board;
+import omok.Game;
+import omok.PlayerComputer;
+import omok.Position;
+import omok.SparseBoard;
+import omok.engine.Engine;
+import omok.record.GameDatabase;
+import omok.record.GameRecord;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The `Arena` class plays engine-versus-engine games without a user interface, many at a time,
+ * and writes one CSV line per game as soon as it ends.
+ *
+ * <p>Games come in pairs: both games of a pair start from the same random opening, with the
+ * colours of the two engines swapped, so neither engine profits from a lucky opening. The
+ * openings are derived from the seed, so a run can be repeated. Each worker thread creates its
+ * pair of engines once and reuses it for every game it plays, clearing it between games. The CSV columns are the game
+ * number, the engines playing white (who moves first) and black, the result ({@code white},
+ * {@code black} or {@code draw}), the score of the first engine, the number of moves including
+ * the opening and the average thinking time per move of each colour.
+ *
+ * <p>With {@code --board sparse} the games are played on a {@link SparseBoard}, and a size of 0
+ * makes the board unbounded; {@code --max-moves} is then required, to keep games from running
+ * forever.
+ * {@code --rules renju} plays under {@link Position#RENJU} rules, which forbid white, who moves
+ * first, some moves. {@code --record FILE} also stores every game in a {@link GameDatabase}.
+ *
+ * <p>Example: {@code java omok.arena.Arena --first ab:time=100 --second mcts:time=100 --games 200}
+ */
+public class Arena {
+
+    private static final String HEADER = "game,white,black,result,score,moves,white_ms_per_move,black_ms_per_move";
+
+    private final EngineSpec first;
+    private final EngineSpec second;
+    private int size = 15;
+    private int winLength = Game.DEFAULT_WIN_LENGTH;
+    private int games = 100;
+    private int openingPlies = 4;
+    private long seed = 1;
+    private int parallel;
+    private boolean sparse;
+    private int rules = Position.FREESTYLE;
+    private int maxMoves;
+    private GameDatabase.Writer database;
+
+    private int firstWins;
+    private int secondWins;
+    private int draws;
+
+    /**
+     * Creates a new arena for a match between two engines.
+     *
+     * @param first  The first engine, which plays white in the even games.
+     * @param second The second engine, which plays white in the odd games.
+     */
+    public Arena(EngineSpec first, EngineSpec second) {
+        this.first = first;
+        this.second = second;
+        int threads = Math.max(first.getThreads(), second.getThreads());
+        this.parallel = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+    }
+
+    /**
+     * Sets the size of the board.
+     *
+     * @param size The number of intersections on each side.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Sets the number of stones in a row needed to win.
+     *
+     * @param winLength The win length, at most the size of a bounded board.
+     */
+    public void setWinLength(int winLength) {
+        this.winLength = winLength;
+    }
+
+    /**
+     * Sets the rules the games are played under.
+     *
+     * @param rules {@link Position#FREESTYLE} or {@link Position#RENJU}, which needs a win length of 5.
+     */
+    public void setRules(int rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Chooses the board representation. A sparse board stores only the stones and may be
+     * unbounded, which {@link #setSize(int) size} 0 selects.
+     *
+     * @param sparse `true` for a {@link SparseBoard}, `false` for a {@link BitBoard}.
+     */
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * Sets the number of moves after which a game is a draw.
+     *
+     * @param maxMoves The move limit including the opening, or 0 for none; required on an
+     *                 unbounded board.
+     */
+    public void setMaxMoves(int maxMoves) {
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Stores every finished game, opening included, in a game database.
+     *
+     * @param database The database to add the games to, or null to store nothing.
+     */
+    public void setRecord(GameDatabase.Writer database) {
+        this.database = database;
+    }
+
+    /**
+     * Sets the number of games to play, rounded up to whole pairs.
+     *
+     * @param games The number of games.
+     */
+    public void setGames(int games) {
+        this.games = games + (games & 1);
+    }
+
+    /**
+     * Sets the number of random stones placed before the engines take over.
+     *
+     * @param plies The number of opening moves, alternating colours starting with white.
+     */
+    public void setOpeningPlies(int plies) {
+        this.openingPlies = plies;
+    }
+
+    /**
+     * Sets the seed the random openings are derived from.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of games played at the same time. The default keeps every core busy.
+     *
+     * @param parallel The number of concurrent games, at least 1.
+     */
+    public void setParallel(int parallel) {
+        this.parallel = Math.max(1, parallel);
+    }
+
+    /**
+     * Plays the match, writing a header line and then one line per finished game.
+     *
+     * @param out The destination of the results; each line is flushed as it is written.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for games.
+     * @throws IllegalArgumentException If the board is unbounded and no move limit is set.
+     */
+    public void run(Writer out) throws InterruptedException {
+        if (this.size == 0 && this.maxMoves == 0) {
+            throw new IllegalArgumentException("Games on an unbounded board need a move limit");
+        }
+        PrintWriter results = new PrintWriter(out);
+        results.println(HEADER);
+        results.flush();
+        ExecutorService pool = Executors.newFixedThreadPool(this.parallel, runnable -> {
+            Thread thread = new Thread(runnable, "omok-arena");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One pair of engines per worker: a transposition table or search tree is too large to
+        // allocate for every game.
+        List<Engine> created = new ArrayList<>();
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> {
+            Engine[] pair = {this.first.create(), this.second.create()};
+            synchronized (created) {
+                created.add(pair[0]);
+                created.add(pair[1]);
+            }
+            return pair;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < this.games; i++) {
+                int game = i;
+                futures.add(pool.submit(() -> play(game, engines.get(), results)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A game failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            synchronized (created) {
+                for (Engine engine : created) {
+                    engine.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves a one-line summary of the results so far, from the point of view of the first
+     * engine.
+     *
+     * @return The wins, draws and losses of the first engine and its score.
+     */
+    public synchronized String summary() {
+        int played = this.firstWins + this.secondWins + this.draws;
+        double score = played == 0 ? 0 : (this.firstWins + 0.5 * this.draws) / played;
+        return String.format("%s vs %s: +%d =%d -%d, score %.1f%%",
+                this.first, this.second, this.firstWins, this.draws, this.secondWins, 100 * score);
+    }
+
+    /** Plays one game with the engines of the first and second spec and writes its result line. */
+    private void play(int number, Engine[] engines, PrintWriter results) {
+        boolean firstIsWhite = (number & 1) == 0;
+        EngineSpec white = firstIsWhite ? this.first : this.second;
+        EngineSpec black = firstIsWhite ? this.second : this.first;
+        Engine whiteEngine = engines[firstIsWhite ? 0 : 1];
+        Engine blackEngine = engines[firstIsWhite ? 1 : 0];
+        whiteEngine.newGame();
+        blackEngine.newGame();
+        Position position = this.sparse ? new SparseBoard(this.size) : new BitBoard(this.size);
+        position.setWinLength(this.winLength);
+        position.setRules(this.rules);
+        Game game = new Game(position, whiteEngine, blackEngine);
+        PlayerComputer whitePlayer = (PlayerComputer) game.getWhitePlayer();
+        PlayerComputer blackPlayer = (PlayerComputer) game.getBlackPlayer();
+        whitePlayer.setSearchLimits(white.getLimits());
+        blackPlayer.setSearchLimits(black.getLimits());
+        whitePlayer.setOpeningBook(white.getBook());
+        blackPlayer.setOpeningBook(black.getBook());
+        Board board = game.getBoard();
+
+        // Both games of a pair share the opening.
+        int moves = playOpening(board, whitePlayer, blackPlayer, new Random(this.seed * 1_000_003L + number / 2));
+        long[] nanos = new long[2];
+        int[] counts = new int[2];
+        String result = "draw";
+        while (!board.isFull() && (this.maxMoves == 0 || moves < this.maxMoves)) {
+            int turn = moves & 1;
+            PlayerComputer player = turn == 0 ? whitePlayer : blackPlayer;
+            long start = System.nanoTime();
+            player.makeMove();
+            nanos[turn] += System.nanoTime() - start;
+            counts[turn]++;
+            moves++;
+            if (board.isWonBy(player)) {
+                result = turn == 0 ? "white" : "black";
+                break;
+            }
+        }
+        if (this.database != null) {
+            GameRecord played = GameRecord.of(board.position());
+            // A game stopped by the move limit is adjudicated a draw.
+            store(result.equals("draw") ? played.withResult(GameRecord.DRAW) : played);
+        }
+        record(number, white, black, result, firstIsWhite, moves,
+                millisPerMove(nanos[0], counts[0]), millisPerMove(nanos[1], counts[1]), results);
+    }
+
+    /**
+     * Places the random opening stones: the first near the centre, the others next to the stones
+     * already played, never completing a line or making a forbidden move.
+     *
+     * @return The number of stones placed.
+     */
+    private int playOpening(Board board, PlayerComputer white, PlayerComputer black, Random random) {
+        Position bits = board.position();
+        int centre = this.size / 2;
+        int spread = this.size == 0 ? 2 : Math.min(2, centre);
+        int plies = this.size == 0 ? this.openingPlies : Math.min(this.openingPlies, this.size * this.size - 1);
+        for (int ply = 0; ply < plies; ply++) {
+            PlayerComputer player = (ply & 1) == 0 ? white : black;
+            int color = GameRecord.colorOf(ply);
+            int move;
+            if (ply == 0) {
+                move = bits.index(centre - spread + random.nextInt(2 * spread + 1),
+                        centre - spread + random.nextInt(2 * spread + 1));
+            } else {
+                do {
+                    move = bits.candidateAt(random.nextInt(bits.candidateCount()));
+                } while (bits.completesLine(move, Position.BLACK) || bits.completesLine(move, Position.WHITE)
+                        || bits.isForbidden(move, color));
+            }
+            board.placeStone(bits.x(move), bits.y(move), player);
+        }
+        return plies;
+    }
+
+    private synchronized void record(int number, EngineSpec white, EngineSpec black, String result,
+                                     boolean firstIsWhite, int moves, double whiteMillis, double blackMillis,
+                                     PrintWriter results) {
+        double score;
+        if (result.equals("draw")) {
+            score = 0.5;
+            this.draws++;
+        } else if (result.equals("white") == firstIsWhite) {
+            score = 1;
+            this.firstWins++;
+        } else {
+            score = 0;
+            this.secondWins++;
+        }
+        results.printf("%d,%s,%s,%s,%.1f,%d,%.2f,%.2f%n",
+                number, quote(white), quote(black), result, score, moves, whiteMillis, blackMillis);
+        results.flush();
+    }
+
+    private void store(GameRecord record) {
+        try {
+            this.database.add(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static double millisPerMove(long nanos, int moves) {
+        return moves == 0 ? 0 : nanos / 1e6 / moves;
+    }
+
+    /** Quotes an engine description, which may contain commas. */
+    private static String quote(EngineSpec spec) {
+        return '"' + spec.toString() + '"';
+    }
+
+    /**
+     * Runs a match from the command line and prints the summary to standard error.
+     *
+     * <p>Options: {@code --first SPEC --second SPEC} (required, see {@link EngineSpec}),
+     * {@code --games N}, {@code --size N}, {@code --win N}, {@code --rules freestyle|renju},
+     * {@code --board dense|sparse}, {@code --max-moves N},
+     * {@code --opening PLIES}, {@code --seed N}, {@code --parallel N}, {@code --out FILE}
+     * (standard output by default) and {@code --record FILE}.
+     *
+     * @param args The command-line options.
+     * @throws IOException          If the output file cannot be written.
+     * @throws InterruptedException If the match is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        EngineSpec first = null;
+        EngineSpec second = null;
+        String out = null;
+        boolean sparse = false;
+        int rules = Position.FREESTYLE;
+        String record = null;
+        List<String[]> settings = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--first":
+                    first = EngineSpec.parse(value);
+                    break;
+                case "--second":
+                    second = EngineSpec.parse(value);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--record":
+                    record = value;
+                    break;
+                case "--board":
+                    if (!value.equals("dense") && !value.equals("sparse")) {
+                        throw new IllegalArgumentException("Expected dense or sparse: " + value);
+                    }
+                    sparse = value.equals("sparse");
+                    break;
+                case "--rules":
+                    if (!value.equals("freestyle") && !value.equals("renju")) {
+                        throw new IllegalArgumentException("Expected freestyle or renju: " + value);
+                    }
+                    rules = value.equals("renju") ? Position.RENJU : Position.FREESTYLE;
+                    break;
+                default:
+                    settings.add(new String[]{option, value});
+            }
+        }
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Usage: Arena --first SPEC --second SPEC [--games N] [--size N]"
+                    + " [--win N] [--rules freestyle|renju] [--board dense|sparse] [--max-moves N] [--opening PLIES] [--seed N] [--parallel N] [--out FILE] [--record FILE]");
+        }
+        Arena arena = new Arena(first, second);
+        arena.setSparse(sparse);
+        arena.setRules(rules);
+        for (String[] setting : settings) {
+            int value = Integer.parseInt(setting[1]);
+            switch (setting[0]) {
+                case "--games":
+                    arena.setGames(value);
+                    break;
+                case "--size":
+                    arena.setSize(value);
+                    break;
+                case "--win":
+                    arena.setWinLength(value);
+                    break;
+                case "--opening":
+                    arena.setOpeningPlies(value);
+                    break;
+                case "--seed":
+                    arena.setSeed(value);
+                    break;
+                case "--parallel":
+                    arena.setParallel(value);
+                    break;
+                case "--max-moves":
+                    arena.setMaxMoves(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + setting[0]);
+            }
+        }
+        try (Writer writer = out == null ? new OutputStreamWriter(System.out) : new FileWriter(out);
+             GameDatabase.Writer database = record == null ? null : GameDatabase.Writer.create(Path.of(record))) {
+            arena.setRecord(database);
+            arena.run(writer);
+        }
+        System.err.println(arena.summary());
+    }
+}
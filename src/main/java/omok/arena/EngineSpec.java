@@ -0,0 +1,176 @@
+package omok.arena;
+
+import omok.book.OpeningBook;
+import omok.engine.Engine;
+import omok.engine.EvalWeights;
+import omok.engine.MctsEngine;
+import omok.engine.ParallelSearch;
+import omok.engine.SearchLimits;
+import omok.engine.TranspositionTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The `EngineSpec` class describes an engine taking part in an arena match, parsed from text such
+ * as {@code ab:time=100} or {@code mcts:nodes=20000,threads=2}.
+ *
+ * <p>The name is {@code ab} for the alpha-beta search or {@code mcts} for Monte Carlo Tree
+ * Search. The options are {@code time} (milliseconds per move), {@code nodes} (nodes or playouts
+ * per move), {@code depth}, {@code threads}, {@code book} (an opening book file) and, for
+ * {@code ab}, {@code hash} (megabytes) and {@code weights} (an evaluation weight file).
+ * Every game gets fresh engines, so games do not influence each other.
+ */
+public final class EngineSpec {
+
+    private final String text;
+    private final String name;
+    private final SearchLimits limits;
+    private final int threads;
+    private final int hashMegabytes;
+    private final OpeningBook book;
+    private final EvalWeights weights;
+
+    private EngineSpec(String text, String name, SearchLimits limits, int threads, int hashMegabytes,
+                       OpeningBook book, EvalWeights weights) {
+        this.text = text;
+        this.name = name;
+        this.limits = limits;
+        this.threads = threads;
+        this.hashMegabytes = hashMegabytes;
+        this.book = book;
+        this.weights = weights;
+    }
+
+    /**
+     * Parses an engine description.
+     *
+     * @param text The description, a name optionally followed by a colon and key=value options.
+     * @return The parsed specification.
+     * @throws IllegalArgumentException If the name or an option is not recognised.
+     * @throws UncheckedIOException     If the opening book or the weights cannot be read.
+     */
+    public static EngineSpec parse(String text) {
+        int colon = text.indexOf(':');
+        String name = colon < 0 ? text : text.substring(0, colon);
+        if (!name.equals("ab") && !name.equals("mcts")) {
+            throw new IllegalArgumentException("Unknown engine, expected ab or mcts: " + name);
+        }
+        long time = 0;
+        long nodes = 0;
+        int depth = 0;
+        int threads = 1;
+        int hash = 16;
+        OpeningBook book = null;
+        EvalWeights weights = null;
+        if (colon >= 0) {
+            for (String option : text.substring(colon + 1).split(",")) {
+                int equals = option.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Expected key=value: " + option);
+                }
+                String key = option.substring(0, equals);
+                if (key.equals("book")) {
+                    book = loadBook(option.substring(equals + 1));
+                    continue;
+                }
+                if (key.equals("weights") && name.equals("ab")) {
+                    weights = loadWeights(option.substring(equals + 1));
+                    continue;
+                }
+                long value = Long.parseLong(option.substring(equals + 1));
+                switch (key) {
+                    case "time":
+                        time = value;
+                        break;
+                    case "nodes":
+                        nodes = value;
+                        break;
+                    case "depth":
+                        depth = (int) value;
+                        break;
+                    case "threads":
+                        threads = (int) value;
+                        break;
+                    case "hash":
+                        hash = (int) value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown engine option: " + key);
+                }
+            }
+        }
+        if (time == 0 && nodes == 0 && depth == 0) {
+            throw new IllegalArgumentException("The engine needs a time, nodes or depth limit: " + text);
+        }
+        return new EngineSpec(text, name, new SearchLimits(time, nodes, depth), threads, hash, book, weights);
+    }
+
+    /**
+     * Creates a new engine as described.
+     *
+     * @return The engine, which the caller must shut down.
+     */
+    public Engine create() {
+        if (this.name.equals("ab")) {
+            ParallelSearch search = new ParallelSearch(new TranspositionTable(this.hashMegabytes), this.threads);
+            if (this.weights != null) {
+                search.setWeights(this.weights);
+            }
+            return search;
+        }
+        Engine engine = new MctsEngine();
+        engine.setThreads(this.threads);
+        return engine;
+    }
+
+    /**
+     * Retrieves the budget of each move.
+     *
+     * @return The search limits.
+     */
+    public SearchLimits getLimits() {
+        return this.limits;
+    }
+
+    /**
+     * Retrieves the opening book the player consults before searching. The book is loaded once
+     * and shared by every game.
+     *
+     * @return The book, or null if there is none.
+     */
+    public OpeningBook getBook() {
+        return this.book;
+    }
+
+    /**
+     * Retrieves the number of threads the engine searches with.
+     *
+     * @return The thread count.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    private static OpeningBook loadBook(String path) {
+        try {
+            return OpeningBook.load(Path.of(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the opening book " + path, e);
+        }
+    }
+
+    private static EvalWeights loadWeights(String path) {
+        try {
+            return EvalWeights.load(Path.of(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the weights " + path, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+}
@@ -0,0 +1,272 @@
+package omok.book;
+
+import omok.BitBoard;
+import omok.Position;
+import omok.record.GameDatabase;
+import omok.record.GameRecord;
+import omok.util.LongIntMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The `BookBuilder` class builds an {@link OpeningBook} offline from finished games, for example
+ * a {@link GameDatabase} of self-play games recorded by the arena with {@code --record}.
+ *
+ * <p>For the first plies of every game the builder notes the canonical position, the move played
+ * in the canonical frame and how the game ended for the side that played it. Only games of the
+ * book's size and win length with a result count. The notes are kept as packed longs and sorted
+ * once when the book is written.
+ *
+ * <p>Example: {@code java omok.book.BookBuilder --db games.ogdb --out omok.book --size 15 --plies 8}
+ */
+public class BookBuilder {
+
+    private final int size;
+    private final int winLength;
+    private final int plies;
+    private int minGames = 1;
+
+    /** Canonical position hash to dense position id. */
+    private final LongIntMap ids = new LongIntMap(1024);
+    private long[] idKeys = new long[1024];
+
+    /** One note per game and ply: position id, canonical move and points (0 to 2) for the mover. */
+    private long[] notes = new long[1024];
+    private int noteCount;
+
+    /**
+     * Creates a new builder.
+     *
+     * @param size      The number of intersections on each side of the board, at most 256.
+     * @param winLength The number of stones in a row needed to win.
+     * @param plies     The number of moves from the start of each game to learn.
+     */
+    public BookBuilder(int size, int winLength, int plies) {
+        if (size < 1 || size > GameRecord.MAX_SIZE) {
+            throw new IllegalArgumentException("Board size out of range: " + size);
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.plies = plies;
+    }
+
+    /**
+     * Sets how many games a move must have been played in to be written to the book.
+     *
+     * @param minGames The minimum number of games, at least 1.
+     */
+    public void setMinGames(int minGames) {
+        this.minGames = Math.max(1, minGames);
+    }
+
+    /**
+     * Learns the opening of a game. Games of another size, win length or rules, and unfinished
+     * games, are skipped.
+     *
+     * @param record The game.
+     * @return `true` if the game was used.
+     */
+    public boolean add(GameRecord record) {
+        if (record.size() != this.size || record.winLength() != this.winLength
+                || record.rules() != GameRecord.FREESTYLE || record.result() == GameRecord.UNFINISHED) {
+            return false;
+        }
+        Position position = new BitBoard(this.size);
+        position.setWinLength(this.winLength);
+        long[] hashes = new long[Symmetry.COUNT];
+        int moves = Math.min(this.plies, record.moveCount());
+        for (int ply = 0; ply < moves && position.winner() == Position.EMPTY; ply++) {
+            int x = record.x(ply);
+            int y = record.y(ply);
+            long canonical = Symmetry.hashes(position, hashes);
+            int move = Symmetry.canonicalMove(hashes, canonical, this.size, x, y);
+            note(id(canonical), move, points(record.result(), GameRecord.colorOf(ply)));
+            position.place(position.index(x, y), GameRecord.colorOf(ply));
+        }
+        return true;
+    }
+
+    /**
+     * Learns the openings of every game in a database.
+     *
+     * @param database The games.
+     * @return The number of games used.
+     */
+    public int addAll(GameDatabase database) {
+        int used = 0;
+        for (int game = 0; game < database.count(); game++) {
+            // The index rules most games out without decoding them.
+            if (database.size(game) == this.size && database.winLength(game) == this.winLength
+                    && database.result(game) != GameRecord.UNFINISHED && add(database.get(game))) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Writes the book.
+     *
+     * @param path The book file, replaced if it exists.
+     * @return The number of entries written.
+     * @throws IOException If the file cannot be written.
+     */
+    public int write(Path path) throws IOException {
+        // Sorting the notes groups them by position id and then by move.
+        long[] sorted = Arrays.copyOf(this.notes, this.noteCount);
+        Arrays.sort(sorted);
+        int positions = this.ids.size();
+        int[] first = new int[positions];
+        int[] end = new int[positions];
+        long[] entries = new long[sorted.length];
+        int entryCount = 0;
+        int previous = -1;
+        for (int i = 0; i < sorted.length; ) {
+            long group = sorted[i] >>> 2;
+            int games = 0;
+            int points = 0;
+            for (; i < sorted.length && sorted[i] >>> 2 == group; i++) {
+                games++;
+                points += (int) (sorted[i] & 3);
+            }
+            int id = (int) (group >>> 16);
+            if (id != previous) {
+                first[id] = entryCount;
+                previous = id;
+            }
+            if (games >= this.minGames) {
+                long score = Math.round((double) OpeningBook.MAX_SCORE * points / (2.0 * games));
+                entries[entryCount++] = (group & 0xFFFF) << 48 | score << 32 | games;
+            }
+            end[id] = entryCount;
+        }
+        long[] keys = Arrays.copyOf(this.idKeys, positions);
+        Arrays.sort(keys);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putLong(OpeningBook.MAGIC).putShort((short) this.size).put((byte) this.winLength).put((byte) 0)
+                    .putShort((short) this.plies).putShort((short) 0).putInt(entryCount).putInt(0).putLong(0);
+            for (long key : keys) {
+                int id = this.ids.get(key, -1);
+                for (int e = first[id]; e < end[id]; e++) {
+                    if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                        flush(channel, buffer);
+                    }
+                    long entry = entries[e];
+                    buffer.putLong(key).putShort((short) (entry >>> 48)).putShort((short) (entry >>> 32))
+                            .putInt((int) entry);
+                }
+            }
+            flush(channel, buffer);
+        }
+        return entryCount;
+    }
+
+    private int id(long canonical) {
+        int id = this.ids.get(canonical, -1);
+        if (id < 0) {
+            id = this.ids.size();
+            this.ids.put(canonical, id);
+            if (id == this.idKeys.length) {
+                this.idKeys = Arrays.copyOf(this.idKeys, id * 2);
+            }
+            this.idKeys[id] = canonical;
+        }
+        return id;
+    }
+
+    private void note(int id, int move, int points) {
+        if (this.noteCount == this.notes.length) {
+            this.notes = Arrays.copyOf(this.notes, this.noteCount * 2);
+        }
+        this.notes[this.noteCount++] = ((long) id << 16 | move) << 2 | points;
+    }
+
+    /** Scores a result for one colour: 2 for a win, 1 for a draw and 0 for a loss. */
+    private static int points(int result, int color) {
+        if (result == GameRecord.DRAW) {
+            return 1;
+        }
+        int winner = result == GameRecord.WHITE_WINS ? Position.WHITE : Position.BLACK;
+        return winner == color ? 2 : 0;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Builds a book from the command line.
+     *
+     * <p>Options: {@code --db FILE} (required, repeatable), {@code --out FILE} (required),
+     * {@code --size N} (15 by default), {@code --win N} (5), {@code --plies N} (8) and
+     * {@code --min-games N} (1).
+     *
+     * @param args The command-line options.
+     * @throws IOException If a database cannot be read or the book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> databases = new ArrayList<>();
+        Path out = null;
+        int size = 15;
+        int winLength = 5;
+        int plies = 8;
+        int minGames = 1;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--db":
+                    databases.add(Path.of(value));
+                    break;
+                case "--out":
+                    out = Path.of(value);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(value);
+                    break;
+                case "--win":
+                    winLength = Integer.parseInt(value);
+                    break;
+                case "--plies":
+                    plies = Integer.parseInt(value);
+                    break;
+                case "--min-games":
+                    minGames = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (databases.isEmpty() || out == null) {
+            throw new IllegalArgumentException("Usage: BookBuilder --db FILE [--db FILE...] --out FILE [--size N]"
+                    + " [--win N] [--plies N] [--min-games N]");
+        }
+        BookBuilder builder = new BookBuilder(size, winLength, plies);
+        builder.setMinGames(minGames);
+        int used = 0;
+        for (Path path : databases) {
+            try (GameDatabase database = GameDatabase.open(path)) {
+                used += builder.addAll(database);
+            }
+        }
+        int entries = builder.write(out);
+        System.err.println("Built " + out + " from " + used + " games: " + entries + " entries");
+    }
+}
@@ -0,0 +1,226 @@
+package omok.book;
+
+import omok.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The `OpeningBook` class answers the first moves of a game from statistics of earlier games, so
+ * that the AI does not spend its time budget searching well-known openings.
+ *
+ * <p>Positions are looked up by their canonical hash under the 8 board symmetries (see
+ * {@link Symmetry}), so a book built from games in one orientation also answers the rotated and
+ * mirrored positions. A book covers one board size and win length under freestyle rules, and only
+ * positions with fewer stones than its number of plies.
+ *
+ * <p>The file, written by {@link BookBuilder}, is a 32-byte header followed by 16-byte entries
+ * sorted by hash, all big-endian:
+ * <pre>
+ *   header: u64 magic OMOKBOOK, u16 size, u8 winLength, u8 reserved, u16 plies, u16 reserved,
+ *           u32 entries, 12 reserved bytes
+ *   entry:  u64 canonical hash, u16 canonical move (x &lt;&lt; 8 | y), u16 score, u32 games
+ * </pre>
+ * The score is the average result of the move for the side that played it, scaled so that 65535
+ * means every game was won. The book is read into four primitive arrays, and a probe is a binary
+ * search over them.
+ */
+public class OpeningBook {
+
+    static final long MAGIC = 0x4F4D4F4B424F4F4BL;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 16;
+
+    /** The score of a move that always won. */
+    public static final int MAX_SCORE = 0xFFFF;
+
+    /** The system property naming the book file of the interactive AI players. */
+    public static final String PROPERTY = "omok.book";
+
+    private static volatile OpeningBook defaultBook;
+
+    private final int size;
+    private final int winLength;
+    private final int plies;
+    private final long[] keys;
+    private final char[] moves;
+    private final char[] scores;
+    private final int[] games;
+    private int minGames = 1;
+
+    OpeningBook(int size, int winLength, int plies, long[] keys, char[] moves, char[] scores, int[] games) {
+        this.size = size;
+        this.winLength = winLength;
+        this.plies = plies;
+        this.keys = keys;
+        this.moves = moves;
+        this.scores = scores;
+        this.games = games;
+    }
+
+    /**
+     * Reads a book file.
+     *
+     * @param path The book file.
+     * @return The book.
+     * @throws IOException If the file cannot be read or is not a book.
+     */
+    public static OpeningBook load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full.
+            }
+            buffer.flip();
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            int size = buffer.getChar(8);
+            int winLength = buffer.get(10) & 0xFF;
+            int plies = buffer.getChar(12);
+            int count = buffer.getInt(16);
+            if (count < 0 || buffer.limit() != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+                throw new IOException("Corrupt opening book: " + path);
+            }
+            long[] keys = new long[count];
+            char[] moves = new char[count];
+            char[] scores = new char[count];
+            int[] games = new int[count];
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < count; i++) {
+                keys[i] = buffer.getLong();
+                moves[i] = buffer.getChar();
+                scores[i] = buffer.getChar();
+                games[i] = buffer.getInt();
+            }
+            return new OpeningBook(size, winLength, plies, keys, moves, scores, games);
+        }
+    }
+
+    /**
+     * Retrieves the book named by the {@value #PROPERTY} system property, loading it on first
+     * use. A book that cannot be read is reported on standard error and the AI plays without one.
+     *
+     * @return The book, or null if the property is not set or the file cannot be read.
+     */
+    public static OpeningBook getDefault() {
+        String path = System.getProperty(PROPERTY);
+        if (path == null) {
+            return null;
+        }
+        OpeningBook book = defaultBook;
+        if (book == null) {
+            synchronized (OpeningBook.class) {
+                if (defaultBook == null) {
+                    try {
+                        defaultBook = load(Path.of(path));
+                    } catch (IOException e) {
+                        System.err.println("Cannot read the opening book " + path + ": " + e.getMessage());
+                        return null;
+                    }
+                }
+                book = defaultBook;
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Sets how many games a move must have been played in before the book suggests it.
+     *
+     * @param minGames The minimum number of games, at least 1.
+     */
+    public void setMinGames(int minGames) {
+        this.minGames = Math.max(1, minGames);
+    }
+
+    /**
+     * Retrieves the board size the book was built for.
+     *
+     * @return The number of intersections on each side.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Retrieves the win length the book was built for.
+     *
+     * @return The number of stones in a row needed to win.
+     */
+    public int winLength() {
+        return this.winLength;
+    }
+
+    /**
+     * Retrieves the number of plies the book covers.
+     *
+     * @return The book answers positions with fewer stones than this.
+     */
+    public int plies() {
+        return this.plies;
+    }
+
+    /**
+     * Retrieves the number of entries, one per position and move.
+     *
+     * @return The number of entries.
+     */
+    public int entryCount() {
+        return this.keys.length;
+    }
+
+    /**
+     * Looks up the best book move of a position: the move with the highest score among those
+     * played in at least the minimum number of games, the most played one on a tie.
+     *
+     * @param position The position, with the side to move given by the number of stones.
+     * @return The board index of the move, or -1 if the book has no move for the position.
+     */
+    public int probe(Position position) {
+        if (position.size() != this.size || position.winLength() != this.winLength
+                || position.rules() != Position.FREESTYLE
+                || position.stoneCount() >= this.plies || position.winner() != Position.EMPTY) {
+            return -1;
+        }
+        long[] hashes = new long[Symmetry.COUNT];
+        long canonical = Symmetry.hashes(position, hashes);
+        int first = find(canonical);
+        if (first < 0) {
+            return -1;
+        }
+        int best = -1;
+        for (int i = first; i < this.keys.length && this.keys[i] == canonical; i++) {
+            if (this.games[i] >= this.minGames && (best < 0 || this.scores[i] > this.scores[best]
+                    || this.scores[i] == this.scores[best] && this.games[i] > this.games[best])) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        int packed = Symmetry.invert(Symmetry.canonicalSymmetry(hashes, canonical), this.size, this.moves[best]);
+        int move = position.index(packed >>> 8, packed & 0xFF);
+        // A hash collision could suggest an occupied intersection.
+        return position.isEmpty(move) ? move : -1;
+    }
+
+    /** Finds the first entry with the given hash, or returns -1. */
+    private int find(long key) {
+        int i = Arrays.binarySearch(this.keys, key);
+        if (i < 0) {
+            return -1;
+        }
+        while (i > 0 && this.keys[i - 1] == key) {
+            i--;
+        }
+        return i;
+    }
+}
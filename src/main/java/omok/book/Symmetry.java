@@ -0,0 +1,131 @@
+package omok.book;
+
+import omok.Position;
+import omok.Zobrist;
+
+/**
+ * The `Symmetry` class maps positions on a square board to a canonical form under its 8
+ * symmetries: the identity, the three rotations and the four reflections. Positions that are
+ * rotations or mirror images of each other share a canonical hash, so the opening book stores
+ * each of them once.
+ *
+ * <p>Symmetry {@code s} first transposes the board if bit 2 is set, then mirrors the column if
+ * bit 0 is set and the row if bit 1 is set. Intersections are packed as {@code x << 8 | y}.
+ */
+final class Symmetry {
+
+    /** The number of symmetries of a square board. */
+    static final int COUNT = 8;
+
+    private Symmetry() {
+    }
+
+    /**
+     * Maps an intersection under a symmetry.
+     *
+     * @param symmetry The symmetry, 0 to 7.
+     * @param size     The number of intersections on each side.
+     * @param x        The column.
+     * @param y        The row.
+     * @return The packed image of (x, y).
+     */
+    static int apply(int symmetry, int size, int x, int y) {
+        if ((symmetry & 4) != 0) {
+            int t = x;
+            x = y;
+            y = t;
+        }
+        if ((symmetry & 1) != 0) {
+            x = size - 1 - x;
+        }
+        if ((symmetry & 2) != 0) {
+            y = size - 1 - y;
+        }
+        return x << 8 | y;
+    }
+
+    /**
+     * Maps a packed intersection back under the inverse of a symmetry.
+     *
+     * @param symmetry The symmetry, 0 to 7.
+     * @param size     The number of intersections on each side.
+     * @param packed   The packed image.
+     * @return The packed intersection whose image it is.
+     */
+    static int invert(int symmetry, int size, int packed) {
+        int x = packed >>> 8;
+        int y = packed & 0xFF;
+        if ((symmetry & 1) != 0) {
+            x = size - 1 - x;
+        }
+        if ((symmetry & 2) != 0) {
+            y = size - 1 - y;
+        }
+        return (symmetry & 4) != 0 ? y << 8 | x : x << 8 | y;
+    }
+
+    /**
+     * Computes the hash of a position under every symmetry.
+     *
+     * @param position The position, on a bounded board of at most 256 intersections a side.
+     * @param hashes   Receives the hash under each symmetry; at least {@link #COUNT} long.
+     * @return The canonical hash, the smallest of them.
+     */
+    static long hashes(Position position, long[] hashes) {
+        int size = position.size();
+        for (int s = 0; s < COUNT; s++) {
+            hashes[s] = 0;
+        }
+        for (int ply = 0; ply < position.stoneCount(); ply++) {
+            int move = position.moveAt(ply);
+            int x = position.x(move);
+            int y = position.y(move);
+            int color = position.colorAt(move);
+            for (int s = 0; s < COUNT; s++) {
+                hashes[s] ^= Zobrist.key(apply(s, size, x, y), color);
+            }
+        }
+        long canonical = hashes[0];
+        for (int s = 1; s < COUNT; s++) {
+            canonical = Math.min(canonical, hashes[s]);
+        }
+        return canonical;
+    }
+
+    /**
+     * Maps a move into the canonical frame of a position. If the position is itself symmetric,
+     * several symmetries give the canonical hash and the smallest image of the move is taken, so
+     * equivalent moves are counted as one.
+     *
+     * @param hashes    The hashes computed by {@link #hashes(Position, long[])}.
+     * @param canonical The canonical hash.
+     * @param size      The number of intersections on each side.
+     * @param x         The column of the move.
+     * @param y         The row of the move.
+     * @return The packed canonical move.
+     */
+    static int canonicalMove(long[] hashes, long canonical, int size, int x, int y) {
+        int best = Integer.MAX_VALUE;
+        for (int s = 0; s < COUNT; s++) {
+            if (hashes[s] == canonical) {
+                best = Math.min(best, apply(s, size, x, y));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds a symmetry that maps a position to its canonical form.
+     *
+     * @param hashes    The hashes computed by {@link #hashes(Position, long[])}.
+     * @param canonical The canonical hash.
+     * @return The first symmetry giving the canonical hash.
+     */
+    static int canonicalSymmetry(long[] hashes, long canonical) {
+        int s = 0;
+        while (hashes[s] != canonical) {
+            s++;
+        }
+        return s;
+    }
+}
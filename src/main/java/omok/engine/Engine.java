@@ -0,0 +1,95 @@
+package omok.engine;
+
+import omok.Position;
+import omok.metrics.EngineMetrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The `Engine` interface is implemented by the move-finding algorithms an AI player can use.
+ */
+public interface Engine {
+
+    /**
+     * Finds a move for the given side. The position itself is not modified.
+     *
+     * @param position The position to search.
+     * @param side     The side to move, {@link Position#BLACK} or {@link Position#WHITE}.
+     * @param limits   The limits the search must respect.
+     * @return The best move found and statistics about the search.
+     */
+    default SearchResult search(Position position, int side, SearchLimits limits) {
+        return search(position, side, limits, new AtomicBoolean());
+    }
+
+    /**
+     * Finds a move for the given side until the given flag is set. The flag belongs to the caller,
+     * who creates it before handing the search to another thread, so that asking the search to
+     * stop cannot get lost: a flag set before the search starts makes it return at once. The
+     * search may set the flag itself when it ends. The position itself is not modified.
+     *
+     * @param position The position to search.
+     * @param side     The side to move, {@link Position#BLACK} or {@link Position#WHITE}.
+     * @param limits   The limits the search must respect.
+     * @param stop     The flag any thread sets to make the search return its best move so far.
+     * @return The best move found and statistics about the search.
+     */
+    SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop);
+
+    /**
+     * Guesses the move the given side will play, without searching, for example to search the
+     * expected position while the opponent thinks. Must not be called during a search. The
+     * default picks the candidate move the move ordering likes best.
+     *
+     * @param position The position.
+     * @param side     The side to move.
+     * @return The board index of the expected move, or -1 if there is no candidate move.
+     */
+    default int predict(Position position, int side) {
+        Evaluator evaluator = new Evaluator();
+        int best = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < position.candidateCount(); i++) {
+            int move = position.candidateAt(i);
+            if (position.isForbidden(move, side)) {
+                continue;
+            }
+            int score = evaluator.scoreMove(position, move, side);
+            if (score > bestScore) {
+                best = move;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sets the metrics the engine adds the profile of each search to: where its time goes and how
+     * often its transposition table answers. The default ignores them, for engines that keep no
+     * such profile.
+     *
+     * @param metrics The metrics, or null to stop profiling.
+     */
+    default void setMetrics(EngineMetrics metrics) {
+    }
+
+    /**
+     * Forgets what earlier games taught the engine, so that a reused engine plays a new game as
+     * a fresh one would. The default does nothing, for engines that keep nothing between
+     * searches.
+     */
+    default void newGame() {
+    }
+
+    /**
+     * Sets the number of threads the engine searches with. Must not be called during a search.
+     *
+     * @param threads The number of threads, at least 1.
+     */
+    void setThreads(int threads);
+
+    /**
+     * Stops any background threads. The engine restarts them on demand.
+     */
+    void shutdown();
+}
@@ -0,0 +1,209 @@
+package omok.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The `EvalWeights` class holds the values the {@link Evaluator} gives to each
+ * {@link PatternTable} class, so that they can be tuned offline and loaded at startup.
+ *
+ * <p>The weights are stored in a properties file with one comma-separated list of
+ * {@link PatternTable#CLASSES} integers per key: {@code ownLine} and {@code opponentLine} for the
+ * static evaluation, {@code attack} and {@code defence} for move ordering. Missing keys keep their
+ * default values. The engines use the file named by the {@value #PROPERTY} system property, or the
+ * hand-picked defaults if it is not set.
+ */
+public final class EvalWeights {
+
+    /** The system property naming the weight file the engines load at startup. */
+    public static final String PROPERTY = "omok.weights";
+
+    /** The hand-picked weights. */
+    public static final EvalWeights DEFAULT = new EvalWeights(
+            new int[]{0, 1, 4, 4, 30, 2000, 2000, 0},
+            new int[]{0, 1, 4, 4, 20, 5, 2000, 0},
+            new int[]{0, 2, 10, 10, 100, 1000, 10000, 100000},
+            new int[]{0, 1, 5, 5, 80, 500, 5000, 50000});
+
+    private static volatile EvalWeights defaultWeights;
+
+    private final int[] ownLine;
+    private final int[] opponentLine;
+    private final int[] attack;
+    private final int[] defence;
+
+    /**
+     * Creates a new set of weights, each indexed by pattern class.
+     *
+     * @param ownLine      Value of the line class through each stone of the side to move.
+     * @param opponentLine Value of the line class through each stone of the side that just moved.
+     * @param attack       Move ordering value of the class a move makes for the mover.
+     * @param defence      Move ordering value of the class the opponent would make on the same
+     *                     intersection.
+     */
+    public EvalWeights(int[] ownLine, int[] opponentLine, int[] attack, int[] defence) {
+        this.ownLine = check("ownLine", ownLine);
+        this.opponentLine = check("opponentLine", opponentLine);
+        this.attack = check("attack", attack);
+        this.defence = check("defence", defence);
+    }
+
+    /**
+     * Retrieves the weights named by the {@value #PROPERTY} system property, loading them on first
+     * use. A file that cannot be read is reported on standard error and the defaults are used.
+     *
+     * @return The weights the engines start with.
+     */
+    public static EvalWeights getDefault() {
+        EvalWeights weights = defaultWeights;
+        if (weights == null) {
+            synchronized (EvalWeights.class) {
+                if (defaultWeights == null) {
+                    String path = System.getProperty(PROPERTY);
+                    defaultWeights = DEFAULT;
+                    if (path != null) {
+                        try {
+                            defaultWeights = load(Path.of(path));
+                        } catch (IOException | IllegalArgumentException e) {
+                            System.err.println("Cannot read the weights " + path + ": " + e.getMessage());
+                        }
+                    }
+                }
+                weights = defaultWeights;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Reads weights from a properties file.
+     *
+     * @param path The weight file.
+     * @return The weights, with the defaults for missing keys.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException If a value is not a list of integers of the right length.
+     */
+    public static EvalWeights load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new EvalWeights(
+                parse(properties, "ownLine", DEFAULT.ownLine),
+                parse(properties, "opponentLine", DEFAULT.opponentLine),
+                parse(properties, "attack", DEFAULT.attack),
+                parse(properties, "defence", DEFAULT.defence));
+    }
+
+    /**
+     * Writes the weights to a properties file.
+     *
+     * @param path    The weight file, replaced if it exists.
+     * @param comment A comment for the head of the file, or null.
+     * @throws IOException If the file cannot be written.
+     */
+    public void store(Path path, String comment) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("ownLine", format(this.ownLine));
+        properties.setProperty("opponentLine", format(this.opponentLine));
+        properties.setProperty("attack", format(this.attack));
+        properties.setProperty("defence", format(this.defence));
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    /**
+     * Retrieves the static evaluation value of a line class of the side to move.
+     *
+     * @param patternClass The pattern class.
+     * @return The value.
+     */
+    public int ownLine(int patternClass) {
+        return this.ownLine[patternClass];
+    }
+
+    /**
+     * Retrieves the static evaluation value of a line class of the side that just moved.
+     *
+     * @param patternClass The pattern class.
+     * @return The value.
+     */
+    public int opponentLine(int patternClass) {
+        return this.opponentLine[patternClass];
+    }
+
+    /**
+     * Retrieves the move ordering value of a line class made by the mover.
+     *
+     * @param patternClass The pattern class.
+     * @return The value.
+     */
+    public int attack(int patternClass) {
+        return this.attack[patternClass];
+    }
+
+    /**
+     * Retrieves the move ordering value of a line class the move takes from the opponent.
+     *
+     * @param patternClass The pattern class.
+     * @return The value.
+     */
+    public int defence(int patternClass) {
+        return this.defence[patternClass];
+    }
+
+    /**
+     * Returns a copy with other static evaluation values, keeping the move ordering values.
+     *
+     * @param ownLine      The values of the line classes of the side to move.
+     * @param opponentLine The values of the line classes of the side that just moved.
+     * @return The new weights.
+     */
+    public EvalWeights withLineValues(int[] ownLine, int[] opponentLine) {
+        return new EvalWeights(ownLine, opponentLine, this.attack, this.defence);
+    }
+
+    private static int[] parse(Properties properties, String key, int[] fallback) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static String format(int[] values) {
+        StringBuilder text = new StringBuilder();
+        for (int value : values) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(value);
+        }
+        return text.toString();
+    }
+
+    private static int[] check(String key, int[] values) {
+        if (values.length != PatternTable.CLASSES) {
+            throw new IllegalArgumentException(key + " needs " + PatternTable.CLASSES + " values: " + values.length);
+        }
+        return values.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ownLine=" + Arrays.toString(this.ownLine) + " opponentLine=" + Arrays.toString(this.opponentLine)
+                + " attack=" + Arrays.toString(this.attack) + " defence=" + Arrays.toString(this.defence);
+    }
+}
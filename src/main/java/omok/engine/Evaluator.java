@@ -0,0 +1,199 @@
+package omok.engine;
+
+import omok.Position;
+
+import java.util.Arrays;
+
+/**
+ * The `Evaluator` class scores positions and candidate moves for the search engine.
+ * Scores are always from the point of view of the given side and stay below {@link #WIN_THRESHOLD}.
+ *
+ * <p>Every line segment through an intersection is reduced to three bit masks (own stones,
+ * opponent stones and off-board intersections) and classified with one lookup in a
+ * {@link PatternTable}. The same masks give the class for both colours, so a candidate move is
+ * scored for attack and defence at once. The value of each class comes from {@link EvalWeights}.
+ */
+public class Evaluator {
+
+    /** Score of a won position; anything at or above {@link #WIN_THRESHOLD} is a forced win. */
+    public static final int WIN = 1_000_000;
+
+    /** Lowest score that still counts as a forced win. */
+    public static final int WIN_THRESHOLD = WIN - 10_000;
+
+    /**
+     * Value of the line class through each stone of the side to move, indexed by pattern class.
+     * A four of the side to move wins on the next move.
+     */
+    private final int[] ownLine = new int[PatternTable.CLASSES];
+
+    /** Value of the line class through each stone of the side that just moved. */
+    private final int[] opponentLine = new int[PatternTable.CLASSES];
+
+    /** Move ordering value of the class a move makes for the mover. */
+    private final int[] attack = new int[PatternTable.CLASSES];
+
+    /** Move ordering value of the class the opponent would make on the same intersection. */
+    private final int[] defence = new int[PatternTable.CLASSES];
+
+    private PatternTable table = PatternTable.forWinLength(5);
+
+    /**
+     * Creates an evaluator with the weights loaded at startup (see {@link EvalWeights#getDefault()}).
+     */
+    public Evaluator() {
+        this(EvalWeights.getDefault());
+    }
+
+    /**
+     * Creates an evaluator with the given weights.
+     *
+     * @param weights The values of the pattern classes.
+     */
+    public Evaluator(EvalWeights weights) {
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            this.ownLine[c] = weights.ownLine(c);
+            this.opponentLine[c] = weights.opponentLine(c);
+            this.attack[c] = weights.attack(c);
+            this.defence[c] = weights.defence(c);
+        }
+    }
+
+    /**
+     * Evaluates a position statically by classifying the lines through every stone,
+     * own lines counting positively and the opponent's negatively.
+     *
+     * @param position The position to evaluate.
+     * @param side     The side to move, for which the score is computed.
+     * @return The score of the position for the given side.
+     */
+    public int evaluate(Position position, int side) {
+        PatternTable patterns = table(position);
+        int score = lineScore(position, patterns, side, this.ownLine)
+                - lineScore(position, patterns, 1 - side, this.opponentLine);
+        return Math.max(-WIN_THRESHOLD + 1, Math.min(WIN_THRESHOLD - 1, score));
+    }
+
+    /**
+     * Counts the line classes the static evaluation is made of, for tuning its weights: the
+     * evaluation is the dot product of these counts with the own and the negated opponent values.
+     *
+     * @param position The position.
+     * @param side     The side to move.
+     * @param counts   Receives the number of lines of each class through the stones of the side
+     *                 to move at 0 to 7 and through the opponent's stones at 8 to 15.
+     */
+    public void lineCounts(Position position, int side, int[] counts) {
+        PatternTable patterns = table(position);
+        int radius = patterns.radius();
+        Arrays.fill(counts, 0, 2 * PatternTable.CLASSES, 0);
+        for (int ply = 0; ply < position.stoneCount(); ply++) {
+            int index = position.moveAt(ply);
+            int color = position.colorAt(index);
+            int offset = color == side ? 0 : PatternTable.CLASSES;
+            for (int delta : position.directions()) {
+                int blockers = position.line(1 - color, index, delta, radius)
+                        | position.edgeLine(index, delta, radius);
+                counts[offset + patterns.classify(position.line(color, index, delta, radius), blockers)]++;
+            }
+        }
+    }
+
+    /**
+     * Scores a candidate move for ordering: completing own lines and blocking the opponent's
+     * lines both raise the score, and double threats are worth almost as much as a four.
+     *
+     * @param position The position before the move.
+     * @param index    The empty intersection to score.
+     * @param side     The side that would play the move.
+     * @return The score of the move; higher is better.
+     */
+    public int scoreMove(Position position, int index, int side) {
+        PatternTable patterns = table(position);
+        int radius = patterns.radius();
+        int score = 0;
+        int ownThreats = 0;
+        int otherThreats = 0;
+        for (int delta : position.directions()) {
+            int own = position.line(side, index, delta, radius);
+            int other = position.line(1 - side, index, delta, radius);
+            int edge = position.edgeLine(index, delta, radius);
+            int attackClass = patterns.classify(own, other | edge);
+            int defenceClass = patterns.classify(other, own | edge);
+            score += this.attack[attackClass] + this.defence[defenceClass];
+            if (attackClass >= PatternTable.OPEN_THREE) {
+                ownThreats++;
+            }
+            if (defenceClass >= PatternTable.OPEN_THREE) {
+                otherThreats++;
+            }
+        }
+        if (ownThreats >= 2) {
+            score += this.attack[PatternTable.OPEN_FOUR];
+        }
+        if (otherThreats >= 2) {
+            score += this.defence[PatternTable.OPEN_FOUR];
+        }
+        return score;
+    }
+
+    /**
+     * Classifies the line through an intersection as if the given colour had a stone there.
+     *
+     * @param position The position.
+     * @param index    The intersection, empty or holding a stone of the given colour.
+     * @param color    The colour to classify the line for.
+     * @param delta    The line direction, one of {@link Position#directions()}.
+     * @return The pattern class of the line.
+     */
+    public int lineClass(Position position, int index, int color, int delta) {
+        PatternTable patterns = table(position);
+        int radius = patterns.radius();
+        return patterns.classify(position.line(color, index, delta, radius),
+                position.line(1 - color, index, delta, radius) | position.edgeLine(index, delta, radius));
+    }
+
+    /**
+     * Returns the strongest line class the given colour would make by playing an intersection.
+     *
+     * @param position The position.
+     * @param index    The empty intersection.
+     * @param color    The colour that would play there.
+     * @return The highest pattern class over the four directions.
+     */
+    public int threat(Position position, int index, int color) {
+        int best = PatternTable.NONE;
+        for (int delta : position.directions()) {
+            best = Math.max(best, lineClass(position, index, color, delta));
+        }
+        return best;
+    }
+
+    private int lineScore(Position position, PatternTable patterns, int color, int[] values) {
+        int radius = patterns.radius();
+        int score = 0;
+        // Every stone on the board is in the move history, whatever the board representation.
+        for (int ply = 0; ply < position.stoneCount(); ply++) {
+            int index = position.moveAt(ply);
+            if (!position.has(color, index)) {
+                continue;
+            }
+            for (int delta : position.directions()) {
+                int blockers = position.line(1 - color, index, delta, radius)
+                        | position.edgeLine(index, delta, radius);
+                score += values[patterns.classify(position.line(color, index, delta, radius), blockers)];
+            }
+        }
+        return score;
+    }
+
+    /** Returns the pattern table for the win length of the position, caching the last one used. */
+    private PatternTable table(Position position) {
+        PatternTable patterns = this.table;
+        if (patterns.winLength() != position.winLength()) {
+            patterns = PatternTable.forWinLength(position.winLength());
+            this.table = patterns;
+        }
+        return patterns;
+    }
+}
@@ -0,0 +1,407 @@
+package omok.engine;
+
+import omok.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The `MctsEngine` class finds moves with Monte Carlo Tree Search: UCT selection, progressive
+ * widening and fast randomised playouts. It is an anytime engine; the more playouts it gets, the
+ * better its moves.
+ *
+ * <p>The tree lives in a preallocated node arena of primitive arrays, 24 bytes per node, sized
+ * from the board unless a capacity is given. When a node is expanded its children get one
+ * contiguous block of the arena, sorted by the {@link Evaluator} move score, and progressive
+ * widening lets only the best few compete until the node has enough visits. Once the arena is
+ * full, the nodes that find no room for their children stay leaves for the rest of the search. Playouts
+ * pick uniformly among the board's candidate moves in constant time, except that they always take
+ * a five and always block one next to the last moves.
+ *
+ * <p>Several threads can run playouts on the same tree. Visit counts are updated atomically and
+ * a visit is counted on the way down (a virtual loss), so concurrent threads spread over
+ * different branches. With one thread and a playout budget the search is deterministic.
+ */
+public class MctsEngine implements Engine {
+
+    /** Number of arena nodes per intersection when the arena is sized from the board. */
+    public static final int NODES_PER_INTERSECTION = 512;
+
+    /** Number of intersections on each side the arena is sized for when the board is unbounded. */
+    private static final int UNBOUNDED_SIZE = 19;
+
+    private static final double EXPLORATION = 0.8;
+    private static final double WIDENING_FACTOR = 2.0;
+    private static final int MAX_PATH = 512;
+    private static final int MAX_PLAYOUT = 400;
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int LEAF = 3;
+
+    private final boolean sizedFromBoard;
+    private int capacity;
+    private int[] moves;
+    private int[] firstChild;
+    private int[] childCount;
+    private AtomicIntegerArray visits;
+    private AtomicIntegerArray rewards;
+    private AtomicIntegerArray states;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private int threads = 1;
+    private long seed = 0x5EED;
+    private ExecutorService workers;
+
+    /**
+     * Creates a new MCTS engine whose arena is allocated by the first search, with
+     * {@link #NODES_PER_INTERSECTION} nodes per intersection of the board, and reallocated when
+     * a later search is on a board of another size.
+     */
+    public MctsEngine() {
+        this.sizedFromBoard = true;
+    }
+
+    /**
+     * Creates a new MCTS engine.
+     *
+     * @param capacity The number of tree nodes to preallocate; the tree stops growing when full.
+     */
+    public MctsEngine(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The arena needs room for at least two nodes: " + capacity);
+        }
+        this.sizedFromBoard = false;
+        allocateArena(capacity);
+    }
+
+    /**
+     * Sets the seed of the playout random number generators, for reproducible searches.
+     *
+     * @param seed The seed; thread i uses seed + i.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed: " + threads);
+        }
+        shutdown();
+        this.threads = threads;
+    }
+
+    @Override
+    public SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        if (position.winner() != Position.EMPTY || position.isFull()) {
+            return new SearchResult(-1, 0, 0, 0, 0);
+        }
+        if (this.sizedFromBoard) {
+            int size = position.size() == 0 ? UNBOUNDED_SIZE : position.size();
+            if (this.capacity != size * size * NODES_PER_INTERSECTION) {
+                allocateArena(size * size * NODES_PER_INTERSECTION);
+            }
+        }
+        this.allocated.set(0);
+        allocate(-1);
+        this.playouts.set(0);
+        this.maxDepth.set(0);
+        Position root = position.copy();
+        if (!expand(0, root, side, new int[2][0], new MoveGenerator(new Evaluator()))) {
+            // No move to search, for example because the rules forbid every candidate.
+            return new SearchResult(-1, 0, 0, 0, (System.nanoTime() - start) / 1_000_000);
+        }
+        this.states.set(0, EXPANDED);
+        if (this.childCount[0] == 1) {
+            // A winning or forced move needs no search.
+            return new SearchResult(this.moves[this.firstChild[0]], 0, 0, 0, 0);
+        }
+        long deadline = limits.getTimeMillis() == 0 || limits.isPondering() ? Long.MAX_VALUE : start + limits.getTimeMillis() * 1_000_000L;
+        long budget = limits.getNodes() == 0 ? Long.MAX_VALUE : limits.getNodes();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 1; t < this.threads; t++) {
+            Position copy = position.copy();
+            SplittableRandom random = new SplittableRandom(this.seed + t);
+            futures.add(workers().submit(() -> run(copy, side, random, stop, deadline, budget)));
+        }
+        run(root, side, new SplittableRandom(this.seed), stop, deadline, budget);
+        stop.set(true);
+        for (Future<?> future : futures) {
+            join(future);
+        }
+        return result(Math.min(this.playouts.get(), budget), start);
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.workers != null) {
+            this.workers.shutdownNow();
+            this.workers = null;
+        }
+    }
+
+    /** Runs playouts on one thread until a limit is reached. */
+    private void run(Position board, int side, SplittableRandom random, AtomicBoolean stop, long deadline, long budget) {
+        int[] path = new int[MAX_PATH];
+        int[][] buffers = new int[2][0];
+        MoveGenerator generator = new MoveGenerator(new Evaluator());
+        long local = 0;
+        while (!stop.get() && this.playouts.getAndIncrement() < budget) {
+            if ((++local & 63) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+            playout(board, side, random, path, buffers, generator);
+        }
+        stop.set(true);
+    }
+
+    /** Runs one selection, expansion, simulation and backpropagation pass. */
+    private void playout(Position board, int side, SplittableRandom random,
+                         int[] path, int[][] buffers, MoveGenerator generator) {
+        int node = 0;
+        int length = 0;
+        int toMove = side;
+        path[length++] = node;
+        this.visits.incrementAndGet(node);
+        while (board.winner() == Position.EMPTY && !board.isFull() && length < MAX_PATH) {
+            int state = this.states.get(node);
+            if (state == UNEXPANDED && this.visits.get(node) > 1
+                    && this.states.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                state = expand(node, board, toMove, buffers, generator) ? EXPANDED : LEAF;
+                this.states.set(node, state);
+            }
+            if (state != EXPANDED) {
+                break;
+            }
+            node = select(node);
+            board.place(this.moves[node], toMove);
+            toMove = 1 - toMove;
+            path[length++] = node;
+            this.visits.incrementAndGet(node);
+        }
+        int depth = length - 1;
+        this.maxDepth.accumulateAndGet(depth, Math::max);
+
+        int placed = simulate(board, toMove, random);
+        int winner = board.winner();
+        for (int i = 0; i < placed + depth; i++) {
+            board.undo();
+        }
+        for (int i = 1; i < length; i++) {
+            int mover = (i % 2 == 1) ? side : 1 - side;
+            int reward = winner == Position.EMPTY ? 1 : (winner == mover ? 2 : 0);
+            this.rewards.addAndGet(path[i], reward);
+        }
+    }
+
+    /**
+     * Allocates the children of a node, best prior first. Returns false if the node has no move
+     * or the arena may not have room for its children, which is checked before the moves are
+     * generated; the node then stays a leaf. The move and score buffers in {@code buffers} are
+     * grown as needed.
+     */
+    private boolean expand(int node, Position board, int toMove, int[][] buffers, MoveGenerator generator) {
+        // The generator returns at most one move per candidate, or one opening move.
+        if (this.allocated.get() + Math.max(1, board.candidateCount()) > this.capacity) {
+            return false;
+        }
+        int needed = board.candidateCount() + 1;
+        if (buffers[0].length < needed) {
+            buffers[0] = new int[needed * 2];
+            buffers[1] = new int[needed * 2];
+        }
+        int[] buffer = buffers[0];
+        int[] scores = buffers[1];
+        int count = generator.generate(board, toMove, buffer, scores);
+        if (count == 0) {
+            return false;
+        }
+        int first = this.allocated.getAndAdd(count);
+        if (first + count > this.capacity) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int best = i;
+            for (int j = i + 1; j < count; j++) {
+                if (scores[j] > scores[best]) {
+                    best = j;
+                }
+            }
+            int move = buffer[best];
+            buffer[best] = buffer[i];
+            scores[best] = scores[i];
+            initialise(first + i, move);
+        }
+        this.firstChild[node] = first;
+        this.childCount[node] = count;
+        return true;
+    }
+
+    /** Picks the child with the highest UCT value among those admitted by progressive widening. */
+    private int select(int node) {
+        int first = this.firstChild[node];
+        int parentVisits = Math.max(1, this.visits.get(node));
+        int admitted = Math.min(this.childCount[node], 1 + (int) (WIDENING_FACTOR * Math.sqrt(parentVisits)));
+        double logVisits = Math.log(parentVisits);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + admitted; child++) {
+            int n = this.visits.get(child);
+            if (n == 0) {
+                return child;
+            }
+            double value = this.rewards.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays random moves until the game ends and returns how many were placed. Fives are always
+     * taken and the opponent's fives are always blocked. A playout that reaches
+     * {@link #MAX_PLAYOUT} moves, which only happens on very large or unbounded boards, counts as
+     * a draw.
+     */
+    private int simulate(Position board, int toMove, SplittableRandom random) {
+        int placed = 0;
+        int color = toMove;
+        while (board.winner() == Position.EMPTY && !board.isFull() && placed < MAX_PLAYOUT) {
+            int move = urgentMove(board, color);
+            if (move == -1) {
+                move = randomMove(board, color, random);
+                if (move == -1) {
+                    // The rules forbid every candidate.
+                    break;
+                }
+            }
+            board.place(move, color);
+            placed++;
+            color = 1 - color;
+        }
+        return placed;
+    }
+
+    /** Picks a random candidate the rules allow the given colour, or -1 if there is none. */
+    private int randomMove(Position board, int color, SplittableRandom random) {
+        int candidates = board.candidateCount();
+        if (candidates == 0) {
+            // Only an empty board has no candidates.
+            return board.index(board.size() / 2, board.size() / 2);
+        }
+        int start = random.nextInt(candidates);
+        for (int i = 0; i < candidates; i++) {
+            int move = board.candidateAt((start + i) % candidates);
+            if (!board.isForbidden(move, color)) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns a five for the given colour, else a block of the opponent's five, else -1. */
+    private int urgentMove(Position board, int color) {
+        int count = board.stoneCount();
+        if (count >= 2) {
+            int win = completionNear(board, board.moveAt(count - 2), color);
+            if (win != -1) {
+                return win;
+            }
+        }
+        int block = count >= 1 ? completionNear(board, board.moveAt(count - 1), 1 - color) : -1;
+        return block != -1 && !board.isForbidden(block, color) ? block : -1;
+    }
+
+    /** Looks along the lines through a stone for an empty intersection that completes a line. */
+    private int completionNear(Position board, int stone, int color) {
+        int reach = board.winLength() - 1;
+        for (int delta : board.directions()) {
+            for (int step = -reach; step <= reach; step++) {
+                int index = stone + step * delta;
+                if (step != 0 && board.contains(board.x(index), board.y(index))
+                        && board.isEmpty(index) && board.completesLine(index, color)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void allocateArena(int capacity) {
+        this.capacity = capacity;
+        this.moves = new int[capacity];
+        this.firstChild = new int[capacity];
+        this.childCount = new int[capacity];
+        this.visits = new AtomicIntegerArray(capacity);
+        this.rewards = new AtomicIntegerArray(capacity);
+        this.states = new AtomicIntegerArray(capacity);
+    }
+
+    private int allocate(int move) {
+        int node = this.allocated.getAndIncrement();
+        initialise(node, move);
+        return node;
+    }
+
+    private void initialise(int node, int move) {
+        this.moves[node] = move;
+        this.childCount[node] = 0;
+        this.visits.set(node, 0);
+        this.rewards.set(node, 0);
+        this.states.set(node, UNEXPANDED);
+    }
+
+    /** Picks the most visited root child as the move. */
+    private SearchResult result(long total, long start) {
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        int first = this.firstChild[0];
+        int best = first;
+        for (int child = first; child < first + this.childCount[0]; child++) {
+            if (this.visits.get(child) > this.visits.get(best)) {
+                best = child;
+            }
+        }
+        int n = Math.max(1, this.visits.get(best));
+        int score = (int) Math.round((this.rewards.get(best) / (2.0 * n) - 0.5) * 2000);
+        return new SearchResult(this.moves[best], score, this.maxDepth.get(), total, elapsed);
+    }
+
+    private ExecutorService workers() {
+        if (this.workers == null) {
+            this.workers = Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "omok-mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.workers;
+    }
+
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a playout thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A playout thread failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package omok.engine;
+
+import omok.Position;
+import omok.Renju;
+
+/**
+ * The `MoveGenerator` class lists the moves worth searching in a position.
+ *
+ * <p>Only the board's candidate set is considered: empty intersections within
+ * {@link Position#candidateRadius()} of a stone, which the board maintains incrementally. Forced
+ * moves are found first: a move that wins on the spot is returned alone, and if the opponent
+ * threatens to complete a line only the blocking moves are returned. Otherwise every candidate is
+ * returned with its {@link Evaluator#scoreMove} ordering score. Moves the rules forbid to the
+ * side to move (see {@link Position#isForbidden(int, int)}) are never returned.
+ */
+public class MoveGenerator {
+
+    private final Evaluator evaluator;
+
+    /**
+     * Creates a new move generator.
+     *
+     * @param evaluator The evaluator used to score the moves for ordering.
+     */
+    public MoveGenerator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Generates the moves of the given side.
+     *
+     * @param position The position to generate moves for.
+     * @param side     The side to move.
+     * @param moves    Receives the board indices of the moves.
+     * @param scores   Receives the ordering score of each move.
+     * @return The number of moves generated.
+     */
+    public int generate(Position position, int side, int[] moves, int[] scores) {
+        int candidates = position.candidateCount();
+        if (candidates == 0) {
+            return generateOpening(position, moves, scores);
+        }
+        boolean restricted = position.rules() == Position.RENJU && side == Renju.RESTRICTED;
+        int forced = 0;
+        for (int i = 0; i < candidates; i++) {
+            int move = position.candidateAt(i);
+            if (position.completesLine(move, side)) {
+                moves[0] = move;
+                scores[0] = Integer.MAX_VALUE;
+                return 1;
+            }
+            if (position.completesLine(move, 1 - side) && !(restricted && Renju.isForbidden(position, move))) {
+                moves[forced++] = move;
+            }
+        }
+        if (forced > 0) {
+            for (int i = 0; i < forced; i++) {
+                scores[i] = this.evaluator.scoreMove(position, moves[i], side);
+            }
+            return forced;
+        }
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            int move = position.candidateAt(i);
+            if (restricted && Renju.isForbidden(position, move)) {
+                continue;
+            }
+            moves[count] = move;
+            scores[count++] = this.evaluator.scoreMove(position, move, side);
+        }
+        return count;
+    }
+
+    /**
+     * On a board without candidates, which is an empty board, plays the centre. An unbounded
+     * board, of size 0, is centred on (0, 0).
+     */
+    private int generateOpening(Position position, int[] moves, int[] scores) {
+        if (position.isFull()) {
+            return 0;
+        }
+        int centre = position.index(position.size() / 2, position.size() / 2);
+        moves[0] = position.isEmpty(centre) ? centre : firstEmpty(position);
+        scores[0] = 0;
+        return 1;
+    }
+
+    /** Finds an empty intersection on a bounded board that is not full. */
+    private static int firstEmpty(Position position) {
+        for (int x = 0; x < position.size(); x++) {
+            for (int y = 0; y < position.size(); y++) {
+                int index = position.index(x, y);
+                if (position.isEmpty(index)) {
+                    return index;
+                }
+            }
+        }
+        throw new IllegalStateException("The board is full");
+    }
+}
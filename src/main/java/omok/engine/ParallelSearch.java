@@ -0,0 +1,300 @@
+package omok.engine;
+
+import omok.Position;
+import omok.metrics.EngineMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The `ParallelSearch` class runs a {@link SearchEngine} on several threads at once using Lazy SMP:
+ * every thread searches the same position on its own copy of the board, and they cooperate only
+ * through a shared {@link TranspositionTable}. Helper threads start at staggered depths so that
+ * they fill the table with results the main thread can use.
+ *
+ * <p>The main thread decides when the search ends; the helpers are then stopped and the result of
+ * the deepest completed iteration wins, preferring the main thread on ties. With one thread the
+ * helpers are never started and the search is exactly the single-threaded one, so it stays
+ * deterministic under a node budget.
+ *
+ * <p>Before the main search a {@link ThreatSolver} looks for a forced win by continuous fours and
+ * then by continuous threats; a win it finds is played at once.
+ */
+public class ParallelSearch implements Engine {
+
+    private final List<SearchEngine> engines = new ArrayList<>();
+    private TranspositionTable table;
+    private ExecutorService helpers;
+    private int candidateRadius = 2;
+    private EvalWeights weights = EvalWeights.getDefault();
+    private final ThreatSolver solver = new ThreatSolver(new Evaluator());
+    private long threatNodes = 50_000;
+    private volatile EngineMetrics metrics;
+
+    /**
+     * Creates a single-threaded search with the default evaluator and table size.
+     */
+    public ParallelSearch() {
+        this(new TranspositionTable(SearchEngine.DEFAULT_HASH_MEGABYTES), 1);
+    }
+
+    /**
+     * Creates a new parallel search.
+     *
+     * @param table   The transposition table shared by all threads.
+     * @param threads The number of search threads, at least 1.
+     */
+    public ParallelSearch(TranspositionTable table, int threads) {
+        this.table = table;
+        setThreads(threads);
+    }
+
+    /**
+     * Sets the number of search threads. Must not be called during a search.
+     *
+     * @param threads The number of threads, at least 1.
+     */
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed: " + threads);
+        }
+        shutdown();
+        this.engines.clear();
+        for (int i = 0; i < threads; i++) {
+            SearchEngine engine = new SearchEngine(new Evaluator(this.weights), this.table);
+            engine.setCandidateRadius(this.candidateRadius);
+            this.engines.add(engine);
+        }
+    }
+
+    /**
+     * Retrieves the number of search threads.
+     *
+     * @return The thread count.
+     */
+    public int getThreads() {
+        return this.engines.size();
+    }
+
+    /**
+     * Sets how far from the existing stones candidate moves may be.
+     *
+     * @param radius The half-width of the square around each stone, at least 1.
+     */
+    public void setCandidateRadius(int radius) {
+        for (SearchEngine engine : this.engines) {
+            engine.setCandidateRadius(radius);
+        }
+        this.candidateRadius = radius;
+    }
+
+    /**
+     * Sets how many positions the threat solver may visit before each search, for the VCF and
+     * the VCT attempt each. A search with a node budget gives the solver at most that many, and
+     * one with a time budget gives it at most a quarter of the time.
+     *
+     * @param nodes The node budget, or 0 to skip the threat solver.
+     */
+    public void setThreatNodes(long nodes) {
+        if (nodes < 0) {
+            throw new IllegalArgumentException("Node budget must not be negative: " + nodes);
+        }
+        this.threatNodes = nodes;
+    }
+
+    /**
+     * Retrieves the shared transposition table.
+     *
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return this.table;
+    }
+
+    /**
+     * Replaces the shared transposition table. Must not be called during a search.
+     *
+     * @param table The new transposition table.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+        for (SearchEngine engine : this.engines) {
+            engine.setTranspositionTable(table);
+        }
+    }
+
+    /**
+     * Replaces the evaluation weights of every search thread, for example with tuned ones. Must
+     * not be called during a search.
+     *
+     * @param weights The new weights.
+     */
+    public void setWeights(EvalWeights weights) {
+        this.weights = weights;
+        setThreads(getThreads());
+    }
+
+    /**
+     * Sets the metrics each search adds its profile to: the estimated evaluation and move
+     * generation time of all threads and the probes and hits of the shared table.
+     *
+     * @param metrics The metrics, or null to stop profiling.
+     */
+    @Override
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Searches the given position on all threads. The position itself is not modified.
+     *
+     * @param position The position to search.
+     * @param side     The side to move.
+     * @param limits   The limits of the search; a node budget applies to each thread.
+     * @param stop     The flag any thread sets to stop the search; set by the search when it ends,
+     *                 which stops the helper threads.
+     * @return The best move found, with the nodes of all threads added up.
+     */
+    @Override
+    public SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        SearchResult forced = solveThreats(position, side, limits, stop);
+        if (forced != null) {
+            return forced;
+        }
+        // The time spent by the threat solver counts against the budget.
+        long spent = (System.nanoTime() - start) / 1_000_000L;
+        SearchLimits remaining = limits.getTimeMillis() == 0 || limits.isPondering() ? limits
+                : new SearchLimits(Math.max(1, limits.getTimeMillis() - spent), limits.getNodes(), limits.getDepth());
+        this.table.newSearch();
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (int i = 1; i < this.engines.size(); i++) {
+            SearchEngine helper = this.engines.get(i);
+            Position copy = position.copy();
+            int firstDepth = 1 + (i & 1);
+            futures.add(helpers().submit(() -> helper.search(copy, side, remaining, stop, firstDepth)));
+        }
+        SearchResult best = this.engines.get(0).search(position.copy(), side, remaining, stop, 1);
+        stop.set(true);
+        long nodes = best.getNodes();
+        for (Future<SearchResult> future : futures) {
+            SearchResult result = join(future);
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth() && result.getMove() != -1) {
+                best = result;
+            }
+        }
+        EngineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            long evaluationNanos = 0;
+            long generationNanos = 0;
+            long probes = 0;
+            long hits = 0;
+            long collisions = 0;
+            for (SearchEngine engine : this.engines) {
+                evaluationNanos += engine.getEvaluationNanos();
+                generationNanos += engine.getGenerationNanos();
+                probes += engine.getHashProbes();
+                hits += engine.getHashHits();
+                collisions += engine.getHashCollisions();
+            }
+            metrics.recordProfile(evaluationNanos, generationNanos, probes, hits, collisions);
+        }
+        return new SearchResult(best.getMove(), best.getScore(), best.getDepth(), nodes, best.getTimeMillis());
+    }
+
+    /**
+     * Guesses the reply from the transposition table, where the previous search left the best
+     * move it found for the position, falling back to the move ordering.
+     *
+     * @param position The position.
+     * @param side     The side to move.
+     * @return The board index of the expected move, or -1 if there is no candidate move.
+     */
+    @Override
+    public int predict(Position position, int side) {
+        long entry = this.table.probe(SearchEngine.hashKey(position, side));
+        if (entry != TranspositionTable.NONE) {
+            int move = TranspositionTable.moveOf(entry);
+            if (move >= 0 && position.contains(position.x(move), position.y(move)) && position.isEmpty(move)) {
+                return move;
+            }
+        }
+        return Engine.super.predict(position, side);
+    }
+
+    /**
+     * Runs the threat solver and returns a winning result, or null if no forced win was found.
+     */
+    private SearchResult solveThreats(Position position, int side, SearchLimits limits, AtomicBoolean stop) {
+        if (this.threatNodes == 0 || position.winner() != Position.EMPTY || stop.get()) {
+            return null;
+        }
+        this.solver.setStop(stop);
+        long start = System.nanoTime();
+        long budget = limits.getNodes() > 0 ? Math.min(this.threatNodes, limits.getNodes()) : this.threatNodes;
+        this.solver.setDeadline(limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 250_000L : 0);
+        Position copy = position.copy();
+        copy.setCandidateRadius(this.candidateRadius);
+        int move = this.solver.solveVcf(copy, side, 20, budget);
+        long nodes = this.solver.getNodes();
+        if (move == -1) {
+            move = this.solver.solveVct(copy, side, 8, budget);
+            nodes += this.solver.getNodes();
+        }
+        if (move == -1) {
+            return null;
+        }
+        int length = this.solver.getWinningLine().length;
+        return new SearchResult(move, Evaluator.WIN - length, length, nodes, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Clears the transposition table and the threat solver's failed positions, which still hold
+     * the positions of the previous game.
+     */
+    @Override
+    public void newGame() {
+        this.table.clear();
+        this.solver.clear();
+    }
+
+    /**
+     * Stops the helper threads. The search can still be used; the threads are restarted on demand.
+     */
+    @Override
+    public void shutdown() {
+        if (this.helpers != null) {
+            this.helpers.shutdownNow();
+            this.helpers = null;
+        }
+    }
+
+    private ExecutorService helpers() {
+        if (this.helpers == null) {
+            this.helpers = Executors.newFixedThreadPool(this.engines.size() - 1, runnable -> {
+                Thread thread = new Thread(runnable, "omok-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.helpers;
+    }
+
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search thread failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package omok.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The `PatternTable` class classifies the line segment through a stone in constant time.
+ *
+ * <p>A segment is the {@code 2k - 1} intersections centred on the stone along one direction,
+ * where k is the number of stones needed to win. It is described by two bit masks: the stones of
+ * the player and the blockers (opponent stones and off-board intersections). Without the centre
+ * bit the two masks form a small integer index into a table that is computed once per k and
+ * shared by all boards.
+ *
+ * <p>For k above {@value #MAX_TABLE_WIN_LENGTH} a full table would take 16 MB or more, so the
+ * classes are computed on demand and memoised instead, in a fixed-size lossy memo of packed longs
+ * grouped in buckets of two like the {@link TranspositionTable}: a new class takes the first slot
+ * of its bucket and the one it displaces moves to the second. The memo needs no boxing or locking
+ * and never grows; a segment it has forgotten is simply classified again. A small k never pays
+ * for it.
+ */
+public final class PatternTable {
+
+    /** No threat on the line. */
+    public static final int NONE = 0;
+    /** One more stone makes a three. */
+    public static final int TWO = 1;
+    /** One more stone makes an open three. */
+    public static final int OPEN_TWO = 2;
+    /** One more stone makes a four. */
+    public static final int THREE = 3;
+    /** One more stone makes an open four. */
+    public static final int OPEN_THREE = 4;
+    /** Exactly one intersection completes the line. */
+    public static final int FOUR = 5;
+    /** Two or more intersections complete the line. */
+    public static final int OPEN_FOUR = 6;
+    /** The line is complete. */
+    public static final int FIVE = 7;
+
+    /** Number of pattern classes. */
+    public static final int CLASSES = 8;
+
+    /** Largest supported k, so that a segment fits in an int. */
+    public static final int MAX_WIN_LENGTH = 16;
+
+    /** Largest k with a precomputed table; longer lines are classified directly. */
+    private static final int MAX_TABLE_WIN_LENGTH = 6;
+
+    private static final ConcurrentMap<Integer, PatternTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int winLength;
+    private final int radius;
+    private final int length;
+    private final byte[] table;
+
+    /** Number of index bits of the memo, 512 KB per win length that needs one. */
+    private static final int MEMO_BITS = 16;
+
+    /**
+     * Memo for win lengths too long for a full table: each entry packs the compressed masks above
+     * the 3 class bits, so a single read or write is always consistent between threads.
+     */
+    private final long[] memo;
+
+    private PatternTable(int winLength) {
+        this.winLength = winLength;
+        this.radius = winLength - 1;
+        this.length = 2 * winLength - 1;
+        if (winLength <= MAX_TABLE_WIN_LENGTH) {
+            this.table = new byte[1 << (2 * (this.length - 1))];
+            Arrays.fill(this.table, (byte) -1);
+            this.memo = null;
+            for (int index = 0; index < this.table.length; index++) {
+                if (this.table[index] < 0) {
+                    // Entries whose masks overlap get the class of the normalised segment.
+                    this.table[index] = (byte) classify(expand(index >>> (this.length - 1)),
+                            expand(index & ((1 << (this.length - 1)) - 1)));
+                }
+            }
+        } else {
+            this.table = null;
+            this.memo = new long[1 << MEMO_BITS];
+            // No valid entry has the top bit set.
+            Arrays.fill(this.memo, -1L);
+        }
+    }
+
+    /**
+     * Retrieves the table for lines of the given length, building it on first use.
+     *
+     * @param winLength The number of stones in a row needed to win.
+     * @return The shared pattern table.
+     */
+    public static PatternTable forWinLength(int winLength) {
+        if (winLength < 2 || winLength > MAX_WIN_LENGTH) {
+            throw new IllegalArgumentException("Win length must be between 2 and " + MAX_WIN_LENGTH + ": " + winLength);
+        }
+        return TABLES.computeIfAbsent(winLength, PatternTable::new);
+    }
+
+    /**
+     * Retrieves the number of stones in a row needed to win.
+     *
+     * @return The win length this table was built for.
+     */
+    public int winLength() {
+        return this.winLength;
+    }
+
+    /**
+     * Retrieves the radius of the segments this table classifies.
+     *
+     * @return The number of intersections on each side of the centre.
+     */
+    public int radius() {
+        return this.radius;
+    }
+
+    /**
+     * Classifies a segment, treating its centre as a stone of the player.
+     *
+     * @param stones   The player's stones on the segment, bit {@link #radius()} being the centre.
+     * @param blockers The opponent stones and off-board intersections on the segment.
+     * @return The pattern class, from {@link #NONE} to {@link #FIVE}.
+     */
+    public int classify(int stones, int blockers) {
+        int centre = 1 << this.radius;
+        blockers &= ~centre;
+        stones = (stones | centre) & ~blockers;
+        if (this.table == null) {
+            long key = ((long) compress(stones) << (this.length - 1)) | compress(blockers);
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - MEMO_BITS)) & ~1;
+            long first = this.memo[slot];
+            if (first >>> 3 == key) {
+                return (int) (first & 7);
+            }
+            long second = this.memo[slot + 1];
+            if (second >>> 3 == key) {
+                return (int) (second & 7);
+            }
+            int computed = compute(stones, blockers);
+            this.memo[slot + 1] = first;
+            this.memo[slot] = key << 3 | computed;
+            return computed;
+        }
+        int index = (compress(stones) << (this.length - 1)) | compress(blockers);
+        int cached = this.table[index];
+        if (cached < 0) {
+            cached = compute(stones, blockers);
+            this.table[index] = (byte) cached;
+        }
+        return cached;
+    }
+
+    /** Drops the centre bit, packing the segment into length - 1 bits. */
+    private int compress(int mask) {
+        int low = mask & ((1 << this.radius) - 1);
+        int high = (mask >>> (this.radius + 1)) & ((1 << this.radius) - 1);
+        return low | (high << this.radius);
+    }
+
+    /** Re-inserts an empty centre bit into a compressed mask. */
+    private int expand(int compressed) {
+        int low = compressed & ((1 << this.radius) - 1);
+        int high = compressed >>> this.radius;
+        return low | (high << (this.radius + 1));
+    }
+
+    /** Classifies a segment from first principles; the masks must not overlap. */
+    private int compute(int stones, int blockers) {
+        if (hasLine(stones)) {
+            return FIVE;
+        }
+        // A two is three stones short of a line, so a segment four or more short is nothing. This
+        // bounds the recursion below at three stones, however little the memo remembers.
+        if (this.winLength - mostStonesInAWindow(stones, blockers) > 3) {
+            return NONE;
+        }
+        int completions = 0;
+        int best = NONE;
+        for (int i = 0; i < this.length; i++) {
+            int bit = 1 << i;
+            if (((stones | blockers) & bit) != 0) {
+                continue;
+            }
+            if (hasLine(stones | bit)) {
+                completions++;
+                continue;
+            }
+            int next = classify(stones | bit, blockers);
+            best = Math.max(best, next);
+        }
+        if (completions >= 2) {
+            return OPEN_FOUR;
+        }
+        if (completions == 1) {
+            return FOUR;
+        }
+        switch (best) {
+            case OPEN_FOUR:
+                return OPEN_THREE;
+            case FOUR:
+                return THREE;
+            case OPEN_THREE:
+                return OPEN_TWO;
+            case THREE:
+                return TWO;
+            default:
+                return NONE;
+        }
+    }
+
+    /** Counts the stones of the fullest unblocked window of winLength intersections. */
+    private int mostStonesInAWindow(int stones, int blockers) {
+        int window = (1 << this.winLength) - 1;
+        int most = 0;
+        for (int shift = 0; shift <= this.radius; shift++) {
+            if (((blockers >>> shift) & window) == 0) {
+                most = Math.max(most, Integer.bitCount((stones >>> shift) & window));
+            }
+        }
+        return most;
+    }
+
+    /** Tests for a run of winLength stones that contains the centre. */
+    private boolean hasLine(int stones) {
+        int window = (1 << this.winLength) - 1;
+        for (int shift = 0; shift <= this.radius; shift++) {
+            if (((stones >>> shift) & window) == window) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,363 @@
+package omok.engine;
+
+import omok.Board;
+import omok.Position;
+
+import java.util.Arrays;
+
+/**
+ * The `ProofNumberSolver` class solves positions exactly with depth-first proof-number search
+ * (df-pn), for tactical puzzles and endgames where the heuristic search can only guess.
+ *
+ * <p>A solve first tries to prove that the side to move wins and, failing that, that the
+ * opponent does. In each proof the winning side, the attacker, only plays fives, fours and open
+ * threes, and blocks a five when it must; restricting the attacker keeps the tree small without
+ * making a proof less sound. The defender tries every candidate move, so a proven win holds
+ * against any defence, except moves further than the {@link Position#candidateRadius() candidate
+ * radius} from every stone, which are assumed never to help. When the attacker can no longer
+ * threaten, or the board fills up, the attacker has failed; the result is then unknown rather
+ * than a loss.
+ *
+ * <p>Proof and disproof numbers are kept in a {@link ProofTable} of fixed size, keyed by the
+ * Zobrist hash, so transpositions are expanded once and memory stays bounded however large the
+ * search grows. Positions dropped from the table are simply expanded again. A solver is not
+ * thread-safe; batch solving uses one solver per thread.
+ */
+public class ProofNumberSolver {
+
+    /** Proof and disproof numbers at or above this value are infinite. */
+    static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final int MAX_PLY = 256;
+
+    /** Mixed into the keys of the proofs in which white attacks. */
+    private static final long WHITE_ATTACKS = 0x6A09E667F3BCC909L;
+
+    private final Evaluator evaluator;
+    private final ProofTable table;
+    private final int[][] moves = new int[MAX_PLY][0];
+    private final long[][] keys = new long[MAX_PLY][0];
+    private final int[][] phis = new int[MAX_PLY][0];
+    private final int[][] deltas = new int[MAX_PLY][0];
+
+    private Position position;
+    private int attacker;
+    private long nodes;
+    private long nodeLimit;
+
+    /** The numbers of the position the last expansion or search step ended in. */
+    private int phi;
+    private int delta;
+    private int decidingMove;
+    private boolean cutOff;
+
+    /**
+     * Creates a new solver with the default evaluator.
+     *
+     * @param megabytes The memory of the proof table.
+     */
+    public ProofNumberSolver(int megabytes) {
+        this(new Evaluator(), megabytes);
+    }
+
+    /**
+     * Creates a new solver.
+     *
+     * @param evaluator The evaluator whose pattern tables recognise fours and threes.
+     * @param megabytes The memory of the proof table.
+     */
+    public ProofNumberSolver(Evaluator evaluator, int megabytes) {
+        this.evaluator = evaluator;
+        this.table = new ProofTable(megabytes);
+    }
+
+    /**
+     * Solves the position of a board for the player whose turn it is: white, who moves first,
+     * when the number of stones is even. The board is not modified.
+     *
+     * @param board     The board.
+     * @param nodeLimit The maximum number of positions to expand.
+     * @return The result.
+     */
+    public ProofResult solve(Board board, long nodeLimit) {
+        Position position = board.position().copy();
+        int side = position.stoneCount() % 2 == 0 ? Position.WHITE : Position.BLACK;
+        return solve(position, side, nodeLimit);
+    }
+
+    /**
+     * Solves a position. Half of the node budget goes to proving a win; proving a loss gets the
+     * rest. Reading the proving line back may expand up to a quarter of the budget more, for the
+     * positions the table has dropped.
+     *
+     * @param position  The position; it is restored before this method returns.
+     * @param side      The side to move.
+     * @param nodeLimit The maximum number of positions to expand.
+     * @return The result for the side to move.
+     */
+    public ProofResult solve(Position position, int side, long nodeLimit) {
+        long start = System.nanoTime();
+        this.position = position;
+        this.nodes = 0;
+        this.table.clear();
+        int outcome = ProofResult.UNKNOWN;
+        int[] line = new int[0];
+        if (position.winner() == Position.EMPTY && !position.isFull()) {
+            long extra = nodeLimit + nodeLimit / 4;
+            if (prove(side, side, nodeLimit / 2)) {
+                outcome = ProofResult.WIN;
+                line = line(side, extra);
+            } else if (prove(1 - side, side, nodeLimit)) {
+                outcome = ProofResult.LOSS;
+                line = line(side, extra);
+            }
+        }
+        return new ProofResult(outcome, line, this.nodes, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Retrieves the number of entries the proof table can hold.
+     *
+     * @return The capacity in entries.
+     */
+    public int getTableCapacity() {
+        return this.table.capacity();
+    }
+
+    /** Searches the root until the attacker is proven to win, fails, or the budget runs out. */
+    private boolean prove(int attacker, int side, long nodeLimit) {
+        this.attacker = attacker;
+        this.nodeLimit = nodeLimit;
+        mid(0, side, key(side), INFINITY, INFINITY);
+        return isProven(this.phi, this.delta, side);
+    }
+
+    /** Is the attacker proven to win, given the numbers of a position with the given side to move? */
+    private boolean isProven(int phi, int delta, int side) {
+        return side == this.attacker ? phi == 0 : delta == 0;
+    }
+
+    /**
+     * Expands a position until its proof number reaches {@code thPhi} or its disproof number
+     * reaches {@code thDelta}, both for the side to move, and leaves the numbers in
+     * {@link #phi} and {@link #delta}. A position's proof number is the smallest disproof number
+     * of its children, and its disproof number the sum of their proof numbers.
+     */
+    private void mid(int ply, int side, long key, int thPhi, int thDelta) {
+        int slot = this.table.probe(key);
+        if (slot >= 0 && (this.table.phi(slot) >= thPhi || this.table.delta(slot) >= thDelta)) {
+            this.phi = this.table.phi(slot);
+            this.delta = this.table.delta(slot);
+            return;
+        }
+        long first = ++this.nodes;
+        int count = expand(ply, side);
+        if (count < 0) {
+            if (!this.cutOff) {
+                this.table.store(key, this.phi, this.delta, this.decidingMove, 1);
+            }
+            return;
+        }
+        int[] plyMoves = this.moves[ply];
+        long[] childKeys = this.keys[ply];
+        int[] childPhis = this.phis[ply];
+        int[] childDeltas = this.deltas[ply];
+        for (int i = 0; i < count; i++) {
+            this.position.place(plyMoves[i], side);
+            childKeys[i] = key(1 - side);
+            this.position.undo();
+            int child = this.table.probe(childKeys[i]);
+            childPhis[i] = child >= 0 ? this.table.phi(child) : 1;
+            childDeltas[i] = child >= 0 ? this.table.delta(child) : 1;
+        }
+        int phi;
+        int delta;
+        int best;
+        while (true) {
+            phi = INFINITY;
+            int secondDelta = INFINITY;
+            long sum = 0;
+            best = 0;
+            for (int i = 0; i < count; i++) {
+                if (childDeltas[i] < phi) {
+                    secondDelta = phi;
+                    phi = childDeltas[i];
+                    best = i;
+                } else if (childDeltas[i] < secondDelta) {
+                    secondDelta = childDeltas[i];
+                }
+                sum += childPhis[i];
+            }
+            delta = (int) Math.min(sum, INFINITY);
+            if (phi >= thPhi || delta >= thDelta || this.nodes >= this.nodeLimit) {
+                break;
+            }
+            int childThPhi = (int) Math.min(INFINITY, (long) thDelta - delta + childPhis[best]);
+            int childThDelta = Math.min(thPhi, secondDelta + 1);
+            this.position.place(plyMoves[best], side);
+            mid(ply + 1, 1 - side, childKeys[best], childThPhi, childThDelta);
+            this.position.undo();
+            childPhis[best] = this.phi;
+            childDeltas[best] = this.delta;
+        }
+        this.table.store(key, phi, delta, plyMoves[best], this.nodes - first + 1);
+        this.phi = phi;
+        this.delta = delta;
+    }
+
+    /**
+     * Generates the moves of a position into the buffer of its ply and returns their number. If
+     * the position is decided without searching, returns -1 and leaves its numbers in
+     * {@link #phi} and {@link #delta} and the move that decides it, if any, in
+     * {@link #decidingMove}.
+     */
+    private int expand(int ply, int side) {
+        boolean attacking = side == this.attacker;
+        this.cutOff = ply >= MAX_PLY - 1;
+        this.decidingMove = -1;
+        if (this.cutOff || this.position.isFull()) {
+            return fail(attacking);
+        }
+        int count = this.position.candidateCount();
+        int threat = -1;
+        int threats = 0;
+        for (int i = 0; i < count; i++) {
+            int move = this.position.candidateAt(i);
+            if (this.position.completesLine(move, side)) {
+                this.decidingMove = move;
+                return decide(true);
+            }
+            if (threats < 2 && this.position.completesLine(move, 1 - side)) {
+                threats++;
+                threat = move;
+            }
+        }
+        if (threats > 0) {
+            // The opponent's five must be blocked, and two of them cannot be.
+            if (threats > 1) {
+                this.decidingMove = threat;
+                return decide(false);
+            }
+            if (this.position.isForbidden(threat, side)) {
+                return decide(false);
+            }
+            buffer(ply, 1)[0] = threat;
+            return 1;
+        }
+        int[] buffer = buffer(ply, count);
+        int length = 0;
+        if (attacking) {
+            // Fours first: a proof through them is the shortest.
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < count; i++) {
+                    int move = this.position.candidateAt(i);
+                    int strength = this.evaluator.threat(this.position, move, side);
+                    boolean wanted = pass == 0 ? strength >= PatternTable.FOUR : strength == PatternTable.OPEN_THREE;
+                    if (wanted && !this.position.isForbidden(move, side)) {
+                        buffer[length++] = move;
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int move = this.position.candidateAt(i);
+                if (!this.position.isForbidden(move, side)) {
+                    buffer[length++] = move;
+                }
+            }
+        }
+        return length == 0 ? fail(attacking) : length;
+    }
+
+    /** Sets the numbers of a position the side to move wins or loses outright. */
+    private int decide(boolean won) {
+        this.phi = won ? 0 : INFINITY;
+        this.delta = won ? INFINITY : 0;
+        return -1;
+    }
+
+    /** Sets the numbers of a position in which the attacker has failed. */
+    private int fail(boolean attacking) {
+        return decide(!attacking);
+    }
+
+    /** Returns the move buffer of a ply, grown to hold the given number of moves. */
+    private int[] buffer(int ply, int count) {
+        if (this.moves[ply].length < count) {
+            int length = Math.max(count, 2 * this.moves[ply].length);
+            this.moves[ply] = new int[length];
+            this.keys[ply] = new long[length];
+            this.phis[ply] = new int[length];
+            this.deltas[ply] = new int[length];
+        }
+        return this.moves[ply];
+    }
+
+    /**
+     * Reads the proving line from the table, re-solving positions it has dropped. The attacker
+     * plays its proven move; the defender plays the move whose refutation took the most work.
+     */
+    private int[] line(int side, long nodeLimit) {
+        int[] line = new int[MAX_PLY];
+        int length = 0;
+        int placed = 0;
+        this.nodeLimit = nodeLimit;
+        try {
+            for (int ply = 0; ply < MAX_PLY - 1 && this.position.winner() == Position.EMPTY; ply++) {
+                long key = key(side);
+                int slot = this.table.probe(key);
+                if (slot < 0 || !isProven(this.table.phi(slot), this.table.delta(slot), side)) {
+                    mid(ply, side, key, INFINITY, INFINITY);
+                    slot = this.table.probe(key);
+                    if (slot < 0 || !isProven(this.table.phi(slot), this.table.delta(slot), side)) {
+                        break;
+                    }
+                }
+                int move = this.table.move(slot);
+                if (side != this.attacker) {
+                    move = stubbornestDefence(ply, side, move);
+                }
+                if (move < 0) {
+                    break;
+                }
+                line[length++] = move;
+                this.position.place(move, side);
+                placed++;
+                side = 1 - side;
+            }
+        } finally {
+            for (int i = 0; i < placed; i++) {
+                this.position.undo();
+            }
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Picks the defence whose refutation is in the table and took the most work, or returns the
+     * given move if the table holds none of them.
+     */
+    private int stubbornestDefence(int ply, int side, int fallback) {
+        int count = expand(ply, side);
+        int best = fallback;
+        long bestWork = -1;
+        for (int i = 0; i < count; i++) {
+            int move = this.moves[ply][i];
+            this.position.place(move, side);
+            int slot = this.table.probe(key(1 - side));
+            this.position.undo();
+            if (slot >= 0 && isProven(this.table.phi(slot), this.table.delta(slot), 1 - side)
+                    && this.table.work(slot) > bestWork) {
+                best = move;
+                bestWork = this.table.work(slot);
+            }
+        }
+        return best;
+    }
+
+    /** Returns the table key of the current position with the given side to move. */
+    private long key(int side) {
+        long key = SearchEngine.hashKey(this.position, side) ^ (this.attacker == Position.WHITE ? WHITE_ATTACKS : 0);
+        return key == 0 ? 1 : key;
+    }
+}
@@ -0,0 +1,105 @@
+package omok.engine;
+
+import java.util.Arrays;
+
+/**
+ * The `ProofResult` class holds the outcome of a {@link ProofNumberSolver}: whether the side to
+ * move wins, loses or could not be solved within the node budget, and the line that proves it.
+ */
+public class ProofResult {
+
+    /** Neither a win nor a loss was proven within the node budget. */
+    public static final int UNKNOWN = 0;
+
+    /** The side to move wins, whatever the opponent does. */
+    public static final int WIN = 1;
+
+    /** The side to move loses, whatever it does. */
+    public static final int LOSS = 2;
+
+    private final int outcome;
+    private final int[] line;
+    private final long nodes;
+    private final long timeMillis;
+
+    /**
+     * Creates a new proof result.
+     *
+     * @param outcome    {@link #WIN}, {@link #LOSS} or {@link #UNKNOWN}.
+     * @param line       The board indices of the proving line, starting with the side to move.
+     * @param nodes      The number of positions expanded.
+     * @param timeMillis The time the solve took in milliseconds.
+     */
+    public ProofResult(int outcome, int[] line, long nodes, long timeMillis) {
+        this.outcome = outcome;
+        this.line = line.clone();
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Retrieves the outcome for the side to move.
+     *
+     * @return {@link #WIN}, {@link #LOSS} or {@link #UNKNOWN}.
+     */
+    public int getOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Retrieves the first move of the line: the winning move of a win, or the most stubborn
+     * defence of a loss.
+     *
+     * @return The board index of the move, or -1 if the outcome is unknown or the position is
+     *         already decided.
+     */
+    public int getMove() {
+        return this.line.length == 0 ? -1 : this.line[0];
+    }
+
+    /**
+     * Retrieves the proving line, the side to move and its opponent alternating. A win ends with
+     * the winning move. Against a loss the side to move plays the defence that took the most
+     * work to refute, and the opponent the move that refutes it. The line may stop short if the
+     * node budget ran out while it was being read from the table.
+     *
+     * @return The board indices of the moves, empty if the outcome is unknown.
+     */
+    public int[] getLine() {
+        return this.line.clone();
+    }
+
+    /**
+     * Retrieves the number of positions expanded.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Retrieves the time the solve took.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getTimeMillis() {
+        return this.timeMillis;
+    }
+
+    /**
+     * Retrieves the name of an outcome.
+     *
+     * @param outcome {@link #WIN}, {@link #LOSS} or {@link #UNKNOWN}.
+     * @return {@code win}, {@code loss} or {@code unknown}.
+     */
+    public static String nameOf(int outcome) {
+        return outcome == WIN ? "win" : outcome == LOSS ? "loss" : "unknown";
+    }
+
+    @Override
+    public String toString() {
+        return nameOf(this.outcome) + " line " + Arrays.toString(this.line)
+                + " nodes " + this.nodes + " time " + this.timeMillis + "ms";
+    }
+}
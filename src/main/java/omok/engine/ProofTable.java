@@ -0,0 +1,132 @@
+package omok.engine;
+
+import java.util.Arrays;
+
+/**
+ * The `ProofTable` class remembers the proof and disproof numbers of the positions a
+ * {@link ProofNumberSolver} has expanded, so that a position reached through different move
+ * orders is only expanded once and the depth-first search can return to a subtree it left.
+ *
+ * <p>The table has a fixed size. Entries live in primitive arrays and are grouped in buckets of
+ * four; when a bucket is full the entry whose subtree took the fewest nodes to search is
+ * replaced, since it is the cheapest to rebuild. Unlike {@link TranspositionTable} the table
+ * belongs to a single solver and is not shared between threads.
+ */
+class ProofTable {
+
+    private static final int BUCKET = 4;
+    private static final int ENTRY_BYTES = 28;
+
+    private final long[] keys;
+    private final long[] work;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int[] moves;
+    private final int bucketMask;
+
+    /**
+     * Creates a new proof table.
+     *
+     * @param megabytes The memory to use; the table is rounded down to a power of two entries.
+     */
+    ProofTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        }
+        long entries = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+        entries = Math.max(BUCKET, Math.min(entries, 1L << 28));
+        this.keys = new long[(int) entries];
+        this.work = new long[(int) entries];
+        this.phis = new int[(int) entries];
+        this.deltas = new int[(int) entries];
+        this.moves = new int[(int) entries];
+        this.bucketMask = (int) (entries / BUCKET) - 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The key of the position, never 0.
+     * @return The slot of the entry, or -1 if the position is not in the table.
+     */
+    int probe(long key) {
+        int bucket = bucketOf(key);
+        for (int i = bucket; i < bucket + BUCKET; i++) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the numbers of a position, replacing its previous entry or the cheapest one of its
+     * bucket.
+     *
+     * @param key   The key of the position, never 0.
+     * @param phi   The proof number for the side to move.
+     * @param delta The disproof number for the side to move.
+     * @param move  The most promising move, or -1.
+     * @param work  The number of nodes searched below the position.
+     */
+    void store(long key, int phi, int delta, int move, long work) {
+        int bucket = bucketOf(key);
+        int slot = bucket;
+        for (int i = bucket; i < bucket + BUCKET; i++) {
+            if (this.keys[i] == key) {
+                slot = i;
+                work += this.work[i];
+                break;
+            }
+            if (this.work[i] < this.work[slot]) {
+                slot = i;
+            }
+        }
+        this.keys[slot] = key;
+        this.phis[slot] = phi;
+        this.deltas[slot] = delta;
+        this.moves[slot] = move;
+        this.work[slot] = work;
+    }
+
+    /** Returns the proof number stored in a slot. */
+    int phi(int slot) {
+        return this.phis[slot];
+    }
+
+    /** Returns the disproof number stored in a slot. */
+    int delta(int slot) {
+        return this.deltas[slot];
+    }
+
+    /** Returns the move stored in a slot. */
+    int move(int slot) {
+        return this.moves[slot];
+    }
+
+    /** Returns the number of nodes searched below the position in a slot. */
+    long work(int slot) {
+        return this.work[slot];
+    }
+
+    /**
+     * Removes every entry.
+     */
+    void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.work, 0L);
+    }
+
+    /**
+     * Retrieves the number of entries the table can hold.
+     *
+     * @return The capacity in entries.
+     */
+    int capacity() {
+        return this.keys.length;
+    }
+
+    private int bucketOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & this.bucketMask) * BUCKET;
+    }
+}
@@ -0,0 +1,468 @@
+package omok.engine;
+
+import omok.Position;
+import omok.Zobrist;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The `SearchEngine` class finds moves with a negamax search using alpha-beta pruning and
+ * iterative deepening. Moves are made and unmade on the position in place, so the search never
+ * copies the board. Results are cached in a {@link TranspositionTable} keyed by the incremental
+ * Zobrist hash of the position. Whenever a time or node limit is reached the search returns the
+ * best move found so far.
+ */
+public class SearchEngine {
+
+    private static final int INFINITY = Evaluator.WIN + 1;
+    private static final int MAX_PLY = SearchLimits.MAX_DEPTH + 1;
+
+    /** Number of nodes between two checks of the clock and the stop flag. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** One in this many evaluations and move generations is timed; see {@link #getEvaluationNanos()}. */
+    private static final int PROFILE_INTERVAL = 16;
+
+    /** Default size of the transposition table in megabytes. */
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private final Evaluator evaluator;
+    private final MoveGenerator generator;
+    private TranspositionTable table;
+    private int candidateRadius = 2;
+
+    private AtomicBoolean stop;
+
+    private Position position;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+
+    private long evaluations;
+    private long evaluationNanos;
+    private long generations;
+    private long generationNanos;
+    private long hashProbes;
+    private long hashHits;
+    private long hashCollisions;
+
+    private int[][] moves = new int[0][];
+    private int[][] scores = new int[0][];
+
+    /**
+     * Creates a new search engine with the default evaluator.
+     */
+    public SearchEngine() {
+        this(new Evaluator());
+    }
+
+    /**
+     * Creates a new search engine.
+     *
+     * @param evaluator The evaluator used for leaf positions and move ordering.
+     */
+    public SearchEngine(Evaluator evaluator) {
+        this(evaluator, new TranspositionTable(DEFAULT_HASH_MEGABYTES));
+    }
+
+    /**
+     * Creates a new search engine.
+     *
+     * @param evaluator The evaluator used for leaf positions and move ordering.
+     * @param table     The transposition table, which may be shared with other engines.
+     */
+    public SearchEngine(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.generator = new MoveGenerator(evaluator);
+        this.table = table;
+    }
+
+    /**
+     * Sets how far from the existing stones candidate moves may be.
+     *
+     * @param radius The half-width of the square around each stone, at least 1.
+     */
+    public void setCandidateRadius(int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Candidate radius must be positive: " + radius);
+        }
+        this.candidateRadius = radius;
+    }
+
+    /**
+     * Retrieves the transposition table of this engine, for example to share it with another.
+     *
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return this.table;
+    }
+
+    /**
+     * Estimates the time the last search spent evaluating leaves. Only one evaluation in 16 is
+     * timed, so the figure is an extrapolation that costs next to nothing to collect.
+     *
+     * @return The estimated time in nanoseconds.
+     */
+    public long getEvaluationNanos() {
+        return this.evaluationNanos;
+    }
+
+    /**
+     * Estimates the time the last search spent generating and ordering moves, sampled like
+     * {@link #getEvaluationNanos()}.
+     *
+     * @return The estimated time in nanoseconds.
+     */
+    public long getGenerationNanos() {
+        return this.generationNanos;
+    }
+
+    /**
+     * Retrieves the number of transposition table probes of the last search. The count is kept
+     * by the engine rather than the shared table, so that it costs the search threads nothing.
+     *
+     * @return The probe count.
+     */
+    public long getHashProbes() {
+        return this.hashProbes;
+    }
+
+    /**
+     * Retrieves the number of transposition table probes of the last search that found their
+     * position.
+     *
+     * @return The hit count.
+     */
+    public long getHashHits() {
+        return this.hashHits;
+    }
+
+    /**
+     * Retrieves the number of transposition table hits of the last search whose stored move is
+     * not a candidate move of the position: the entry belongs to another position with the same
+     * key. Such an entry is not used to cut the search short, and its move is not tried first.
+     *
+     * @return The collision count.
+     */
+    public long getHashCollisions() {
+        return this.hashCollisions;
+    }
+
+    /**
+     * Replaces the transposition table of this engine. Must not be called during a search.
+     *
+     * @param table The new transposition table.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Searches the given position for the best move of the given side. The position is used as
+     * scratch space during the search and is restored before this method returns; pass a copy
+     * if other threads may read it meanwhile.
+     *
+     * @param position The position to search.
+     * @param side     The side to move, {@link Position#BLACK} or {@link Position#WHITE}.
+     * @param limits   The limits the search must respect.
+     * @return The best move found and statistics about the search.
+     */
+    public SearchResult search(Position position, int side, SearchLimits limits) {
+        return search(position, side, limits, new AtomicBoolean());
+    }
+
+    /**
+     * Searches the given position until the given flag is set. The flag belongs to the caller,
+     * who creates it before handing the search to another thread, so that a flag set before the
+     * search starts makes it return its first candidate at once instead of being lost.
+     *
+     * @param position The position to search.
+     * @param side     The side to move, {@link Position#BLACK} or {@link Position#WHITE}.
+     * @param limits   The limits the search must respect.
+     * @param stop     The flag any thread sets to make the search return its best move so far.
+     * @return The best move found and statistics about the search.
+     */
+    public SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop) {
+        this.table.newSearch();
+        return search(position, side, limits, stop, 1);
+    }
+
+    /**
+     * Searches with a stop flag shared by several engines searching in parallel, so that they
+     * can be stopped together, and with a configurable first iteration so that helper threads do
+     * not all search the same depths in lockstep. The caller starts the new table generation.
+     */
+    SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop, int firstDepth) {
+        long start = System.nanoTime();
+        this.stop = stop;
+        this.position = position;
+        this.nodes = 0;
+        this.evaluations = 0;
+        this.evaluationNanos = 0;
+        this.generations = 0;
+        this.generationNanos = 0;
+        this.hashProbes = 0;
+        this.hashHits = 0;
+        this.hashCollisions = 0;
+        this.nodeLimit = limits.getNodes() == 0 ? Long.MAX_VALUE : limits.getNodes();
+        this.deadline = limits.getTimeMillis() == 0 || limits.isPondering() ? Long.MAX_VALUE : start + limits.getTimeMillis() * 1_000_000L;
+        this.aborted = stop.get();
+        ensureBuffers();
+        position.setCandidateRadius(this.candidateRadius);
+
+        int count = generate(0, side);
+        if (count == 0 || position.winner() != Position.EMPTY) {
+            return new SearchResult(-1, 0, 0, 0, elapsedMillis(start));
+        }
+        int[] rootMoves = this.moves[0];
+        sortRoot(rootMoves, this.scores[0], count);
+        if (count == 1) {
+            // A winning or forced move needs no search.
+            return new SearchResult(rootMoves[0], 0, 0, 1, elapsedMillis(start));
+        }
+
+        int bestMove = rootMoves[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = Math.min(firstDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                int move = rootMoves[i];
+                position.place(move, side);
+                int score = -negamax(depth - 1, -INFINITY, -alpha, 1, 1 - side);
+                position.undo();
+                if (this.aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = i;
+                }
+            }
+            if (iterationBest >= 0) {
+                // Keep the best move first so the next iteration searches it first.
+                bestMove = rootMoves[iterationBest];
+                bestScore = alpha;
+                System.arraycopy(rootMoves, 0, rootMoves, 1, iterationBest);
+                rootMoves[0] = bestMove;
+            }
+            if (this.aborted) {
+                break;
+            }
+            completedDepth = depth;
+            if (Math.abs(bestScore) >= Evaluator.WIN_THRESHOLD || depth >= position.emptyCount()) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, this.nodes, elapsedMillis(start));
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, int side) {
+        if (++this.nodes % CHECK_INTERVAL == 0) {
+            checkLimits();
+        }
+        if (this.aborted) {
+            return 0;
+        }
+        if (this.position.winner() != Position.EMPTY) {
+            // The previous move won; prefer quicker wins and slower losses.
+            return -(Evaluator.WIN - ply);
+        }
+        if (this.position.isFull()) {
+            return 0;
+        }
+        if (depth == 0 || ply >= MAX_PLY - 1) {
+            return evaluate(side);
+        }
+
+        long key = hashKey(side);
+        long entry = this.table.probe(key);
+        this.hashProbes++;
+        int tableMove = -1;
+        if (entry != TranspositionTable.NONE) {
+            this.hashHits++;
+            tableMove = TranspositionTable.moveOf(entry);
+            if (tableMove != -1 && !isEmptyIntersection(tableMove)) {
+                // Stored for another position with the same key; its score means nothing here.
+                this.hashCollisions++;
+                tableMove = -1;
+            } else if (TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                int flag = TranspositionTable.flagOf(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER && score >= beta)
+                        || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int count = generate(ply, side);
+        if (count == 0) {
+            // The rules forbid every candidate; treat it like a full board.
+            return 0;
+        }
+        int[] plyMoves = this.moves[ply];
+        int[] plyScores = this.scores[ply];
+        if (tableMove != -1 && !promote(plyMoves, plyScores, count, tableMove)) {
+            this.hashCollisions++;
+        }
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(plyMoves, plyScores, i, count);
+            this.position.place(move, side);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1, 1 - side);
+            this.position.undo();
+            if (this.aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        int flag = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        this.table.store(key, bestMove, toTable(best, ply), depth, flag);
+        return best;
+    }
+
+    private long hashKey(int side) {
+        return hashKey(this.position, side);
+    }
+
+    /** Returns the transposition table key of a position with the given side to move. */
+    static long hashKey(Position position, int side) {
+        return side == Position.WHITE ? position.hash() ^ Zobrist.SIDE : position.hash();
+    }
+
+    /** Converts a score to be independent of the distance from the root before storing it. */
+    private static int toTable(int score, int ply) {
+        if (score >= Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score <= -Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Converts a stored score back to be relative to the current distance from the root. */
+    private static int fromTable(int score, int ply) {
+        if (score >= Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score <= -Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Gives the given move the highest ordering score so it is searched first.
+     *
+     * @return `true` if the move is one of the candidates.
+     */
+    private static boolean promote(int[] moves, int[] scores, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                scores[i] = Integer.MAX_VALUE;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Checks that a move read from the table is an empty intersection of the position. */
+    private boolean isEmptyIntersection(int move) {
+        return move >= 0 && this.position.contains(this.position.x(move), this.position.y(move))
+                && this.position.isEmpty(move);
+    }
+
+    /**
+     * Fills the move buffer of the given ply with the candidate moves and their ordering scores.
+     */
+    private int generate(int ply, int side) {
+        int needed = this.position.candidateCount() + 1;
+        if (this.moves[ply].length < needed) {
+            this.moves[ply] = new int[needed * 2];
+            this.scores[ply] = new int[needed * 2];
+        }
+        if (++this.generations % PROFILE_INTERVAL != 0) {
+            return this.generator.generate(this.position, side, this.moves[ply], this.scores[ply]);
+        }
+        long start = System.nanoTime();
+        int count = this.generator.generate(this.position, side, this.moves[ply], this.scores[ply]);
+        this.generationNanos += (System.nanoTime() - start) * PROFILE_INTERVAL;
+        return count;
+    }
+
+    /**
+     * Evaluates a leaf, timing one call in {@link #PROFILE_INTERVAL} so that the profile costs
+     * next to nothing.
+     */
+    private int evaluate(int side) {
+        if (++this.evaluations % PROFILE_INTERVAL != 0) {
+            return this.evaluator.evaluate(this.position, side);
+        }
+        long start = System.nanoTime();
+        int score = this.evaluator.evaluate(this.position, side);
+        this.evaluationNanos += (System.nanoTime() - start) * PROFILE_INTERVAL;
+        return score;
+    }
+
+    /**
+     * Moves the highest scoring remaining move to position i and returns it, so that moves are
+     * tried best first without sorting the moves that a cutoff makes unnecessary.
+     */
+    private static int pickNext(int[] moves, int[] scores, int i, int count) {
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        int score = scores[best];
+        scores[best] = scores[i];
+        scores[i] = score;
+        return move;
+    }
+
+    private static void sortRoot(int[] moves, int[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            pickNext(moves, scores, i, count);
+        }
+    }
+
+    private void checkLimits() {
+        if (this.stop.get() || this.nodes >= this.nodeLimit || System.nanoTime() >= this.deadline) {
+            this.aborted = true;
+        }
+    }
+
+    /** Allocates the per-ply move buffers; {@link #generate} grows them as the candidate set grows. */
+    private void ensureBuffers() {
+        if (this.moves.length < MAX_PLY) {
+            this.moves = new int[MAX_PLY][64];
+            this.scores = new int[MAX_PLY][64];
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+}
@@ -0,0 +1,110 @@
+package omok.engine;
+
+/**
+ * The `SearchLimits` class describes how much work a search may do before it must return.
+ * A search stops at whichever limit it reaches first; a limit of zero means "unlimited".
+ *
+ * <p>Limits for {@link #pondering() pondering} keep the time budget of a normal move for the
+ * preliminary threat search only: the main search runs until it is stopped or reaches the node
+ * or depth limit.
+ */
+public class SearchLimits {
+
+    /** Deepest iteration any search will start. */
+    public static final int MAX_DEPTH = 60;
+
+    private final long timeMillis;
+    private final long nodes;
+    private final int depth;
+    private final boolean pondering;
+
+    /**
+     * Creates a new set of search limits.
+     *
+     * @param timeMillis Wall-clock budget in milliseconds, or 0 for none.
+     * @param nodes      Maximum number of nodes to visit, or 0 for none.
+     * @param depth      Maximum iterative deepening depth, or 0 for {@link #MAX_DEPTH}.
+     */
+    public SearchLimits(long timeMillis, long nodes, int depth) {
+        if (timeMillis < 0 || nodes < 0 || depth < 0) {
+            throw new IllegalArgumentException("Search limits must not be negative");
+        }
+        this.timeMillis = timeMillis;
+        this.nodes = nodes;
+        this.depth = depth == 0 ? MAX_DEPTH : Math.min(depth, MAX_DEPTH);
+        this.pondering = false;
+    }
+
+    private SearchLimits(SearchLimits limits, boolean pondering) {
+        this.timeMillis = limits.timeMillis;
+        this.nodes = limits.nodes;
+        this.depth = limits.depth;
+        this.pondering = pondering;
+    }
+
+    /**
+     * Creates limits that only bound the wall-clock time.
+     *
+     * @param timeMillis Wall-clock budget in milliseconds.
+     * @return The search limits.
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(timeMillis, 0, 0);
+    }
+
+    /**
+     * Creates limits that only bound the number of nodes, which makes searches reproducible.
+     *
+     * @param nodes Maximum number of nodes to visit.
+     * @return The search limits.
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    /**
+     * Returns these limits for a search on the opponent's time, which ignores the time limit
+     * except to budget its threat search.
+     *
+     * @return The pondering limits.
+     */
+    public SearchLimits pondering() {
+        return new SearchLimits(this, true);
+    }
+
+    /**
+     * Checks whether these are limits for pondering.
+     *
+     * @return `true` if the main search must not stop on time.
+     */
+    public boolean isPondering() {
+        return this.pondering;
+    }
+
+    /**
+     * Retrieves the wall-clock budget.
+     *
+     * @return The budget in milliseconds, or 0 for none.
+     */
+    public long getTimeMillis() {
+        return this.timeMillis;
+    }
+
+    /**
+     * Retrieves the node budget.
+     *
+     * @return The maximum number of nodes, or 0 for none.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Retrieves the maximum depth.
+     *
+     * @return The deepest iteration to search.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+}
@@ -0,0 +1,81 @@
+package omok.engine;
+
+/**
+ * The `SearchResult` class holds the outcome of a search: the move to play and how it was found.
+ */
+public class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    /**
+     * Creates a new search result.
+     *
+     * @param move       The board index of the best move, or -1 if there is no legal move.
+     * @param score      The score of the move for the side that searched.
+     * @param depth      The deepest completed iteration.
+     * @param nodes      The number of nodes visited.
+     * @param timeMillis The time the search took in milliseconds.
+     */
+    public SearchResult(int move, int score, int depth, long nodes, long timeMillis) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Retrieves the best move.
+     *
+     * @return The board index of the move, or -1 if there is no legal move.
+     */
+    public int getMove() {
+        return this.move;
+    }
+
+    /**
+     * Retrieves the score of the best move.
+     *
+     * @return The score for the side that searched.
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Retrieves the deepest completed iteration.
+     *
+     * @return The depth in plies.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Retrieves the number of nodes visited.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Retrieves the time the search took.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getTimeMillis() {
+        return this.timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "move " + this.move + " score " + this.score + " depth " + this.depth
+                + " nodes " + this.nodes + " time " + this.timeMillis + "ms";
+    }
+}
@@ -0,0 +1,318 @@
+package omok.engine;
+
+import omok.Position;
+import omok.Zobrist;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The `ThreatSolver` class looks for forced wins made only of threats.
+ *
+ * <p>A VCF (victory by continuous fours) is a sequence of fours, each of which the opponent must
+ * block on its single completion point, ending in a five or an open four. A VCT (victory by
+ * continuous threats) also allows open threes, to which the opponent may reply on the line of the
+ * three or with a four of their own. Only forcing moves and their forced replies are explored, so
+ * tactical positions are resolved far faster than by the full search.
+ *
+ * <p>The solver is not exhaustive: a failed search means no forced win was found within the depth
+ * and node limits, not that none exists. Positions proven to fail are remembered in a small
+ * direct-mapped table keyed by the Zobrist hash, the rules and the win length, until
+ * {@link #clear()}.
+ */
+public class ThreatSolver {
+
+    private static final int MAX_LINE = 64;
+    private static final int FAILURE_TABLE_SIZE = 1 << 16;
+
+    private final Evaluator evaluator;
+    private final long[] failures = new long[FAILURE_TABLE_SIZE];
+    private final int[] line = new int[MAX_LINE];
+    private final int[][] buffers = new int[MAX_LINE][0];
+    private int lineLength;
+
+    private Position position;
+    private int attacker;
+    private long variant;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private AtomicBoolean stop;
+    private boolean allowThrees;
+
+    /**
+     * Creates a new threat solver.
+     *
+     * @param evaluator The evaluator whose pattern tables recognise fours and threes.
+     */
+    public ThreatSolver(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Searches for a victory by continuous fours.
+     *
+     * @param position  The position; it is restored before this method returns.
+     * @param attacker  The side to move, which tries to win.
+     * @param maxDepth  The maximum number of attacking moves.
+     * @param nodeLimit The maximum number of positions to visit.
+     * @return The first move of a winning sequence, or -1 if none was found.
+     */
+    public int solveVcf(Position position, int attacker, int maxDepth, long nodeLimit) {
+        return solve(position, attacker, maxDepth, nodeLimit, false);
+    }
+
+    /**
+     * Searches for a victory by continuous threats, trying a VCF at every attacking move first.
+     *
+     * @param position  The position; it is restored before this method returns.
+     * @param attacker  The side to move, which tries to win.
+     * @param maxDepth  The maximum number of attacking moves.
+     * @param nodeLimit The maximum number of positions to visit.
+     * @return The first move of a winning sequence, or -1 if none was found.
+     */
+    public int solveVct(Position position, int attacker, int maxDepth, long nodeLimit) {
+        return solve(position, attacker, maxDepth, nodeLimit, true);
+    }
+
+    /**
+     * Sets a time after which every solve gives up, as if its node budget were spent.
+     *
+     * @param deadline The {@link System#nanoTime()} value to stop at, or 0 for no time limit.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets a flag that makes every solve give up, as if its node budget were spent, once another
+     * thread sets it.
+     *
+     * @param stop The flag, or null to run until the node budget or the deadline.
+     */
+    public void setStop(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    /**
+     * Forgets the positions proven to fail, for example when a new game starts.
+     */
+    public void clear() {
+        Arrays.fill(this.failures, 0);
+    }
+
+    /**
+     * Retrieves the winning line of the last successful solve, attacking and defending moves
+     * alternating and starting with the attacker's first move.
+     *
+     * @return The board indices of the moves, empty if the last solve failed.
+     */
+    public int[] getWinningLine() {
+        return Arrays.copyOf(this.line, this.lineLength);
+    }
+
+    /**
+     * Retrieves the number of positions visited by the last solve.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    private int solve(Position position, int attacker, int maxDepth, long nodeLimit, boolean allowThrees) {
+        this.position = position;
+        this.attacker = attacker;
+        this.variant = Zobrist.variant(position.rules(), position.winLength());
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.allowThrees = allowThrees;
+        this.lineLength = 0;
+        if (position.winner() != Position.EMPTY) {
+            return -1;
+        }
+        int depth = Math.min(maxDepth, MAX_LINE / 2 - 1);
+        if (!allowThrees) {
+            return attack(depth, 0) ? this.line[0] : -1;
+        }
+        // Deepen the threes gradually: short wins are far cheaper to find.
+        for (int d = 1; d <= depth; d++) {
+            if (attack(d, 0)) {
+                return this.line[0];
+            }
+            if (this.nodes >= this.nodeLimit) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /** Attacker to move: is there a forced win within the given number of attacking moves? */
+    private boolean attack(int depth, int ply) {
+        if (++this.nodes > this.nodeLimit) {
+            return false;
+        }
+        if ((this.nodes & 1023) == 0 && (this.deadline != 0 && System.nanoTime() - this.deadline > 0
+                || this.stop != null && this.stop.get())) {
+            this.nodeLimit = this.nodes - 1;
+            return false;
+        }
+        int defender = 1 - this.attacker;
+        int winning = findCompletion(this.attacker, -1);
+        if (winning != -1) {
+            this.line[ply] = winning;
+            this.lineLength = ply + 1;
+            return true;
+        }
+        if (depth == 0 || ply + 2 >= MAX_LINE) {
+            return false;
+        }
+        long key = this.position.hash() ^ (this.attacker == Position.WHITE ? Zobrist.SIDE : 0) ^ this.variant
+                ^ ((long) depth << 1) ^ (this.allowThrees ? 1 : 0);
+        int slot = (int) (key ^ (key >>> 32)) & (FAILURE_TABLE_SIZE - 1);
+        if (this.failures[slot] == key) {
+            return false;
+        }
+        // If the defender threatens five, the only move is to block, and it must itself be a four.
+        int threat = findCompletion(defender, -1);
+        boolean mustBlock = threat != -1;
+
+        int[] moves = candidates(ply);
+        int count = this.position.candidateCount();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (mustBlock && move != threat) {
+                continue;
+            }
+            int strength = this.evaluator.threat(this.position, move, this.attacker);
+            boolean four = strength >= PatternTable.FOUR;
+            boolean three = this.allowThrees && !mustBlock && strength == PatternTable.OPEN_THREE;
+            if (!four && !three || this.position.isForbidden(move, this.attacker)) {
+                continue;
+            }
+            this.position.place(move, this.attacker);
+            this.line[ply] = move;
+            boolean won = four ? defendFour(depth, ply + 1) : defendThree(move, depth, ply + 1);
+            this.position.undo();
+            if (won) {
+                return true;
+            }
+            if (this.nodes > this.nodeLimit) {
+                return false;
+            }
+        }
+        if (this.nodes <= this.nodeLimit) {
+            this.failures[slot] = key;
+        }
+        return false;
+    }
+
+    /** Defender to move after a four: the reply is forced. */
+    private boolean defendFour(int depth, int ply) {
+        int defender = 1 - this.attacker;
+        if (findCompletion(defender, -1) != -1) {
+            // The defender wins first.
+            return false;
+        }
+        int block = findCompletion(this.attacker, -1);
+        if (block == -1) {
+            return false;
+        }
+        if (this.position.isForbidden(block, defender)) {
+            // The rules forbid the block, so the attacker completes the line next move.
+            this.line[ply] = block;
+            this.lineLength = ply + 1;
+            return true;
+        }
+        int other = findCompletion(this.attacker, block);
+        if (other != -1) {
+            // An open four: two completion points cannot both be blocked.
+            this.line[ply] = block;
+            this.line[ply + 1] = other;
+            this.lineLength = ply + 2;
+            return true;
+        }
+        this.position.place(block, defender);
+        this.line[ply] = block;
+        boolean won = attack(depth - 1, ply + 1);
+        this.position.undo();
+        return won;
+    }
+
+    /** Defender to move after an open three: every reply on its line or making a four must fail. */
+    private boolean defendThree(int three, int depth, int ply) {
+        int defender = 1 - this.attacker;
+        if (findCompletion(defender, -1) != -1) {
+            return false;
+        }
+        int count = this.position.candidateCount();
+        int[] replies = candidates(ply);
+        int replyCount = 0;
+        int radius = this.position.winLength() - 1;
+        for (int i = 0; i < count; i++) {
+            int move = this.position.candidateAt(i);
+            if ((onLine(three, move, radius) || this.evaluator.threat(this.position, move, defender) >= PatternTable.FOUR)
+                    && !this.position.isForbidden(move, defender)) {
+                replies[replyCount++] = move;
+            }
+        }
+        int[] best = null;
+        for (int i = 0; i < replyCount; i++) {
+            int reply = replies[i];
+            this.position.place(reply, defender);
+            this.line[ply] = reply;
+            boolean won = attack(depth - 1, ply + 1);
+            this.position.undo();
+            if (!won) {
+                return false;
+            }
+            if (best == null) {
+                best = Arrays.copyOf(this.line, this.lineLength);
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        // Report the line against the first defence tried.
+        System.arraycopy(best, 0, this.line, 0, best.length);
+        this.lineLength = best.length;
+        return true;
+    }
+
+    /** Copies the current candidate moves into the buffer of the given ply. */
+    private int[] candidates(int ply) {
+        int count = this.position.candidateCount();
+        if (this.buffers[ply].length < count) {
+            this.buffers[ply] = new int[count * 2];
+        }
+        int[] buffer = this.buffers[ply];
+        for (int i = 0; i < count; i++) {
+            buffer[i] = this.position.candidateAt(i);
+        }
+        return buffer;
+    }
+
+    /** Is the given index on one of the four lines through the centre, within the radius? */
+    private boolean onLine(int centre, int index, int radius) {
+        for (int delta : this.position.directions()) {
+            for (int step = -radius; step <= radius; step++) {
+                if (centre + step * delta == index) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Finds a candidate where the given colour completes a line, skipping one index. */
+    private int findCompletion(int color, int skip) {
+        int count = this.position.candidateCount();
+        for (int i = 0; i < count; i++) {
+            int move = this.position.candidateAt(i);
+            if (move != skip && this.position.completesLine(move, color)) {
+                return move;
+            }
+        }
+        return -1;
+    }
+}
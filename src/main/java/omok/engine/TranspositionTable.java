@@ -0,0 +1,186 @@
+package omok.engine;
+
+import java.util.Arrays;
+
+/**
+ * The `TranspositionTable` class remembers search results by position hash so that positions
+ * reached through different move orders are only searched once.
+ *
+ * <p>Entries live in two primitive arrays and are grouped in buckets of two: the first slot keeps
+ * the deepest result (depth-preferred), the second always takes the newest one. The table needs no
+ * locks to be shared between search threads: each slot stores {@code key ^ data} next to
+ * {@code data}, so an entry torn by a concurrent write no longer matches its key and is ignored.
+ */
+public class TranspositionTable {
+
+    /** The stored score is exact. */
+    public static final int EXACT = 0;
+
+    /** The stored score is a lower bound (the search failed high). */
+    public static final int LOWER = 1;
+
+    /** The stored score is an upper bound (the search failed low). */
+    public static final int UPPER = 2;
+
+    /** Returned by {@link #probe(long)} when the position is not in the table. */
+    public static final long NONE = 0L;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int SCORE_OFFSET = 1 << 20;
+    private static final int MAX_DEPTH = 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    private volatile int generation;
+
+    /**
+     * Creates a new transposition table.
+     *
+     * @param megabytes The memory to use; the table is rounded down to a power of two entries.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        }
+        long entries = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+        entries = Math.min(entries, 1L << 30);
+        this.keys = new long[(int) entries];
+        this.data = new long[(int) entries];
+        this.bucketMask = (int) (entries / 2) - 1;
+    }
+
+    /**
+     * Starts a new search, so that entries of older searches are replaced first.
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 7;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The hash of the position.
+     * @return The packed entry, or {@link #NONE}; unpack it with the static accessors.
+     */
+    public long probe(long key) {
+        int slot = slotOf(key);
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = this.data[i];
+            if ((this.keys[i] ^ entry) == key && entry != NONE) {
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key   The hash of the position.
+     * @param move  The best move found, or -1.
+     * @param score The score, already adjusted so that it does not depend on the distance to the root.
+     * @param depth The remaining depth the score was searched to.
+     * @param flag  {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public void store(long key, int move, int score, int depth, int flag) {
+        int generation = this.generation;
+        long entry = pack(move, score, Math.min(depth, MAX_DEPTH), flag, generation);
+        int slot = slotOf(key);
+        long deep = this.data[slot];
+        boolean sameKey = (this.keys[slot] ^ deep) == key;
+        if (deep == NONE || sameKey || generationOf(deep) != generation || depth >= depthOf(deep)) {
+            if (!sameKey && deep != NONE) {
+                // Keep the displaced entry in the always-replace slot.
+                this.data[slot + 1] = deep;
+                this.keys[slot + 1] = this.keys[slot];
+            }
+            this.data[slot] = entry;
+            this.keys[slot] = key ^ entry;
+        } else {
+            this.data[slot + 1] = entry;
+            this.keys[slot + 1] = key ^ entry;
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+    }
+
+    /**
+     * Retrieves the number of entries the table can hold.
+     *
+     * @return The capacity in entries.
+     */
+    public int capacity() {
+        return this.data.length;
+    }
+
+    @Override
+    public String toString() {
+        return capacity() + " entries";
+    }
+
+    /**
+     * Extracts the move of a packed entry.
+     *
+     * @param entry The entry returned by {@link #probe(long)}.
+     * @return The move, or -1 if none was stored.
+     */
+    public static int moveOf(long entry) {
+        return (int) (entry & 0x7FFFFFFFL) - 1;
+    }
+
+    /**
+     * Extracts the score of a packed entry.
+     *
+     * @param entry The entry returned by {@link #probe(long)}.
+     * @return The stored score.
+     */
+    public static int scoreOf(long entry) {
+        return (int) ((entry >>> 31) & 0x1FFFFFL) - SCORE_OFFSET;
+    }
+
+    /**
+     * Extracts the depth of a packed entry.
+     *
+     * @param entry The entry returned by {@link #probe(long)}.
+     * @return The stored depth.
+     */
+    public static int depthOf(long entry) {
+        return (int) ((entry >>> 52) & 0x3FL);
+    }
+
+    /**
+     * Extracts the bound type of a packed entry.
+     *
+     * @param entry The entry returned by {@link #probe(long)}.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int flagOf(long entry) {
+        return (int) ((entry >>> 58) & 0x3L);
+    }
+
+    private static int generationOf(long entry) {
+        return (int) ((entry >>> 60) & 0x7L);
+    }
+
+    private static long pack(int move, int score, int depth, int flag, int generation) {
+        int clamped = Math.max(-SCORE_OFFSET + 1, Math.min(SCORE_OFFSET - 1, score));
+        return ((long) (move + 1) & 0x7FFFFFFFL)
+                | ((long) (clamped + SCORE_OFFSET) << 31)
+                | ((long) depth << 52)
+                | ((long) flag << 58)
+                | ((long) generation << 60)
+                | (1L << 63);
+    }
+
+    private int slotOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & this.bucketMask) << 1;
+    }
+}
@@ -0,0 +1,360 @@
+package omok.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The `EngineMetrics` class collects what the engine of one AI player does: how many nodes it
+ * searches and how fast, how deep it gets, how often the transposition table answers, where the
+ * time goes between evaluation and move generation, and how long each move takes to answer.
+ *
+ * <p>The AI player reports each move with {@link #recordMove}, and the engine adds the profile of
+ * each search, pondering included, with {@link #recordProfile}. Both may be called from any
+ * thread: the counters are {@link LongAdder}s and the latencies go into a histogram with one
+ * bucket per power of two of milliseconds, so recording never locks or allocates. The figures are
+ * read through the {@link EngineMetricsMBean} interface once {@link #register(String)} has put
+ * the metrics on the platform MBean server.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+    /** The source of a move found by a search. */
+    public static final String SEARCH = "search";
+
+    /** The source of a move taken from the opening book. */
+    public static final String BOOK = "book";
+
+    /** The source of a move found by a search on the opponent's time. */
+    public static final String PONDER = "ponder";
+
+    /** The domain and type of the MBean names, completed by the player's name. */
+    public static final String OBJECT_NAME = "omok:type=EngineMetrics,name=";
+
+    private static final int BUCKETS = 32;
+
+    /** The metrics each name is registered for, guarded by itself with the MBean server calls. */
+    private static final Map<ObjectName, EngineMetrics> REGISTERED = new HashMap<>();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder bookMoves = new LongAdder();
+    private final LongAdder ponderHits = new LongAdder();
+    private final LongAdder ponderMisses = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder searchMillis = new LongAdder();
+    private final LongAdder depths = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder hashProbes = new LongAdder();
+    private final LongAdder hashHits = new LongAdder();
+    private final LongAdder hashCollisions = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    private volatile long lastNodesPerSecond;
+    private volatile int lastDepth;
+    private volatile double lastHashHitRate;
+    private volatile long lastEvaluationNanos;
+    private volatile long lastGenerationNanos;
+
+    private ObjectName registeredName;
+
+    /**
+     * Records a move the AI player chose.
+     *
+     * @param source       How the move was found: {@link #SEARCH}, {@link #BOOK} or {@link #PONDER}.
+     * @param nodes        The number of nodes searched, summed over the search threads.
+     * @param depth        The deepest completed iteration.
+     * @param searchMillis The time the search took, which for a pondered move includes the
+     *                     opponent's time.
+     * @param latencyNanos The time the AI player took to answer, from its turn to its move.
+     */
+    public void recordMove(String source, long nodes, int depth, long searchMillis, long latencyNanos) {
+        this.moves.increment();
+        if (BOOK.equals(source)) {
+            this.bookMoves.increment();
+        } else {
+            this.searches.increment();
+            this.nodes.add(nodes);
+            this.searchMillis.add(searchMillis);
+            this.depths.add(depth);
+            this.maxDepth.accumulate(depth);
+            this.lastDepth = depth;
+            this.lastNodesPerSecond = nodesPerSecond(nodes, searchMillis);
+        }
+        long millis = latencyNanos / 1_000_000L;
+        this.latencies.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis)));
+        this.maxLatencyNanos.accumulate(latencyNanos);
+    }
+
+    /**
+     * Records the profile of one search. Searches on the opponent's time count too, whether
+     * their move is played or not, since they take the same resources.
+     *
+     * @param evaluationNanos The estimated time spent evaluating positions.
+     * @param generationNanos The estimated time spent generating and ordering moves.
+     * @param hashProbes      The number of transposition table probes.
+     * @param hashHits        The number of probes that found their position.
+     * @param hashCollisions  The number of hits whose entry belonged to another position.
+     */
+    public void recordProfile(long evaluationNanos, long generationNanos, long hashProbes, long hashHits,
+                              long hashCollisions) {
+        this.evaluationNanos.add(evaluationNanos);
+        this.generationNanos.add(generationNanos);
+        this.hashProbes.add(hashProbes);
+        this.hashHits.add(hashHits);
+        this.hashCollisions.add(hashCollisions);
+        this.lastEvaluationNanos = evaluationNanos;
+        this.lastGenerationNanos = generationNanos;
+        this.lastHashHitRate = hashProbes == 0 ? 0 : (double) hashHits / hashProbes;
+    }
+
+    /**
+     * Records whether the opponent played the reply the AI player pondered on.
+     *
+     * @param hit `true` if the pondered reply was played.
+     */
+    public void recordPonder(boolean hit) {
+        (hit ? this.ponderHits : this.ponderMisses).increment();
+    }
+
+    /**
+     * Retrieves the estimated evaluation time of the last search profiled.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getLastEvaluationNanos() {
+        return this.lastEvaluationNanos;
+    }
+
+    /**
+     * Retrieves the estimated move generation time of the last search profiled.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getLastGenerationNanos() {
+        return this.lastGenerationNanos;
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server as
+     * {@code omok:type=EngineMetrics,name="<name>"}, replacing the MBean registered under that name
+     * before, for example by the AI player of a previous game. A failure is reported on standard
+     * error, since the game plays on without metrics.
+     *
+     * @param name The name of the AI player.
+     */
+    public void register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (REGISTERED) {
+            try {
+                ObjectName objectName = new ObjectName(OBJECT_NAME + ObjectName.quote(name));
+                unregister();
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(this, objectName);
+                REGISTERED.put(objectName, this);
+                this.registeredName = objectName;
+            } catch (JMException e) {
+                System.err.println("Cannot register the engine metrics of " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if {@link #register(String)} put them
+     * there and nothing has replaced them since.
+     */
+    public void unregister() {
+        synchronized (REGISTERED) {
+            if (this.registeredName == null) {
+                return;
+            }
+            // Metrics registered under the same name since then stay.
+            if (REGISTERED.remove(this.registeredName, this)) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.registeredName);
+                } catch (JMException e) {
+                    // Removed from the server by someone else.
+                }
+            }
+            this.registeredName = null;
+        }
+    }
+
+    @Override
+    public long getMoves() {
+        return this.moves.sum();
+    }
+
+    @Override
+    public long getSearches() {
+        return this.searches.sum();
+    }
+
+    @Override
+    public long getBookMoves() {
+        return this.bookMoves.sum();
+    }
+
+    @Override
+    public long getPonderHits() {
+        return this.ponderHits.sum();
+    }
+
+    @Override
+    public long getPonderMisses() {
+        return this.ponderMisses.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return this.nodes.sum();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        return nodesPerSecond(this.nodes.sum(), this.searchMillis.sum());
+    }
+
+    @Override
+    public long getLastNodesPerSecond() {
+        return this.lastNodesPerSecond;
+    }
+
+    @Override
+    public int getLastDepth() {
+        return this.lastDepth;
+    }
+
+    @Override
+    public double getAverageDepth() {
+        long searches = this.searches.sum();
+        return searches == 0 ? 0 : (double) this.depths.sum() / searches;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return (int) this.maxDepth.get();
+    }
+
+    @Override
+    public double getHashHitRate() {
+        long probes = this.hashProbes.sum();
+        return probes == 0 ? 0 : (double) this.hashHits.sum() / probes;
+    }
+
+    @Override
+    public double getLastHashHitRate() {
+        return this.lastHashHitRate;
+    }
+
+    @Override
+    public long getHashCollisions() {
+        return this.hashCollisions.sum();
+    }
+
+    @Override
+    public long getEvaluationMillis() {
+        return this.evaluationNanos.sum() / 1_000_000L;
+    }
+
+    @Override
+    public long getGenerationMillis() {
+        return this.generationNanos.sum() / 1_000_000L;
+    }
+
+    @Override
+    public long getLatencyMedianMillis() {
+        return latencyPercentile(0.5);
+    }
+
+    @Override
+    public long getLatency99Millis() {
+        return latencyPercentile(0.99);
+    }
+
+    @Override
+    public long getMaxLatencyMillis() {
+        return this.maxLatencyNanos.get() / 1_000_000L;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            histogram[b] = this.latencies.get(b);
+        }
+        return histogram;
+    }
+
+    @Override
+    public void reset() {
+        this.moves.reset();
+        this.searches.reset();
+        this.bookMoves.reset();
+        this.ponderHits.reset();
+        this.ponderMisses.reset();
+        this.nodes.reset();
+        this.searchMillis.reset();
+        this.depths.reset();
+        this.maxDepth.reset();
+        this.hashProbes.reset();
+        this.hashHits.reset();
+        this.hashCollisions.reset();
+        this.evaluationNanos.reset();
+        this.generationNanos.reset();
+        for (int b = 0; b < BUCKETS; b++) {
+            this.latencies.set(b, 0);
+        }
+        this.maxLatencyNanos.reset();
+        this.lastNodesPerSecond = 0;
+        this.lastDepth = 0;
+        this.lastHashHitRate = 0;
+        this.lastEvaluationNanos = 0;
+        this.lastGenerationNanos = 0;
+    }
+
+    /**
+     * Finds the bucket holding the given fraction of the moves and returns its upper bound, or
+     * the longest latency if that is smaller.
+     */
+    private long latencyPercentile(double fraction) {
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank) {
+                return Math.min(1L << b, Math.max(1, getMaxLatencyMillis()));
+            }
+        }
+        return getMaxLatencyMillis();
+    }
+
+    private static long nodesPerSecond(long nodes, long millis) {
+        return nodes * 1000 / Math.max(1, millis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d moves, %d nodes, %d nodes/s, depth %.1f, %.1f%% hash hits, latency p50 %dms p99 %dms",
+                getMoves(), getNodes(), getNodesPerSecond(), getAverageDepth(), 100 * getHashHitRate(),
+                getLatencyMedianMillis(), getLatency99Millis());
+    }
+}
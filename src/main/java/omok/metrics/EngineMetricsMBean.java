@@ -0,0 +1,156 @@
+package omok.metrics;
+
+/**
+ * The `EngineMetricsMBean` interface is the management interface of {@link EngineMetrics}, through
+ * which JConsole, VisualVM or any other JMX client reads what an AI player's engine is doing.
+ * Every figure covers the moves since the metrics were created or last reset.
+ */
+public interface EngineMetricsMBean {
+
+    /**
+     * Retrieves the number of moves the AI player chose.
+     *
+     * @return The move count, book moves included.
+     */
+    long getMoves();
+
+    /**
+     * Retrieves the number of moves that came from a search, pondered ones included.
+     *
+     * @return The search count.
+     */
+    long getSearches();
+
+    /**
+     * Retrieves the number of moves taken from the opening book.
+     *
+     * @return The book move count.
+     */
+    long getBookMoves();
+
+    /**
+     * Retrieves the number of moves taken from a search on the opponent's time.
+     *
+     * @return The ponder hit count.
+     */
+    long getPonderHits();
+
+    /**
+     * Retrieves the number of times the opponent did not play the reply pondered on.
+     *
+     * @return The ponder miss count.
+     */
+    long getPonderMisses();
+
+    /**
+     * Retrieves the number of nodes searched.
+     *
+     * @return The node count of all searches, summed over their threads.
+     */
+    long getNodes();
+
+    /**
+     * Retrieves the search speed over all searches.
+     *
+     * @return The nodes per second.
+     */
+    long getNodesPerSecond();
+
+    /**
+     * Retrieves the speed of the last search.
+     *
+     * @return The nodes per second.
+     */
+    long getLastNodesPerSecond();
+
+    /**
+     * Retrieves the deepest iteration the last search completed.
+     *
+     * @return The depth in plies.
+     */
+    int getLastDepth();
+
+    /**
+     * Retrieves the average depth of the searches.
+     *
+     * @return The depth in plies.
+     */
+    double getAverageDepth();
+
+    /**
+     * Retrieves the deepest iteration any search completed.
+     *
+     * @return The depth in plies.
+     */
+    int getMaxDepth();
+
+    /**
+     * Retrieves the fraction of transposition table probes that found their position.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    double getHashHitRate();
+
+    /**
+     * Retrieves the hash hit rate of the last search.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    double getLastHashHitRate();
+
+    /**
+     * Retrieves the number of transposition table hits whose entry turned out to belong to
+     * another position with the same key.
+     *
+     * @return The collision count.
+     */
+    long getHashCollisions();
+
+    /**
+     * Retrieves the estimated time the engine spent evaluating positions.
+     *
+     * @return The time in milliseconds.
+     */
+    long getEvaluationMillis();
+
+    /**
+     * Retrieves the estimated time the engine spent generating and ordering moves.
+     *
+     * @return The time in milliseconds.
+     */
+    long getGenerationMillis();
+
+    /**
+     * Retrieves the median time the AI player took to answer a move.
+     *
+     * @return An upper bound of the median in milliseconds: a power of two, or the longest time.
+     */
+    long getLatencyMedianMillis();
+
+    /**
+     * Retrieves the 99th percentile of the time the AI player took to answer a move.
+     *
+     * @return An upper bound of the percentile in milliseconds: a power of two, or the longest time.
+     */
+    long getLatency99Millis();
+
+    /**
+     * Retrieves the longest time the AI player took to answer a move.
+     *
+     * @return The time in milliseconds.
+     */
+    long getMaxLatencyMillis();
+
+    /**
+     * Retrieves the distribution of the time the AI player took to answer a move.
+     *
+     * @return The move counts per bucket: bucket 0 holds answers under a millisecond and bucket
+     *         b those from 2^(b-1) up to 2^b milliseconds.
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Sets every figure back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,63 @@
+package omok.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Timespan;
+
+/**
+ * The `SearchEvent` class is the JDK Flight Recorder event of one move chosen by an AI player,
+ * so that the engine's work shows up on the same timeline as the garbage collector, the JIT and
+ * the threads. The event lasts from the AI player's turn to its move. Like every JFR event it
+ * costs nothing unless a recording enables it, e.g. with
+ * {@code java -XX:StartFlightRecording:filename=omok.jfr ...}.
+ */
+@Name("omok.Search")
+@Label("Search")
+@Category("Omok")
+@Description("A move chosen by an AI player")
+public class SearchEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Source")
+    @Description("How the move was found: search, book or ponder")
+    public String source;
+
+    @Label("Move")
+    @Description("The board index of the move, or -1 if none was found")
+    public int move;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Depth")
+    @Description("The deepest completed iteration")
+    public int depth;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Nodes per Second")
+    @Frequency
+    public long nodesPerSecond;
+
+    @Label("Hash Hit Rate")
+    @Percentage
+    public double hashHitRate;
+
+    @Label("Evaluation Time")
+    @Description("The estimated time spent evaluating positions")
+    @Timespan(Timespan.NANOSECONDS)
+    public long evaluationTime;
+
+    @Label("Move Generation Time")
+    @Description("The estimated time spent generating and ordering moves")
+    @Timespan(Timespan.NANOSECONDS)
+    public long generationTime;
+}
@@ -0,0 +1,275 @@
+package omok.puzzle;
+
+import omok.Game;
+import omok.Position;
+import omok.engine.ProofNumberSolver;
+import omok.engine.ProofResult;
+import omok.record.GameRecord;
+import omok.record.Notation;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The `PuzzleBatch` class solves a collection of puzzles with the {@link ProofNumberSolver},
+ * without a user interface and on every core, for example overnight.
+ *
+ * <p>The collection is a text file with one puzzle per line: the moves leading to the position
+ * in algebraic notation (see {@link Notation}), white first. The puzzle is solved for the side
+ * whose turn it is. Blank lines and lines starting with {@code #} are skipped. Each thread has
+ * its own solver and proof table, so the memory used is the table size times the number of
+ * threads.
+ *
+ * <p>One CSV line is written per puzzle as soon as it is solved. The columns are the line number
+ * of the puzzle, the side to move, the result ({@code win}, {@code loss}, {@code unknown}, or
+ * {@code invalid} if the moves cannot be played), the first move of the proving line, the whole
+ * line, the number of nodes and the time in milliseconds.
+ *
+ * <p>Example: {@code java omok.puzzle.PuzzleBatch --in puzzles.txt --nodes 10000000 --out solved.csv}
+ */
+public class PuzzleBatch {
+
+    private static final String HEADER = "puzzle,side,result,move,line,nodes,ms";
+
+    private int size = Game.DEFAULT_SIZE;
+    private int winLength = Game.DEFAULT_WIN_LENGTH;
+    private int rules = Position.FREESTYLE;
+    private long nodeLimit = 1_000_000;
+    private int megabytes = 64;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int wins;
+    private int losses;
+    private int unknown;
+    private int invalid;
+    private long nodes;
+
+    /**
+     * Sets the size of the board.
+     *
+     * @param size The number of intersections on each side.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Sets the number of stones in a row needed to win.
+     *
+     * @param winLength The win length.
+     */
+    public void setWinLength(int winLength) {
+        this.winLength = winLength;
+    }
+
+    /**
+     * Sets the rules the puzzles are solved under.
+     *
+     * @param rules {@link Position#FREESTYLE} or {@link Position#RENJU}.
+     */
+    public void setRules(int rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Sets the node budget of each puzzle.
+     *
+     * @param nodeLimit The maximum number of positions to expand per puzzle.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the memory of the proof table of each thread.
+     *
+     * @param megabytes The table size in megabytes.
+     */
+    public void setTableSize(int megabytes) {
+        this.megabytes = megabytes;
+    }
+
+    /**
+     * Sets the number of puzzles solved at the same time. The default keeps every core busy.
+     *
+     * @param threads The number of solver threads, at least 1.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Solves the puzzles, writing a header line and then one line per solved puzzle.
+     *
+     * @param puzzles The lines of the collection, numbered from 1.
+     * @param out     The destination of the results; each line is flushed as it is written.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for puzzles.
+     */
+    public void run(List<String> puzzles, Writer out) throws InterruptedException {
+        PrintWriter results = new PrintWriter(out);
+        results.println(HEADER);
+        results.flush();
+        ThreadLocal<ProofNumberSolver> solvers = ThreadLocal.withInitial(() -> new ProofNumberSolver(this.megabytes));
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "omok-puzzle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < puzzles.size(); i++) {
+                String moves = puzzles.get(i).trim();
+                if (moves.isEmpty() || moves.startsWith("#")) {
+                    continue;
+                }
+                int number = i + 1;
+                futures.add(pool.submit(() -> solve(number, moves, solvers.get(), results)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A puzzle failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Solves one puzzle and writes its result line. */
+    private void solve(int number, String moves, ProofNumberSolver solver, PrintWriter results) {
+        GameRecord record;
+        Position position;
+        try {
+            record = Notation.parseAlgebraic(moves, this.size, this.winLength);
+            position = record.toPosition();
+            position.setRules(this.rules);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Puzzle " + number + ": " + e.getMessage());
+            record(number, "", "invalid", "", "", null, results);
+            return;
+        }
+        int side = GameRecord.colorOf(record.moveCount());
+        ProofResult result = solver.solve(position, side, this.nodeLimit);
+        StringBuilder line = new StringBuilder();
+        for (int move : result.getLine()) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(Notation.toAlgebraic(position.x(move), position.y(move), this.size));
+        }
+        String first = result.getMove() == -1 ? ""
+                : Notation.toAlgebraic(position.x(result.getMove()), position.y(result.getMove()), this.size);
+        record(number, side == Position.WHITE ? "white" : "black", ProofResult.nameOf(result.getOutcome()),
+                first, line.toString(), result, results);
+    }
+
+    private synchronized void record(int number, String side, String outcome, String move, String line,
+                                     ProofResult result, PrintWriter results) {
+        switch (outcome) {
+            case "win":
+                this.wins++;
+                break;
+            case "loss":
+                this.losses++;
+                break;
+            case "unknown":
+                this.unknown++;
+                break;
+            default:
+                this.invalid++;
+        }
+        long nodes = result == null ? 0 : result.getNodes();
+        long millis = result == null ? 0 : result.getTimeMillis();
+        this.nodes += nodes;
+        results.printf("%d,%s,%s,%s,%s,%d,%d%n", number, side, outcome, move, line, nodes, millis);
+        results.flush();
+    }
+
+    /**
+     * Retrieves a one-line summary of the puzzles solved so far.
+     *
+     * @return The number of wins, losses, unknown and invalid puzzles and the nodes expanded.
+     */
+    public synchronized String summary() {
+        return String.format("%d puzzles: %d wins, %d losses, %d unknown, %d invalid, %d nodes",
+                this.wins + this.losses + this.unknown + this.invalid,
+                this.wins, this.losses, this.unknown, this.invalid, this.nodes);
+    }
+
+    /**
+     * Solves a collection from the command line and prints the summary to standard error.
+     *
+     * <p>Options: {@code --in FILE} (required), {@code --out FILE} (standard output by default),
+     * {@code --size N}, {@code --win N}, {@code --rules freestyle|renju}, {@code --nodes N} per
+     * puzzle, {@code --table MB} per thread and {@code --threads N}.
+     *
+     * @param args The command-line options.
+     * @throws IOException          If the collection cannot be read or the output written.
+     * @throws InterruptedException If the batch is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String in = null;
+        String out = null;
+        PuzzleBatch batch = new PuzzleBatch();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--in":
+                    in = value;
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--rules":
+                    if (!value.equals("freestyle") && !value.equals("renju")) {
+                        throw new IllegalArgumentException("Expected freestyle or renju: " + value);
+                    }
+                    batch.setRules(value.equals("renju") ? Position.RENJU : Position.FREESTYLE);
+                    break;
+                case "--size":
+                    batch.setSize(Integer.parseInt(value));
+                    break;
+                case "--win":
+                    batch.setWinLength(Integer.parseInt(value));
+                    break;
+                case "--nodes":
+                    batch.setNodeLimit(Long.parseLong(value));
+                    break;
+                case "--table":
+                    batch.setTableSize(Integer.parseInt(value));
+                    break;
+                case "--threads":
+                    batch.setThreads(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (in == null) {
+            throw new IllegalArgumentException("Usage: PuzzleBatch --in FILE [--out FILE] [--size N] [--win N]"
+                    + " [--rules freestyle|renju] [--nodes N] [--table MB] [--threads N]");
+        }
+        List<String> puzzles = Files.readAllLines(Path.of(in));
+        try (Writer writer = out == null ? new OutputStreamWriter(System.out) : new FileWriter(out)) {
+            batch.run(puzzles, writer);
+        }
+        System.err.println(batch.summary());
+    }
+}
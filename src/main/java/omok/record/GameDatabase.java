@@ -0,0 +1,324 @@
+package omok.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The `GameDatabase` class reads a file of game records through memory-mapped buffers, so that
+ * millions of games can be scanned without copying them onto the heap.
+ *
+ * <p>The file starts with a 32-byte header: the magic {@code OMOKGDB1}, the number of games, the
+ * offset of the index and 8 reserved bytes. The records follow in {@link GameRecord} binary form,
+ * and the index closes the file with one 16-byte entry per game:
+ * <pre>
+ *   u64 offset    where the record starts
+ *   u16 size, u8 winLength, u8 rules, u8 result, u8 reserved, u16 moves
+ * </pre>
+ * The entry repeats the header of its record, so filtering on the size, the rules, the result or
+ * the length only touches the index. The accessors that take a game and a ply read single moves
+ * straight from the mapping and allocate nothing.
+ *
+ * <p>Files are written with a {@link Writer}, which keeps the index in memory and appends it when
+ * it is closed. A database is safe to read from several threads.
+ */
+public class GameDatabase implements Closeable {
+
+    private static final long MAGIC = 0x4F4D4F4B47444231L;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+
+    /**
+     * Files are mapped in segments of this size, each overlapping the next by one maximal record
+     * so that an index entry or a record never straddles two mappings.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long OVERLAP = GameRecord.HEADER_BYTES + 2L * GameRecord.MAX_MOVES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int count;
+    private final long indexOffset;
+
+    private GameDatabase(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long length = channel.size();
+        int segmentCount = (int) Math.max(1, (length + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long end = Math.min(length, start + (1L << SEGMENT_SHIFT) + OVERLAP);
+            this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+        if (length < HEADER_BYTES || this.segments[0].getLong(0) != MAGIC) {
+            throw new IOException("Not a game database");
+        }
+        long games = this.segments[0].getLong(8);
+        this.indexOffset = this.segments[0].getLong(16);
+        if (games < 0 || games > Integer.MAX_VALUE || this.indexOffset < HEADER_BYTES
+                || this.indexOffset + games * ENTRY_BYTES != length) {
+            throw new IOException("Corrupt game database header");
+        }
+        this.count = (int) games;
+    }
+
+    /**
+     * Opens a database for reading.
+     *
+     * @param path The database file.
+     * @return The open database.
+     * @throws IOException If the file cannot be read or is not a database.
+     */
+    public static GameDatabase open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GameDatabase(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the number of games.
+     *
+     * @return The number of games in the database.
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * Reads a whole game.
+     *
+     * @param game The 0-based number of the game.
+     * @return The record of the game.
+     */
+    public GameRecord get(int game) {
+        long offset = recordOffset(game);
+        return GameRecord.read(segment(offset), local(offset));
+    }
+
+    /**
+     * Retrieves the board size of a game from the index.
+     *
+     * @param game The 0-based number of the game.
+     * @return The number of intersections on each side, or 0 for an unbounded board.
+     */
+    public int size(int game) {
+        long entry = entryOffset(game) + 8;
+        return segment(entry).getChar(local(entry));
+    }
+
+    /**
+     * Retrieves the number of stones in a row needed to win a game from the index.
+     *
+     * @param game The 0-based number of the game.
+     * @return The win length.
+     */
+    public int winLength(int game) {
+        return indexByte(game, 10);
+    }
+
+    /**
+     * Retrieves the rules of a game from the index.
+     *
+     * @param game The 0-based number of the game.
+     * @return The rules, e.g. {@link GameRecord#FREESTYLE}.
+     */
+    public int rules(int game) {
+        return indexByte(game, 11);
+    }
+
+    /**
+     * Retrieves the result of a game from the index.
+     *
+     * @param game The 0-based number of the game.
+     * @return The result, e.g. {@link GameRecord#WHITE_WINS}.
+     */
+    public int result(int game) {
+        return indexByte(game, 12);
+    }
+
+    /**
+     * Retrieves the number of moves of a game from the index.
+     *
+     * @param game The 0-based number of the game.
+     * @return The number of moves.
+     */
+    public int moveCount(int game) {
+        long entry = entryOffset(game) + 14;
+        return segment(entry).getChar(local(entry));
+    }
+
+    /**
+     * Reads the column of one move without decoding the rest of the game.
+     *
+     * @param game The 0-based number of the game.
+     * @param ply  The 0-based number of the move, less than {@link #moveCount(int)}.
+     * @return The column of the move.
+     */
+    public int x(int game, int ply) {
+        return GameRecord.unpackX(size(game), move(game, ply));
+    }
+
+    /**
+     * Reads the row of one move without decoding the rest of the game.
+     *
+     * @param game The 0-based number of the game.
+     * @param ply  The 0-based number of the move, less than {@link #moveCount(int)}.
+     * @return The row of the move.
+     */
+    public int y(int game, int ply) {
+        return GameRecord.unpackY(size(game), move(game, ply));
+    }
+
+    /**
+     * Closes the file. The mappings stay valid until they are garbage collected, but the
+     * database must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private int move(int game, int ply) {
+        if (ply < 0 || ply >= moveCount(game)) {
+            throw new IndexOutOfBoundsException("Move " + ply + " of game " + game);
+        }
+        long offset = recordOffset(game) + GameRecord.HEADER_BYTES + 2L * ply;
+        return segment(offset).getChar(local(offset));
+    }
+
+    private int indexByte(int game, int field) {
+        long entry = entryOffset(game) + field;
+        return segment(entry).get(local(entry)) & 0xFF;
+    }
+
+    private long recordOffset(int game) {
+        long entry = entryOffset(game);
+        return segment(entry).getLong(local(entry));
+    }
+
+    private long entryOffset(int game) {
+        if (game < 0 || game >= this.count) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + this.count);
+        }
+        return this.indexOffset + (long) game * ENTRY_BYTES;
+    }
+
+    private ByteBuffer segment(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)];
+    }
+
+    private static int local(long offset) {
+        return (int) (offset & ((1L << SEGMENT_SHIFT) - 1));
+    }
+
+    /**
+     * The `Writer` class creates a game database. Games are appended as they are added, and the
+     * index and the header are written on {@link #close()}; a file that was never closed cannot be
+     * opened. Games may be added from several threads.
+     */
+    public static class Writer implements Closeable {
+
+        private final FileChannel channel;
+        /** Holds at least one record of {@link GameRecord#MAX_MOVES} moves. */
+        private final ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1 << 16, OVERLAP));
+        private long position = HEADER_BYTES;
+        private long[] offsets = new long[1024];
+        private long[] headers = new long[1024];
+        private int count;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Creates a new, empty database, replacing any existing file.
+         *
+         * @param path The database file.
+         * @return The writer.
+         * @throws IOException If the file cannot be created.
+         */
+        public static Writer create(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+            return new Writer(channel);
+        }
+
+        /**
+         * Appends a game.
+         *
+         * @param record The game to append.
+         * @throws IOException If the file cannot be written.
+         */
+        public synchronized void add(GameRecord record) throws IOException {
+            if (record.encodedLength() > this.buffer.remaining()) {
+                flush();
+            }
+            record.write(this.buffer);
+            // Indexed only once written, so that a failed write leaves no entry behind.
+            if (this.count == this.offsets.length) {
+                this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+                this.headers = Arrays.copyOf(this.headers, this.count * 2);
+            }
+            this.offsets[this.count] = this.position;
+            this.headers[this.count] = (long) record.size() << 48 | (long) record.winLength() << 40
+                    | (long) record.rules() << 32 | (long) record.result() << 24 | record.moveCount();
+            this.count++;
+            this.position += record.encodedLength();
+        }
+
+        /**
+         * Retrieves the number of games added so far.
+         *
+         * @return The number of games.
+         */
+        public synchronized int count() {
+            return this.count;
+        }
+
+        /**
+         * Writes the index and the header and closes the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (!this.channel.isOpen()) {
+                return;
+            }
+            try {
+                for (int i = 0; i < this.count; i++) {
+                    if (this.buffer.remaining() < ENTRY_BYTES) {
+                        flush();
+                    }
+                    this.buffer.putLong(this.offsets[i]).putLong(this.headers[i]);
+                }
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putLong(MAGIC).putLong(this.count).putLong(this.position).putLong(0).flip();
+                while (header.hasRemaining()) {
+                    this.channel.write(header, header.position());
+                }
+            } finally {
+                this.channel.close();
+            }
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package omok.record;
+
+import omok.BitBoard;
+import omok.Position;
+import omok.SparseBoard;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The `GameRecord` class is an immutable record of one game: the board size, the rules, the
+ * result and the moves, which alternate colours starting with white.
+ *
+ * <p>The binary form is an 8-byte header followed by 2 bytes per move, all big-endian:
+ * <pre>
+ *   u16 size      0 for an unbounded board
+ *   u8  winLength stones in a row needed to win
+ *   u8  rules     {@link #FREESTYLE} or {@link #RENJU}
+ *   u8  result    {@link #UNFINISHED}, {@link #WHITE_WINS}, {@link #BLACK_WINS} or {@link #DRAW}
+ *   u8  reserved  0
+ *   u16 moves     number of moves
+ *   u16 move...   x in the high byte, y in the low byte
+ * </pre>
+ * Coordinates are unsigned on a bounded board, so boards up to 256 intersections a side can be
+ * recorded. On an unbounded board they are signed and must lie within 128 of the centre.
+ */
+public final class GameRecord {
+
+    /** The game has not ended. */
+    public static final int UNFINISHED = 0;
+
+    /** White, who moves first, completed a line. */
+    public static final int WHITE_WINS = 1;
+
+    /** Black completed a line. */
+    public static final int BLACK_WINS = 2;
+
+    /** The game ended without a winner. */
+    public static final int DRAW = 3;
+
+    /** A line of at least {@code winLength} stones wins, for either colour. */
+    public static final int FREESTYLE = Position.FREESTYLE;
+
+    /** White, who moves first, wins only with exactly five and may not make forbidden moves. */
+    public static final int RENJU = Position.RENJU;
+
+    /** The length of the header preceding the moves. */
+    public static final int HEADER_BYTES = 8;
+
+    /** The largest number of moves a record can hold. */
+    public static final int MAX_MOVES = 0xFFFF;
+
+    /** The largest board side a record can hold. */
+    public static final int MAX_SIZE = 256;
+
+    private final int size;
+    private final int winLength;
+    private final int rules;
+    private final int result;
+    private final char[] moves;
+
+    /**
+     * Creates a new record.
+     *
+     * @param size      The number of intersections on each side, or 0 for an unbounded board.
+     * @param winLength The number of stones in a row needed to win.
+     * @param rules     The rules the game was played under.
+     * @param result    The result of the game.
+     * @param xs        The column of each move.
+     * @param ys        The row of each move.
+     * @throws IllegalArgumentException If a value does not fit the format.
+     */
+    public GameRecord(int size, int winLength, int rules, int result, int[] xs, int[] ys) {
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size out of range: " + size);
+        }
+        if (winLength < 1 || winLength > 0xFF) {
+            throw new IllegalArgumentException("Win length out of range: " + winLength);
+        }
+        if (rules != FREESTYLE && rules != RENJU) {
+            throw new IllegalArgumentException("Unknown rules: " + rules);
+        }
+        if (result < UNFINISHED || result > DRAW) {
+            throw new IllegalArgumentException("Unknown result: " + result);
+        }
+        if (xs.length != ys.length || xs.length > MAX_MOVES) {
+            throw new IllegalArgumentException("Bad move list of " + xs.length + " moves");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.rules = rules;
+        this.result = result;
+        this.moves = new char[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            this.moves[i] = pack(xs[i], ys[i]);
+        }
+    }
+
+    private GameRecord(int size, int winLength, int rules, int result, char[] moves) {
+        this.size = size;
+        this.winLength = winLength;
+        this.rules = rules;
+        this.result = result;
+        this.moves = moves;
+    }
+
+    /**
+     * Records the moves played on a position so far. The result is read from the position: the
+     * winner if a line was completed, a draw if the board is full and unfinished otherwise.
+     *
+     * @param position The position to record.
+     * @return The record of the position.
+     */
+    public static GameRecord of(Position position) {
+        int count = position.stoneCount();
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int move = position.moveAt(i);
+            xs[i] = position.x(move);
+            ys[i] = position.y(move);
+        }
+        return new GameRecord(position.size(), position.winLength(), position.rules(), resultOf(position), xs, ys);
+    }
+
+    /**
+     * Creates a record by playing out a list of moves, which checks that every move is legal and
+     * determines the result.
+     *
+     * @param size      The number of intersections on each side, or 0 for an unbounded board.
+     * @param winLength The number of stones in a row needed to win.
+     * @param xs        The column of each move.
+     * @param ys        The row of each move.
+     * @return The record.
+     * @throws IllegalArgumentException If a move is off the board, on a stone or after the end.
+     */
+    public static GameRecord play(int size, int winLength, int[] xs, int[] ys) {
+        GameRecord record = new GameRecord(size, winLength, FREESTYLE, UNFINISHED, xs, ys);
+        return record.withResult(resultOf(record.toPosition()));
+    }
+
+    /**
+     * Returns a copy of this record with another result, for games ended by adjudication.
+     *
+     * @param result The new result.
+     * @return The record with the given result.
+     */
+    public GameRecord withResult(int result) {
+        if (result < UNFINISHED || result > DRAW) {
+            throw new IllegalArgumentException("Unknown result: " + result);
+        }
+        return new GameRecord(this.size, this.winLength, this.rules, result, this.moves);
+    }
+
+    /**
+     * Retrieves the size of the board.
+     *
+     * @return The number of intersections on each side, or 0 for an unbounded board.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Retrieves the number of stones in a row needed to win.
+     *
+     * @return The win length.
+     */
+    public int winLength() {
+        return this.winLength;
+    }
+
+    /**
+     * Retrieves the rules the game was played under.
+     *
+     * @return The rules, e.g. {@link #FREESTYLE}.
+     */
+    public int rules() {
+        return this.rules;
+    }
+
+    /**
+     * Retrieves the result of the game.
+     *
+     * @return {@link #UNFINISHED}, {@link #WHITE_WINS}, {@link #BLACK_WINS} or {@link #DRAW}.
+     */
+    public int result() {
+        return this.result;
+    }
+
+    /**
+     * Retrieves the number of moves.
+     *
+     * @return The number of moves.
+     */
+    public int moveCount() {
+        return this.moves.length;
+    }
+
+    /**
+     * Retrieves the column of a move.
+     *
+     * @param ply The 0-based number of the move.
+     * @return The column of the move.
+     */
+    public int x(int ply) {
+        return unpackX(this.size, this.moves[ply]);
+    }
+
+    /**
+     * Retrieves the row of a move.
+     *
+     * @param ply The 0-based number of the move.
+     * @return The row of the move.
+     */
+    public int y(int ply) {
+        return unpackY(this.size, this.moves[ply]);
+    }
+
+    /**
+     * Plays the moves on a new position: a {@link BitBoard} for a bounded board and a
+     * {@link SparseBoard} for an unbounded one.
+     *
+     * @return The position after the last move.
+     * @throws IllegalArgumentException If a move is off the board, on a stone, forbidden by the rules
+     *                                  or after the end.
+     */
+    public Position toPosition() {
+        Position position = this.size == 0 ? new SparseBoard(0) : new BitBoard(this.size);
+        position.setWinLength(this.winLength);
+        position.setRules(this.rules);
+        for (int ply = 0; ply < this.moves.length; ply++) {
+            int x = x(ply);
+            int y = y(ply);
+            if (!position.contains(x, y) || !position.isEmpty(position.index(x, y))
+                    || position.isForbidden(position.index(x, y), colorOf(ply))) {
+                throw new IllegalArgumentException("Illegal move " + (ply + 1) + " at " + x + "," + y);
+            }
+            if (position.winner() != Position.EMPTY) {
+                throw new IllegalArgumentException("Move " + (ply + 1) + " follows the end of the game");
+            }
+            position.place(position.index(x, y), colorOf(ply));
+        }
+        return position;
+    }
+
+    /**
+     * Retrieves the colour that plays a move.
+     *
+     * @param ply The 0-based number of the move.
+     * @return {@link Position#WHITE} for even plies and {@link Position#BLACK} for odd ones.
+     */
+    public static int colorOf(int ply) {
+        return (ply & 1) == 0 ? Position.WHITE : Position.BLACK;
+    }
+
+    /**
+     * Retrieves the length of the binary form.
+     *
+     * @return The number of bytes {@link #write(ByteBuffer)} writes.
+     */
+    public int encodedLength() {
+        return HEADER_BYTES + 2 * this.moves.length;
+    }
+
+    /**
+     * Writes the binary form at the position of a buffer and advances it.
+     *
+     * @param buffer The buffer, with at least {@link #encodedLength()} bytes remaining.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putShort((short) this.size);
+        buffer.put((byte) this.winLength);
+        buffer.put((byte) this.rules);
+        buffer.put((byte) this.result);
+        buffer.put((byte) 0);
+        buffer.putShort((short) this.moves.length);
+        for (char move : this.moves) {
+            buffer.putChar(move);
+        }
+    }
+
+    /**
+     * Retrieves the binary form.
+     *
+     * @return A new array with the encoded record.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedLength());
+        write(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Reads a record in binary form without moving the position of the buffer.
+     *
+     * @param buffer The buffer.
+     * @param offset The index of the first byte of the record.
+     * @return The record.
+     * @throws IllegalArgumentException If the header is invalid.
+     */
+    public static GameRecord read(ByteBuffer buffer, int offset) {
+        int size = buffer.getChar(offset);
+        int winLength = buffer.get(offset + 2) & 0xFF;
+        int rules = buffer.get(offset + 3) & 0xFF;
+        int result = buffer.get(offset + 4) & 0xFF;
+        int count = buffer.getChar(offset + 6);
+        if (size > MAX_SIZE || winLength == 0 || rules != FREESTYLE && rules != RENJU || result > DRAW) {
+            throw new IllegalArgumentException("Not a game record at offset " + offset);
+        }
+        char[] moves = new char[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = buffer.getChar(offset + HEADER_BYTES + 2 * i);
+        }
+        return new GameRecord(size, winLength, rules, result, moves);
+    }
+
+    /**
+     * Reads a record from its binary form.
+     *
+     * @param bytes The encoded record.
+     * @return The record.
+     * @throws IllegalArgumentException If the bytes are not a record.
+     */
+    public static GameRecord fromBytes(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Truncated game record");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length != HEADER_BYTES + 2 * buffer.getChar(6)) {
+            throw new IllegalArgumentException("Truncated game record");
+        }
+        return read(buffer, 0);
+    }
+
+    /** Decodes the column of a packed move. */
+    static int unpackX(int size, int move) {
+        return size == 0 ? (byte) (move >>> 8) : move >>> 8;
+    }
+
+    /** Decodes the row of a packed move. */
+    static int unpackY(int size, int move) {
+        return size == 0 ? (byte) move : move & 0xFF;
+    }
+
+    private char pack(int x, int y) {
+        int low = this.size == 0 ? Byte.MIN_VALUE : 0;
+        int high = this.size == 0 ? Byte.MAX_VALUE : this.size - 1;
+        if (x < low || x > high || y < low || y > high) {
+            throw new IllegalArgumentException("Move out of range: " + x + "," + y);
+        }
+        return (char) ((x & 0xFF) << 8 | (y & 0xFF));
+    }
+
+    private static int resultOf(Position position) {
+        if (position.winner() == Position.WHITE) {
+            return WHITE_WINS;
+        }
+        if (position.winner() == Position.BLACK) {
+            return BLACK_WINS;
+        }
+        return position.isFull() ? DRAW : UNFINISHED;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameRecord)) {
+            return false;
+        }
+        GameRecord record = (GameRecord) other;
+        return this.size == record.size && this.winLength == record.winLength && this.rules == record.rules
+                && this.result == record.result && Arrays.equals(this.moves, record.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((this.size * 31 + this.winLength) * 31 + this.result) * 31 + Arrays.hashCode(this.moves);
+    }
+
+    @Override
+    public String toString() {
+        return Notation.toGomocup(this).replace('\n', ' ').trim();
+    }
+}
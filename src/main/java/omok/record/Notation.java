@@ -0,0 +1,163 @@
+package omok.record;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The `Notation` class converts game records to and from the common text notations.
+ *
+ * <ul>
+ *   <li>Algebraic, e.g. {@code h8 i9 g7}: a column letter ({@code a} on the left, then
+ *       {@code aa}, {@code ab}, ... past {@code z}) and a row number counted from 1 at the bottom.
+ *       Only bounded boards can be written this way.</li>
+ *   <li>Gomocup, one {@code x,y} move per line with 0-based coordinates from the top left, as
+ *       used by the Gomocup piskvork manager. A third field, such as the colour in a
+ *       {@code BOARD} command, is ignored when reading.</li>
+ * </ul>
+ * Moves alternate colours starting with white in both notations.
+ */
+public final class Notation {
+
+    private static final Pattern ALGEBRAIC_MOVE = Pattern.compile("([a-z]+)(\\d+)");
+    private static final Pattern GOMOCUP_MOVE = Pattern.compile("(-?\\d+),(-?\\d+)(?:,\\d+)?");
+
+    private Notation() {
+    }
+
+    /**
+     * Writes the moves of a record in algebraic notation, separated by spaces.
+     *
+     * @param record The record to write.
+     * @return The moves, e.g. {@code h8 i9 g7}.
+     * @throws IllegalArgumentException If the board is unbounded.
+     */
+    public static String toAlgebraic(GameRecord record) {
+        if (record.size() == 0) {
+            throw new IllegalArgumentException("Algebraic notation needs a bounded board");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int ply = 0; ply < record.moveCount(); ply++) {
+            if (ply > 0) {
+                text.append(' ');
+            }
+            text.append(toAlgebraic(record.x(ply), record.y(ply), record.size()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes one move in algebraic notation.
+     *
+     * @param x    The 0-based column.
+     * @param y    The 0-based row from the top.
+     * @param size The number of intersections on each side of the board.
+     * @return The move, e.g. {@code h8}.
+     */
+    public static String toAlgebraic(int x, int y, int size) {
+        return column(x) + (size - y);
+    }
+
+    /**
+     * Reads moves in algebraic notation and plays them out. Separators between the moves are
+     * optional, so both {@code h8 i9 g7} and {@code h8i9g7} are accepted; letters may be upper
+     * case.
+     *
+     * @param text      The moves.
+     * @param size      The number of intersections on each side of the board.
+     * @param winLength The number of stones in a row needed to win.
+     * @return The record, with the result of the moves.
+     * @throws IllegalArgumentException If the text cannot be read or a move is illegal.
+     */
+    public static GameRecord parseAlgebraic(String text, int size, int winLength) {
+        String moves = text.trim().toLowerCase();
+        Matcher matcher = ALGEBRAIC_MOVE.matcher(moves);
+        int[] xs = new int[8];
+        int[] ys = new int[8];
+        int count = 0;
+        int end = 0;
+        while (matcher.find()) {
+            checkSeparator(moves, end, matcher.start());
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = columnIndex(matcher.group(1));
+            ys[count] = size - Integer.parseInt(matcher.group(2));
+            count++;
+            end = matcher.end();
+        }
+        checkSeparator(moves, end, moves.length());
+        return GameRecord.play(size, winLength, Arrays.copyOf(xs, count), Arrays.copyOf(ys, count));
+    }
+
+    /**
+     * Writes the moves of a record in Gomocup notation.
+     *
+     * @param record The record to write.
+     * @return One {@code x,y} line per move, each ending with a newline.
+     */
+    public static String toGomocup(GameRecord record) {
+        StringBuilder text = new StringBuilder();
+        for (int ply = 0; ply < record.moveCount(); ply++) {
+            text.append(record.x(ply)).append(',').append(record.y(ply)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads moves in Gomocup notation and plays them out. Blank lines are skipped.
+     *
+     * @param text      The moves, one per line.
+     * @param size      The number of intersections on each side of the board, or 0 if unbounded.
+     * @param winLength The number of stones in a row needed to win.
+     * @return The record, with the result of the moves.
+     * @throws IllegalArgumentException If a line cannot be read or a move is illegal.
+     */
+    public static GameRecord parseGomocup(String text, int size, int winLength) {
+        String[] lines = text.split("\\R");
+        int[] xs = new int[lines.length];
+        int[] ys = new int[lines.length];
+        int count = 0;
+        for (String line : lines) {
+            String move = line.replace(" ", "");
+            if (move.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = GOMOCUP_MOVE.matcher(move);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Not a move: " + line);
+            }
+            xs[count] = Integer.parseInt(matcher.group(1));
+            ys[count] = Integer.parseInt(matcher.group(2));
+            count++;
+        }
+        return GameRecord.play(size, winLength, Arrays.copyOf(xs, count), Arrays.copyOf(ys, count));
+    }
+
+    /** Converts a 0-based column to letters: a to z, then aa, ab and so on. */
+    private static String column(int x) {
+        StringBuilder letters = new StringBuilder();
+        for (int n = x + 1; n > 0; n = (n - 1) / 26) {
+            letters.append((char) ('a' + (n - 1) % 26));
+        }
+        return letters.reverse().toString();
+    }
+
+    private static int columnIndex(String letters) {
+        int n = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            n = n * 26 + (letters.charAt(i) - 'a' + 1);
+        }
+        return n - 1;
+    }
+
+    private static void checkSeparator(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c) && c != ',' && c != ';') {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in moves");
+            }
+        }
+    }
+}
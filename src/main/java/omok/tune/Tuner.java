@@ -0,0 +1,392 @@
+package omok.tune;
+
+import omok.BitBoard;
+import omok.Position;
+import omok.engine.EvalWeights;
+import omok.engine.Evaluator;
+import omok.engine.PatternTable;
+import omok.record.GameDatabase;
+import omok.record.GameRecord;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The `Tuner` class fits the static evaluation weights of the {@link Evaluator} to the results
+ * of recorded games, with the Texel method: the evaluation of a position, scaled by a constant K
+ * and squashed by the logistic function, should predict the result of the game for the side to
+ * move. The tuner minimises the mean squared error of that prediction.
+ *
+ * <p>The evaluation is linear in the weights (see {@link Evaluator#lineCounts}), so the gradient
+ * is exact and cheap. Every pass streams the positions straight from memory-mapped
+ * {@link GameDatabase} files, replaying each game on a board, so the data set can be far larger
+ * than the heap. The games are split into chunks that the worker threads take in turn, and each
+ * worker sums its own part of the loss and the gradient.
+ *
+ * <p>Positions from the first plies, and positions in which either side has a four, are skipped:
+ * their outcome follows from the opening or from the next move rather than from the evaluation.
+ * K is fitted first with the starting weights, then the weights are fitted with Adam.
+ *
+ * <p>Example: {@code java omok.tune.Tuner --db games.ogdb --out weights.properties --epochs 200}.
+ * The engines load the file when started with {@code -Domok.weights=weights.properties}.
+ */
+public class Tuner {
+
+    private static final int FEATURES = 2 * PatternTable.CLASSES;
+    private static final int CHUNK = 256;
+
+    private final List<GameDatabase> databases;
+    private final int threads;
+    private int skipPlies = 4;
+    private double k = 0.01;
+
+    /** The tuned values, the own line classes followed by the opponent's. */
+    private final double[] weights = new double[FEATURES];
+
+    /** Whether each weight is tuned; the others keep their starting value. */
+    private final boolean[] tuned = new boolean[FEATURES];
+
+    /**
+     * Creates a tuner.
+     *
+     * @param databases The games to learn from; they stay open until the caller closes them.
+     * @param start     The starting weights.
+     * @param threads   The number of worker threads, at least 1.
+     */
+    public Tuner(List<GameDatabase> databases, EvalWeights start, int threads) {
+        this.databases = databases;
+        this.threads = Math.max(1, threads);
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            this.weights[c] = start.ownLine(c);
+            this.weights[PatternTable.CLASSES + c] = start.opponentLine(c);
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            // A complete line never occurs in a position that is still being played.
+            this.tuned[i] = i % PatternTable.CLASSES != PatternTable.FIVE;
+        }
+    }
+
+    /**
+     * Sets the number of plies at the start of each game that are not used.
+     *
+     * @param plies The number of plies to skip.
+     */
+    public void setSkipPlies(int plies) {
+        this.skipPlies = plies;
+    }
+
+    /**
+     * Retrieves the scaling constant of the evaluation.
+     *
+     * @return K, fitted by {@link #fitScale()}.
+     */
+    public double getScale() {
+        return this.k;
+    }
+
+    /**
+     * Fits K to the current weights by a golden-section search over its logarithm.
+     *
+     * @return The mean squared error with the fitted K.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public double fitScale() throws InterruptedException {
+        double low = Math.log(1e-6);
+        double high = Math.log(1.0);
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double a = high - ratio * (high - low);
+        double b = low + ratio * (high - low);
+        double lossA = pass(Math.exp(a), null).loss();
+        double lossB = pass(Math.exp(b), null).loss();
+        for (int i = 0; i < 30; i++) {
+            if (lossA < lossB) {
+                high = b;
+                b = a;
+                lossB = lossA;
+                a = high - ratio * (high - low);
+                lossA = pass(Math.exp(a), null).loss();
+            } else {
+                low = a;
+                a = b;
+                lossA = lossB;
+                b = low + ratio * (high - low);
+                lossB = pass(Math.exp(b), null).loss();
+            }
+        }
+        this.k = Math.exp((low + high) / 2);
+        return pass(this.k, null).loss();
+    }
+
+    /**
+     * Fits the weights with Adam, one streaming pass per epoch.
+     *
+     * @param epochs The number of passes.
+     * @param rate   The largest change of a weight per epoch.
+     * @return The mean squared error before the last update.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public double tune(int epochs, double rate) throws InterruptedException {
+        double[] first = new double[FEATURES];
+        double[] second = new double[FEATURES];
+        double beta1 = 0.9;
+        double beta2 = 0.999;
+        double loss = Double.NaN;
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] gradient = new double[FEATURES];
+            Pass result = pass(this.k, gradient);
+            loss = result.loss();
+            for (int i = 0; i < FEATURES; i++) {
+                if (!this.tuned[i]) {
+                    continue;
+                }
+                double g = gradient[i] / Math.max(1, result.positions);
+                first[i] = beta1 * first[i] + (1 - beta1) * g;
+                second[i] = beta2 * second[i] + (1 - beta2) * g * g;
+                double m = first[i] / (1 - Math.pow(beta1, epoch));
+                double v = second[i] / (1 - Math.pow(beta2, epoch));
+                this.weights[i] -= rate * m / (Math.sqrt(v) + 1e-12);
+            }
+            System.err.printf("epoch %d: error %.6f over %d positions%n", epoch, loss, result.positions);
+        }
+        return loss;
+    }
+
+    /**
+     * Returns the tuned weights, rounded, with the move ordering values of the given weights.
+     *
+     * @param base The weights to take the move ordering values from.
+     * @return The new weights.
+     */
+    public EvalWeights result(EvalWeights base) {
+        int[] own = new int[PatternTable.CLASSES];
+        int[] opponent = new int[PatternTable.CLASSES];
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            own[c] = (int) Math.round(this.weights[c]);
+            opponent[c] = (int) Math.round(this.weights[PatternTable.CLASSES + c]);
+        }
+        return base.withLineValues(own, opponent);
+    }
+
+    /** The loss summed over one pass. */
+    private static final class Pass {
+        double error;
+        long positions;
+
+        double loss() {
+            return this.positions == 0 ? 0 : this.error / this.positions;
+        }
+    }
+
+    /**
+     * Streams every position once and sums the squared error and, if an array is given, its
+     * gradient with respect to the weights.
+     */
+    private Pass pass(double scale, double[] gradient) throws InterruptedException {
+        long total = 0;
+        for (GameDatabase database : this.databases) {
+            total += database.count();
+        }
+        long games = total;
+        AtomicLong next = new AtomicLong();
+        double[] weights = this.weights.clone();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "omok-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Pass>> futures = new ArrayList<>();
+            List<double[]> gradients = new ArrayList<>();
+            for (int t = 0; t < this.threads; t++) {
+                double[] local = gradient == null ? null : new double[FEATURES];
+                gradients.add(local);
+                futures.add(pool.submit(() -> work(next, games, weights, scale, local)));
+            }
+            Pass sum = new Pass();
+            for (int t = 0; t < this.threads; t++) {
+                Pass part;
+                try {
+                    part = futures.get(t).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A tuning worker failed", e.getCause());
+                }
+                sum.error += part.error;
+                sum.positions += part.positions;
+                if (gradient != null) {
+                    for (int i = 0; i < FEATURES; i++) {
+                        gradient[i] += gradients.get(t)[i];
+                    }
+                }
+            }
+            return sum;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Takes chunks of games until none are left. */
+    private Pass work(AtomicLong next, long games, double[] weights, double scale, double[] gradient) {
+        Evaluator evaluator = new Evaluator();
+        int[] counts = new int[FEATURES];
+        Pass pass = new Pass();
+        for (long chunk = next.getAndAdd(CHUNK); chunk < games; chunk = next.getAndAdd(CHUNK)) {
+            for (long game = chunk; game < Math.min(games, chunk + CHUNK); game++) {
+                replay(game, evaluator, counts, weights, scale, gradient, pass);
+            }
+        }
+        return pass;
+    }
+
+    private void replay(long game, Evaluator evaluator, int[] counts, double[] weights, double scale,
+                        double[] gradient, Pass pass) {
+        GameDatabase database = null;
+        int number = 0;
+        for (GameDatabase candidate : this.databases) {
+            if (game < candidate.count()) {
+                database = candidate;
+                number = (int) game;
+                break;
+            }
+            game -= candidate.count();
+        }
+        int result = database.result(number);
+        int size = database.size(number);
+        if (result == GameRecord.UNFINISHED || size == 0 || database.rules(number) != GameRecord.FREESTYLE) {
+            return;
+        }
+        Position position = new BitBoard(size);
+        position.setWinLength(database.winLength(number));
+        int moves = database.moveCount(number);
+        for (int ply = 0; ply < moves; ply++) {
+            int side = GameRecord.colorOf(ply);
+            if (ply >= this.skipPlies) {
+                evaluator.lineCounts(position, side, counts);
+                if (quiet(counts)) {
+                    double eval = 0;
+                    for (int i = 0; i < FEATURES; i++) {
+                        eval += weights[i] * feature(counts, i);
+                    }
+                    double predicted = 1 / (1 + Math.exp(-scale * eval));
+                    double actual = score(result, side);
+                    double error = predicted - actual;
+                    pass.error += error * error;
+                    pass.positions++;
+                    if (gradient != null) {
+                        double slope = 2 * error * predicted * (1 - predicted) * scale;
+                        for (int i = 0; i < FEATURES; i++) {
+                            gradient[i] += slope * feature(counts, i);
+                        }
+                    }
+                }
+            }
+            position.place(position.index(database.x(number, ply), database.y(number, ply)), side);
+        }
+    }
+
+    /** The opponent's lines count against the side to move. */
+    private static double feature(int[] counts, int i) {
+        return i < PatternTable.CLASSES ? counts[i] : -counts[i];
+    }
+
+    /** Tests that neither side has a four, which would decide the game within a move or two. */
+    private static boolean quiet(int[] counts) {
+        for (int c = PatternTable.FOUR; c <= PatternTable.FIVE; c++) {
+            if (counts[c] > 0 || counts[PatternTable.CLASSES + c] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The result of a game for one colour: 1 for a win, 0.5 for a draw and 0 for a loss. */
+    private static double score(int result, int color) {
+        if (result == GameRecord.DRAW) {
+            return 0.5;
+        }
+        int winner = result == GameRecord.WHITE_WINS ? Position.WHITE : Position.BLACK;
+        return winner == color ? 1 : 0;
+    }
+
+    /**
+     * Tunes the weights from the command line and writes them to a file.
+     *
+     * <p>Options: {@code --db FILE} (required, repeatable), {@code --out FILE} (required),
+     * {@code --start FILE} (weights to start from, the defaults otherwise), {@code --epochs N}
+     * (100), {@code --rate X} (1.0), {@code --skip PLIES} (4) and {@code --threads N} (every core).
+     *
+     * @param args The command-line options.
+     * @throws IOException          If a file cannot be read or written.
+     * @throws InterruptedException If the tuning is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Path> paths = new ArrayList<>();
+        Path out = null;
+        EvalWeights start = EvalWeights.DEFAULT;
+        int epochs = 100;
+        double rate = 1.0;
+        int skip = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--db":
+                    paths.add(Path.of(value));
+                    break;
+                case "--out":
+                    out = Path.of(value);
+                    break;
+                case "--start":
+                    start = EvalWeights.load(Path.of(value));
+                    break;
+                case "--epochs":
+                    epochs = Integer.parseInt(value);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "--skip":
+                    skip = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (paths.isEmpty() || out == null) {
+            throw new IllegalArgumentException("Usage: Tuner --db FILE [--db FILE...] --out FILE [--start FILE]"
+                    + " [--epochs N] [--rate X] [--skip PLIES] [--threads N]");
+        }
+        List<GameDatabase> databases = new ArrayList<>();
+        try {
+            for (Path path : paths) {
+                databases.add(GameDatabase.open(path));
+            }
+            Tuner tuner = new Tuner(databases, start, threads);
+            tuner.setSkipPlies(skip);
+            double before = tuner.fitScale();
+            System.err.printf("K %.6g, error %.6f%n", tuner.getScale(), before);
+            double after = tuner.tune(epochs, rate);
+            EvalWeights tuned = tuner.result(start);
+            tuned.store(out, String.format("Tuned from %s: K %.6g, error %.6f -> %.6f", paths, tuner.getScale(),
+                    before, after));
+            System.err.println(tuned);
+        } finally {
+            for (GameDatabase database : databases) {
+                database.close();
+            }
+        }
+    }
+}
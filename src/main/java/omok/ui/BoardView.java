@@ -2,32 +2,74 @@ package omok.ui;
 
 import omok.Board;
 import omok.Game;
+import omok.Player;
+import omok.Position;
 import omok.util.ButtonClickListener;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 /**
  * The `BoardView` class represents the visual representation of the Omok (Gomoku) game board and provides
  * user interaction capabilities.
+ *
+ * <p>The board sits in a scrollable viewport and can be zoomed with Ctrl and the mouse wheel, so boards
+ * of any size fit on screen. The grid is drawn from one cached cell image and stones from pre-rendered
+ * sprites, both rebuilt only when the zoom changes. Painting and hit-testing only touch the
+ * intersections inside the visible rectangle, and placing a stone or moving the hover marker repaints
+ * only the intersections concerned.
+ *
+ * <p>Under Renju rules the intersections the player to move may not play are marked with a red cross
+ * and ignore clicks.
  */
 public class BoardView extends JPanel{
 
     private final ui ui;
 
     private final JFrame frame;
-    private final JButton[][] cells;
+    private final JScrollPane scrollPane;
+    private final JLabel turnLabel = new JLabel();
 
     private final Game game;
     private final Board board;
     private final int size;
 
-    private final int step = 20;
+    private final Font turnFont = new Font("Arial", Font.PLAIN, 20);
+    private boolean thinking;
+
+    /** Smallest and largest distance between grid lines, in pixels. */
+    private static final int MIN_STEP = 4;
+    private static final int MAX_STEP = 60;
+
+    private int step = 20;
     private final int xmargin = 20;
     private final int ymargin = 20;
 
+    private BufferedImage whiteStone;
+    private BufferedImage blackStone;
+    private BufferedImage hoverStone;
+    private BufferedImage cellTile;
+    private BufferedImage forbiddenMark;
+
+    /** Intersections the rules forbid the restricted player, by column and row. */
+    private final boolean[][] forbidden;
+
+    /** Number of stones on the board when {@link #forbidden} was last brought up to date. */
+    private int checkedStones;
+
+    /** Number of intersections marked in {@link #forbidden}. */
+    private int forbiddenCount;
+
+    /** Whether the restricted player is to move, so that forbidden intersections are shown. */
+    private boolean forbiddenShown;
+
+    /** Intersection under the mouse, or -1 if none. */
+    private int hoverI = -1;
+    private int hoverJ = -1;
+
     public int getStep(){return this.step;}
     public int getXMargin(){return this.xmargin;}
     public int getYMargin(){return this.ymargin;}
@@ -47,13 +89,18 @@ public class BoardView extends JPanel{
         this.game = game;
         this.board = this.game.getBoard();
         this.size = this.board.size();
+        this.forbidden = new boolean[this.size][this.size];
 
-        this.frame = new JFrame("Omok");
-        this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        this.frame.setPreferredSize(new Dimension((step*(size-1)) + (2*xmargin), (step*(size-1)) + (4*ymargin) + 2*step));
-        this.frame.add(this);
+        createImages();
 
-        cells = new JButton[this.size][this.size];
+        String rules = this.game.getRules() == Position.RENJU ? ", Renju" : "";
+        this.frame = new JFrame("Omok (" + this.game.getWinLength() + " in a row" + rules + ")");
+        this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        this.scrollPane = new JScrollPane(this);
+        this.scrollPane.getVerticalScrollBar().setUnitIncrement(step);
+        this.scrollPane.getHorizontalScrollBar().setUnitIncrement(step);
+        this.scrollPane.setPreferredSize(fitToScreen(getPreferredSize()));
+        this.frame.add(this.scrollPane);
 
         JMenuBar menuBar = new JMenuBar();
         JMenu gameMenu = new JMenu("Game");
@@ -65,24 +112,33 @@ public class BoardView extends JPanel{
         //ImageIcon icon = new ImageIcon(getClass().getResource("/omok/ui/resources/375.png"));
         //newGameMenuItem.setIcon(icon);
 
-        newGameMenuItem.addActionListener(e -> {
-            frame.dispose();
-            new ModeSelectionScreen();
-        });
+        newGameMenuItem.addActionListener(e -> newGame());
 
         gameMenu.add(newGameMenuItem);
         menuBar.add(gameMenu);
+
+        JMenu viewMenu = new JMenu("View");
+        JMenuItem zoomInMenuItem = new JMenuItem("Zoom In");
+        zoomInMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        zoomInMenuItem.addActionListener(e -> zoom(step + Math.max(1, step/5), viewCentre()));
+        JMenuItem zoomOutMenuItem = new JMenuItem("Zoom Out");
+        zoomOutMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        zoomOutMenuItem.addActionListener(e -> zoom(step - Math.max(1, step/5), viewCentre()));
+        viewMenu.add(zoomInMenuItem);
+        viewMenu.add(zoomOutMenuItem);
+        menuBar.add(viewMenu);
         frame.setJMenuBar(menuBar);
 
         JToolBar toolbar = new JToolBar();
         JButton newGameButton = new JButton("New Game");
         newGameButton.setToolTipText("Start a new game!");
-        newGameButton.addActionListener(e -> {
-            frame.dispose();
-            new ModeSelectionScreen();
-        });
+        newGameButton.addActionListener(e -> newGame());
 
         toolbar.add(newGameButton);
+        toolbar.addSeparator();
+        turnLabel.setFont(turnFont);
+        toolbar.add(turnLabel);
+        updateTurn();
 
         frame.getContentPane().add(toolbar, BorderLayout.NORTH);
 
@@ -92,6 +148,138 @@ public class BoardView extends JPanel{
         this.frame.setVisible(true);
     }
 
+    /**
+     * Cancels any AI search in progress and returns to the mode selection screen.
+     */
+    private void newGame(){
+        this.ui.cancel();
+        frame.dispose();
+        new ModeSelectionScreen();
+    }
+
+    /**
+     * Shows or hides the thinking indicator. While it is shown the board ignores clicks.
+     *
+     * @param thinking `true` while the AI computes a move.
+     */
+    public void setThinking(boolean thinking){
+        this.thinking = thinking;
+        setCursor(Cursor.getPredefinedCursor(thinking ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
+        updateTurn();
+    }
+
+    /**
+     * Repaints an intersection whose stone changed.
+     *
+     * @param i The 0-based column index of the intersection.
+     * @param j The 0-based row index of the intersection.
+     */
+    public void repaintIntersection(int i, int j){
+        repaint(intersectionBounds(i, j));
+    }
+
+    /**
+     * Updates the label that shows whose turn it is and the intersections forbidden to that player.
+     */
+    public void updateTurn(){
+        String turn = this.thinking ? " is thinking..." : "'s Turn";
+        turnLabel.setText(this.ui.getCurrentTurnStr() + turn);
+        updateForbidden();
+    }
+
+    /**
+     * Keeps the intersections forbidden to the restricted player up to date and shows them while
+     * that player is to move. They are looked for again after every new stone, near the
+     * restricted player's stones only, and nothing is done under freestyle rules.
+     */
+    private void updateForbidden(){
+        Player restricted = this.board.restrictedPlayer();
+        if (restricted == null){
+            return;
+        }
+        Position position = this.board.position();
+        if (checkedStones != position.stoneCount()){
+            checkedStones = position.stoneCount();
+            boolean[][] now = new boolean[size][size];
+            for (int index : this.board.forbiddenIntersections(restricted)){
+                now[position.x(index)][position.y(index)] = true;
+            }
+            for (int i = 0; i < size; i++){
+                for (int j = 0; j < size; j++){
+                    if (now[i][j] != forbidden[i][j]){
+                        forbidden[i][j] = now[i][j];
+                        forbiddenCount += now[i][j] ? 1 : -1;
+                        if (forbiddenShown){
+                            repaintIntersection(i, j);
+                        }
+                    }
+                }
+            }
+        }
+        boolean shown = this.ui.getCurrentTurn() == restricted;
+        if (shown != forbiddenShown){
+            forbiddenShown = shown;
+            if (forbiddenCount > 0){
+                repaint();
+            }
+        }
+    }
+
+    /**
+     * Checks whether the player to move may not play on an intersection.
+     *
+     * @param i The 0-based column index of the intersection.
+     * @param j The 0-based row index of the intersection.
+     * @return `true` if the rules forbid the player to move there.
+     */
+    private boolean isForbidden(int i, int j){
+        return forbiddenShown && forbidden[i][j];
+    }
+
+    /**
+     * Changes the zoom, keeping the given point of the board under the same point of the viewport.
+     *
+     * @param newStep The new distance between grid lines, clamped to the supported range.
+     * @param anchor The point to keep in place, in component coordinates.
+     */
+    public void zoom(int newStep, Point anchor){
+        newStep = Math.max(MIN_STEP, Math.min(MAX_STEP, newStep));
+        if (newStep == step){
+            return;
+        }
+        JViewport viewport = scrollPane.getViewport();
+        Point view = viewport.getViewPosition();
+        double scale = (double) newStep / step;
+        int x = (int) Math.round(xmargin + (anchor.x - xmargin) * scale) - (anchor.x - view.x);
+        int y = (int) Math.round(ymargin + (anchor.y - ymargin) * scale) - (anchor.y - view.y);
+
+        step = newStep;
+        createImages();
+        scrollPane.getVerticalScrollBar().setUnitIncrement(step);
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(step);
+        revalidate();
+        viewport.validate();
+        Dimension extent = viewport.getExtentSize();
+        Dimension preferred = getPreferredSize();
+        viewport.setViewPosition(new Point(Math.max(0, Math.min(x, preferred.width - extent.width)),
+                Math.max(0, Math.min(y, preferred.height - extent.height))));
+        repaint();
+    }
+
+    /**
+     * Returns the centre of the visible part of the board, in component coordinates.
+     */
+    private Point viewCentre(){
+        Rectangle visible = scrollPane.getViewport().getViewRect();
+        return new Point(visible.x + visible.width/2, visible.y + visible.height/2);
+    }
+
+    @Override
+    public Dimension getPreferredSize(){
+        int extent = step * (size - 1);
+        return new Dimension(extent + 2*xmargin, extent + 2*ymargin);
+    }
+
     /**
      * Retrieves the JFrame associated with this board view.
      *
@@ -121,136 +309,224 @@ public class BoardView extends JPanel{
     }
 
     /**
-     * Initializes the game board by creating and configuring the buttons on the board for user interaction.
+     * Initializes the game board for user interaction: a single mouse listener maps the pointer
+     * to the nearest intersection, so no component is created per intersection.
      */
     public void initializeBoard(){
-        setLayout(null);
-
-        int height = ((step*(size-1)) + (4*ymargin)) - 28;
-        int yoffset = height - (step * (size - 1)) - ymargin;
-
-        for (int i = 0; i < size; i++){
-            for (int j = 0; j < size; j++){
-                cells[i][j] = new JButton();
-                int buttonSize = step/2;
-                cells[i][j].setPreferredSize(new Dimension(buttonSize, buttonSize));
-                cells[i][j].setContentAreaFilled(true);
-                cells[i][j].setBorder(BorderFactory.createEmptyBorder());
-                cells[i][j].setFocusPainted(false);
-
-                int x = (xmargin + i * step) - step/4;
-                int y = (yoffset + j * step) - step/4;
-                cells[i][j].setBounds(x, y, buttonSize, buttonSize);
-
-                int finalI = i;
-                int finalJ = j;
-                cells[i][j].addMouseListener(new MouseAdapter(){
-                    @Override
-                    public void mouseEntered(MouseEvent e){
-                        if(board.isEmpty(finalI, finalJ)){
-                            buttonHover(cells[finalI][finalJ], true);
-                            repaint();}
-                    }
-                    public void mouseExited(MouseEvent e){
-                        buttonHover(cells[finalI][finalJ], false);
-                        repaint();}
-                });
-
-                int finalJ1 = j;
-                int finalI1 = i;
-                cells[i][j].addActionListener(e -> {
-                    if(board.isEmpty(finalI, finalJ)) {
-                        board.placeStone(finalI1, finalJ1, ui.getCurrentTurn());
-                        System.out.println(ui.getCurrentTurnStr() + " placed a stone at " + finalI1 + "x" + finalJ1);
-                        notifyButtonClickListeners(finalI1, finalJ1);
-                    }
-                });
-                add(cells[i][j]);
+        MouseAdapter mouse = new MouseAdapter(){
+            @Override
+            public void mouseMoved(MouseEvent e){
+                Point p = intersectionAt(e.getX(), e.getY());
+                if (p == null || ui.isThinking() || !board.isEmpty(p.x, p.y) || isForbidden(p.x, p.y)){
+                    setHover(-1, -1);
+                } else if (p.x != hoverI || p.y != hoverJ){
+                    setHover(p.x, p.y);
+                }
             }
-        }
+
+            @Override
+            public void mouseExited(MouseEvent e){
+                setHover(-1, -1);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e){
+                if (e.isControlDown()){
+                    int notches = e.getWheelRotation();
+                    int newStep = notches < 0 ? step + Math.max(1, step/5) : step - Math.max(1, step/5);
+                    zoom(newStep, e.getPoint());
+                } else {
+                    // Let the scroll pane scroll as usual.
+                    scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(BoardView.this, e, scrollPane));
+                }
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e){
+                Point p = intersectionAt(e.getX(), e.getY());
+                if (p != null && SwingUtilities.isLeftMouseButton(e)){
+                    placeStone(p.x, p.y);
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
 
         repaint();
     }
 
+    /**
+     * Places the current player's stone on an intersection clicked by the user and notifies the
+     * listeners, unless the intersection is taken, forbidden by the rules or the AI is thinking.
+     *
+     * @param i The 0-based column index of the intersection.
+     * @param j The 0-based row index of the intersection.
+     */
+    private void placeStone(int i, int j){
+        if(!ui.isThinking() && board.isEmpty(i, j) && !board.isForbidden(i, j, ui.getCurrentTurn())) {
+            setHover(-1, -1);
+            board.placeStone(i, j, ui.getCurrentTurn());
+            repaintIntersection(i, j);
+            System.out.println(ui.getCurrentTurnStr() + " placed a stone at " + i + "x" + j);
+            notifyButtonClickListeners(i, j);
+        }
+    }
 
     /**
-     * Handles button hover effects when the mouse enters or exits a button on the game board.
+     * Maps a point of the component to the intersection whose cell contains it.
      *
-     * @param button The JButton being hovered over.
-     * @param status `true` if the mouse is hovering over the button, `false` if not.
+     * @param x The horizontal coordinate in pixels.
+     * @param y The vertical coordinate in pixels.
+     * @return The column and row of the intersection, or null if the point is off the board.
      */
-    private void buttonHover(JButton button, boolean status){
+    private Point intersectionAt(int x, int y){
+        int i = Math.floorDiv(x - xmargin + step/2, step);
+        int j = Math.floorDiv(y - yoffset() + step/2, step);
+        if (i < 0 || j < 0 || i >= size || j >= size){
+            return null;
+        }
+        return new Point(i, j);
+    }
 
-        button.putClientProperty("hovered", status);
+    /**
+     * Moves the hover marker, repainting only the intersections it leaves and enters.
+     *
+     * @param i The column index of the hovered intersection, or -1 for none.
+     * @param j The row index of the hovered intersection, or -1 for none.
+     */
+    private void setHover(int i, int j){
+        if (hoverI >= 0){
+            repaint(intersectionBounds(hoverI, hoverJ));
+        }
+        hoverI = i;
+        hoverJ = j;
+        if (hoverI >= 0){
+            repaint(intersectionBounds(hoverI, hoverJ));
+        }
     }
 
     @Override
     protected void paintComponent(Graphics g){
         super.paintComponent(g);
 
-        int yoffset = getHeight() - (step * (size - 1)) - ymargin;
-
-        g.setColor(Color.BLACK);
-        g.setFont(new Font("Arial", Font.PLAIN, step));
-        g.drawString((this.ui.getCurrentTurnStr() + "'s Turn"), xmargin, yoffset - 5);
-
         paintBoard(g);
 
-        for (int i = 0; i < size; i++){
-            for (int j = 0; j < size; j++){
-
-                int x = (xmargin + i * step) - step/2;
-                int y = (yoffset + j * step) - step/2;
-                int radius = step;
-
-                boolean isHovered = Boolean.TRUE.equals(cells[i][j].getClientProperty("hovered"));
-                if (isHovered){
-                    g.setColor(Color.BLACK);
-                    g.drawOval(x, y, radius, radius);
-                    g.setColor(Color.RED);
-                    g.fillOval(x, y, radius, radius);
-                }
-            }
+        if (hoverI >= 0 && this.board.isEmpty(hoverI, hoverJ)){
+            g.drawImage(hoverStone, (xmargin + hoverI * step) - step/2, (yoffset() + hoverJ * step) - step/2, null);
         }
     }
 
     /**
-     * Paints the game board, including grid lines and stones, on the board view.
+     * Paints the game board, including grid lines and stones, on the board view. Only the cells
+     * and stones inside the clip of the graphics context are drawn.
      *
      * @param g The graphics context on which to paint the game board.
      */
     public void paintBoard(Graphics g){
-        int yoffset = getHeight() - (step * (size - 1)) - ymargin;
-
-        g.setColor(Color.YELLOW);
-        g.fillRect(this.xmargin, yoffset, ((size-1)*step), ((size-1)*step));
-
-        g.setColor(Color.BLACK);
-        for(int i = 0; i <= (size-1); i++){
-            int x = xmargin + (i * step);
-            int y = yoffset + (i * step);
-            g.drawLine(xmargin, y, xmargin + ((size-1) * step), y);
-            g.drawLine(x, yoffset, x, yoffset + ((size-1) * step));
+        int yoffset = yoffset();
+        int last = size - 1;
+
+        Rectangle clip = g.getClipBounds();
+        int minI = 0, maxI = last, minJ = 0, maxJ = last;
+        if (clip != null){
+            minI = Math.max(minI, Math.floorDiv(clip.x - xmargin - step/2 - 1, step));
+            maxI = Math.min(maxI, Math.floorDiv(clip.x + clip.width - xmargin + step/2, step));
+            minJ = Math.max(minJ, Math.floorDiv(clip.y - yoffset - step/2 - 1, step));
+            maxJ = Math.min(maxJ, Math.floorDiv(clip.y + clip.height - yoffset + step/2, step));
         }
 
-        for (int i = 0; i < size; i++){
-            for (int j = 0; j < size; j++){
-
-                int x = (xmargin + i * step) - step/2;
-                int y = (yoffset + j * step) - step/2;
-                int radius = step;
+        // Each tile is the square below and to the right of an intersection, with its top and left lines.
+        for (int i = minI; i <= Math.min(maxI, last - 1); i++){
+            for (int j = minJ; j <= Math.min(maxJ, last - 1); j++){
+                g.drawImage(cellTile, xmargin + i * step, yoffset + j * step, null);
+            }
+        }
+        g.setColor(Color.BLACK);
+        g.drawLine(xmargin + minI * step, yoffset + last * step, xmargin + maxI * step, yoffset + last * step);
+        g.drawLine(xmargin + last * step, yoffset + minJ * step, xmargin + last * step, yoffset + maxJ * step);
 
+        for (int i = minI; i <= maxI; i++){
+            for (int j = minJ; j <= maxJ; j++){
                 if (this.board.isOccupied(i, j)){
-                    g.setColor(Color.BLACK);
-                    g.drawOval(x, y, radius, radius);
-                    if (this.board.isOccupiedBy(i, j, this.game.getWhitePlayer())){
-                        g.setColor(Color.WHITE);
-                    } else {
-                        g.setColor(Color.BLACK);
-                    }
-                    g.fillOval(x, y, radius, radius);
+                    BufferedImage sprite = this.board.isOccupiedBy(i, j, this.game.getWhitePlayer()) ? whiteStone : blackStone;
+                    g.drawImage(sprite, (xmargin + i * step) - step/2, (yoffset + j * step) - step/2, null);
+                } else if (isForbidden(i, j)){
+                    g.drawImage(forbiddenMark, (xmargin + i * step) - step/2, (yoffset + j * step) - step/2, null);
                 }
             }
         }
     }
+
+    /**
+     * Renders the grid tile and the stone sprites for the current zoom.
+     */
+    private void createImages(){
+        whiteStone = createStoneSprite(Color.WHITE);
+        blackStone = createStoneSprite(Color.BLACK);
+        hoverStone = createStoneSprite(Color.RED);
+        forbiddenMark = createForbiddenMark();
+
+        cellTile = new BufferedImage(step, step, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = cellTile.createGraphics();
+        g.setColor(Color.YELLOW);
+        g.fillRect(0, 0, step, step);
+        g.setColor(Color.BLACK);
+        g.drawLine(0, 0, step - 1, 0);
+        g.drawLine(0, 0, 0, step - 1);
+        g.dispose();
+    }
+
+    /**
+     * Renders a stone of the given colour with a black outline, the size of one grid step.
+     */
+    private BufferedImage createStoneSprite(Color color){
+        BufferedImage sprite = new BufferedImage(step + 1, step + 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setColor(Color.BLACK);
+        g.drawOval(0, 0, step, step);
+        g.setColor(color);
+        g.fillOval(0, 0, step, step);
+        g.dispose();
+        return sprite;
+    }
+
+    /**
+     * Renders the red cross marking a forbidden intersection, the size of one grid step.
+     */
+    private BufferedImage createForbiddenMark(){
+        BufferedImage mark = new BufferedImage(step + 1, step + 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = mark.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.RED);
+        g.setStroke(new BasicStroke(Math.max(1, step / 10f)));
+        int inset = step / 4;
+        g.drawLine(inset, inset, step - inset, step - inset);
+        g.drawLine(inset, step - inset, step - inset, inset);
+        g.dispose();
+        return mark;
+    }
+
+    /**
+     * Shrinks a size to fit on the screen, leaving room for the window decorations.
+     */
+    static Dimension fitToScreen(Dimension size){
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        return new Dimension(Math.min(size.width + 4, screen.width * 9 / 10),
+                Math.min(size.height + 4, screen.height * 8 / 10));
+    }
+
+    /**
+     * Returns the area covered by the stone on an intersection.
+     */
+    private Rectangle intersectionBounds(int i, int j){
+        return new Rectangle((xmargin + i * step) - step/2, (yoffset() + j * step) - step/2, step + 1, step + 1);
+    }
+
+    /**
+     * Returns the vertical position of the top grid line.
+     */
+    private int yoffset(){
+        return ymargin;
+    }
 }
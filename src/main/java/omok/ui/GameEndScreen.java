@@ -25,7 +25,7 @@ public class GameEndScreen extends JPanel{
         this.boardView = boardView;
         this.frame = new JFrame("Game Over");
         this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        this.frame.setPreferredSize(new Dimension((boardView.getStep()*(boardView.getBoardSize()-1)) + (2*boardView.getXMargin()), (boardView.getStep()*(boardView.getBoardSize()-1)) + (4*boardView.getYMargin()) + 2*boardView.getStep()));
+        this.frame.setPreferredSize(BoardView.fitToScreen(new Dimension((boardView.getStep()*(boardView.getBoardSize()-1)) + (2*boardView.getXMargin()), (boardView.getStep()*(boardView.getBoardSize()-1)) + (4*boardView.getYMargin()) + 2*boardView.getStep())));
         this.frame.add(this);
 
         JPanel bottomPanel = new JPanel();
@@ -1,57 +1,111 @@
 package omok.ui;
 
 import omok.Game;
+import omok.Position;
+import omok.engine.PatternTable;
 
 import javax.swing.*;
 import java.awt.*;
 
 /**
  * The `ModeSelectionScreen` class represents the main menu of the Omok (Gomoku) game,
- * where players can select the game mode (Player vs. Player or Player vs. AI).
+ * where players can select the game mode (Player vs. Player, Player vs. AI or Player vs. MCTS AI),
+ * the size of the board, the number of stones in a row needed to win and whether Renju rules apply.
  */
 public class ModeSelectionScreen extends JFrame {
 
+    /** Largest board size offered; larger boards are for the headless {@link Game} API. */
+    private static final int MAX_SIZE = 99;
+
+    private final JSpinner sizeSpinner;
+    private final JSpinner winLengthSpinner;
+    private final JCheckBox renjuCheckBox = new JCheckBox("Renju");
+
     /**
      * Constructs a new instance of the `ModeSelectionScreen` class and initializes the user interface.
-     * Players can choose between Player Mode or AI Mode to start the game.
+     * Players can choose between Player Mode, AI Mode or MCTS Mode to start the game, after
+     * choosing the board size, the win length and the rules.
      */
     public ModeSelectionScreen(){
 
-        setTitle("Welcome to Omok! (5-In-A-Row!)");
+        setTitle("Welcome to Omok!");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(300, 150);
+        setSize(400, 200);
 
         JLabel instructionsLabel = new JLabel("<html><center>Select a game mode:<br><br>"
                 + "Player Mode: Play against another player locally.<br>"
-                + "AI Mode: Play against an AI opponent.</center></html>");
+                + "AI Mode: Play against an AI opponent.<br>"
+                + "MCTS Mode: Play against a Monte Carlo AI.</center></html>");
         instructionsLabel.setHorizontalAlignment(SwingConstants.CENTER);
 
+        this.sizeSpinner = new JSpinner(new SpinnerNumberModel(Game.DEFAULT_SIZE, 3, MAX_SIZE, 1));
+        this.winLengthSpinner = new JSpinner(new SpinnerNumberModel(Game.DEFAULT_WIN_LENGTH, 3,
+                PatternTable.MAX_WIN_LENGTH, 1));
+        // A line longer than the board could never be completed.
+        this.sizeSpinner.addChangeListener(e -> {
+            if (winLength() > boardSize()) {
+                this.winLengthSpinner.setValue(boardSize());
+            }
+        });
+        this.winLengthSpinner.addChangeListener(e -> {
+            if (winLength() > boardSize()) {
+                this.sizeSpinner.setValue(winLength());
+            }
+        });
+        JPanel settingsPanel = new JPanel();
+        settingsPanel.add(new JLabel("Board size:"));
+        settingsPanel.add(this.sizeSpinner);
+        settingsPanel.add(new JLabel("In a row:"));
+        settingsPanel.add(this.winLengthSpinner);
+        // Renju is five in a row, with double threes, double fours and overlines forbidden to white.
+        this.renjuCheckBox.setToolTipText("White, who moves first, may not make double threes, double fours or overlines");
+        this.renjuCheckBox.addActionListener(e -> {
+            if (this.renjuCheckBox.isSelected()) {
+                this.winLengthSpinner.setValue(Game.DEFAULT_WIN_LENGTH);
+            }
+            this.winLengthSpinner.setEnabled(!this.renjuCheckBox.isSelected());
+        });
+        settingsPanel.add(this.renjuCheckBox);
+
         JButton playerButton = new JButton("Player");
         JButton aiButton = new JButton("AI");
+        JButton mctsButton = new JButton("MCTS");
 
         playerButton.addActionListener(e -> startGame("Player"));
         aiButton.addActionListener(e -> startGame("AI"));
+        mctsButton.addActionListener(e -> startGame("MCTS"));
         JPanel panel = new JPanel();
         panel.add(playerButton);
         panel.add(aiButton);
+        panel.add(mctsButton);
 
         Container contentPane = getContentPane();
         contentPane.setLayout(new BorderLayout());
         contentPane.add(instructionsLabel, BorderLayout.NORTH);
-        contentPane.add(panel, BorderLayout.CENTER);
-        add(panel);
+        contentPane.add(settingsPanel, BorderLayout.CENTER);
+        contentPane.add(panel, BorderLayout.SOUTH);
 
         setVisible(true);
     }
 
     /**
-     * Starts the Omok game with the specified game mode and disposes of the mode selection screen.
+     * Starts the Omok game with the specified game mode and the chosen board size, win length and
+     * rules, and disposes of the mode selection screen.
      *
-     * @param gamemode The selected game mode ("Player" or "AI").
+     * @param gamemode The selected game mode ("Player", "AI" or "MCTS").
      */
     private void startGame(String gamemode){
         this.dispose();
-        Game game = new Game(20, gamemode);
+        int rules = this.renjuCheckBox.isSelected() ? Position.RENJU : Position.FREESTYLE;
+        Game game = new Game(boardSize(), winLength(), rules, gamemode);
         new ui(game).start();
     }
+
+    private int boardSize() {
+        return (Integer) this.sizeSpinner.getValue();
+    }
+
+    private int winLength() {
+        return (Integer) this.winLengthSpinner.getValue();
+    }
 }
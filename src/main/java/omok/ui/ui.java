@@ -4,18 +4,40 @@ import omok.Board;
 import omok.Game;
 import omok.Player;
 import omok.PlayerComputer;
+import omok.Position;
+import omok.engine.SearchResult;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The ui class represents the user interface for the Omok (Gomoku) game.
  * It provides methods for managing the game's user interface and handling player turns.
+ *
+ * <p>AI moves are computed on a background executor, on virtual threads where the Java runtime
+ * has them, and posted back to the event dispatch thread, so the window stays responsive while
+ * the AI thinks. Board input is locked until the AI has moved. While the human player thinks,
+ * the AI ponders on their expected reply (see {@link PlayerComputer#startPondering()}). The AI
+ * player's metrics are registered over JMX while the game lasts.
  */
 public class ui {
 
+    /** Runs the AI searches of all games. */
+    private static final ExecutorService AI_EXECUTOR = createExecutor();
+
     private final Game game;
     private final Board board;
 
     private Player current;
 
+    /** The AI search in progress, or null; only accessed on the event dispatch thread. */
+    private Future<?> aiTask;
+    private AtomicBoolean aiStop;
+    private boolean cancelled;
+
     /**
      * Creates a new instance of the `ui` class.
      *
@@ -39,6 +61,11 @@ public class ui {
 
         // Add a button click listener to the game board
         boardview.addButtonClickListener((i, j) -> handleButtonClick(boardview, i, j));
+
+        if (game.getBlackPlayer() instanceof PlayerComputer) {
+            PlayerComputer computer = (PlayerComputer) game.getBlackPlayer();
+            computer.getMetrics().register(computer.name());
+        }
     }
 
     /**
@@ -51,29 +78,144 @@ public class ui {
     private void onButtonClick(BoardView boardview, int i, int j) {
         // Check for game over conditions
         if (board.isWonBy(current)){
+            endGame();
             game.setWinner(current);
             boardview.getFrame().dispose();
             new GameEndScreen(game, boardview, current.name());
+            return;
         }
         if (board.isFull()){
+            endGame();
             game.setWinner(new Player(game, "N/A"));
             boardview.getFrame().dispose();
             new GameEndScreen(game, boardview, "draw");
+            return;
         }
 
         // Switch to the next player's turn
         if (current == game.getWhitePlayer()){
             current = game.getBlackPlayer();
 
-            // If the current player is the AI (black player), make the AI move
-            if(game.getGamemode().equals("AI")){
-                PlayerComputer aiplayer = (PlayerComputer) current;
-                aiplayer.makeMove();
-                handleButtonClick(boardview, i, j);
+            // If the current player is the AI (black player), let it think in the background
+            if(current instanceof PlayerComputer){
+                startAiMove(boardview, (PlayerComputer) current, i, j);
             }
         } else {
             current = game.getWhitePlayer();
         }
+        boardview.updateTurn();
+    }
+
+    /**
+     * Copies the board and starts the search for the AI player's move on the background executor,
+     * locking the board until the move has been placed on the event dispatch thread. If the AI
+     * player fails to move, the board is unlocked, the failure is reported and the player is taken
+     * back to the mode selection screen.
+     *
+     * @param boardview The board view to update when the AI has moved.
+     * @param aiplayer The AI player to move.
+     * @param i The column index of the last click.
+     * @param j The row index of the last click.
+     */
+    private void startAiMove(BoardView boardview, PlayerComputer aiplayer, int i, int j) {
+        boardview.setThinking(true);
+        // Copied here, since this thread goes on to check the board for forbidden points.
+        Position position = board.position().copy();
+        AtomicBoolean stop = new AtomicBoolean();
+        aiStop = stop;
+        aiTask = AI_EXECUTOR.submit(() -> {
+            SearchResult computed = null;
+            RuntimeException error = null;
+            try {
+                computed = aiplayer.computeMove(position, stop);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            SearchResult result = computed;
+            RuntimeException searchError = error;
+            SwingUtilities.invokeLater(() -> {
+                aiTask = null;
+                if (cancelled) {
+                    return;
+                }
+                RuntimeException failure = searchError;
+                try {
+                    if (failure == null && result != null) {
+                        aiplayer.applyMove(result);
+                        int move = board.position().lastMove();
+                        boardview.repaintIntersection(board.position().x(move), board.position().y(move));
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    boardview.setThinking(false);
+                }
+                if (failure != null) {
+                    reportFailure(boardview, aiplayer, failure);
+                    return;
+                }
+                handleButtonClick(boardview, i, j);
+                if (game.getWinner() == null) {
+                    aiplayer.startPondering();
+                }
+            });
+        });
+    }
+
+    /**
+     * Tells the user that the AI player could not move, which ends the game, and returns to the
+     * mode selection screen.
+     *
+     * @param boardview The board view of the game.
+     * @param aiplayer The AI player that failed.
+     * @param failure What went wrong.
+     */
+    private void reportFailure(BoardView boardview, PlayerComputer aiplayer, RuntimeException failure) {
+        System.err.println(aiplayer.name() + " failed to move: " + failure);
+        cancel();
+        JOptionPane.showMessageDialog(boardview.getFrame(),
+                aiplayer.name() + " could not move: " + failure.getMessage() + "\nThe game cannot continue.",
+                "Omok", JOptionPane.ERROR_MESSAGE);
+        boardview.getFrame().dispose();
+        new ModeSelectionScreen();
+    }
+
+    /**
+     * Cancels the AI search in progress, if any, for example when a new game is started.
+     * Must be called on the event dispatch thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (aiTask != null) {
+            aiTask.cancel(false);
+            aiStop.set(true);
+            aiTask = null;
+        }
+        endGame();
+    }
+
+    /** Stops the AI player from pondering and removes its metrics from JMX. */
+    private void endGame() {
+        stopPondering();
+        if (game.getBlackPlayer() instanceof PlayerComputer) {
+            ((PlayerComputer) game.getBlackPlayer()).getMetrics().unregister();
+        }
+    }
+
+    /** Stops the AI player from thinking on the human player's time. */
+    private void stopPondering() {
+        if (game.getBlackPlayer() instanceof PlayerComputer) {
+            ((PlayerComputer) game.getBlackPlayer()).stopPondering();
+        }
+    }
+
+    /**
+     * Checks whether the board accepts input, which it does not while the AI is thinking.
+     *
+     * @return `true` if the AI is computing a move.
+     */
+    public boolean isThinking(){
+        return aiTask != null;
     }
 
     /**
@@ -108,4 +250,20 @@ public class ui {
             return "Black";
         }
     }
+
+    /**
+     * Creates the executor for AI searches: a virtual thread per task if the Java runtime
+     * supports it, otherwise a single daemon thread.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "omok-ai");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package omok.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A set of integers taken from a fixed range [0, capacity). Members are
+ * stored densely in an array and a second array records where each member
+ * lives, so adding, removing, membership tests and picking a uniformly
+ * random member all take constant time. Removal swaps the last member into
+ * the freed slot, so the iteration order is not stable.
+ */
+public class IndexedIntSet {
+
+    private final int[] members;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * Creates an empty set for the values 0 (inclusive) to capacity (exclusive).
+     *
+     * @param capacity The number of distinct values the set can hold.
+     */
+    public IndexedIntSet(int capacity) {
+        this.members = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, -1);
+    }
+
+    private IndexedIntSet(IndexedIntSet other) {
+        this.members = other.members.clone();
+        this.positions = other.positions.clone();
+        this.size = other.size;
+    }
+
+    /**
+     * Returns an independent copy of this set.
+     *
+     * @return The copy.
+     */
+    public IndexedIntSet copy() {
+        return new IndexedIntSet(this);
+    }
+
+    /**
+     * Adds a value to the set if it is not already a member.
+     *
+     * @param value The value to add.
+     */
+    public void add(int value) {
+        if (this.positions[value] < 0) {
+            this.positions[value] = this.size;
+            this.members[this.size++] = value;
+        }
+    }
+
+    /**
+     * Removes a value from the set if it is a member.
+     *
+     * @param value The value to remove.
+     */
+    public void remove(int value) {
+        int position = this.positions[value];
+        if (position >= 0) {
+            int last = this.members[--this.size];
+            this.members[position] = last;
+            this.positions[last] = position;
+            this.positions[value] = -1;
+        }
+    }
+
+    /**
+     * Checks whether a value is a member of the set.
+     *
+     * @param value The value to check.
+     * @return `true` if the value is in the set.
+     */
+    public boolean contains(int value) {
+        return this.positions[value] >= 0;
+    }
+
+    /**
+     * Returns the member stored at the given position, for iteration from 0 to size() - 1.
+     *
+     * @param position The position of the member.
+     * @return The member at that position.
+     */
+    public int get(int position) {
+        return this.members[position];
+    }
+
+    /**
+     * Returns a uniformly chosen member of the set.
+     *
+     * @param random The random number generator to draw from.
+     * @return A random member.
+     * @throws IllegalStateException if the set is empty.
+     */
+    public int random(Random random) {
+        if (this.size == 0) {
+            throw new IllegalStateException("The set is empty");
+        }
+        return this.members[random.nextInt(this.size)];
+    }
+
+    /**
+     * Returns the number of members.
+     *
+     * @return The size of the set.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks whether the set has no members.
+     *
+     * @return `true` if the set is empty.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes every member from the set.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.members[i]] = -1;
+        }
+        this.size = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package omok.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from non-negative long keys to int values, stored in two
+ * primitive arrays with open addressing and linear probing. Nothing is
+ * boxed and nothing is allocated except when the table grows, and removal
+ * shifts the following entries back so that no tombstones are left behind.
+ */
+public class LongIntMap {
+
+    private static final long FREE = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     *
+     * @param expected The number of entries the map should hold without growing.
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, FREE);
+    }
+
+    private LongIntMap(LongIntMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+    }
+
+    /**
+     * Returns an independent copy of this map.
+     *
+     * @return The copy.
+     */
+    public LongIntMap copy() {
+        return new LongIntMap(this);
+    }
+
+    /**
+     * Retrieves the value of a key.
+     *
+     * @param key          The key, at least 0.
+     * @param defaultValue The value to return if the key is absent.
+     * @return The value of the key, or the default value.
+     */
+    public int get(long key, int defaultValue) {
+        for (int slot = slot(key); ; slot = (slot + 1) & this.mask) {
+            long stored = this.keys[slot];
+            if (stored == key) {
+                return this.values[slot];
+            }
+            if (stored == FREE) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the map has a value for a key.
+     *
+     * @param key The key, at least 0.
+     * @return `true` if the key is present.
+     */
+    public boolean containsKey(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & this.mask) {
+            long stored = this.keys[slot];
+            if (stored == key) {
+                return true;
+            }
+            if (stored == FREE) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   The key, at least 0.
+     * @param value The value.
+     */
+    public void put(long key, int value) {
+        int slot = slot(key);
+        while (this.keys[slot] != FREE) {
+            if (this.keys[slot] == key) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size * 2 > this.keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key          The key, at least 0.
+     * @param defaultValue The value to return if the key is absent.
+     * @return The value the key had, or the default value.
+     */
+    public int remove(long key, int defaultValue) {
+        int slot = slot(key);
+        while (this.keys[slot] != key) {
+            if (this.keys[slot] == FREE) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        int removed = this.values[slot];
+        // Shift back the entries that probed past the freed slot.
+        int free = slot;
+        for (int next = (free + 1) & this.mask; this.keys[next] != FREE; next = (next + 1) & this.mask) {
+            int home = slot(this.keys[next]);
+            if (((next - home) & this.mask) >= ((next - free) & this.mask)) {
+                this.keys[free] = this.keys[next];
+                this.values[free] = this.values[next];
+                free = next;
+            }
+        }
+        this.keys[free] = FREE;
+        this.size--;
+        return removed;
+    }
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return The number of keys in the map.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes every entry, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, FREE);
+        this.size = 0;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & this.mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new int[oldKeys.length * 2];
+        this.mask = this.keys.length - 1;
+        this.size = 0;
+        Arrays.fill(this.keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package omok;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link BitBoard} against a plain matrix of colours, the representation it replaced.
+ */
+class BitBoardTest {
+
+    /** Plays random moves and takes some back, comparing every intersection after each step. */
+    @Test
+    void placeAndUndoMatchMatrix() {
+        Random random = new Random(1);
+        for (int size : new int[] {1, 5, 15, 19, 40}) {
+            BitBoard board = new BitBoard(size);
+            board.setWinLength(size + 1);
+            int[][] matrix = emptyMatrix(size);
+            int[] history = new int[size * size];
+            int stones = 0;
+            for (int step = 0; step < 4 * size * size; step++) {
+                if (stones > 0 && (stones == size * size || random.nextInt(3) == 0)) {
+                    int index = board.undo();
+                    assertEquals(history[--stones], index);
+                    matrix[board.x(index)][board.y(index)] = Position.EMPTY;
+                } else {
+                    int x;
+                    int y;
+                    do {
+                        x = random.nextInt(size);
+                        y = random.nextInt(size);
+                    } while (matrix[x][y] != Position.EMPTY);
+                    int color = stones & 1;
+                    board.place(board.index(x, y), color);
+                    matrix[x][y] = color;
+                    history[stones++] = board.index(x, y);
+                }
+                assertEquals(stones, board.stoneCount());
+                assertEquals(size * size - stones, board.emptyCount());
+                assertEquals(stones == size * size, board.isFull());
+                assertEquals(stones == 0 ? -1 : history[stones - 1], board.lastMove());
+                assertMatches(matrix, board);
+            }
+        }
+    }
+
+    /**
+     * Plays random games for several win lengths and checks the incrementally detected winner
+     * against a scan of the whole board after every move, as the old {@code isWonBy} did.
+     */
+    @Test
+    void winnerMatchesFullScan() {
+        Random random = new Random(2);
+        for (int winLength : new int[] {2, 3, 4, 5, 6}) {
+            for (int game = 0; game < 200; game++) {
+                int size = 5 + random.nextInt(11);
+                BitBoard board = new BitBoard(size);
+                board.setWinLength(winLength);
+                int[][] matrix = emptyMatrix(size);
+                int winner = Position.EMPTY;
+                for (int ply = 0; winner == Position.EMPTY && ply < size * size; ply++) {
+                    int index = board.randomEmpty(random);
+                    int color = ply & 1;
+                    board.place(index, color);
+                    matrix[board.x(index)][board.y(index)] = color;
+                    winner = scanForWinner(matrix, winLength);
+                    assertEquals(winner, board.winner(), "win length " + winLength + " ply " + ply);
+                }
+                if (winner != Position.EMPTY) {
+                    board.undo();
+                    assertEquals(Position.EMPTY, board.winner());
+                }
+            }
+        }
+    }
+
+    /** A line longer than the win length also wins under freestyle rules. */
+    @Test
+    void overlineWins() {
+        BitBoard board = new BitBoard(15);
+        for (int x : new int[] {0, 1, 2, 4, 5}) {
+            board.place(board.index(x, 7), Position.WHITE);
+        }
+        assertEquals(Position.EMPTY, board.winner());
+        board.place(board.index(3, 7), Position.WHITE);
+        assertEquals(Position.WHITE, board.winner());
+    }
+
+    /** The first win stands even if the other colour completes a line afterwards. */
+    @Test
+    void firstWinStands() {
+        BitBoard board = new BitBoard(9);
+        board.setWinLength(3);
+        for (int x = 0; x < 3; x++) {
+            board.place(board.index(x, 0), Position.WHITE);
+            board.place(board.index(x, 8), Position.BLACK);
+        }
+        assertEquals(Position.WHITE, board.winner());
+        board.undo();
+        assertEquals(Position.WHITE, board.winner());
+        board.undo();
+        assertEquals(Position.EMPTY, board.winner());
+    }
+
+    @Test
+    void indicesRoundTrip() {
+        BitBoard board = new BitBoard(15);
+        for (int x = 0; x < 15; x++) {
+            for (int y = 0; y < 15; y++) {
+                int index = board.index(x, y);
+                assertEquals(x, board.x(index));
+                assertEquals(y, board.y(index));
+                assertTrue(board.contains(x, y));
+            }
+        }
+        assertFalse(board.contains(-1, 0));
+        assertFalse(board.contains(0, 15));
+    }
+
+    /** A run along a column stops at the edge instead of wrapping into the next column. */
+    @Test
+    void runsStopAtTheEdge() {
+        BitBoard board = new BitBoard(9);
+        board.place(board.index(0, 8), Position.WHITE);
+        board.place(board.index(1, 0), Position.WHITE);
+        int down = board.index(0, 1) - board.index(0, 0);
+        assertEquals(0, board.run(Position.WHITE, board.index(0, 8), down));
+        assertEquals(0, board.run(Position.WHITE, board.index(1, 0), -down));
+    }
+
+    @Test
+    void hashDependsOnStonesOnly() {
+        BitBoard board = new BitBoard(15);
+        long empty = board.hash();
+        board.place(board.index(7, 7), Position.WHITE);
+        board.place(board.index(8, 8), Position.BLACK);
+        long twoStones = board.hash();
+        assertNotEquals(empty, twoStones);
+
+        BitBoard other = new BitBoard(15);
+        other.place(other.index(8, 8), Position.BLACK);
+        other.place(other.index(7, 7), Position.WHITE);
+        assertEquals(twoStones, other.hash());
+
+        board.undo();
+        board.undo();
+        assertEquals(empty, board.hash());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        BitBoard board = new BitBoard(15);
+        board.place(board.index(7, 7), Position.WHITE);
+        BitBoard copy = board.copy();
+        copy.place(copy.index(7, 8), Position.BLACK);
+        assertTrue(board.isEmpty(board.index(7, 8)));
+        assertEquals(1, board.stoneCount());
+        assertEquals(2, copy.stoneCount());
+        assertEquals(Position.WHITE, copy.colorAt(copy.index(7, 7)));
+    }
+
+    /** Random draws land on every empty intersection and never on a stone. */
+    @Test
+    void randomEmptyFindsEveryEmptyIntersection() {
+        Random random = new Random(3);
+        BitBoard board = new BitBoard(5);
+        for (int x = 0; x < 5; x++) {
+            board.place(board.index(x, x), Position.WHITE);
+        }
+        boolean[] seen = new boolean[board.cells()];
+        int distinct = 0;
+        for (int i = 0; i < 2_000; i++) {
+            int index = board.randomEmpty(random);
+            assertTrue(board.isEmpty(index));
+            if (!seen[index]) {
+                seen[index] = true;
+                distinct++;
+            }
+        }
+        assertEquals(20, distinct);
+    }
+
+    @Test
+    void clearEmptiesTheBoard() {
+        BitBoard board = new BitBoard(9);
+        for (int x = 0; x < 9; x++) {
+            board.place(board.index(x, 0), x & 1);
+        }
+        board.clear();
+        assertEquals(0, board.stoneCount());
+        assertEquals(81, board.emptyCount());
+        assertEquals(0L, board.hash());
+        assertMatches(emptyMatrix(9), board);
+    }
+
+    @Test
+    void undoOnEmptyBoardFails() {
+        assertThrows(IllegalStateException.class, () -> new BitBoard(15).undo());
+    }
+
+    /** Returns the colour with a line of at least the win length, scanning every intersection. */
+    private static int scanForWinner(int[][] matrix, int winLength) {
+        int size = matrix.length;
+        int[][] steps = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int color = matrix[x][y];
+                if (color == Position.EMPTY) {
+                    continue;
+                }
+                for (int[] step : steps) {
+                    int length = 0;
+                    int i = x;
+                    int j = y;
+                    while (i >= 0 && i < size && j >= 0 && j < size && matrix[i][j] == color) {
+                        length++;
+                        i += step[0];
+                        j += step[1];
+                    }
+                    if (length >= winLength) {
+                        return color;
+                    }
+                }
+            }
+        }
+        return Position.EMPTY;
+    }
+
+    private static int[][] emptyMatrix(int size) {
+        int[][] matrix = new int[size][size];
+        for (int[] column : matrix) {
+            Arrays.fill(column, Position.EMPTY);
+        }
+        return matrix;
+    }
+
+    private static void assertMatches(int[][] matrix, BitBoard board) {
+        for (int x = 0; x < matrix.length; x++) {
+            for (int y = 0; y < matrix.length; y++) {
+                int index = board.index(x, y);
+                int color = matrix[x][y];
+                assertEquals(color, board.colorAt(index), "colour at " + x + "x" + y);
+                assertEquals(color == Position.EMPTY, board.isEmpty(index));
+                assertEquals(color == Position.WHITE, board.has(Position.WHITE, index));
+                assertEquals(color == Position.BLACK, board.has(Position.BLACK, index));
+            }
+        }
+    }
+}
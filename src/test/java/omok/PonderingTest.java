@@ -0,0 +1,169 @@
+package omok;
+
+import omok.engine.Engine;
+import omok.engine.ParallelSearch;
+import omok.engine.SearchLimits;
+import omok.engine.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link PlayerComputer} takes its move from the pondering search when the opponent
+ * plays the predicted reply, searches again when it does not, and that pondering can be stopped.
+ */
+class PonderingTest {
+
+    /**
+     * An engine that records the positions it searches and always predicts the same reply. Once
+     * set to block, it searches until it is stopped.
+     */
+    private static final class ScriptedEngine implements Engine {
+
+        final List<Long> searched = new ArrayList<>();
+        final int prediction;
+        volatile boolean blocking;
+        private volatile int finished;
+
+        ScriptedEngine(int prediction) {
+            this.prediction = prediction;
+        }
+
+        @Override
+        public SearchResult search(Position position, int side, SearchLimits limits, AtomicBoolean stop) {
+            synchronized (this.searched) {
+                this.searched.add(position.hash());
+            }
+            while (this.blocking && !stop.get()) {
+                Thread.onSpinWait();
+            }
+            int move = position.candidateCount() > 0 ? position.candidateAt(0) : position.randomEmpty(new Random(0));
+            this.finished++;
+            return new SearchResult(move, 0, 1, 1, 0);
+        }
+
+        @Override
+        public int predict(Position position, int side) {
+            return this.prediction;
+        }
+
+        @Override
+        public void setThreads(int threads) {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        List<Long> searched() {
+            synchronized (this.searched) {
+                return new ArrayList<>(this.searched);
+            }
+        }
+    }
+
+    /** A game in which white has opened at 7x7 and the AI, playing black, has answered. */
+    private static Game opened(Engine engine) {
+        Game game = new Game(15, new ScriptedEngine(-1), engine);
+        game.getBoard().placeStone(7, 7, game.getWhitePlayer());
+        PlayerComputer black = (PlayerComputer) game.getBlackPlayer();
+        black.setSearchLimits(SearchLimits.nodes(1_000));
+        black.makeMove();
+        return game;
+    }
+
+    @Test
+    void hitTakesThePonderedMove() {
+        Position empty = new BitBoard(15);
+        ScriptedEngine engine = new ScriptedEngine(empty.index(3, 3));
+        Game game = opened(engine);
+        PlayerComputer black = (PlayerComputer) game.getBlackPlayer();
+        black.startPondering();
+        assertTrue(black.isPondering());
+
+        game.getBoard().placeStone(3, 3, game.getWhitePlayer());
+        SearchResult result = black.computeMove();
+        assertNotNull(result);
+        assertFalse(black.isPondering());
+        List<Long> searched = engine.searched();
+        // The reply to white's first stone, then the pondered position and no fresh search.
+        assertEquals(2, searched.size());
+        assertEquals(game.getBoard().position().hash(), searched.get(1).longValue());
+        assertTrue(game.getBoard().position().isEmpty(result.getMove()));
+    }
+
+    @Test
+    void missSearchesAgain() {
+        Position empty = new BitBoard(15);
+        ScriptedEngine engine = new ScriptedEngine(empty.index(3, 3));
+        Game game = opened(engine);
+        PlayerComputer black = (PlayerComputer) game.getBlackPlayer();
+        black.startPondering();
+
+        game.getBoard().placeStone(11, 11, game.getWhitePlayer());
+        long actual = game.getBoard().position().hash();
+        black.computeMove();
+        List<Long> searched = engine.searched();
+        assertEquals(3, searched.size());
+        assertTrue(searched.get(1).longValue() != actual);
+        assertEquals(actual, searched.get(2).longValue());
+    }
+
+    /** The pondering search runs until stopped, even if the stop comes before it has started. */
+    @Test
+    void stopEndsThePonderingSearch() {
+        Position empty = new BitBoard(15);
+        for (int round = 0; round < 20; round++) {
+            ScriptedEngine engine = new ScriptedEngine(empty.index(3, 3));
+            Game game = opened(engine);
+            PlayerComputer black = (PlayerComputer) game.getBlackPlayer();
+            engine.blocking = true;
+            black.startPondering();
+            assertTrue(black.isPondering());
+            black.stopPondering();
+            assertFalse(black.isPondering());
+            assertEquals(engine.searched().size(), engine.finished, "round " + round);
+        }
+    }
+
+    @Test
+    void noPonderingOnceTheGameIsOver() {
+        ScriptedEngine engine = new ScriptedEngine(0);
+        Game game = new Game(15, new ScriptedEngine(-1), engine);
+        for (int x = 0; x < 5; x++) {
+            game.getBoard().placeStone(x, 0, game.getWhitePlayer());
+        }
+        PlayerComputer black = (PlayerComputer) game.getBlackPlayer();
+        black.startPondering();
+        assertFalse(black.isPondering());
+        assertTrue(engine.searched().isEmpty());
+    }
+
+    /** Under a node budget the pondered move is the one a normal search would have found. */
+    @Test
+    void nodeLimitedMoveDoesNotDependOnPondering() {
+        ParallelSearch pondering = new ParallelSearch();
+        ParallelSearch plain = new ParallelSearch();
+        Game withPonder = opened(pondering);
+        Game without = opened(plain);
+        int predicted = pondering.predict(withPonder.getBoard().position(), Position.WHITE);
+        Position position = withPonder.getBoard().position();
+        ((PlayerComputer) withPonder.getBlackPlayer()).startPondering();
+
+        withPonder.getBoard().placeStone(position.x(predicted), position.y(predicted), withPonder.getWhitePlayer());
+        without.getBoard().placeStone(position.x(predicted), position.y(predicted), without.getWhitePlayer());
+        SearchResult pondered = ((PlayerComputer) withPonder.getBlackPlayer()).computeMove();
+        SearchResult searched = ((PlayerComputer) without.getBlackPlayer()).computeMove();
+        assertEquals(searched.getMove(), pondered.getMove());
+        pondering.shutdown();
+        plain.shutdown();
+    }
+}
@@ -0,0 +1,197 @@
+package omok;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the forbidden moves of {@link Renju} on hand-built positions, and the board methods
+ * that keep the restricted player out of them.
+ */
+class RenjuTest {
+
+    /** Places white and black stones given as x, y pairs on a Renju board. */
+    private static BitBoard board(int[] white, int[] black) {
+        BitBoard board = new BitBoard(15);
+        board.setRules(Position.RENJU);
+        for (int i = 0; i < white.length; i += 2) {
+            board.place(board.index(white[i], white[i + 1]), Position.WHITE);
+        }
+        for (int i = 0; i < black.length; i += 2) {
+            board.place(board.index(black[i], black[i + 1]), Position.BLACK);
+        }
+        return board;
+    }
+
+    private static boolean forbidden(Position position, int x, int y) {
+        return position.isForbidden(position.index(x, y), Renju.RESTRICTED);
+    }
+
+    @Test
+    void doubleThree() {
+        BitBoard board = board(new int[] {5, 7, 6, 7, 7, 5, 7, 6}, new int[0]);
+        assertTrue(forbidden(board, 7, 7));
+        // One of the threes blocked on both sides is no three at all.
+        board = board(new int[] {5, 7, 6, 7, 7, 5, 7, 6}, new int[] {4, 7, 8, 7});
+        assertFalse(forbidden(board, 7, 7));
+    }
+
+    @Test
+    void doubleFour() {
+        BitBoard board = board(new int[] {4, 7, 5, 7, 6, 7, 7, 4, 7, 5, 7, 6}, new int[] {3, 7, 7, 3});
+        assertTrue(forbidden(board, 7, 7));
+        // Two fours on a single line: x.x?x.x.
+        board = board(new int[] {4, 7, 6, 7, 8, 7, 10, 7}, new int[0]);
+        assertTrue(forbidden(board, 7, 7));
+    }
+
+    @Test
+    void fourThreeIsAllowed() {
+        BitBoard board = board(new int[] {4, 7, 5, 7, 6, 7, 7, 5, 7, 6}, new int[] {3, 7});
+        assertFalse(forbidden(board, 7, 7));
+    }
+
+    @Test
+    void overline() {
+        BitBoard board = board(new int[] {2, 7, 3, 7, 4, 7, 6, 7, 7, 7}, new int[0]);
+        assertTrue(forbidden(board, 5, 7));
+        board.place(board.index(5, 7), Position.WHITE);
+        assertEquals(Position.EMPTY, board.winner());
+    }
+
+    /** Exactly five wins even if the same move makes two threes. */
+    @Test
+    void fiveOverridesEverything() {
+        BitBoard board = board(new int[] {3, 7, 4, 7, 5, 7, 6, 7, 7, 5, 7, 6, 5, 5, 6, 6}, new int[0]);
+        assertFalse(forbidden(board, 7, 7));
+        board.place(board.index(7, 7), Position.WHITE);
+        assertEquals(Position.WHITE, board.winner());
+    }
+
+    /**
+     * A three whose only straight-four point is itself forbidden, here because it would make an
+     * overline, does not count towards a double three.
+     */
+    @Test
+    void falseThreeDoesNotCount() {
+        int[] white = {5, 7, 6, 7, 7, 5, 7, 6};
+        BitBoard board = board(white, new int[] {3, 7});
+        assertTrue(forbidden(board, 7, 7));
+
+        int[] column = {8, 4, 8, 5, 8, 6, 8, 8, 8, 9};
+        int[] both = new int[white.length + column.length];
+        System.arraycopy(white, 0, both, 0, white.length);
+        System.arraycopy(column, 0, both, white.length, column.length);
+        board = board(both, new int[] {3, 7});
+        assertTrue(forbidden(board, 8, 7));
+        assertFalse(forbidden(board, 7, 7));
+    }
+
+    @Test
+    void onlyTheRestrictedPlayerUnderRenju() {
+        BitBoard board = board(new int[0], new int[] {5, 7, 6, 7, 7, 5, 7, 6, 2, 2, 3, 2, 4, 2, 6, 2, 7, 2});
+        assertFalse(board.isForbidden(board.index(7, 7), Position.BLACK));
+        assertFalse(board.isForbidden(board.index(5, 2), Position.BLACK));
+        board.place(board.index(5, 2), Position.BLACK);
+        assertEquals(Position.BLACK, board.winner());
+
+        board = board(new int[] {5, 7, 6, 7, 7, 5, 7, 6}, new int[0]);
+        board.setRules(Position.FREESTYLE);
+        assertFalse(forbidden(board, 7, 7));
+    }
+
+    @Test
+    void checkLeavesThePositionAlone() {
+        BitBoard board = board(new int[] {5, 7, 6, 7, 7, 5, 7, 6, 8, 4, 8, 5, 8, 6, 8, 8, 8, 9}, new int[] {3, 7});
+        long hash = board.hash();
+        int stones = board.stoneCount();
+        forbidden(board, 7, 7);
+        assertEquals(hash, board.hash());
+        assertEquals(stones, board.stoneCount());
+    }
+
+    @Test
+    void boardRefusesForbiddenStones() {
+        Game game = new Game(15, 5, Position.RENJU, "Player");
+        Board board = game.getBoard();
+        Player white = game.getWhitePlayer();
+        for (int[] stone : new int[][] {{5, 7}, {6, 7}, {7, 5}, {7, 6}}) {
+            board.placeStone(stone[0], stone[1], white);
+        }
+        assertTrue(board.isForbidden(7, 7, white));
+        assertFalse(board.isForbidden(7, 7, game.getBlackPlayer()));
+        assertSame(white, board.restrictedPlayer());
+        assertThrows(IllegalStateException.class, () -> board.placeStone(7, 7, white));
+        board.placeStone(7, 7, game.getBlackPlayer());
+        assertFalse(board.isForbidden(7, 7, white));
+    }
+
+    /** Random stones never land on a forbidden intersection, even on a crowded board. */
+    @Test
+    void randomStonesAreAllowed() {
+        Game game = new Game(9, 5, Position.RENJU, "Player");
+        Board board = game.getBoard();
+        board.setRandom(new Random(24));
+        Player white = game.getWhitePlayer();
+        for (int moves = 0; moves < 40 && game.getBoard().position().winner() == Position.EMPTY; moves++) {
+            Set<Integer> forbidden = new HashSet<>();
+            for (int x = 0; x < 9; x++) {
+                for (int y = 0; y < 9; y++) {
+                    if (board.isForbidden(x, y, white)) {
+                        forbidden.add(board.position().index(x, y));
+                    }
+                }
+            }
+            board.placeRandomStone(white);
+            assertFalse(forbidden.contains(board.position().lastMove()), "move " + moves);
+            if (board.position().winner() == Position.EMPTY) {
+                board.placeRandomStone(game.getBlackPlayer());
+            }
+        }
+    }
+
+    /**
+     * The forbidden intersections the board lists after each move of many random games are
+     * exactly those a check of every empty intersection finds.
+     */
+    @Test
+    void forbiddenIntersectionsMatchAFullScan() {
+        Random random = new Random(5);
+        int found = 0;
+        for (int round = 0; round < 60; round++) {
+            Game game = new Game(9, 5, Position.RENJU, "Player");
+            Board board = game.getBoard();
+            board.setRandom(random);
+            Player white = game.getWhitePlayer();
+            Position position = board.position();
+            for (int moves = 0; position.winner() == Position.EMPTY && !board.isFull(); moves++) {
+                Set<Integer> scanned = new HashSet<>();
+                for (int x = 0; x < 9; x++) {
+                    for (int y = 0; y < 9; y++) {
+                        if (board.isForbidden(x, y, white)) {
+                            scanned.add(position.index(x, y));
+                        }
+                    }
+                }
+                Set<Integer> listed = new HashSet<>();
+                for (int index : board.forbiddenIntersections(white)) {
+                    assertTrue(listed.add(index), "listed twice: " + index);
+                }
+                assertEquals(scanned, listed, "round " + round + " move " + moves);
+                found += listed.size();
+                board.placeRandomStone(moves % 2 == 0 ? white : game.getBlackPlayer());
+            }
+        }
+        assertTrue(found > 100, "only " + found + " forbidden intersections");
+        Game freestyle = new Game(15, 5, Position.FREESTYLE, "Player");
+        assertEquals(0, freestyle.getBoard().forbiddenIntersections(freestyle.getWhitePlayer()).length);
+    }
+}
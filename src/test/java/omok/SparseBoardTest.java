@@ -0,0 +1,155 @@
+package omok;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link SparseBoard} against a {@link BitBoard} playing the same moves, and the
+ * unbounded board on both sides of the origin.
+ */
+class SparseBoardTest {
+
+    /** Lists the candidate moves of a position as sorted {@code x * 100000 + y} keys. */
+    private static long[] candidates(Position position) {
+        long[] result = new long[position.candidateCount()];
+        for (int i = 0; i < result.length; i++) {
+            int index = position.candidateAt(i);
+            result[i] = position.x(index) * 100_000L + position.y(index);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Random games with take-backs leave both boards in the same state after every step. */
+    @Test
+    void matchesBitBoard() {
+        Random random = new Random(17);
+        for (int game = 0; game < 20; game++) {
+            int size = 7 + random.nextInt(13);
+            BitBoard bits = new BitBoard(size);
+            SparseBoard sparse = new SparseBoard(size);
+            int winLength = 3 + random.nextInt(4);
+            bits.setWinLength(winLength);
+            sparse.setWinLength(winLength);
+            for (int step = 0; step < 400; step++) {
+                if (bits.stoneCount() > 0 && (bits.isFull() || bits.winner() != Position.EMPTY || random.nextInt(4) == 0)) {
+                    int index = bits.undo();
+                    assertEquals(sparse.index(bits.x(index), bits.y(index)), sparse.undo());
+                } else {
+                    int index = bits.randomEmpty(random);
+                    int color = bits.stoneCount() & 1;
+                    bits.place(index, color);
+                    sparse.place(sparse.index(bits.x(index), bits.y(index)), color);
+                }
+                String where = "game " + game + " step " + step;
+                assertEquals(bits.stoneCount(), sparse.stoneCount(), where);
+                assertEquals(bits.winner(), sparse.winner(), where);
+                assertEquals(bits.emptyCount(), sparse.emptyCount(), where);
+                assertArrayEquals(candidates(bits), candidates(sparse), where);
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        int color = bits.colorAt(bits.index(x, y));
+                        assertEquals(color, sparse.colorAt(sparse.index(x, y)), where);
+                        if (color == Position.EMPTY) {
+                            assertEquals(bits.completesLine(bits.index(x, y), Position.WHITE),
+                                    sparse.completesLine(sparse.index(x, y), Position.WHITE), where);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void hashReturnsAfterUndo() {
+        SparseBoard board = new SparseBoard(0);
+        long empty = board.hash();
+        board.place(board.index(-3, 4), Position.WHITE);
+        long one = board.hash();
+        board.place(board.index(5, -2), Position.BLACK);
+        assertTrue(board.hash() != one);
+        board.undo();
+        assertEquals(one, board.hash());
+        board.undo();
+        assertEquals(empty, board.hash());
+    }
+
+    @Test
+    void unboundedBoardCrossesTheOrigin() {
+        SparseBoard board = new SparseBoard(0);
+        for (int x = -2; x <= 1; x++) {
+            board.place(board.index(x, -x), Position.WHITE);
+            assertEquals(Position.EMPTY, board.winner());
+        }
+        assertEquals(-2, board.minX());
+        assertEquals(1, board.maxX());
+        assertEquals(-1, board.minY());
+        assertEquals(2, board.maxY());
+        board.place(board.index(2, -2), Position.WHITE);
+        assertEquals(Position.WHITE, board.winner());
+        assertEquals(-2, board.y(board.lastMove()));
+        assertFalse(board.isFull());
+        assertEquals(Integer.MAX_VALUE, board.emptyCount());
+    }
+
+    @Test
+    void unboundedBoardReachesItsLimits() {
+        SparseBoard board = new SparseBoard(0);
+        int limit = SparseBoard.LIMIT;
+        for (int i = 0; i < 5; i++) {
+            board.place(board.index(-limit, limit - i), Position.BLACK);
+        }
+        assertEquals(Position.BLACK, board.winner());
+        // The opposite corner is far away in index space but must not look connected.
+        board.place(board.index(limit, -limit), Position.WHITE);
+        assertEquals(limit, board.x(board.lastMove()));
+        assertEquals(-limit, board.y(board.lastMove()));
+        assertTrue(board.contains(-limit, limit));
+        assertFalse(board.contains(-limit - 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> board.place(board.index(0, limit + 1), Position.WHITE));
+    }
+
+    @Test
+    void randomEmptyStaysNearTheStones() {
+        Random random = new Random(3);
+        SparseBoard board = new SparseBoard(0);
+        assertEquals(board.index(0, 0), board.randomEmpty(random));
+        board.place(board.index(-100, 50), Position.WHITE);
+        for (int i = 0; i < 200; i++) {
+            int index = board.randomEmpty(random);
+            assertTrue(board.isEmpty(index));
+            assertTrue(Math.abs(board.x(index) + 100) <= board.candidateRadius());
+            assertTrue(Math.abs(board.y(index) - 50) <= board.candidateRadius());
+        }
+    }
+
+    @Test
+    void copyIsIndependent() {
+        SparseBoard board = new SparseBoard(0);
+        board.place(board.index(-1, -1), Position.WHITE);
+        SparseBoard copy = board.copy();
+        copy.place(copy.index(0, 0), Position.BLACK);
+        assertEquals(1, board.stoneCount());
+        assertTrue(board.isEmpty(board.index(0, 0)));
+        assertEquals(2, copy.stoneCount());
+        assertFalse(copy.isEmpty(copy.index(0, 0)));
+        assertEquals(24, board.candidateCount());
+    }
+
+    @Test
+    void sizeIsChecked() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseBoard(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SparseBoard(SparseBoard.LIMIT + 1));
+        SparseBoard board = new SparseBoard(9);
+        assertThrows(IllegalArgumentException.class, () -> board.place(board.index(-1, 0), Position.WHITE));
+        assertThrows(IllegalStateException.class, board::undo);
+    }
+}
@@ -0,0 +1,101 @@
+package omok.arena;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link Arena} pairs its games on shared openings with the colours swapped and
+ * writes one well-formed CSV line per game.
+ */
+class ArenaTest {
+
+    /** Plays a small match between two engines and returns the CSV lines, sorted by game number. */
+    private static String[] play(Arena arena) throws InterruptedException {
+        StringWriter out = new StringWriter();
+        arena.run(out);
+        String[] lines = out.toString().split("\\R");
+        String[] sorted = new String[lines.length];
+        sorted[0] = lines[0];
+        for (int i = 1; i < lines.length; i++) {
+            sorted[1 + Integer.parseInt(lines[i].substring(0, lines[i].indexOf(',')))] = lines[i];
+        }
+        return sorted;
+    }
+
+    /** Splits a CSV line on the commas outside quotes. */
+    private static String[] fields(String line) {
+        return line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+    }
+
+    @Test
+    void writesOneLinePerGame() throws InterruptedException {
+        Arena arena = new Arena(EngineSpec.parse("ab:depth=1,nodes=500,threads=1"),
+                EngineSpec.parse("ab:depth=2,nodes=500"));
+        arena.setSize(9);
+        arena.setGames(3);
+        arena.setParallel(2);
+        String[] lines = play(arena);
+        assertEquals("game,white,black,result,score,moves,white_ms_per_move,black_ms_per_move", lines[0]);
+        // Three games are rounded up to two whole pairs.
+        assertEquals(5, lines.length);
+        for (int game = 0; game < 4; game++) {
+            String[] fields = fields(lines[1 + game]);
+            assertEquals(8, fields.length, lines[1 + game]);
+            assertEquals(String.valueOf(game), fields[0]);
+            String first = "\"ab:depth=1,nodes=500,threads=1\"";
+            assertEquals(game % 2 == 0 ? first : "\"ab:depth=2,nodes=500\"", fields[1]);
+            assertEquals(game % 2 == 0 ? "\"ab:depth=2,nodes=500\"" : first, fields[2]);
+            assertTrue(fields[3].equals("white") || fields[3].equals("black") || fields[3].equals("draw"), fields[3]);
+            int moves = Integer.parseInt(fields[5]);
+            assertTrue(moves >= 4 && moves <= 81, "moves " + moves);
+        }
+        assertTrue(arena.summary().startsWith("ab:depth=1,nodes=500,threads=1 vs ab:depth=2,nodes=500: "), arena.summary());
+    }
+
+    /**
+     * Two identical, deterministic engines play the same game twice in a pair: the opening is
+     * shared and swapping the colours changes nothing, so the same colour wins and the score of
+     * the first engine is 1 in one game and 0 in the other.
+     */
+    @Test
+    void pairsShareTheirOpening() throws InterruptedException {
+        EngineSpec engine = EngineSpec.parse("ab:depth=1,nodes=500");
+        Arena arena = new Arena(engine, engine);
+        arena.setSize(9);
+        arena.setGames(6);
+        arena.setOpeningPlies(3);
+        arena.setSeed(11);
+        String[] lines = play(arena);
+        boolean differentOpenings = false;
+        for (int pair = 0; pair < 3; pair++) {
+            String[] even = fields(lines[1 + 2 * pair]);
+            String[] odd = fields(lines[2 + 2 * pair]);
+            assertEquals(even[3], odd[3]);
+            assertEquals(even[5], odd[5]);
+            if (!even[3].equals("draw")) {
+                assertEquals(1.0, Double.parseDouble(even[4]) + Double.parseDouble(odd[4]), 0.0);
+            }
+            differentOpenings |= !even[5].equals(fields(lines[1])[5]);
+        }
+        assertTrue(differentOpenings, "every pair played the same game");
+    }
+
+    @Test
+    void unboundedBoardNeedsAMoveLimit() throws InterruptedException {
+        EngineSpec engine = EngineSpec.parse("ab:depth=1,nodes=500");
+        Arena arena = new Arena(engine, engine);
+        arena.setSparse(true);
+        arena.setSize(0);
+        arena.setGames(2);
+        assertThrows(IllegalArgumentException.class, () -> arena.run(new StringWriter()));
+        arena.setMaxMoves(12);
+        String[] lines = play(arena);
+        assertEquals(3, lines.length);
+        assertTrue(Integer.parseInt(fields(lines[1])[5]) <= 12, lines[1]);
+    }
+}
@@ -0,0 +1,52 @@
+package omok.arena;
+
+import omok.engine.Engine;
+import omok.engine.MctsEngine;
+import omok.engine.ParallelSearch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the parsing of {@link EngineSpec} descriptions and the engines they create.
+ */
+class EngineSpecTest {
+
+    @Test
+    void parsesEveryOption() {
+        EngineSpec spec = EngineSpec.parse("ab:time=100,nodes=5000,depth=7,threads=3,hash=2");
+        assertEquals(100, spec.getLimits().getTimeMillis());
+        assertEquals(5000, spec.getLimits().getNodes());
+        assertEquals(7, spec.getLimits().getDepth());
+        assertEquals(3, spec.getThreads());
+        assertEquals("ab:time=100,nodes=5000,depth=7,threads=3,hash=2", spec.toString());
+
+        EngineSpec mcts = EngineSpec.parse("mcts:nodes=20000");
+        assertEquals(1, mcts.getThreads());
+        assertEquals(0, mcts.getLimits().getTimeMillis());
+    }
+
+    @Test
+    void createsTheNamedEngine() {
+        Engine ab = EngineSpec.parse("ab:depth=2").create();
+        Engine mcts = EngineSpec.parse("mcts:time=10").create();
+        try {
+            assertTrue(ab instanceof ParallelSearch);
+            assertTrue(mcts instanceof MctsEngine);
+        } finally {
+            ab.shutdown();
+            mcts.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsBadDescriptions() {
+        assertThrows(IllegalArgumentException.class, () -> EngineSpec.parse("minimax:depth=2"));
+        assertThrows(IllegalArgumentException.class, () -> EngineSpec.parse("ab"));
+        assertThrows(IllegalArgumentException.class, () -> EngineSpec.parse("ab:depth"));
+        assertThrows(IllegalArgumentException.class, () -> EngineSpec.parse("ab:depth=2,colour=3"));
+        assertThrows(IllegalArgumentException.class, () -> EngineSpec.parse("ab:depth=two"));
+    }
+}
@@ -0,0 +1,105 @@
+package omok.book;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the eight {@link Symmetry} maps are distinct permutations of the board, that
+ * {@code invert} undoes {@code apply}, and that the canonical hash is shared by all images of a
+ * position.
+ */
+class SymmetryTest {
+
+    /** Plays the same random stones on a board under a symmetry. */
+    private static BitBoard randomBoard(int size, int symmetry, long seed, int stones) {
+        Random random = new Random(seed);
+        BitBoard board = new BitBoard(size);
+        board.setWinLength(size + 1);
+        Set<Integer> taken = new HashSet<>();
+        while (taken.size() < stones) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            if (taken.add(x << 8 | y)) {
+                int image = Symmetry.apply(symmetry, size, x, y);
+                board.place(board.index(image >>> 8, image & 0xFF), taken.size() & 1);
+            }
+        }
+        return board;
+    }
+
+    @Test
+    void invertUndoesApply() {
+        for (int size : new int[] {1, 2, 9, 15, 19}) {
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                Set<Integer> images = new HashSet<>();
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        int image = Symmetry.apply(s, size, x, y);
+                        assertTrue((image >>> 8) < size && (image & 0xFF) < size);
+                        images.add(image);
+                        assertEquals(x << 8 | y, Symmetry.invert(s, size, image), "size " + size + " symmetry " + s);
+                    }
+                }
+                assertEquals(size * size, images.size());
+            }
+        }
+    }
+
+    @Test
+    void symmetriesAreDistinct() {
+        Set<Integer> corners = new HashSet<>();
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            // 0x1 is off the diagonals, so its eight images differ.
+            corners.add(Symmetry.apply(s, 15, 0, 1));
+        }
+        assertEquals(Symmetry.COUNT, corners.size());
+        assertEquals(3 << 8 | 5, Symmetry.apply(0, 15, 3, 5));
+    }
+
+    @Test
+    void canonicalHashIsShared() {
+        long[] hashes = new long[Symmetry.COUNT];
+        for (long seed = 0; seed < 20; seed++) {
+            long canonical = Symmetry.hashes(randomBoard(15, 0, seed, 12), hashes);
+            for (int s = 1; s < Symmetry.COUNT; s++) {
+                assertEquals(canonical, Symmetry.hashes(randomBoard(15, s, seed, 12), new long[Symmetry.COUNT]),
+                        "seed " + seed + " symmetry " + s);
+            }
+        }
+    }
+
+    /** The canonical symmetry maps the board onto its canonical hash, which is the smallest one. */
+    @Test
+    void canonicalSymmetryGivesTheCanonicalHash() {
+        long[] hashes = new long[Symmetry.COUNT];
+        BitBoard board = randomBoard(15, 3, 7, 9);
+        long canonical = Symmetry.hashes(board, hashes);
+        int s = Symmetry.canonicalSymmetry(hashes, canonical);
+        assertEquals(canonical, hashes[s]);
+        for (long hash : hashes) {
+            assertTrue(canonical <= hash);
+        }
+    }
+
+    /** On a position symmetric under every map, equivalent moves share one canonical move. */
+    @Test
+    void equivalentMovesShareACanonicalMove() {
+        BitBoard board = new BitBoard(15);
+        board.place(board.index(7, 7), Position.WHITE);
+        long[] hashes = new long[Symmetry.COUNT];
+        long canonical = Symmetry.hashes(board, hashes);
+        int move = Symmetry.canonicalMove(hashes, canonical, 15, 6, 8);
+        assertEquals(move, Symmetry.canonicalMove(hashes, canonical, 15, 8, 6));
+        assertEquals(move, Symmetry.canonicalMove(hashes, canonical, 15, 8, 8));
+        assertEquals(move, Symmetry.canonicalMove(hashes, canonical, 15, 6, 6));
+        assertTrue(move != Symmetry.canonicalMove(hashes, canonical, 15, 7, 8));
+    }
+}
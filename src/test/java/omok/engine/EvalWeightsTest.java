@@ -0,0 +1,76 @@
+package omok.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link EvalWeights} survive a trip through their properties file, and that a file
+ * with missing or malformed keys is handled as documented.
+ */
+class EvalWeightsTest {
+
+    @TempDir
+    Path directory;
+
+    private static void assertSameWeights(EvalWeights expected, EvalWeights actual) {
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            assertEquals(expected.ownLine(c), actual.ownLine(c), "ownLine " + c);
+            assertEquals(expected.opponentLine(c), actual.opponentLine(c), "opponentLine " + c);
+            assertEquals(expected.attack(c), actual.attack(c), "attack " + c);
+            assertEquals(expected.defence(c), actual.defence(c), "defence " + c);
+        }
+    }
+
+    @Test
+    void storeAndLoadRoundTrip() throws IOException {
+        int[] own = new int[PatternTable.CLASSES];
+        int[] opponent = new int[PatternTable.CLASSES];
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            own[c] = 3 * c - 7;
+            opponent[c] = 1000 * c;
+        }
+        EvalWeights weights = EvalWeights.DEFAULT.withLineValues(own, opponent);
+        Path file = this.directory.resolve("weights.properties");
+        weights.store(file, "test");
+        assertSameWeights(weights, EvalWeights.load(file));
+    }
+
+    @Test
+    void missingKeysKeepTheDefaults() throws IOException {
+        Path file = this.directory.resolve("partial.properties");
+        Files.writeString(file, "ownLine = 1, 2, 3, 4, 5, 6, 7, 8\n");
+        EvalWeights weights = EvalWeights.load(file);
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            assertEquals(c + 1, weights.ownLine(c));
+            assertEquals(EvalWeights.DEFAULT.opponentLine(c), weights.opponentLine(c));
+            assertEquals(EvalWeights.DEFAULT.attack(c), weights.attack(c));
+        }
+    }
+
+    @Test
+    void malformedValuesAreRejected() throws IOException {
+        Path shortList = this.directory.resolve("short.properties");
+        Files.writeString(shortList, "attack=1,2,3\n");
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.load(shortList));
+        Path notNumbers = this.directory.resolve("text.properties");
+        Files.writeString(notNumbers, "defence=a,b,c,d,e,f,g,h\n");
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.load(notNumbers));
+        assertThrows(IllegalArgumentException.class, () -> new EvalWeights(new int[1], new int[1], new int[1], new int[1]));
+    }
+
+    /** The weights keep their own copies of the arrays they were made from. */
+    @Test
+    void arraysAreCopied() {
+        int[] own = new int[PatternTable.CLASSES];
+        EvalWeights weights = new EvalWeights(own, own, own, own);
+        own[2] = 99;
+        assertEquals(0, weights.ownLine(2));
+    }
+}
@@ -0,0 +1,135 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link MctsEngine} plays forced moves, keeps searching when its node arena
+ * fills up, and runs several playout threads on one tree.
+ */
+class MctsEngineTest {
+
+    private static BitBoard middleGame() {
+        return SearchEngineTest.board(15, new int[] {7, 7, 8, 8, 6, 8}, new int[] {7, 8, 8, 7, 9, 9});
+    }
+
+    /** Checks that a search returned an empty intersection and left the position alone. */
+    private static void assertLegal(BitBoard board, long hash, SearchResult result) {
+        assertTrue(result.getMove() >= 0 && result.getMove() < board.cells(), "move " + result.getMove());
+        assertTrue(board.isEmpty(result.getMove()));
+        assertEquals(hash, board.hash());
+    }
+
+    @Test
+    void takesAWin() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7}, new int[] {3, 8, 4, 8, 5, 8, 9, 9});
+        SearchResult result = new MctsEngine(10_000).search(board, Position.WHITE, SearchLimits.nodes(1_000));
+        int move = result.getMove();
+        assertTrue(move == board.index(2, 7) || move == board.index(7, 7), "move " + move);
+    }
+
+    @Test
+    void blocksAFour() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {0, 7, 7, 8, 10, 10, 12, 0}, new int[] {1, 7, 2, 7, 3, 7, 4, 7});
+        SearchResult result = new MctsEngine(10_000).search(board, Position.WHITE, SearchLimits.nodes(1_000));
+        assertEquals(board.index(5, 7), result.getMove());
+    }
+
+    /** An open three must be stopped at one of its ends before it becomes an open four. */
+    @Test
+    void stopsAnOpenThree() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {7, 7, 0, 0}, new int[] {5, 5, 6, 5, 7, 5});
+        SearchResult result = new MctsEngine(100_000).search(board, Position.WHITE, SearchLimits.nodes(20_000));
+        int move = result.getMove();
+        assertTrue(move == board.index(4, 5) || move == board.index(8, 5) || move == board.index(3, 5)
+                || move == board.index(9, 5), "move " + board.x(move) + "x" + board.y(move));
+    }
+
+    /** With room for only a few nodes the tree stops growing, but playouts go on. */
+    @Test
+    void keepsPlayingWhenTheArenaIsFull() {
+        BitBoard board = middleGame();
+        long hash = board.hash();
+        SearchResult result = new MctsEngine(64).search(board, Position.WHITE, SearchLimits.nodes(3_000));
+        assertLegal(board, hash, result);
+        assertEquals(3_000, result.getNodes());
+    }
+
+    /** Without a capacity, the arena is sized from each board searched. */
+    @Test
+    void sizesTheArenaFromTheBoard() {
+        MctsEngine engine = new MctsEngine();
+        BitBoard small = SearchEngineTest.board(7, new int[] {3, 3, 4, 4}, new int[] {3, 4, 2, 2});
+        long hash = small.hash();
+        assertLegal(small, hash, engine.search(small, Position.WHITE, SearchLimits.nodes(2_000)));
+        BitBoard board = middleGame();
+        hash = board.hash();
+        assertLegal(board, hash, engine.search(board, Position.WHITE, SearchLimits.nodes(2_000)));
+    }
+
+    @Test
+    void oneThreadIsDeterministic() {
+        MctsEngine first = new MctsEngine(50_000);
+        MctsEngine second = new MctsEngine(50_000);
+        first.setSeed(7);
+        second.setSeed(7);
+        SearchResult a = first.search(middleGame(), Position.WHITE, SearchLimits.nodes(5_000));
+        SearchResult b = second.search(middleGame(), Position.WHITE, SearchLimits.nodes(5_000));
+        assertEquals(a.getMove(), b.getMove());
+        assertEquals(a.getScore(), b.getScore());
+    }
+
+    /** Several threads share a small arena, so they race for the last free blocks. */
+    @Test
+    void threadsShareASmallArena() {
+        MctsEngine engine = new MctsEngine(2_000);
+        engine.setThreads(4);
+        try {
+            for (int i = 0; i < 3; i++) {
+                BitBoard board = middleGame();
+                long hash = board.hash();
+                SearchResult result = engine.search(board, Position.WHITE, SearchLimits.nodes(5_000));
+                assertLegal(board, hash, result);
+                assertTrue(result.getNodes() <= 5_000, "nodes " + result.getNodes());
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /** A stop that comes before the search has started is not lost. */
+    @Test
+    void stopBeforeTheSearchEndsItAtOnce() {
+        MctsEngine engine = new MctsEngine(1_000);
+        engine.setThreads(2);
+        try {
+            BitBoard board = middleGame();
+            long hash = board.hash();
+            SearchResult result = engine.search(board, Position.WHITE, new SearchLimits(0, 0, SearchLimits.MAX_DEPTH).pondering(),
+                    new AtomicBoolean(true));
+            assertLegal(board, hash, result);
+            assertEquals(0, result.getNodes());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void noMoveWhenGameIsOver() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7, 7, 7}, new int[] {0, 0, 1, 0, 2, 0, 3, 0});
+        assertEquals(-1, new MctsEngine(100).search(board, Position.BLACK, SearchLimits.nodes(100)).getMove());
+    }
+
+    @Test
+    void checksItsArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MctsEngine(1));
+        assertThrows(IllegalArgumentException.class, () -> new MctsEngine(100).setThreads(0));
+    }
+}
@@ -0,0 +1,123 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the candidate set maintained by the board and the forced moves of the
+ * {@link MoveGenerator}.
+ */
+class MoveGeneratorTest {
+
+    private final MoveGenerator generator = new MoveGenerator(new Evaluator());
+
+    /** Generates the moves of a side, sorted by board index. */
+    private int[] generate(BitBoard position, int side) {
+        int[] moves = new int[position.candidateCount() + 1];
+        int[] scores = new int[moves.length];
+        int count = this.generator.generate(position, side, moves, scores);
+        int[] sorted = Arrays.copyOf(moves, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /** Lists the empty intersections within the radius of a stone by scanning the whole board. */
+    private static int[] neighbourhood(BitBoard board, int radius) {
+        int size = board.size();
+        int[] result = new int[board.cells()];
+        int count = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (!board.isEmpty(board.index(x, y))) {
+                    continue;
+                }
+                boolean near = false;
+                for (int i = Math.max(0, x - radius); i <= Math.min(size - 1, x + radius) && !near; i++) {
+                    for (int j = Math.max(0, y - radius); j <= Math.min(size - 1, y + radius) && !near; j++) {
+                        near = !board.isEmpty(board.index(i, j));
+                    }
+                }
+                if (near) {
+                    result[count++] = board.index(x, y);
+                }
+            }
+        }
+        int[] sorted = Arrays.copyOf(result, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static int[] candidates(BitBoard position) {
+        int[] result = new int[position.candidateCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = position.candidateAt(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Test
+    void emptyBoardPlaysTheCentre() {
+        BitBoard board = new BitBoard(15);
+        assertArrayEquals(new int[] {board.index(7, 7)}, generate(board, Position.WHITE));
+    }
+
+    /** Random moves and take-backs keep the candidate set equal to a scan of the board. */
+    @Test
+    void candidatesMatchNeighbourhoodScan() {
+        Random random = new Random(6);
+        BitBoard board = new BitBoard(19);
+        board.setWinLength(20);
+        for (int step = 0; step < 2_000; step++) {
+            if (board.stoneCount() > 0 && random.nextInt(3) == 0) {
+                board.undo();
+            } else if (!board.isFull()) {
+                board.place(board.randomEmpty(random), step & 1);
+            }
+            if (step % 500 == 250) {
+                board.setCandidateRadius(1 + random.nextInt(3));
+            }
+            assertArrayEquals(neighbourhood(board, board.candidateRadius()), candidates(board), "step " + step);
+        }
+    }
+
+    @Test
+    void winningMoveIsAlone() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7}, new int[] {3, 8, 4, 8, 5, 8, 6, 8});
+        int[] moves = generate(board, Position.WHITE);
+        assertEquals(1, moves.length);
+        assertEquals(Position.WHITE, winnerAfter(board, moves[0], Position.WHITE));
+    }
+
+    @Test
+    void fourMustBeBlocked() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {7, 7, 9, 9}, new int[] {3, 3, 4, 4, 5, 5, 6, 6});
+        // 7x7 is taken, so the open four has a single block left.
+        assertArrayEquals(new int[] {board.index(2, 2)}, generate(board, Position.WHITE));
+
+        board = SearchEngineTest.board(15, new int[] {0, 0, 9, 9}, new int[] {3, 3, 4, 4, 5, 5, 6, 6});
+        int[] blocks = {board.index(2, 2), board.index(7, 7)};
+        Arrays.sort(blocks);
+        assertArrayEquals(blocks, generate(board, Position.WHITE));
+    }
+
+    @Test
+    void everyCandidateOtherwise() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {7, 7}, new int[] {8, 8});
+        assertArrayEquals(candidates(board), generate(board, Position.WHITE));
+    }
+
+    private static int winnerAfter(BitBoard position, int move, int side) {
+        position.place(move, side);
+        int winner = position.winner();
+        position.undo();
+        return winner;
+    }
+}
@@ -0,0 +1,121 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the Lazy SMP {@link ParallelSearch}: several threads agree with one on forced
+ * positions, one thread stays deterministic, and a search can be stopped from outside.
+ */
+class ParallelSearchTest {
+
+    private static BitBoard middleGame() {
+        return SearchEngineTest.board(15, new int[] {7, 7, 8, 8, 6, 8}, new int[] {7, 8, 8, 7, 9, 9});
+    }
+
+    @Test
+    void helpersAgreeOnForcedMoves() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 4);
+        search.setThreatNodes(0);
+        try {
+            BitBoard block = SearchEngineTest.board(15, new int[] {0, 7, 7, 8, 10, 10, 12, 0},
+                    new int[] {1, 7, 2, 7, 3, 7, 4, 7});
+            assertEquals(block.index(5, 7), search.search(block, Position.WHITE, new SearchLimits(0, 0, 4)).getMove());
+
+            BitBoard three = SearchEngineTest.board(15, new int[] {5, 7, 6, 7, 7, 7}, new int[] {0, 0, 14, 14});
+            SearchResult win = search.search(three, Position.WHITE, new SearchLimits(0, 0, 5));
+            assertTrue(win.getScore() >= Evaluator.WIN_THRESHOLD, "score " + win.getScore());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    void oneThreadIsDeterministic() {
+        SearchResult first = new ParallelSearch().search(middleGame(), Position.WHITE, SearchLimits.nodes(20_000));
+        SearchResult second = new ParallelSearch().search(middleGame(), Position.WHITE, SearchLimits.nodes(20_000));
+        assertEquals(first.getMove(), second.getMove());
+        assertEquals(first.getScore(), second.getScore());
+        assertEquals(first.getDepth(), second.getDepth());
+        assertEquals(first.getNodes(), second.getNodes());
+    }
+
+    @Test
+    void leavesThePositionAlone() {
+        BitBoard board = middleGame();
+        long hash = board.hash();
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3);
+        try {
+            SearchResult result = search.search(board, Position.WHITE, new SearchLimits(0, 0, 4));
+            assertTrue(board.isEmpty(result.getMove()));
+            assertEquals(hash, board.hash());
+            assertEquals(6, board.stoneCount());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    void stopEndsAnUnlimitedSearch() throws InterruptedException {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<SearchResult> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> result.set(search.search(middleGame(), Position.WHITE,
+                new SearchLimits(0, 0, SearchLimits.MAX_DEPTH).pondering(), stop)));
+        thread.start();
+        try {
+            Thread.sleep(50);
+            stop.set(true);
+            thread.join(5_000);
+            assertFalse(thread.isAlive());
+            assertNotNull(result.get());
+            assertTrue(result.get().getMove() != -1);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    /** A stop that comes before the search has started is not lost. */
+    @Test
+    void stopBeforeTheSearchEndsItAtOnce() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2);
+        try {
+            BitBoard board = middleGame();
+            SearchResult result = search.search(board, Position.WHITE,
+                    new SearchLimits(0, 0, SearchLimits.MAX_DEPTH).pondering(), new AtomicBoolean(true));
+            assertTrue(board.isEmpty(result.getMove()));
+            assertEquals(0, result.getDepth());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    void newGameClearsTheTable() {
+        TranspositionTable table = new TranspositionTable(1);
+        ParallelSearch search = new ParallelSearch(table, 1);
+        BitBoard board = middleGame();
+        SearchResult result = search.search(board, Position.WHITE, new SearchLimits(0, 0, 3));
+        // The root is not stored, but the position after the best move is.
+        board.place(result.getMove(), Position.WHITE);
+        long key = SearchEngine.hashKey(board, Position.BLACK);
+        assertTrue(table.probe(key) != TranspositionTable.NONE);
+        search.newGame();
+        assertEquals(TranspositionTable.NONE, table.probe(key));
+    }
+
+    @Test
+    void needsAThread() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(new TranspositionTable(1), 0));
+    }
+}
@@ -0,0 +1,143 @@
+package omok.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the line classes of the {@link PatternTable} on hand-written segments.
+ */
+class PatternTableTest {
+
+    /**
+     * Classifies a segment written as text: {@code x} for a stone of the player, {@code o} for a
+     * blocker and {@code .} for an empty intersection. The middle character is the centre.
+     */
+    private static int classify(String segment) {
+        PatternTable patterns = PatternTable.forWinLength((segment.length() + 1) / 2);
+        int stones = 0;
+        int blockers = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) == 'x') {
+                stones |= 1 << i;
+            } else if (segment.charAt(i) == 'o') {
+                blockers |= 1 << i;
+            }
+        }
+        return patterns.classify(stones, blockers);
+    }
+
+    @Test
+    void fiveInARow() {
+        assertEquals(PatternTable.FIVE, classify("..xxxxx.."));
+        assertEquals(PatternTable.FIVE, classify("xxxxx...."));
+        assertEquals(PatternTable.FIVE, classify("oxxxxxxxo"));
+    }
+
+    @Test
+    void fours() {
+        assertEquals(PatternTable.OPEN_FOUR, classify("...xxxx.."));
+        assertEquals(PatternTable.OPEN_FOUR, classify("xxx.x.xxx"));
+        assertEquals(PatternTable.FOUR, classify("..oxxxx.."));
+        assertEquals(PatternTable.FOUR, classify("...xx.xx."));
+        assertEquals(PatternTable.FOUR, classify("oxxxx..oo"));
+    }
+
+    @Test
+    void threes() {
+        assertEquals(PatternTable.OPEN_THREE, classify("...xxx..."));
+        assertEquals(PatternTable.OPEN_THREE, classify("..x.xx..."));
+        assertEquals(PatternTable.THREE, classify("..oxxx..."));
+        assertEquals(PatternTable.THREE, classify("..x.xxo.."));
+        assertEquals(PatternTable.THREE, classify("oxx.x...."));
+    }
+
+    @Test
+    void twosAndNothing() {
+        assertEquals(PatternTable.OPEN_TWO, classify("....xx..."));
+        assertEquals(PatternTable.TWO, classify("...oxx..."));
+        assertEquals(PatternTable.NONE, classify("....x...."));
+        assertEquals(PatternTable.NONE, classify("...oxo..."));
+        // Not enough room for five between the blockers.
+        assertEquals(PatternTable.NONE, classify("o.xxxo..."));
+    }
+
+    /** The centre always counts as a stone of the player, and blockers win over stones. */
+    @Test
+    void masksAreNormalised() {
+        PatternTable patterns = PatternTable.forWinLength(5);
+        assertEquals(classify("...xxx..."), patterns.classify(0b0010_1000, 0));
+        assertEquals(classify("..oxxx..."), patterns.classify(0b0011_1100, 0b0000_0100));
+    }
+
+    /** A line one stone short of k is an open four for every k, including the memoised ones. */
+    @Test
+    void everyWinLength() {
+        for (int k = 2; k <= 10; k++) {
+            String open = "." + "x".repeat(k - 1) + ".".repeat(k - 1);
+            String blocked = "o" + open.substring(1);
+            String five = ".".repeat(k - 1) + "x".repeat(k);
+            assertEquals(PatternTable.OPEN_FOUR, classify(open), "k " + k + ": " + open);
+            assertEquals(PatternTable.FOUR, classify(blocked), "k " + k + ": " + blocked);
+            assertEquals(PatternTable.FIVE, classify(five), "k " + k + ": " + five);
+        }
+    }
+
+    /** The memo answers a segment the same way every time, from any thread. */
+    @Test
+    void memoisedClassesAreStable() throws InterruptedException {
+        PatternTable patterns = PatternTable.forWinLength(8);
+        int length = 15;
+        Random random = new Random(5);
+        int[] stones = new int[2_000];
+        int[] blockers = new int[stones.length];
+        int[] classes = new int[stones.length];
+        for (int i = 0; i < stones.length; i++) {
+            stones[i] = random.nextInt(1 << length) & random.nextInt(1 << length);
+            blockers[i] = random.nextInt(1 << length) & random.nextInt(1 << length) & random.nextInt(1 << length) & ~stones[i];
+            classes[i] = patterns.classify(stones[i], blockers[i]);
+        }
+        int[] mismatches = new int[1];
+        Thread other = new Thread(() -> {
+            for (int i = stones.length - 1; i >= 0; i--) {
+                if (patterns.classify(stones[i], blockers[i]) != classes[i]) {
+                    mismatches[0]++;
+                }
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(0, mismatches[0]);
+    }
+
+    /** Far more segments than the memo holds: the forgotten ones are classified the same again. */
+    @Test
+    void memoIsBounded() {
+        PatternTable patterns = PatternTable.forWinLength(9);
+        int length = 17;
+        Random random = new Random(9);
+        int[] stones = new int[200_000];
+        int[] blockers = new int[stones.length];
+        int[] classes = new int[stones.length];
+        for (int i = 0; i < stones.length; i++) {
+            stones[i] = random.nextInt(1 << length) & random.nextInt(1 << length);
+            blockers[i] = random.nextInt(1 << length) & random.nextInt(1 << length) & ~stones[i];
+            classes[i] = patterns.classify(stones[i], blockers[i]);
+        }
+        for (int i = 0; i < stones.length; i++) {
+            assertEquals(classes[i], patterns.classify(stones[i], blockers[i]), "segment " + i);
+        }
+    }
+
+    @Test
+    void tablesAreShared() {
+        assertSame(PatternTable.forWinLength(5), PatternTable.forWinLength(5));
+        assertEquals(4, PatternTable.forWinLength(5).radius());
+        assertThrows(IllegalArgumentException.class, () -> PatternTable.forWinLength(1));
+        assertThrows(IllegalArgumentException.class, () -> PatternTable.forWinLength(PatternTable.MAX_WIN_LENGTH + 1));
+    }
+}
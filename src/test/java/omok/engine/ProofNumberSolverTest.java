@@ -0,0 +1,108 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Game;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the df-pn {@link ProofNumberSolver} proves known wins and losses with a legal
+ * proving line, and reports an unknown outcome when there is nothing to prove or no budget.
+ */
+class ProofNumberSolverTest {
+
+    private final ProofNumberSolver solver = new ProofNumberSolver(1);
+
+    /** Two blocked threes crossing at 7x7: white wins with the double four there. */
+    private static BitBoard doubleFour() {
+        return SearchEngineTest.board(15, new int[] {4, 7, 5, 7, 6, 7, 7, 4, 7, 5, 7, 6},
+                new int[] {3, 7, 7, 3, 0, 0, 14, 14, 0, 14, 14, 0});
+    }
+
+    /** Two open twos crossing at 7x7: white wins with the double three there. */
+    private static BitBoard doubleThree() {
+        return SearchEngineTest.board(15, new int[] {5, 7, 6, 7, 7, 5, 7, 6}, new int[] {0, 0, 14, 14, 0, 14, 14, 0});
+    }
+
+    /**
+     * Plays the proving line on a copy of the position, the side to move first, and checks that
+     * every move is legal and that only the last one ends the game, won by the given side.
+     */
+    private static void assertProvingLine(Position position, int side, int[] line, int winner) {
+        Position copy = position.copy();
+        assertTrue(line.length > 0);
+        for (int i = 0; i < line.length; i++) {
+            assertEquals(Position.EMPTY, copy.winner(), "move " + i);
+            assertTrue(copy.isEmpty(line[i]), "move " + i);
+            copy.place(line[i], i % 2 == 0 ? side : 1 - side);
+        }
+        assertEquals(winner, copy.winner());
+    }
+
+    @Test
+    void provesADoubleFour() {
+        BitBoard board = doubleFour();
+        ProofResult result = this.solver.solve(board, Position.WHITE, 100_000);
+        assertEquals(ProofResult.WIN, result.getOutcome());
+        assertEquals(board.index(7, 7), result.getMove());
+        assertProvingLine(board, Position.WHITE, result.getLine(), Position.WHITE);
+    }
+
+    @Test
+    void provesADoubleThree() {
+        BitBoard board = doubleThree();
+        ProofResult result = this.solver.solve(board, Position.WHITE, 1_000_000);
+        assertEquals(ProofResult.WIN, result.getOutcome());
+        assertProvingLine(board, Position.WHITE, result.getLine(), Position.WHITE);
+    }
+
+    /** Against an open four, every defence loses. */
+    @Test
+    void provesALoss() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {4, 7, 5, 7, 6, 7, 7, 7}, new int[] {0, 0, 14, 14, 0, 14});
+        ProofResult result = this.solver.solve(board, Position.BLACK, 100_000);
+        assertEquals(ProofResult.LOSS, result.getOutcome());
+        assertProvingLine(board, Position.BLACK, result.getLine(), Position.WHITE);
+    }
+
+    @Test
+    void unknownWithoutThreatsOrBudget() {
+        BitBoard quiet = SearchEngineTest.board(15, new int[] {7, 7, 9, 9}, new int[] {8, 8, 6, 6});
+        ProofResult result = this.solver.solve(quiet, Position.WHITE, 100_000);
+        assertEquals(ProofResult.UNKNOWN, result.getOutcome());
+        assertEquals(-1, result.getMove());
+        assertEquals(0, result.getLine().length);
+
+        assertEquals(ProofResult.UNKNOWN, this.solver.solve(doubleThree(), Position.WHITE, 4).getOutcome());
+    }
+
+    @Test
+    void restoresThePosition() {
+        BitBoard board = doubleThree();
+        long hash = board.hash();
+        this.solver.solve(board, Position.WHITE, 100_000);
+        this.solver.solve(board, Position.BLACK, 5_000);
+        assertEquals(hash, board.hash());
+        assertEquals(8, board.stoneCount());
+    }
+
+    /** Solving a board takes the side to move from the number of stones and leaves it alone. */
+    @Test
+    void solvesABoardForTheSideToMove() {
+        Game game = new Game(15, 5, Position.FREESTYLE, "Player");
+        int[][] white = {{4, 7}, {5, 7}, {6, 7}, {7, 4}, {7, 5}, {7, 6}};
+        int[][] black = {{3, 7}, {7, 3}, {0, 0}, {14, 14}, {0, 14}, {14, 0}};
+        for (int i = 0; i < white.length; i++) {
+            game.getBoard().placeStone(white[i][0], white[i][1], game.getWhitePlayer());
+            game.getBoard().placeStone(black[i][0], black[i][1], game.getBlackPlayer());
+        }
+        long hash = game.getBoard().position().hash();
+        ProofResult result = this.solver.solve(game.getBoard(), 100_000);
+        assertEquals(ProofResult.WIN, result.getOutcome());
+        assertEquals(game.getBoard().position().index(7, 7), result.getMove());
+        assertEquals(hash, game.getBoard().position().hash());
+    }
+}
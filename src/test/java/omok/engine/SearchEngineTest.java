@@ -0,0 +1,107 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the alpha-beta {@link SearchEngine} finds forced wins, defends against them and
+ * respects its limits.
+ */
+class SearchEngineTest {
+
+    /** Places stones given as x, y pairs. */
+    static BitBoard board(int size, int[] white, int[] black) {
+        BitBoard board = new BitBoard(size);
+        for (int i = 0; i < white.length; i += 2) {
+            board.place(board.index(white[i], white[i + 1]), Position.WHITE);
+        }
+        for (int i = 0; i < black.length; i += 2) {
+            board.place(board.index(black[i], black[i + 1]), Position.BLACK);
+        }
+        return board;
+    }
+
+    @Test
+    void completesFive() {
+        BitBoard board = board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7}, new int[] {3, 8, 4, 8, 5, 8, 9, 9});
+        SearchResult result = new SearchEngine().search(board, Position.WHITE, new SearchLimits(0, 0, 4));
+        int move = result.getMove();
+        assertTrue(move == board.index(2, 7) || move == board.index(7, 7), "move " + move);
+    }
+
+    @Test
+    void blocksAFour() {
+        // Black threatens five at 5x7; white has nothing better than to block.
+        BitBoard board = board(15, new int[] {0, 7, 7, 8, 10, 10, 12, 0}, new int[] {1, 7, 2, 7, 3, 7, 4, 7});
+        SearchResult result = new SearchEngine().search(board, Position.WHITE, new SearchLimits(0, 0, 4));
+        assertEquals(board.index(5, 7), result.getMove());
+    }
+
+    /**
+     * Table entries whose move lands on a stone belong to another position with the same key:
+     * they are counted as collisions and ignored, even though they claim that every move wins.
+     */
+    @Test
+    void ignoresCollidingTableEntries() {
+        BitBoard board = board(15, new int[] {7, 7, 8, 8}, new int[] {7, 8, 6, 6});
+        SearchEngine engine = new SearchEngine();
+        TranspositionTable table = engine.getTranspositionTable();
+        board.setCandidateRadius(2);
+        for (int i = 0; i < board.candidateCount(); i++) {
+            board.place(board.candidateAt(i), Position.WHITE);
+            table.store(SearchEngine.hashKey(board, Position.BLACK), board.index(7, 7),
+                    -Evaluator.WIN_THRESHOLD - 100, 60, TranspositionTable.EXACT);
+            board.undo();
+        }
+        SearchResult result = engine.search(board, Position.WHITE, new SearchLimits(0, 0, 3));
+        assertTrue(result.getScore() < Evaluator.WIN_THRESHOLD, "score " + result.getScore());
+        assertTrue(engine.getHashCollisions() > 0);
+        assertTrue(engine.getHashCollisions() <= engine.getHashHits());
+    }
+
+    /** An open three with nothing to stop it wins: four, then five on whichever end is left. */
+    @Test
+    void findsWinThroughOpenFour() {
+        BitBoard board = board(15, new int[] {5, 7, 6, 7, 7, 7}, new int[] {0, 0, 14, 14});
+        SearchResult result = new SearchEngine().search(board, Position.WHITE, new SearchLimits(0, 0, 5));
+        assertTrue(result.getScore() >= Evaluator.WIN_THRESHOLD, "score " + result.getScore());
+        board.place(result.getMove(), Position.WHITE);
+        SearchResult defence = new SearchEngine().search(board, Position.BLACK, new SearchLimits(0, 0, 4));
+        assertTrue(defence.getScore() <= -Evaluator.WIN_THRESHOLD, "defence score " + defence.getScore());
+    }
+
+    @Test
+    void restoresThePosition() {
+        BitBoard board = board(15, new int[] {7, 7, 8, 8}, new int[] {7, 8, 6, 6});
+        long hash = board.hash();
+        int stones = board.stoneCount();
+        new SearchEngine().search(board, Position.WHITE, new SearchLimits(0, 0, 4));
+        assertEquals(hash, board.hash());
+        assertEquals(stones, board.stoneCount());
+        assertEquals(board.index(6, 6), board.lastMove());
+    }
+
+    @Test
+    void respectsLimits() {
+        BitBoard board = board(15, new int[] {7, 7, 8, 8}, new int[] {7, 8, 6, 6});
+        SearchResult shallow = new SearchEngine().search(board, Position.WHITE, new SearchLimits(0, 0, 2));
+        assertEquals(2, shallow.getDepth());
+        assertTrue(board.isEmpty(shallow.getMove()));
+
+        SearchResult budget = new SearchEngine().search(board, Position.WHITE, SearchLimits.nodes(5_000));
+        // The engine checks its limits every 1024 nodes.
+        assertTrue(budget.getNodes() <= 5_000 + 1024, "nodes " + budget.getNodes());
+        assertTrue(board.isEmpty(budget.getMove()));
+    }
+
+    @Test
+    void noMoveWhenGameIsOver() {
+        BitBoard board = board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7, 7, 7}, new int[] {0, 0, 1, 0, 2, 0, 3, 0});
+        SearchResult result = new SearchEngine().search(board, Position.BLACK, SearchLimits.time(100));
+        assertEquals(-1, result.getMove());
+    }
+}
@@ -0,0 +1,126 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link ThreatSolver} finds VCF and VCT wins on known positions, reports a
+ * legal winning line and gives up when there is nothing to find.
+ */
+class ThreatSolverTest {
+
+    private final ThreatSolver solver = new ThreatSolver(new Evaluator());
+
+    /** Two blocked threes crossing at 7x7: the double four there wins by continuous fours. */
+    private static BitBoard doubleFour() {
+        return SearchEngineTest.board(15, new int[] {4, 7, 5, 7, 6, 7, 7, 4, 7, 5, 7, 6},
+                new int[] {3, 7, 7, 3, 0, 0, 14, 14, 0, 14, 14, 0});
+    }
+
+    /** Two open twos crossing at 7x7: the double three there wins, but only through threes. */
+    private static BitBoard doubleThree() {
+        return SearchEngineTest.board(15, new int[] {5, 7, 6, 7, 7, 5, 7, 6}, new int[] {0, 0, 14, 14, 0, 14, 14, 0});
+    }
+
+    /** Scattered stones with no threat on either side. */
+    private static BitBoard quiet() {
+        return SearchEngineTest.board(15, new int[] {7, 7, 8, 7, 9, 9}, new int[] {8, 8, 6, 6, 10, 10});
+    }
+
+    /**
+     * Plays the winning line on a copy of the position, the attacker first, and checks that every
+     * move is legal and that only the last one ends the game, with the attacker winning.
+     */
+    private static void assertWinningLine(BitBoard position, int attacker, int[] line) {
+        BitBoard copy = position.copy();
+        assertTrue(line.length % 2 == 1, "line length " + line.length);
+        for (int i = 0; i < line.length; i++) {
+            assertEquals(Position.EMPTY, copy.winner(), "move " + i);
+            assertTrue(copy.isEmpty(line[i]), "move " + i);
+            copy.place(line[i], i % 2 == 0 ? attacker : 1 - attacker);
+        }
+        assertEquals(attacker, copy.winner());
+    }
+
+    @Test
+    void vcfFindsADoubleFour() {
+        BitBoard board = doubleFour();
+        int move = this.solver.solveVcf(board, Position.WHITE, 8, 100_000);
+        assertEquals(board.index(7, 7), move);
+        int[] line = this.solver.getWinningLine();
+        assertEquals(move, line[0]);
+        assertWinningLine(board, Position.WHITE, line);
+    }
+
+    @Test
+    void vcfNeedsThreesForADoubleThree() {
+        BitBoard board = doubleThree();
+        assertEquals(-1, this.solver.solveVcf(board, Position.WHITE, 8, 100_000));
+        assertEquals(0, this.solver.getWinningLine().length);
+
+        int move = this.solver.solveVct(board, Position.WHITE, 4, 100_000);
+        assertTrue(move != -1);
+        assertWinningLine(board, Position.WHITE, this.solver.getWinningLine());
+    }
+
+    @Test
+    void completesAnExistingFour() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {3, 7, 4, 7, 5, 7, 6, 7}, new int[] {2, 7, 0, 0, 14, 14, 0, 14});
+        assertEquals(board.index(7, 7), this.solver.solveVcf(board, Position.WHITE, 0, 100));
+        assertEquals(1, this.solver.getWinningLine().length);
+    }
+
+    @Test
+    void noWinWithoutThreats() {
+        BitBoard board = SearchEngineTest.board(15, new int[] {7, 7, 9, 9}, new int[] {8, 8, 6, 6});
+        assertEquals(-1, this.solver.solveVcf(board, Position.WHITE, 8, 100_000));
+        assertEquals(-1, this.solver.solveVct(board, Position.WHITE, 4, 100_000));
+        // The defender's side of a won position has nothing either.
+        assertEquals(-1, this.solver.solveVct(doubleFour(), Position.BLACK, 4, 100_000));
+    }
+
+    @Test
+    void respectsItsLimits() {
+        assertEquals(-1, this.solver.solveVcf(doubleFour(), Position.WHITE, 0, 100_000));
+        assertEquals(-1, this.solver.solveVct(doubleThree(), Position.WHITE, 4, 1));
+        assertTrue(this.solver.getNodes() <= 2, "nodes " + this.solver.getNodes());
+    }
+
+    /** A position that failed under one win length is searched again under another. */
+    @Test
+    void failuresDependOnTheWinLength() {
+        BitBoard board = doubleFour();
+        board.setWinLength(6);
+        assertEquals(-1, this.solver.solveVcf(board, Position.WHITE, 2, 100_000));
+        assertTrue(this.solver.getNodes() < 100_000, "nodes " + this.solver.getNodes());
+        board.setWinLength(5);
+        assertEquals(board.index(7, 7), this.solver.solveVcf(board, Position.WHITE, 2, 100_000));
+    }
+
+    /** Searching a failed position again is cheaper, unless the failures were cleared meanwhile. */
+    @Test
+    void clearForgetsFailures() {
+        // A fresh board each time, since a search may leave the candidates in another order.
+        this.solver.solveVct(quiet(), Position.WHITE, 4, 100_000);
+        long searched = this.solver.getNodes();
+        this.solver.solveVct(quiet(), Position.WHITE, 4, 100_000);
+        assertTrue(this.solver.getNodes() < searched, "nodes " + this.solver.getNodes() + " of " + searched);
+        this.solver.clear();
+        this.solver.solveVct(quiet(), Position.WHITE, 4, 100_000);
+        assertEquals(searched, this.solver.getNodes());
+    }
+
+    @Test
+    void restoresThePosition() {
+        BitBoard board = doubleThree();
+        long hash = board.hash();
+        this.solver.solveVct(board, Position.WHITE, 4, 100_000);
+        this.solver.solveVcf(board, Position.BLACK, 8, 100_000);
+        assertEquals(hash, board.hash());
+        assertEquals(8, board.stoneCount());
+    }
+}
@@ -0,0 +1,137 @@
+package omok.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the entry packing, the replacement scheme and the lock-free sharing of the
+ * {@link TranspositionTable}.
+ */
+class TranspositionTableTest {
+
+    /** Returns a key that falls into the same bucket as the given one. */
+    private static long sameBucket(long key, int salt) {
+        return key ^ ((long) salt << 32) ^ salt;
+    }
+
+    @Test
+    void storeAndProbeRoundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        int[] moves = {-1, 0, 1, 224, 1 << 20};
+        int[] scores = {0, 1, -1, Evaluator.WIN - 3, -Evaluator.WIN + 3, 12_345};
+        int[] flags = {TranspositionTable.EXACT, TranspositionTable.LOWER, TranspositionTable.UPPER};
+        long key = 0x1234_5678_9ABC_DEF0L;
+        for (int move : moves) {
+            for (int score : scores) {
+                for (int depth = 0; depth <= 63; depth += 21) {
+                    for (int flag : flags) {
+                        key += 0x9E37_79B9_7F4A_7C15L;
+                        table.store(key, move, score, depth, flag);
+                        long entry = table.probe(key);
+                        assertTrue(entry != TranspositionTable.NONE);
+                        assertEquals(move, TranspositionTable.moveOf(entry));
+                        assertEquals(score, TranspositionTable.scoreOf(entry));
+                        assertEquals(depth, TranspositionTable.depthOf(entry));
+                        assertEquals(flag, TranspositionTable.flagOf(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void depthIsClamped() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, 7, 0, 100, TranspositionTable.EXACT);
+        assertEquals(63, TranspositionTable.depthOf(table.probe(42L)));
+    }
+
+    @Test
+    void missingKeyIsNotFound() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(TranspositionTable.NONE, table.probe(42L));
+        table.store(42L, 7, 0, 3, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.NONE, table.probe(sameBucket(42L, 1)));
+        table.clear();
+        assertEquals(TranspositionTable.NONE, table.probe(42L));
+    }
+
+    /** The first slot of a bucket keeps the deepest entry, the second the newest one. */
+    @Test
+    void deepEntriesSurviveShallowOnes() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 99L;
+        table.store(deep, 1, 10, 8, TranspositionTable.EXACT);
+        for (int salt = 1; salt <= 5; salt++) {
+            table.store(sameBucket(deep, salt), 2, 20, 2, TranspositionTable.LOWER);
+        }
+        assertEquals(8, TranspositionTable.depthOf(table.probe(deep)));
+        assertEquals(2, TranspositionTable.moveOf(table.probe(sameBucket(deep, 5))));
+        assertEquals(TranspositionTable.NONE, table.probe(sameBucket(deep, 4)));
+
+        // A deeper entry takes the first slot and pushes the old one into the second.
+        long deeper = sameBucket(deep, 6);
+        table.store(deeper, 3, 30, 9, TranspositionTable.EXACT);
+        assertEquals(9, TranspositionTable.depthOf(table.probe(deeper)));
+        assertEquals(8, TranspositionTable.depthOf(table.probe(deep)));
+    }
+
+    /** After a new search, entries of the previous one are replaced whatever their depth. */
+    @Test
+    void oldGenerationsAreReplaced() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(5L, 1, 0, 20, TranspositionTable.EXACT);
+        table.newSearch();
+        table.store(sameBucket(5L, 1), 2, 0, 1, TranspositionTable.EXACT);
+        assertEquals(2, TranspositionTable.moveOf(table.probe(sameBucket(5L, 1))));
+        assertEquals(20, TranspositionTable.depthOf(table.probe(5L)));
+    }
+
+    /**
+     * Threads hammer a small table with entries whose contents are derived from their key; a
+     * probe must never return an entry torn between two writes.
+     */
+    @Test
+    void concurrentWritesNeverMixEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicLong mismatches = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextLong(1 << 16) * 0x9E37_79B9_7F4A_7C15L;
+                    int move = (int) (key >>> 44);
+                    if (random.nextBoolean()) {
+                        table.store(key, move, move % 1000, move & 31, TranspositionTable.EXACT);
+                    } else {
+                        long entry = table.probe(key);
+                        if (entry != TranspositionTable.NONE && (TranspositionTable.moveOf(entry) != move
+                                || TranspositionTable.scoreOf(entry) != move % 1000)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    void sizeIsAPowerOfTwo() {
+        TranspositionTable table = new TranspositionTable(3);
+        assertEquals(1 << 17, table.capacity());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+}
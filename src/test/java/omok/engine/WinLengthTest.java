@@ -0,0 +1,109 @@
+package omok.engine;
+
+import omok.BitBoard;
+import omok.Board;
+import omok.Game;
+import omok.Player;
+import omok.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks games and searches with a board size and win length other than the usual 15 and 5:
+ * four in a row on a 9x9 board, and six in a row on a 15x15 board.
+ */
+class WinLengthTest {
+
+    /** Places white and black stones given as x, y pairs on a board with the given win length. */
+    private static BitBoard board(int size, int winLength, int[] white, int[] black) {
+        BitBoard board = new BitBoard(size);
+        board.setWinLength(winLength);
+        for (int i = 0; i < white.length; i += 2) {
+            board.place(board.index(white[i], white[i + 1]), Position.WHITE);
+        }
+        for (int i = 0; i < black.length; i += 2) {
+            board.place(board.index(black[i], black[i + 1]), Position.BLACK);
+        }
+        return board;
+    }
+
+    @Test
+    void fourWinsOnANineByNineBoard() {
+        Game game = new Game(9, 4, "Player");
+        Board board = game.getBoard();
+        Player white = game.getWhitePlayer();
+        assertEquals(9, board.size());
+        assertEquals(4, game.getWinLength());
+        assertEquals(4, board.position().winLength());
+        for (int x = 5; x < 8; x++) {
+            board.placeStone(x, 8, white);
+            board.placeStone(x, 0, game.getBlackPlayer());
+        }
+        assertFalse(board.isWonBy(white));
+        board.placeStone(8, 8, white);
+        assertTrue(board.isWonBy(white));
+        assertEquals(Position.WHITE, board.position().winner());
+    }
+
+    @Test
+    void sixWinsAndFiveDoesNot() {
+        Game game = new Game(15, 6, "Player");
+        Board board = game.getBoard();
+        Player black = game.getBlackPlayer();
+        for (int y = 3; y < 8; y++) {
+            board.placeStone(0, 14 - y, game.getWhitePlayer());
+            board.placeStone(7, y, black);
+        }
+        assertFalse(board.isWonBy(black));
+        board.placeStone(7, 8, black);
+        assertTrue(board.isWonBy(black));
+    }
+
+    @Test
+    void searchesPlayToTheWinLength() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(1), 1);
+        // k = 4: white completes its three, and otherwise black's three blocked at one end.
+        BitBoard win = board(9, 4, new int[] {2, 2, 3, 2, 4, 2}, new int[] {0, 8, 8, 0, 8, 8});
+        int move = search.search(win, Position.WHITE, SearchLimits.nodes(5_000)).getMove();
+        assertTrue(move == win.index(1, 2) || move == win.index(5, 2), "move " + move);
+        BitBoard block = board(9, 4, new int[] {1, 4, 0, 0}, new int[] {2, 4, 3, 4, 4, 4});
+        assertEquals(block.index(5, 4), search.search(block, Position.WHITE, SearchLimits.nodes(5_000)).getMove());
+
+        // k = 6: an open five must be completed, and five alone is not a win.
+        BitBoard six = board(15, 6, new int[] {3, 7, 4, 7, 5, 7, 6, 7, 7, 7}, new int[] {3, 8, 4, 8, 5, 8, 6, 8});
+        assertEquals(Position.EMPTY, six.winner());
+        move = search.search(six, Position.WHITE, SearchLimits.nodes(5_000)).getMove();
+        assertTrue(move == six.index(2, 7) || move == six.index(8, 7), "move " + move);
+
+        MctsEngine mcts = new MctsEngine(10_000);
+        move = mcts.search(win, Position.WHITE, SearchLimits.nodes(1_000)).getMove();
+        assertTrue(move == win.index(1, 2) || move == win.index(5, 2), "move " + move);
+        search.shutdown();
+    }
+
+    /** The pattern tables classify the lines of each win length by their distance from a win. */
+    @Test
+    void patternTablesFollowTheWinLength() {
+        BitBoard four = board(9, 4, new int[] {2, 2, 3, 2, 4, 2}, new int[0]);
+        BitBoard six = board(15, 6, new int[] {2, 2, 3, 2, 4, 2}, new int[0]);
+        Evaluator evaluator = new Evaluator();
+        assertTrue(evaluator.scoreMove(four, four.index(5, 2), Position.WHITE)
+                > evaluator.scoreMove(six, six.index(5, 2), Position.WHITE));
+        assertTrue(PatternTable.forWinLength(4) != PatternTable.forWinLength(6));
+        assertTrue(PatternTable.forWinLength(6) == PatternTable.forWinLength(6));
+    }
+
+    @Test
+    void gamesRejectLinesThatCannotBeClassified() {
+        assertThrows(IllegalArgumentException.class, () -> new Game(9, 10, "Player"));
+        assertThrows(IllegalArgumentException.class, () -> new Game(9, 1, "Player"));
+        assertThrows(IllegalArgumentException.class, () -> new Game(40, PatternTable.MAX_WIN_LENGTH + 1, "Player"));
+        BitBoard position = new BitBoard(9);
+        position.setWinLength(4);
+        assertEquals(4, new Game(position, new ParallelSearch(), new ParallelSearch()).getWinLength());
+    }
+}
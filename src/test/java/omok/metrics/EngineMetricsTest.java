@@ -0,0 +1,136 @@
+package omok.metrics;
+
+import omok.Game;
+import omok.PlayerComputer;
+import omok.engine.ParallelSearch;
+import omok.engine.SearchLimits;
+import omok.engine.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the accounting of {@link EngineMetrics}: moves by source, search figures, the latency
+ * histogram, pondering and table statistics, and the MBean registration.
+ */
+class EngineMetricsTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    void countsMovesBySource() {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.recordMove(EngineMetrics.SEARCH, 10_000, 6, 100, 100 * MILLI);
+        metrics.recordMove(EngineMetrics.PONDER, 30_000, 8, 200, 5 * MILLI);
+        metrics.recordMove(EngineMetrics.BOOK, 0, 0, 0, 0);
+        assertEquals(3, metrics.getMoves());
+        assertEquals(2, metrics.getSearches());
+        assertEquals(1, metrics.getBookMoves());
+        assertEquals(40_000, metrics.getNodes());
+        // 40,000 nodes in 300 ms, and 30,000 in 200 ms for the last search.
+        assertEquals(133_333, metrics.getNodesPerSecond());
+        assertEquals(150_000, metrics.getLastNodesPerSecond());
+        assertEquals(8, metrics.getLastDepth());
+        assertEquals(8, metrics.getMaxDepth());
+        assertEquals(7.0, metrics.getAverageDepth(), 1e-9);
+    }
+
+    /** Bucket b counts latencies below 2^b ms, and the percentiles are read off the buckets. */
+    @Test
+    void latencyHistogram() {
+        EngineMetrics metrics = new EngineMetrics();
+        long[] millis = {0, 1, 3, 3, 100};
+        for (long latency : millis) {
+            metrics.recordMove(EngineMetrics.SEARCH, 1, 1, 1, latency * MILLI);
+        }
+        long[] histogram = metrics.getLatencyHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(2, histogram[2]);
+        assertEquals(1, histogram[7]);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        assertEquals(millis.length, total);
+        assertEquals(4, metrics.getLatencyMedianMillis());
+        assertEquals(100, metrics.getLatency99Millis());
+        assertEquals(100, metrics.getMaxLatencyMillis());
+    }
+
+    @Test
+    void profilesAndPondering() {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.recordProfile(3 * MILLI, 2 * MILLI, 100, 25, 0);
+        metrics.recordProfile(5 * MILLI, 4 * MILLI, 300, 75, 2);
+        assertEquals(0.25, metrics.getHashHitRate(), 1e-9);
+        assertEquals(2, metrics.getHashCollisions());
+        assertEquals(0.25, metrics.getLastHashHitRate(), 1e-9);
+        assertEquals(8, metrics.getEvaluationMillis());
+        assertEquals(6, metrics.getGenerationMillis());
+        assertEquals(5 * MILLI, metrics.getLastEvaluationNanos());
+
+        metrics.recordPonder(true);
+        metrics.recordPonder(false);
+        metrics.recordPonder(true);
+        assertEquals(2, metrics.getPonderHits());
+        assertEquals(1, metrics.getPonderMisses());
+
+        metrics.reset();
+        assertEquals(0, metrics.getPonderHits());
+        assertEquals(0.0, metrics.getHashHitRate());
+        assertEquals(0, metrics.getHashCollisions());
+        assertEquals(0, metrics.getEvaluationMillis());
+        assertEquals(0, metrics.getLatencyMedianMillis());
+    }
+
+    /** Metrics registered under a name already in use replace the MBean registered before. */
+    @Test
+    void registrationReplacesTheOldMetrics() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(EngineMetrics.OBJECT_NAME + ObjectName.quote("EngineMetricsTest"));
+        EngineMetrics first = new EngineMetrics();
+        EngineMetrics second = new EngineMetrics();
+        first.register("EngineMetricsTest");
+        first.recordPonder(true);
+        assertEquals(1L, server.getAttribute(name, "PonderHits"));
+        second.register("EngineMetricsTest");
+        assertEquals(0L, server.getAttribute(name, "PonderHits"));
+        // The replaced metrics must not take the new ones with them.
+        first.unregister();
+        assertTrue(server.isRegistered(name));
+        second.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+
+    /** An AI player counts its own searches, with the profile its engine adds. */
+    @Test
+    void playerRecordsItsSearches() {
+        ParallelSearch white = new ParallelSearch();
+        Game game = new Game(15, white, new ParallelSearch());
+        PlayerComputer player = (PlayerComputer) game.getWhitePlayer();
+        PlayerComputer opponent = (PlayerComputer) game.getBlackPlayer();
+        player.setSearchLimits(SearchLimits.nodes(2_000));
+        opponent.setSearchLimits(SearchLimits.nodes(2_000));
+        long nodes = 0;
+        for (int move = 0; move < 3; move++) {
+            SearchResult result = player.computeMove();
+            player.applyMove(result);
+            nodes += result.getNodes();
+            opponent.makeMove();
+        }
+        EngineMetrics metrics = player.getMetrics();
+        assertEquals(3, metrics.getMoves());
+        assertEquals(3, metrics.getSearches());
+        assertEquals(nodes, metrics.getNodes());
+        assertTrue(metrics.getHashHitRate() >= 0 && metrics.getHashHitRate() <= 1);
+        assertTrue(metrics.getLastGenerationNanos() > 0);
+        white.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package omok.record;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round trips of {@link GameRecord} through its binary form, the text notations and a
+ * {@link GameDatabase} file.
+ */
+class GameDatabaseTest {
+
+    @TempDir
+    Path directory;
+
+    /** A short won game on a 15x15 board. */
+    private static GameRecord shortGame() {
+        return Notation.parseAlgebraic("h8 a1 i8 a2 j8 a3 k8 a4 l8", 15, 5);
+    }
+
+    /** A record of {@link GameRecord#MAX_MOVES} moves, each on its own intersection of a 256x256 board. */
+    private static GameRecord longestGame() {
+        int[] xs = new int[GameRecord.MAX_MOVES];
+        int[] ys = new int[GameRecord.MAX_MOVES];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i % GameRecord.MAX_SIZE;
+            ys[i] = i / GameRecord.MAX_SIZE;
+        }
+        return new GameRecord(GameRecord.MAX_SIZE, 5, GameRecord.FREESTYLE, GameRecord.DRAW, xs, ys);
+    }
+
+    /** A game on an unbounded board that reaches the most negative and most positive coordinates. */
+    private static GameRecord unboundedGame() {
+        int[] xs = {0, -128, 127, -1, 5, -128};
+        int[] ys = {0, -128, 127, 1, -5, 127};
+        return new GameRecord(0, 5, GameRecord.FREESTYLE, GameRecord.UNFINISHED, xs, ys);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        for (GameRecord record : new GameRecord[] {shortGame(), longestGame(), unboundedGame()}) {
+            byte[] bytes = record.toBytes();
+            assertEquals(record.encodedLength(), bytes.length);
+            assertEquals(record, GameRecord.fromBytes(bytes));
+        }
+    }
+
+    @Test
+    void unboundedCoordinatesKeepTheirSign() {
+        GameRecord record = GameRecord.fromBytes(unboundedGame().toBytes());
+        assertEquals(-128, record.x(1));
+        assertEquals(-128, record.y(1));
+        assertEquals(127, record.x(2));
+        assertEquals(127, record.y(2));
+        assertEquals(-5, record.y(4));
+    }
+
+    @Test
+    void truncatedBytesAreRejected() {
+        byte[] bytes = shortGame().toBytes();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> GameRecord.fromBytes(truncated));
+    }
+
+    @Test
+    void notationRoundTrip() {
+        GameRecord record = shortGame();
+        assertEquals(GameRecord.WHITE_WINS, record.result());
+        assertEquals("h8 a1 i8 a2 j8 a3 k8 a4 l8", Notation.toAlgebraic(record));
+        assertEquals(record, Notation.parseAlgebraic(Notation.toAlgebraic(record), 15, 5));
+        assertEquals(record, Notation.parseGomocup(Notation.toGomocup(record), 15, 5));
+
+        GameRecord unbounded = Notation.parseGomocup("0,0\n-3,7\n1,1\n-3,-7\n", 0, 5);
+        assertEquals(-7, unbounded.y(3));
+        assertEquals(unbounded, Notation.parseGomocup(Notation.toGomocup(unbounded), 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> Notation.toAlgebraic(unbounded));
+    }
+
+    @Test
+    void databaseRoundTrip() throws IOException {
+        GameRecord[] records = {shortGame(), longestGame(), unboundedGame(), longestGame(), shortGame()};
+        Path file = this.directory.resolve("games.db");
+        try (GameDatabase.Writer writer = GameDatabase.Writer.create(file)) {
+            for (GameRecord record : records) {
+                writer.add(record);
+            }
+            assertEquals(records.length, writer.count());
+        }
+        try (GameDatabase database = GameDatabase.open(file)) {
+            assertEquals(records.length, database.count());
+            for (int game = 0; game < records.length; game++) {
+                GameRecord record = records[game];
+                assertEquals(record, database.get(game));
+                assertEquals(record.size(), database.size(game));
+                assertEquals(record.result(), database.result(game));
+                assertEquals(record.moveCount(), database.moveCount(game));
+                int last = record.moveCount() - 1;
+                assertEquals(record.x(last), database.x(game, last));
+                assertEquals(record.y(last), database.y(game, last));
+            }
+            assertArrayEquals(records[2].toBytes(), database.get(2).toBytes());
+            assertThrows(IndexOutOfBoundsException.class, () -> database.get(records.length));
+        }
+    }
+}
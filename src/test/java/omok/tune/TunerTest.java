@@ -0,0 +1,130 @@
+package omok.tune;
+
+import omok.BitBoard;
+import omok.Position;
+import omok.engine.EvalWeights;
+import omok.engine.PatternTable;
+import omok.record.GameDatabase;
+import omok.record.GameRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link Tuner} streams the same positions whatever the number of threads and
+ * databases, and that its gradient points uphill.
+ */
+class TunerTest {
+
+    private static final int GAMES = 300;
+
+    @TempDir
+    Path directory;
+
+    /** Plays a game of random moves on a 9x9 board until it is won or the board is full. */
+    private static GameRecord randomGame(Random random) {
+        BitBoard board = new BitBoard(9);
+        for (int ply = 0; board.winner() == Position.EMPTY && !board.isFull(); ply++) {
+            board.place(board.randomEmpty(random), GameRecord.colorOf(ply));
+        }
+        return GameRecord.of(board);
+    }
+
+    /** Writes games {@code from} to {@code to} of the random sequence to a database and opens it. */
+    private GameDatabase database(String name, int from, int to) throws IOException {
+        Random random = new Random(20);
+        Path file = this.directory.resolve(name);
+        try (GameDatabase.Writer writer = GameDatabase.Writer.create(file)) {
+            for (int game = 0; game < to; game++) {
+                GameRecord record = randomGame(random);
+                if (game >= from) {
+                    writer.add(record);
+                }
+            }
+        }
+        return GameDatabase.open(file);
+    }
+
+    /** The error of the given weights, from an epoch with a zero learning rate. */
+    private static double loss(List<GameDatabase> databases, EvalWeights weights, int threads)
+            throws InterruptedException {
+        return new Tuner(databases, weights, threads).tune(1, 0);
+    }
+
+    @Test
+    void passDoesNotDependOnThreadsOrFiles() throws IOException, InterruptedException {
+        try (GameDatabase all = database("all.ogdb", 0, GAMES);
+             GameDatabase first = database("first.ogdb", 0, GAMES / 3);
+             GameDatabase rest = database("rest.ogdb", GAMES / 3, GAMES)) {
+            double loss = loss(List.of(all), EvalWeights.DEFAULT, 1);
+            assertTrue(loss > 0 && loss < 1, "loss " + loss);
+            assertEquals(loss, loss(List.of(all), EvalWeights.DEFAULT, 4), 1e-9);
+            assertEquals(loss, loss(List.of(first, rest), EvalWeights.DEFAULT, 3), 1e-9);
+        }
+    }
+
+    @Test
+    void fittedScaleIsNoWorseThanTheStartingOne() throws IOException, InterruptedException {
+        try (GameDatabase database = database("games.ogdb", 0, GAMES)) {
+            Tuner tuner = new Tuner(List.of(database), EvalWeights.DEFAULT, 2);
+            double before = tuner.tune(1, 0);
+            double fitted = tuner.fitScale();
+            assertTrue(fitted <= before + 1e-12, before + " -> " + fitted);
+            assertEquals(fitted, tuner.tune(1, 0), 1e-12);
+        }
+    }
+
+    /**
+     * The first Adam step moves every weight by the learning rate against the sign of its
+     * gradient, so each step must go the way a central difference of the error says is downhill.
+     */
+    @Test
+    void gradientPointsUphill() throws IOException, InterruptedException {
+        try (GameDatabase database = database("games.ogdb", 0, GAMES)) {
+            List<GameDatabase> databases = List.of(database);
+            Tuner tuner = new Tuner(databases, EvalWeights.DEFAULT, 2);
+            tuner.tune(1, 1);
+            EvalWeights stepped = tuner.result(EvalWeights.DEFAULT);
+            int checked = 0;
+            for (int c = 0; c < PatternTable.CLASSES; c++) {
+                int step = stepped.ownLine(c) - EvalWeights.DEFAULT.ownLine(c);
+                double slope = loss(databases, shifted(c, 1), 2) - loss(databases, shifted(c, -1), 2);
+                if (Math.abs(slope) > 1e-9) {
+                    assertEquals(-(int) Math.signum(slope), step, "class " + c);
+                    checked++;
+                }
+            }
+            assertTrue(checked >= 3, "only " + checked + " classes have a slope");
+        }
+    }
+
+    /** The default weights with the own value of one class moved by {@code delta}. */
+    private static EvalWeights shifted(int patternClass, int delta) {
+        int[] own = new int[PatternTable.CLASSES];
+        int[] opponent = new int[PatternTable.CLASSES];
+        for (int c = 0; c < PatternTable.CLASSES; c++) {
+            own[c] = EvalWeights.DEFAULT.ownLine(c);
+            opponent[c] = EvalWeights.DEFAULT.opponentLine(c);
+        }
+        own[patternClass] += delta;
+        return EvalWeights.DEFAULT.withLineValues(own, opponent);
+    }
+
+    @Test
+    void unfinishedGamesAreSkipped() throws IOException, InterruptedException {
+        Path file = this.directory.resolve("unfinished.ogdb");
+        try (GameDatabase.Writer writer = GameDatabase.Writer.create(file)) {
+            writer.add(randomGame(new Random(3)).withResult(GameRecord.UNFINISHED));
+        }
+        try (GameDatabase database = GameDatabase.open(file)) {
+            assertEquals(0.0, loss(List.of(database), EvalWeights.DEFAULT, 1));
+        }
+    }
+}
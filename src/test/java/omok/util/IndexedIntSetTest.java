@@ -0,0 +1,114 @@
+package omok.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link IndexedIntSet} against a {@link BitSet}.
+ */
+class IndexedIntSetTest {
+
+    @Test
+    void removeSwapsLastMemberIn() {
+        IndexedIntSet set = new IndexedIntSet(10);
+        for (int value : new int[] {3, 7, 1, 9}) {
+            set.add(value);
+        }
+        set.remove(7);
+        assertEquals(3, set.size());
+        assertEquals(3, set.get(0));
+        assertEquals(9, set.get(1));
+        assertEquals(1, set.get(2));
+        assertFalse(set.contains(7));
+
+        // The moved member can itself be removed, and removing the last member moves nothing.
+        set.remove(9);
+        assertEquals(1, set.get(1));
+        set.remove(1);
+        assertEquals(1, set.size());
+        assertEquals(3, set.get(0));
+    }
+
+    @Test
+    void addAndRemoveAreIdempotent() {
+        IndexedIntSet set = new IndexedIntSet(4);
+        set.add(2);
+        set.add(2);
+        assertEquals(1, set.size());
+        set.remove(0);
+        set.remove(2);
+        set.remove(2);
+        assertTrue(set.isEmpty());
+    }
+
+    /** Random adds and removes keep the members, their count and positions in agreement. */
+    @Test
+    void matchesBitSet() {
+        Random random = new Random(3);
+        int capacity = 200;
+        IndexedIntSet set = new IndexedIntSet(capacity);
+        BitSet expected = new BitSet(capacity);
+        for (int step = 0; step < 20_000; step++) {
+            int value = random.nextInt(capacity);
+            if (random.nextBoolean()) {
+                set.add(value);
+                expected.set(value);
+            } else {
+                set.remove(value);
+                expected.clear(value);
+            }
+            assertEquals(expected.cardinality(), set.size());
+            assertEquals(expected.get(value), set.contains(value));
+            if (step % 100 == 0) {
+                BitSet members = new BitSet(capacity);
+                for (int i = 0; i < set.size(); i++) {
+                    members.set(set.get(i));
+                }
+                assertEquals(expected, members);
+            }
+        }
+    }
+
+    @Test
+    void randomDrawsEveryMember() {
+        IndexedIntSet set = new IndexedIntSet(100);
+        for (int value = 0; value < 100; value += 10) {
+            set.add(value);
+        }
+        int[] counts = new int[100];
+        Random random = new Random(4);
+        for (int i = 0; i < 10_000; i++) {
+            counts[set.random(random)]++;
+        }
+        for (int value = 0; value < 100; value++) {
+            if (value % 10 == 0) {
+                assertTrue(counts[value] > 800 && counts[value] < 1200, "draws of " + value + ": " + counts[value]);
+            } else {
+                assertEquals(0, counts[value]);
+            }
+        }
+    }
+
+    @Test
+    void copyAndClear() {
+        IndexedIntSet set = new IndexedIntSet(8);
+        set.add(5);
+        set.add(6);
+        IndexedIntSet copy = set.copy();
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(5));
+        assertEquals(2, copy.size());
+        assertTrue(copy.contains(6));
+        set.add(6);
+        assertEquals(6, set.get(0));
+        assertThrows(IllegalStateException.class, () -> new IndexedIntSet(8).random(new Random()));
+    }
+}